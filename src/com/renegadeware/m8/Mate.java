@@ -41,6 +41,12 @@ public class Mate extends ObjectManager {
     public void update(float timeDelta, BaseObject parent) {
 		gameTime.update(timeDelta, parent);
         final float newTimeDelta = gameTime.getFrameDelta();  // The time system may warp time.
+        
+        // touch events queued by the UI thread since the last update
+        if(systemRegistry.inputSystem != null) {
+        	systemRegistry.inputSystem.update(newTimeDelta, this);
+        }
+        
         super.update(newTimeDelta, parent);
     }
 	
@@ -100,6 +106,11 @@ public class Mate extends ObjectManager {
 		}
 	}
 	
+	/** The game thread, valid after bootstrap.  Use this to set up a fixed timestep. */
+	public MateThread getGameThread() {
+		return gameThread;
+	}
+	
 	public boolean isBootstrapComplete() {
 		return isBootstrapComplete;
 	}
@@ -18,6 +18,7 @@ import com.renegadeware.m8.obj.BaseObject;
 import com.renegadeware.m8.obj.ObjectRegistry;
 import com.renegadeware.m8.res.ResourceGroupManager;
 import com.renegadeware.m8.screen.ScreenSystem;
+import com.renegadeware.m8.sound.MusicManager;
 import com.renegadeware.m8.sound.SoundManager;
 import com.renegadeware.m8.ui.UIResManager;
 import com.renegadeware.m8.util.Util;
@@ -177,6 +178,10 @@ public abstract class MateActivity extends Activity implements MateInterface {
         SoundManager sndMgr = new SoundManager();
         sysReg.soundManager = sndMgr;
         resGrpMgr.registerResourceManager(sndMgr);
+        
+        MusicManager musicMgr = new MusicManager();
+        sysReg.musicManager = musicMgr;
+        resGrpMgr.registerResourceManager(musicMgr);
                         
         //vertex buffer, sound manager
                 
@@ -184,6 +189,9 @@ public abstract class MateActivity extends Activity implements MateInterface {
         //Systems
         sysReg.renderSystem =  new RenderSystem();
         
+        // used by ParallelObjectManager
+        sysReg.updateScheduler = new UpdateScheduler(UpdateScheduler.getDefaultWorkerCount());
+        
         InputSystem input = new InputSystem();
         sysReg.inputSystem = input;
         sysReg.registerForReset(input);
@@ -230,6 +238,10 @@ public abstract class MateActivity extends Activity implements MateInterface {
     	// stop the game thread
     	root.stop();
     	
+    	if(BaseObject.systemRegistry.updateScheduler != null) {
+    		BaseObject.systemRegistry.updateScheduler.shutdown();
+    	}
+    	
     	//unregister all resource managers, clear out resource groups, and unload any stray resources
     	BaseObject.systemRegistry.resourceGroupManager.reset();
     	
@@ -306,24 +318,12 @@ public abstract class MateActivity extends Activity implements MateInterface {
     public final boolean onTouchEvent(MotionEvent event) {
     	if(!root.isPaused()) {
     		//call touch filter
+    		//the events are queued for the game thread, so there's no need to hold up this one
     		if(root.isRunning()) {
     			touchFilter.updateTouch(event);
     		}
     		
-    		final long time = System.currentTimeMillis();
-    		
-    		if (event.getAction() == MotionEvent.ACTION_MOVE && time - lastTouchTime < 32) {
-    			// Sleep so that the main thread doesn't get flooded with UI events.
-		        try {
-		            Thread.sleep(32);
-		        } catch (InterruptedException e) {
-		            // No big deal if this sleep is interrupted.
-		        }
-		        
-		        renderer.waitDrawingComplete();
-    		}
-    		
-    		lastTouchTime = time;
+    		lastTouchTime = System.currentTimeMillis();
     	}
     	
     	return true;
@@ -17,8 +17,11 @@
 package com.renegadeware.m8;
 
 import com.renegadeware.m8.gfx.MateRenderer;
+import com.renegadeware.m8.gfx.RenderSystem;
 import com.renegadeware.m8.obj.BaseObject;
 import com.renegadeware.m8.obj.ObjectManager;
+import com.renegadeware.m8.sound.MusicManager;
+import com.renegadeware.m8.sound.SoundManager;
 
 import android.os.SystemClock;
 
@@ -26,6 +29,10 @@ import android.os.SystemClock;
  * The GameThread contains the main loop for the game engine logic.  It invokes the game graph,
  * manages synchronization of input events, and handles the draw queue swap with the rendering
  * thread.
+ * <p>
+ * By default the game graph is updated once per frame with the time elapsed since the last frame.
+ * With setFixedTimestep, it is instead updated in fixed steps that catch up with real time, and the
+ * render system's interpolation factor is set to the fraction of a step left over.
  */
 public class MateThread implements Runnable {
     private long mLastTime;
@@ -38,8 +45,22 @@ public class MateThread implements Runnable {
     private int profileFrames;
     private long profileTime;
     
+    // fixed timestep, disabled if step is 0
+    private volatile long fixedStep;
+    private volatile int maxSteps;
+    private long lastFrameNanos;
+    private long accumulator;
+    
+    // fixed timestep statistics
+    private volatile int frameCount;
+    private volatile int lateFrames;
+    private volatile int catchUpSteps;
+    private volatile int skippedSteps;
+    
     private static final float PROFILE_REPORT_DELAY = 3.0f;
     
+    public static final int DEFAULT_MAX_STEPS = 5;
+    
     public MateThread(MateRenderer renderer) {
         mLastTime = SystemClock.uptimeMillis();
         this.renderer = renderer;
@@ -50,9 +71,14 @@ public class MateThread implements Runnable {
 
     public void run() {
         mLastTime = SystemClock.uptimeMillis();
+        lastFrameNanos = System.nanoTime();
+        accumulator = 0;
         finished = false;
         while (!finished) {
-            if (root != null) {
+            if (root != null && fixedStep > 0) {
+                runFixedStep();
+            }
+            else if (root != null) {
                 //mRenderer.waitDrawingComplete();
                 
                 final long time = SystemClock.uptimeMillis();
@@ -64,10 +90,19 @@ public class MateThread implements Runnable {
                         secondsDelta = 0.1f;
                     }
                     mLastTime = time;
+                    
+                    final long frameStart = Profiler.begin();
     
                     root.update(secondsDelta, null);
+                    
+                    Profiler.end(Profiler.SCOPE_UPDATE, frameStart);
+                    
+                    final long swapStart = Profiler.begin();
                         
                     BaseObject.systemRegistry.renderSystem.swap(renderer);
+                    
+                    Profiler.end(Profiler.SCOPE_SWAP, swapStart);
+                    Profiler.end(Profiler.SCOPE_FRAME, frameStart);
                                         
                     final long endTime = SystemClock.uptimeMillis();
                     
@@ -76,8 +111,13 @@ public class MateThread implements Runnable {
                     profileTime += finalDelta;
                     profileFrames++;
                     if (profileTime > PROFILE_REPORT_DELAY * 1000) {
-                        final long averageFrameTime = profileTime / profileFrames;
-                        DebugLog.d("Game Profile", "Average: " + averageFrameTime);
+                        if (Profiler.isEnabled()) {
+                        	Profiler.logReport();
+                        }
+                        else {
+                        	final long averageFrameTime = profileTime / profileFrames;
+                        	DebugLog.d("Game Profile", "Average: " + averageFrameTime);
+                        }
                         profileTime = 0;
                         profileFrames = 0;
                         //mGameRoot.sSystemRegistry.hudSystem.setFPS(1000 / (int)averageFrameTime);
@@ -94,14 +134,21 @@ public class MateThread implements Runnable {
                         // Interruptions here are no big deal.
                     }
                 }
-                
+            }
+            
+            if (root != null) {
                 synchronized(pauseLock) {
                     if (pause) {
-                    	/*SoundSystem sound = BaseObject.sSystemRegistry.soundSystem;
+                    	final SoundManager sound = BaseObject.systemRegistry.soundManager;
                     	if (sound != null) {
                     		sound.pauseAll();
-                    		BaseObject.sSystemRegistry.inputSystem.releaseAllKeys();
-                    	}*/
+                    	}
+                    	
+                    	final MusicManager music = BaseObject.systemRegistry.musicManager;
+                    	if (music != null) {
+                    		music.setSuspended(true);
+                    	}
+                    	
                         while (pause) {
                             try {
                             	pauseLock.wait();
@@ -109,6 +156,19 @@ public class MateThread implements Runnable {
                                 // No big deal if this wait is interrupted.
                             }
                         }
+                        
+                        if (sound != null) {
+                        	sound.resumeAll();
+                        }
+                        
+                        if (music != null) {
+                        	music.setSuspended(false);
+                        }
+                        
+                        // don't try to catch up with the time spent paused
+                        mLastTime = SystemClock.uptimeMillis();
+                        lastFrameNanos = System.nanoTime();
+                        accumulator = 0;
                     }
                 }
             } 
@@ -117,6 +177,140 @@ public class MateThread implements Runnable {
         //BaseObject.sSystemRegistry.renderSystem.emptyQueues(mRenderer);
     }
 
+    /**
+     * Run as many fixed steps as real time requires, then swap and wait until the next step is due.
+     */
+    private void runFixedStep() {
+        final long step = fixedStep;
+        final int maxSteps = this.maxSteps;
+        
+        final long time = System.nanoTime();
+        accumulator += time - lastFrameNanos;
+        lastFrameNanos = time;
+        
+        int steps = (int)(accumulator / step);
+        if (steps > maxSteps) {
+            // too far behind to catch up, let the simulation slow down instead
+            skippedSteps += steps - maxSteps;
+            accumulator -= (steps - maxSteps) * step;
+            steps = maxSteps;
+        }
+        
+        if (steps > 0) {
+            final RenderSystem renderSystem = BaseObject.systemRegistry.renderSystem;
+            final float stepSeconds = step * 0.000000001f;
+            
+            // what's left over once all the steps are done
+            renderSystem.setInterpolation((float)(accumulator - steps * step) / step);
+            
+            final long frameStart = Profiler.begin();
+            
+            for (int i = 0; i < steps; i++) {
+                // only the last step's drawables make it to the screen
+                if (i > 0) {
+                    renderSystem.discardScheduled();
+                }
+                
+                final long updateStart = Profiler.begin();
+                
+                root.update(stepSeconds, null);
+                
+                Profiler.end(Profiler.SCOPE_UPDATE, updateStart);
+                
+                accumulator -= step;
+            }
+            
+            final long swapStart = Profiler.begin();
+            
+            renderSystem.swap(renderer);
+            
+            Profiler.end(Profiler.SCOPE_SWAP, swapStart);
+            Profiler.end(Profiler.SCOPE_FRAME, frameStart);
+            
+            frameCount++;
+            if (steps > 1) {
+                lateFrames++;
+                catchUpSteps += steps - 1;
+            }
+            
+            profileTime += (System.nanoTime() - time) / 1000000;
+            profileFrames++;
+            if (profileTime > PROFILE_REPORT_DELAY * 1000) {
+                if (Profiler.isEnabled()) {
+                    Profiler.logReport();
+                }
+                else {
+                    final long averageFrameTime = profileTime / profileFrames;
+                    DebugLog.d("Game Profile", "Average: " + averageFrameTime);
+                }
+                profileTime = 0;
+                profileFrames = 0;
+            }
+        }
+        
+        // sleep until the next step is due
+        final long remaining = time + (step - accumulator) - System.nanoTime();
+        if (remaining > 0) {
+            try {
+                Thread.sleep(remaining / 1000000, (int)(remaining % 1000000));
+            } catch (InterruptedException e) {
+                // Interruptions here are no big deal.
+            }
+        }
+    }
+    
+    /**
+     * Update the game graph in fixed steps instead of once per frame.
+     * 
+     * @param step The step in seconds, e.g. 1/60.  0 to go back to a variable timestep.
+     * @param maxSteps The most steps to run before a single swap, past that the simulation is 
+     * allowed to fall behind real time.
+     */
+    public void setFixedTimestep(float step, int maxSteps) {
+        this.maxSteps = maxSteps > 0 ? maxSteps : 1;
+        fixedStep = step > 0.0f ? (long)(step * 1000000000.0) : 0;
+        
+        if (fixedStep == 0 && BaseObject.systemRegistry.renderSystem != null) {
+        	BaseObject.systemRegistry.renderSystem.setInterpolation(1.0f);
+        }
+    }
+    
+    /** The fixed step in seconds, 0 if the timestep is variable. */
+    public float getFixedTimestep() {
+        return fixedStep * 0.000000001f;
+    }
+    
+    public int getMaxSteps() {
+        return maxSteps;
+    }
+    
+    /** Number of frames swapped with a fixed timestep. */
+    public int getFrameCount() {
+        return frameCount;
+    }
+    
+    /** Number of frames that needed more than one step to catch up with real time. */
+    public int getLateFrameCount() {
+        return lateFrames;
+    }
+    
+    /** Number of extra steps run to catch up with real time. */
+    public int getCatchUpStepCount() {
+        return catchUpSteps;
+    }
+    
+    /** Number of steps dropped because a frame would have needed more than the max steps. */
+    public int getSkippedStepCount() {
+        return skippedSteps;
+    }
+    
+    public void resetStats() {
+        frameCount = 0;
+        lateFrames = 0;
+        catchUpSteps = 0;
+        skippedSteps = 0;
+    }
+
     public void stop() {
     	synchronized (pauseLock) {
             pause = false;
@@ -5,10 +5,16 @@ import java.lang.reflect.Modifier;
 
 import android.content.SharedPreferences;
 
+import com.renegadeware.m8.util.FieldBinder;
+import com.renegadeware.m8.util.FieldBinders;
+
 /**
  * Convenience class to manipulate your preferences based on class' member variables.
  * <p>
  * note: this only stores booleans, floats, ints, longs, and strings.
+ * <p>
+ * Fields are accessed through the class' generated FieldBinder if there is one, reflection
+ * otherwise.
  * 
  * @author ddionisio
  *
@@ -124,6 +130,11 @@ public abstract class Preference {
 	}
 	
 	private void _loadClass(String base, Object obj, Class<?> c, SharedPreferences prefs) throws Exception {
+		FieldBinder binder = FieldBinders.get(c);
+		if(binder != null && binder.loadPreferences(obj, base, prefs)) {
+			return;
+		}
+		
 		Field[] fields = c.getDeclaredFields();
 
 		for(int i = 0; i < fields.length; i++) {
@@ -220,19 +231,19 @@ public abstract class Preference {
 			_saveFieldArray(varName, typeName, 1, f.get(obj), edit);
 		}
 		else if(typeName.compareTo("boolean") == 0) {
-			edit.putBoolean(f.getName(), f.getBoolean(obj));
+			edit.putBoolean(varName, f.getBoolean(obj));
 		}
 		else if(typeName.compareTo("float") == 0) {
-			edit.putFloat(f.getName(), f.getFloat(obj));
+			edit.putFloat(varName, f.getFloat(obj));
 		}
 		else if(typeName.compareTo("int") == 0) {
-			edit.putInt(f.getName(), f.getInt(obj));
+			edit.putInt(varName, f.getInt(obj));
 		}
 		else if(typeName.compareTo("long") == 0) {
-			edit.putLong(f.getName(), f.getLong(obj));
+			edit.putLong(varName, f.getLong(obj));
 		}
 		else if(typeName.compareTo("java.lang.String") == 0) {
-			edit.putString(f.getName(), (String)f.get(obj));
+			edit.putString(varName, (String)f.get(obj));
 		}
 		else {
 			_saveClass(varName, f.get(obj), type, edit);
@@ -240,6 +251,11 @@ public abstract class Preference {
 	}
 	
 	private void _saveClass(String base, Object obj, Class<?> c, SharedPreferences.Editor edit) throws Exception {
+		FieldBinder binder = FieldBinders.get(c);
+		if(binder != null && binder.savePreferences(obj, base, edit)) {
+			return;
+		}
+		
 		Field[] fields = c.getDeclaredFields();
 
 		for(int i = 0; i < fields.length; i++) {
@@ -334,6 +350,11 @@ public abstract class Preference {
 	}
 	
 	private void _clearClass(String base, Object obj, Class<?> c, SharedPreferences.Editor edit) throws Exception {
+		FieldBinder binder = FieldBinders.get(c);
+		if(binder != null && binder.clearPreferences(obj, base, edit)) {
+			return;
+		}
+		
 		Field[] fields = c.getDeclaredFields();
 
 		for(int i = 0; i < fields.length; i++) {
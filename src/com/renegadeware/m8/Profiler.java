@@ -0,0 +1,249 @@
+package com.renegadeware.m8;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Frame profiler with named scopes.  Each scope records the start time and duration (in nanoseconds)
+ * of its last SAMPLE_COUNT samples into a ring buffer, so recording does no allocation.  When the
+ * profiler is disabled, begin() returns 0 and end() does nothing.
+ * <p>
+ * Register scopes during initialization, registering allocates the ring buffers.  A scope should
+ * only be recorded from one thread, queries from other threads may see a sample in progress.
+ * <pre>
+ * final long start = Profiler.begin();
+ * ...
+ * Profiler.end(Profiler.SCOPE_UPDATE, start);
+ * </pre>
+ */
+public final class Profiler {
+	public static final int MAX_SCOPES = 64;
+	public static final int SAMPLE_COUNT = 256;
+
+	public static final int NO_SCOPE = -1;
+
+	// built-in scopes
+	public static final int SCOPE_FRAME = 0;
+	public static final int SCOPE_UPDATE = 1;
+	public static final int SCOPE_SWAP = 2;
+	public static final int SCOPE_SORT = 3;
+	public static final int SCOPE_DRAW = 4;
+	public static final int SCOPE_SURFACE = 5;
+
+	private static final int FILE_MAGIC = 0x4d505246; // MPRF
+	private static final int FILE_VERSION = 1;
+
+	private static final class Scope {
+		final String name;
+		final long[] starts;
+		final long[] durations;
+		int head;
+		int count;
+
+		Scope(String name) {
+			this.name = name;
+			starts = new long[SAMPLE_COUNT];
+			durations = new long[SAMPLE_COUNT];
+			head = 0;
+			count = 0;
+		}
+	}
+
+	private static final Scope[] scopes = new Scope[MAX_SCOPES];
+	private static int scopeCount = 0;
+
+	// used by percentile queries
+	private static final long[] sortWorkspace = new long[SAMPLE_COUNT];
+
+	private static boolean enabled = false;
+
+	static {
+		registerScope("frame");
+		registerScope("update");
+		registerScope("swap");
+		registerScope("sort");
+		registerScope("draw");
+		registerScope("surface");
+	}
+
+	private Profiler() {
+	}
+
+	public static void setEnabled(boolean enable) {
+		enabled = enable;
+	}
+
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Register a new scope, or get the scope if it already exists.
+	 *
+	 * @return The scope id, NO_SCOPE if we ran out of scopes.
+	 */
+	public static synchronized int registerScope(String name) {
+		for(int i = 0; i < scopeCount; i++) {
+			if(scopes[i].name.equals(name)) {
+				return i;
+			}
+		}
+
+		if(scopeCount == MAX_SCOPES) {
+			DebugLog.e("Profiler", "Unable to register scope: " + name + ", max scopes reached.");
+			return NO_SCOPE;
+		}
+
+		scopes[scopeCount] = new Scope(name);
+		return scopeCount++;
+	}
+
+	public static int getScopeCount() {
+		return scopeCount;
+	}
+
+	public static String getScopeName(int scope) {
+		return scopes[scope].name;
+	}
+
+	/**
+	 * @return The start time to pass to end, 0 if disabled.
+	 */
+	public static long begin() {
+		return enabled ? System.nanoTime() : 0;
+	}
+
+	/**
+	 * Record a sample for the scope, started from begin().
+	 */
+	public static void end(int scope, long start) {
+		if(start != 0 && scope >= 0) {
+			final long duration = System.nanoTime() - start;
+			final Scope s = scopes[scope];
+			final int head = s.head;
+
+			s.starts[head] = start;
+			s.durations[head] = duration;
+
+			s.head = head + 1 == SAMPLE_COUNT ? 0 : head + 1;
+			if(s.count < SAMPLE_COUNT) {
+				s.count++;
+			}
+		}
+	}
+
+	/** Clears all samples. */
+	public static synchronized void clear() {
+		for(int i = 0; i < scopeCount; i++) {
+			scopes[i].head = 0;
+			scopes[i].count = 0;
+		}
+	}
+
+	public static int getSampleCount(int scope) {
+		return scopes[scope].count;
+	}
+
+	/**
+	 * @param percent [0, 100], e.g. 50 for the median.
+	 * @return The duration in nanoseconds at the given percentile of the recorded samples.
+	 */
+	public static synchronized long getPercentile(int scope, float percent) {
+		final Scope s = scopes[scope];
+		final int count = s.count;
+		if(count == 0) {
+			return 0;
+		}
+
+		System.arraycopy(s.durations, 0, sortWorkspace, 0, count);
+		Arrays.sort(sortWorkspace, 0, count);
+
+		int index = (int)(percent * 0.01f * count + 0.5f) - 1;
+		if(index < 0) {
+			index = 0;
+		}
+		else if(index >= count) {
+			index = count - 1;
+		}
+
+		return sortWorkspace[index];
+	}
+
+	public static long getMax(int scope) {
+		final Scope s = scopes[scope];
+		final long[] durations = s.durations;
+		final int count = s.count;
+		long max = 0;
+		for(int i = 0; i < count; i++) {
+			if(durations[i] > max) {
+				max = durations[i];
+			}
+		}
+		return max;
+	}
+
+	public static long getAverage(int scope) {
+		final Scope s = scopes[scope];
+		final long[] durations = s.durations;
+		final int count = s.count;
+		if(count == 0) {
+			return 0;
+		}
+
+		long total = 0;
+		for(int i = 0; i < count; i++) {
+			total += durations[i];
+		}
+		return total / count;
+	}
+
+	/**
+	 * Log p50/p95/p99/max of each scope that has samples, in microseconds.
+	 */
+	public static void logReport() {
+		final int count = scopeCount;
+		for(int i = 0; i < count; i++) {
+			if(scopes[i].count > 0) {
+				DebugLog.d("Profiler", scopes[i].name
+						+ " p50: " + getPercentile(i, 50) / 1000
+						+ " p95: " + getPercentile(i, 95) / 1000
+						+ " p99: " + getPercentile(i, 99) / 1000
+						+ " max: " + getMax(i) / 1000
+						+ " (us, " + scopes[i].count + " samples)");
+			}
+		}
+	}
+
+	/**
+	 * Write all samples for offline analysis.  Format (big endian):
+	 * int magic 'MPRF', int version, int scope count, then per scope: UTF name, int sample count,
+	 * and sample count pairs of long start, long duration from oldest to newest.
+	 */
+	public static synchronized void dump(OutputStream os) throws IOException {
+		final DataOutputStream dos = new DataOutputStream(os);
+
+		dos.writeInt(FILE_MAGIC);
+		dos.writeInt(FILE_VERSION);
+		dos.writeInt(scopeCount);
+
+		for(int i = 0; i < scopeCount; i++) {
+			final Scope s = scopes[i];
+			final int count = s.count;
+
+			dos.writeUTF(s.name);
+			dos.writeInt(count);
+
+			int index = count < SAMPLE_COUNT ? 0 : s.head;
+			for(int n = 0; n < count; n++) {
+				dos.writeLong(s.starts[index]);
+				dos.writeLong(s.durations[index]);
+
+				index = index + 1 == SAMPLE_COUNT ? 0 : index + 1;
+			}
+		}
+
+		dos.flush();
+	}
+}
@@ -31,6 +31,9 @@ public class TimeSystem extends BaseObject {
     private float gameFrameDelta;
     private float realFrameDelta;
     
+    // not cleared by reset, resource managers compare frames across resets
+    private int frameCount;
+    
     private float targetScale;
     private float scaleDuration;
     private float scaleStartTime;
@@ -59,6 +62,7 @@ public class TimeSystem extends BaseObject {
 
     @Override
     public void update(float timeDelta, BaseObject parent) {
+    	frameCount++;
     	realTime += timeDelta;
     	realFrameDelta = timeDelta;
     	
@@ -112,6 +116,11 @@ public class TimeSystem extends BaseObject {
         return realFrameDelta;
     }
     
+    /** Number of updates so far, used to tell how recently something was used. */
+    public int getFrameCount() {
+        return frameCount;
+    }
+    
     public void freeze(float seconds) {
         freezeDelay = seconds;
     }
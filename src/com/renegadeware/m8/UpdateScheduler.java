@@ -0,0 +1,254 @@
+package com.renegadeware.m8;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import com.renegadeware.m8.obj.BaseObject;
+
+/**
+ * Updates a list of independent objects across a small fixed pool of worker threads.  The calling
+ * thread works alongside the workers, objects are claimed in chunks from a shared counter so that
+ * a worker that finishes early takes over the remaining work, and update returns once every object
+ * has been updated.  Nothing is allocated per update.
+ * <p>
+ * Objects updated here run concurrently with each other, so they must not touch shared state
+ * without synchronization.  Only one update runs at a time, a nested update (e.g. from a child of
+ * a ParallelObjectManager) is run serially on the calling thread.
+ * <p>
+ * Each thread also keeps an ordinal of where it is in the update, see getOrdinal, so that work
+ * recorded from several threads can be put back in the order a serial update would have done it.
+ */
+public class UpdateScheduler extends BaseObject {
+	public static final int MAX_WORKERS = 7;
+
+	// objects claimed at a time
+	private static final int CHUNK_SIZE = 8;
+
+	// per thread, see getOrdinal
+	private static final ThreadLocal<long[]> ordinals = new ThreadLocal<long[]>() {
+		@Override
+		protected long[] initialValue() {
+			return new long[1];
+		}
+	};
+
+	private final Worker[] workers;
+
+	// the current job, published to the workers by the generation increment
+	private Object[] jobObjects;
+	private int jobCount;
+	private float jobTimeDelta;
+	private BaseObject jobParent;
+	private long jobOrdinal;
+	private volatile int generation;
+
+	private final AtomicInteger nextIndex;
+	private final AtomicInteger activeWorkers;
+	private volatile Throwable jobError;
+	private volatile Thread caller;
+
+	private boolean busy;
+	private volatile boolean started;
+	private volatile boolean shutdown;
+
+	/**
+	 * The worker threads are only started by the first update that runs in parallel.
+	 * 
+	 * @param workerCount Number of worker threads besides the calling thread, see getDefaultWorkerCount.
+	 */
+	public UpdateScheduler(int workerCount) {
+		super();
+
+		if(workerCount < 0) {
+			workerCount = 0;
+		}
+		else if(workerCount > MAX_WORKERS) {
+			workerCount = MAX_WORKERS;
+		}
+
+		nextIndex = new AtomicInteger(0);
+		activeWorkers = new AtomicInteger(0);
+
+		workers = new Worker[workerCount];
+	}
+
+	/** One worker per core, leaving one for the calling thread. */
+	public static int getDefaultWorkerCount() {
+		return Runtime.getRuntime().availableProcessors() - 1;
+	}
+
+	@Override
+	public void reset() {
+	}
+
+	public int getWorkerCount() {
+		return workers.length;
+	}
+
+	/**
+	 * Where the calling thread is in the update.  Objects of a parallel update get consecutive
+	 * ordinals in array order, whichever thread updates them, and the calling thread continues
+	 * after the last one.  Anything done outside a parallel update keeps the ordinal of the
+	 * thread, so ordinals only ever increase on a thread and sorting by them gives the same
+	 * order every frame.
+	 */
+	public static long getOrdinal() {
+		return ordinals.get()[0];
+	}
+
+	/**
+	 * Update the first count objects of the array in parallel, blocks until all are done.  An
+	 * exception or error (e.g. a failed assert) thrown by an update is rethrown here once the
+	 * workers have finished.
+	 */
+	public void update(Object[] objects, int count, float timeDelta, BaseObject parent) {
+		if(busy || shutdown || workers.length == 0 || count <= CHUNK_SIZE) {
+			for(int i = 0; i < count; i++) {
+				((BaseObject)objects[i]).update(timeDelta, parent);
+			}
+			return;
+		}
+
+		busy = true;
+
+		if(!started) {
+			startWorkers();
+		}
+
+		jobObjects = objects;
+		jobCount = count;
+		jobTimeDelta = timeDelta;
+		jobParent = parent;
+		jobError = null;
+
+		final long[] callerOrdinal = ordinals.get();
+		jobOrdinal = callerOrdinal[0] + 1;
+
+		caller = Thread.currentThread();
+		nextIndex.set(0);
+		activeWorkers.set(workers.length);
+
+		// volatile write, makes the job above visible to the workers
+		generation++;
+
+		for(int i = 0; i < workers.length; i++) {
+			LockSupport.unpark(workers[i].thread);
+		}
+
+		try {
+			work();
+		} catch(Throwable e) {
+			setError(e);
+		}
+
+		// barrier
+		while(activeWorkers.get() > 0) {
+			LockSupport.park(this);
+		}
+
+		callerOrdinal[0] = jobOrdinal + count;
+
+		jobObjects = null;
+		jobParent = null;
+		caller = null;
+		busy = false;
+
+		final Throwable e = jobError;
+		if(e != null) {
+			jobError = null;
+			if(e instanceof Error) {
+				throw (Error)e;
+			}
+			throw (RuntimeException)e;
+		}
+	}
+
+	/** Stops the worker threads, updates after this are run serially. */
+	public void shutdown() {
+		shutdown = true;
+
+		if(started) {
+			for(int i = 0; i < workers.length; i++) {
+				LockSupport.unpark(workers[i].thread);
+			}
+		}
+	}
+
+	private void startWorkers() {
+		started = true;
+
+		for(int i = 0; i < workers.length; i++) {
+			workers[i] = new Worker(generation);
+
+			final Thread t = new Thread(workers[i]);
+			t.setName("Mate Worker " + i);
+			t.setDaemon(true);
+			workers[i].thread = t;
+			t.start();
+		}
+	}
+
+	private void work() {
+		final Object[] objects = jobObjects;
+		final int count = jobCount;
+		final float timeDelta = jobTimeDelta;
+		final BaseObject parent = jobParent;
+		final long base = jobOrdinal;
+		final AtomicInteger nextIndex = this.nextIndex;
+		final long[] ordinal = ordinals.get();
+
+		int start;
+		while((start = nextIndex.getAndAdd(CHUNK_SIZE)) < count) {
+			final int end = Math.min(start + CHUNK_SIZE, count);
+			for(int i = start; i < end; i++) {
+				ordinal[0] = base + i;
+				((BaseObject)objects[i]).update(timeDelta, parent);
+			}
+		}
+	}
+
+	// only unchecked exceptions and errors can come out of an update
+	private void setError(Throwable e) {
+		if(jobError == null) {
+			jobError = e;
+		}
+
+		// stop handing out work
+		nextIndex.set(jobCount);
+	}
+
+	private final class Worker implements Runnable {
+		Thread thread;
+
+		// the generation before the worker's first job
+		private final int startGeneration;
+
+		Worker(int startGeneration) {
+			this.startGeneration = startGeneration;
+		}
+
+		public void run() {
+			int lastGeneration = startGeneration;
+
+			while(!shutdown) {
+				final int gen = generation;
+				if(gen == lastGeneration) {
+					LockSupport.park(this);
+					continue;
+				}
+				lastGeneration = gen;
+
+				// the caller waits on every worker, so this one has to check in whatever happens
+				try {
+					work();
+				} catch(Throwable e) {
+					setError(e);
+				} finally {
+					if(activeWorkers.decrementAndGet() == 0) {
+						LockSupport.unpark(caller);
+					}
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,478 @@
+package com.renegadeware.m8.gfx;
+
+import com.renegadeware.m8.DebugLog;
+import com.renegadeware.m8.obj.BaseObject;
+
+/**
+ * Spatial hash of object bounds, used to find what's visible in a viewport without testing every
+ * object.  Objects are registered once with their world bounds and get a handle back, moving
+ * objects update their bounds through the handle, which only touches the hash if the object crossed
+ * into different cells.  Objects that cover a lot of cells are kept in a separate list that is
+ * always tested.
+ * <p>
+ * Add the system to the game graph after the objects it tracks, update culls against the
+ * ViewSystem's default viewport.  Then go through getVisibleObjects() to schedule draws, e.g.:
+ * <pre>
+ * final Object[] visible = culling.getVisibleObjects();
+ * for(int i = 0; i < culling.getVisibleCount(); i++) {
+ *     ((MyObject)visible[i]).draw();
+ * }
+ * </pre>
+ * Only use from the game thread.  Nothing is allocated after construction unless the cell nodes run
+ * out, in which case they are grown.
+ */
+public class CullingSystem extends BaseObject {
+	public static final int INVALID_HANDLE = -1;
+
+	// objects covering more cells than this go into the large list
+	public static final int MAX_CELLS_PER_OBJECT = 16;
+
+	private static final int NONE = -1;
+	private static final int LARGE = -2;
+
+	private final float cellSize;
+	private final float invCellSize;
+
+	// entries, indexed by handle
+	private final Object[] entryObjects;
+	private final float[] entryBounds; // minX, minY, maxX, maxY
+	private final int[] entryCells; // cell range: minX, minY, maxX, maxY
+	private final int[] entryNodes; // first node, LARGE if in the large list, NONE if free
+	private final int[] entryStamps;
+	private int entryFreeHead;
+	private int entryCount;
+
+	private final int[] largeEntries;
+	private final int[] largeIndices; // entry's position in largeEntries
+	private int largeCount;
+
+	// cell nodes, one per entry per cell it covers
+	private int[] nodeEntry;
+	private int[] nodeCellX;
+	private int[] nodeCellY;
+	private int[] nodePrev; // within the bucket
+	private int[] nodeNext; // within the bucket, also links the free list
+	private int[] nodeEntryNext; // next node of the same entry
+	private int nodeFreeHead;
+
+	private final int[] buckets;
+	private final int bucketMask;
+
+	private int stamp;
+
+	// result of the last cull
+	private final Object[] visibleObjects;
+	private final int[] visibleHandles;
+	private int visibleCount;
+	private int culledCount;
+
+	/**
+	 * @param cellSize World size of a cell, somewhere around the size of a typical object to a screen.
+	 * @param maxObjects Maximum number of objects that can be registered.
+	 */
+	public CullingSystem(float cellSize, int maxObjects) {
+		super();
+
+		this.cellSize = cellSize;
+		invCellSize = 1.0f / cellSize;
+
+		entryObjects = new Object[maxObjects];
+		entryBounds = new float[maxObjects * 4];
+		entryCells = new int[maxObjects * 4];
+		entryNodes = new int[maxObjects];
+		entryStamps = new int[maxObjects];
+
+		largeEntries = new int[maxObjects];
+		largeIndices = new int[maxObjects];
+
+		visibleObjects = new Object[maxObjects];
+		visibleHandles = new int[maxObjects];
+
+		int bucketCount = 16;
+		while(bucketCount < maxObjects) {
+			bucketCount <<= 1;
+		}
+		buckets = new int[bucketCount];
+		bucketMask = bucketCount - 1;
+
+		allocateNodes(maxObjects * 4);
+
+		clear();
+	}
+
+	@Override
+	public void reset() {
+		clear();
+	}
+
+	/** Unregisters everything. */
+	public void clear() {
+		final int maxObjects = entryObjects.length;
+		for(int i = 0; i < maxObjects; i++) {
+			entryObjects[i] = null;
+			entryNodes[i] = NONE;
+			entryStamps[i] = 0;
+		}
+
+		// free list of entries goes through entryStamps until they're used
+		for(int i = 0; i < maxObjects - 1; i++) {
+			entryStamps[i] = i + 1;
+		}
+		if(maxObjects > 0) {
+			entryStamps[maxObjects - 1] = NONE;
+		}
+		entryFreeHead = maxObjects > 0 ? 0 : NONE;
+		entryCount = 0;
+
+		largeCount = 0;
+
+		for(int i = 0; i < buckets.length; i++) {
+			buckets[i] = NONE;
+		}
+
+		final int nodeCount = nodeNext.length;
+		for(int i = 0; i < nodeCount - 1; i++) {
+			nodeNext[i] = i + 1;
+		}
+		nodeNext[nodeCount - 1] = NONE;
+		nodeFreeHead = 0;
+
+		stamp = 0;
+
+		for(int i = 0; i < visibleCount; i++) {
+			visibleObjects[i] = null;
+		}
+		visibleCount = 0;
+		culledCount = 0;
+	}
+
+	/**
+	 * Culls against the default viewport.
+	 */
+	@Override
+	public void update(float timeDelta, BaseObject parent) {
+		final ViewSystem viewSystem = systemRegistry.viewSystem;
+		if(viewSystem != null && viewSystem.getDefaultView() != null) {
+			cull(viewSystem.getDefaultView());
+		}
+	}
+
+	/**
+	 * Register an object with its world bounds.
+	 *
+	 * @param object Returned in the visible set, can be anything.
+	 * @return The handle used to move and unregister the object, INVALID_HANDLE if full.
+	 */
+	public int register(Object object, float x, float y, float width, float height) {
+		final int handle = entryFreeHead;
+		if(handle == NONE) {
+			DebugLog.e("CullingSystem", "Unable to register object, max objects reached: " + entryObjects.length);
+			return INVALID_HANDLE;
+		}
+
+		entryFreeHead = entryStamps[handle];
+		entryStamps[handle] = stamp;
+		entryObjects[handle] = object;
+		entryCount++;
+
+		setBoundsInternal(handle, x, y, width, height);
+		insert(handle);
+
+		return handle;
+	}
+
+	public void unregister(int handle) {
+		if(handle < 0 || entryNodes[handle] == NONE) {
+			return;
+		}
+
+		remove(handle);
+
+		entryObjects[handle] = null;
+		entryNodes[handle] = NONE;
+		entryStamps[handle] = entryFreeHead;
+		entryFreeHead = handle;
+		entryCount--;
+	}
+
+	/**
+	 * Update an object's bounds, the hash is only changed if the object covers different cells.
+	 */
+	public void setBounds(int handle, float x, float y, float width, float height) {
+		final int[] cells = entryCells;
+		final int c = handle * 4;
+		final int minX = cellOf(x);
+		final int minY = cellOf(y);
+		final int maxX = cellOf(x + width);
+		final int maxY = cellOf(y + height);
+
+		if(minX == cells[c] && minY == cells[c + 1] && maxX == cells[c + 2] && maxY == cells[c + 3]) {
+			final float[] bounds = entryBounds;
+			bounds[c] = x;
+			bounds[c + 1] = y;
+			bounds[c + 2] = x + width;
+			bounds[c + 3] = y + height;
+		}
+		else {
+			remove(handle);
+			setBoundsInternal(handle, x, y, width, height);
+			insert(handle);
+		}
+	}
+
+	/** Move an object, keeping its size. */
+	public void setPosition(int handle, float x, float y) {
+		final float[] bounds = entryBounds;
+		final int c = handle * 4;
+		setBounds(handle, x, y, bounds[c + 2] - bounds[c], bounds[c + 3] - bounds[c + 1]);
+	}
+
+	public Object getObject(int handle) {
+		return entryObjects[handle];
+	}
+
+	public int getObjectCount() {
+		return entryCount;
+	}
+
+	public float getCellSize() {
+		return cellSize;
+	}
+
+	/**
+	 * Find the objects visible in the viewport, the world area around its focus position.
+	 */
+	public void cull(Viewport view) {
+		final float halfWidth = view.width * 0.5f;
+		final float halfHeight = view.height * 0.5f;
+		final float x = view.getFocusPositionX();
+		final float y = view.getFocusPositionY();
+
+		cull(x - halfWidth, y - halfHeight, x + halfWidth, y + halfHeight);
+	}
+
+	/**
+	 * Find the objects overlapping the given world area.
+	 */
+	public void cull(float minX, float minY, float maxX, float maxY) {
+		final Object[] visibleObjects = this.visibleObjects;
+		final int[] visibleHandles = this.visibleHandles;
+		final Object[] entryObjects = this.entryObjects;
+		final float[] bounds = entryBounds;
+		final int[] entryStamps = this.entryStamps;
+
+		final int oldCount = visibleCount;
+		int count = 0;
+
+		final int stamp = ++this.stamp;
+
+		final int cellMinX = cellOf(minX);
+		final int cellMinY = cellOf(minY);
+		final int cellMaxX = cellOf(maxX);
+		final int cellMaxY = cellOf(maxY);
+
+		for(int cy = cellMinY; cy <= cellMaxY; cy++) {
+			for(int cx = cellMinX; cx <= cellMaxX; cx++) {
+				int node = buckets[hash(cx, cy)];
+				while(node != NONE) {
+					final int handle = nodeEntry[node];
+					if(nodeCellX[node] == cx && nodeCellY[node] == cy && entryStamps[handle] != stamp) {
+						// only test each object once even if it covers several cells
+						entryStamps[handle] = stamp;
+
+						final int c = handle * 4;
+						if(bounds[c] <= maxX && bounds[c + 2] >= minX && bounds[c + 1] <= maxY && bounds[c + 3] >= minY) {
+							visibleObjects[count] = entryObjects[handle];
+							visibleHandles[count] = handle;
+							count++;
+						}
+					}
+					node = nodeNext[node];
+				}
+			}
+		}
+
+		final int largeCount = this.largeCount;
+		for(int i = 0; i < largeCount; i++) {
+			final int handle = largeEntries[i];
+			final int c = handle * 4;
+			if(bounds[c] <= maxX && bounds[c + 2] >= minX && bounds[c + 1] <= maxY && bounds[c + 3] >= minY) {
+				visibleObjects[count] = entryObjects[handle];
+				visibleHandles[count] = handle;
+				count++;
+			}
+		}
+
+		for(int i = count; i < oldCount; i++) {
+			visibleObjects[i] = null;
+		}
+
+		visibleCount = count;
+		culledCount = entryCount - count;
+	}
+
+	/** Objects of the last cull, valid up to getVisibleCount(). */
+	public Object[] getVisibleObjects() {
+		return visibleObjects;
+	}
+
+	/** Handles of the last cull, valid up to getVisibleCount(). */
+	public int[] getVisibleHandles() {
+		return visibleHandles;
+	}
+
+	/** Number of objects visible in the last cull. */
+	public int getVisibleCount() {
+		return visibleCount;
+	}
+
+	/** Number of objects not visible in the last cull. */
+	public int getCulledCount() {
+		return culledCount;
+	}
+
+	private int cellOf(float v) {
+		return (int)Math.floor(v * invCellSize);
+	}
+
+	private int hash(int cx, int cy) {
+		return ((cx * 73856093) ^ (cy * 19349663)) & bucketMask;
+	}
+
+	private void setBoundsInternal(int handle, float x, float y, float width, float height) {
+		final int c = handle * 4;
+
+		final float[] bounds = entryBounds;
+		bounds[c] = x;
+		bounds[c + 1] = y;
+		bounds[c + 2] = x + width;
+		bounds[c + 3] = y + height;
+
+		final int[] cells = entryCells;
+		cells[c] = cellOf(x);
+		cells[c + 1] = cellOf(y);
+		cells[c + 2] = cellOf(x + width);
+		cells[c + 3] = cellOf(y + height);
+	}
+
+	private void insert(int handle) {
+		final int[] cells = entryCells;
+		final int c = handle * 4;
+		final int minX = cells[c];
+		final int minY = cells[c + 1];
+		final int maxX = cells[c + 2];
+		final int maxY = cells[c + 3];
+
+		final long cellCount = (long)(maxX - minX + 1) * (maxY - minY + 1);
+		if(cellCount > MAX_CELLS_PER_OBJECT) {
+			largeIndices[handle] = largeCount;
+			largeEntries[largeCount++] = handle;
+			entryNodes[handle] = LARGE;
+			return;
+		}
+
+		int first = NONE;
+		for(int cy = minY; cy <= maxY; cy++) {
+			for(int cx = minX; cx <= maxX; cx++) {
+				if(nodeFreeHead == NONE) {
+					growNodes();
+				}
+
+				final int node = nodeFreeHead;
+				nodeFreeHead = nodeNext[node];
+
+				nodeEntry[node] = handle;
+				nodeCellX[node] = cx;
+				nodeCellY[node] = cy;
+
+				final int bucket = hash(cx, cy);
+				final int head = buckets[bucket];
+				nodePrev[node] = NONE;
+				nodeNext[node] = head;
+				if(head != NONE) {
+					nodePrev[head] = node;
+				}
+				buckets[bucket] = node;
+
+				nodeEntryNext[node] = first;
+				first = node;
+			}
+		}
+
+		entryNodes[handle] = first;
+	}
+
+	private void remove(int handle) {
+		int node = entryNodes[handle];
+
+		if(node == LARGE) {
+			// swap with the last one
+			final int index = largeIndices[handle];
+			final int last = largeEntries[--largeCount];
+			largeEntries[index] = last;
+			largeIndices[last] = index;
+		}
+		else {
+			while(node != NONE) {
+				final int next = nodeNext[node];
+				final int prev = nodePrev[node];
+				if(prev != NONE) {
+					nodeNext[prev] = next;
+				}
+				else {
+					buckets[hash(nodeCellX[node], nodeCellY[node])] = next;
+				}
+				if(next != NONE) {
+					nodePrev[next] = prev;
+				}
+
+				final int entryNext = nodeEntryNext[node];
+
+				nodeNext[node] = nodeFreeHead;
+				nodeFreeHead = node;
+
+				node = entryNext;
+			}
+		}
+
+		entryNodes[handle] = NONE;
+	}
+
+	private void allocateNodes(int count) {
+		nodeEntry = new int[count];
+		nodeCellX = new int[count];
+		nodeCellY = new int[count];
+		nodePrev = new int[count];
+		nodeNext = new int[count];
+		nodeEntryNext = new int[count];
+	}
+
+	private void growNodes() {
+		final int oldCount = nodeNext.length;
+		final int newCount = oldCount * 2;
+
+		DebugLog.w("CullingSystem", "Cell nodes grown from " + oldCount + " to " + newCount);
+
+		final int[] entry = nodeEntry;
+		final int[] cellX = nodeCellX;
+		final int[] cellY = nodeCellY;
+		final int[] prev = nodePrev;
+		final int[] next = nodeNext;
+		final int[] entryNext = nodeEntryNext;
+
+		allocateNodes(newCount);
+
+		System.arraycopy(entry, 0, nodeEntry, 0, oldCount);
+		System.arraycopy(cellX, 0, nodeCellX, 0, oldCount);
+		System.arraycopy(cellY, 0, nodeCellY, 0, oldCount);
+		System.arraycopy(prev, 0, nodePrev, 0, oldCount);
+		System.arraycopy(next, 0, nodeNext, 0, oldCount);
+		System.arraycopy(entryNext, 0, nodeEntryNext, 0, oldCount);
+
+		for(int i = oldCount; i < newCount - 1; i++) {
+			nodeNext[i] = i + 1;
+		}
+		nodeNext[newCount - 1] = nodeFreeHead;
+		nodeFreeHead = oldCount;
+	}
+}
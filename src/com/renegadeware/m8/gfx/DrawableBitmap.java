@@ -25,6 +25,9 @@ import com.renegadeware.m8.obj.BaseObject;
  * Draws a screen-aligned bitmap to the screen.
  */
 public class DrawableBitmap extends DrawableObject {
+	
+	// crop of drawRecorded, only used by the render thread
+	private static final int recordedCrop[] = new int[4];
 		
 	public final Color color;
 	public boolean useColor;
@@ -149,29 +152,34 @@ public class DrawableBitmap extends DrawableObject {
 	 */
 	@Override
 	public void draw(float x, float y, float scaleX, float scaleY, float rotate, float screenScaleX, float screenScaleY) {
+		final Color c = this.color;
+		drawTexture(x, y, scaleX, scaleY, screenScaleX, screenScaleY, 
+				width, height, crop, c.red, c.green, c.blue, c.alpha);
+	}
+	
+	private void drawTexture(float x, float y, float scaleX, float scaleY, float screenScaleX, float screenScaleY, 
+			float width, float height, int[] crop, float red, float green, float blue, float alpha) {
 		GL10 gl = OpenGLSystem.getGL();
 		final Texture texture = this.texture;
 
 		if (gl != null && texture != null) {
 			assert texture.isLoaded();
 			
-			final float width = this.width * scaleX;
-			final float height = this.height * scaleY;
+			width *= scaleX;
+			height *= scaleY;
 
 			final float snappedX = anchorX == 0 ? x : x + anchorX * scaleX;
 			final float snappedY = anchorY == 0 ? y : y + anchorY * scaleY;
 			
-			final Color c = this.color;
-			
-			if (c.alpha > 0.0f) {
-				OpenGLSystem.bindTexture(GL10.GL_TEXTURE_2D, texture.glId);
+			if (alpha > 0.0f) {
+				OpenGLSystem.bindTexture(GL10.GL_TEXTURE_2D, texture.use());
 
 				// This is necessary because we could be drawing the same texture with different
 				// crop (say, flipped horizontally) on the same frame.
 				OpenGLSystem.setTextureCrop(crop);
 				
 				if (useColor) {
-					gl.glColor4f(c.red, c.green, c.blue, c.alpha);
+					gl.glColor4f(red, green, blue, alpha);
 				}
 				
 				if(useBlend) {
@@ -202,6 +210,69 @@ public class DrawableBitmap extends DrawableObject {
 		draw(mtx[12], mtx[13], mtx[0], mtx[5], 0, screenScaleX, screenScaleY);
 	}
 
+	@Override
+	public void record(float[] state, int offset) {
+		final Color c = this.color;
+		state[offset + RECORD_RED] = c.red;
+		state[offset + RECORD_GREEN] = c.green;
+		state[offset + RECORD_BLUE] = c.blue;
+		state[offset + RECORD_ALPHA] = c.alpha;
+		state[offset + 4] = width;
+		state[offset + 5] = height;
+		state[offset + 6] = crop[0];
+		state[offset + 7] = crop[1];
+		state[offset + 8] = crop[2];
+		state[offset + 9] = crop[3];
+	}
+
+	@Override
+	public void drawRecorded(float[] state, int offset, float alphaScale, 
+			float x, float y, float scaleX, float scaleY, float rotate, float screenScaleX, float screenScaleY) {
+		final int[] crop = recordedCrop;
+		crop[0] = (int)state[offset + 6];
+		crop[1] = (int)state[offset + 7];
+		crop[2] = (int)state[offset + 8];
+		crop[3] = (int)state[offset + 9];
+		
+		drawTexture(x, y, scaleX, scaleY, screenScaleX, screenScaleY, 
+				state[offset + 4], state[offset + 5], crop, 
+				state[offset + RECORD_RED], state[offset + RECORD_GREEN], state[offset + RECORD_BLUE], 
+				state[offset + RECORD_ALPHA]*alphaScale);
+	}
+
+	@Override
+	public boolean isBatchable() {
+		return true;
+	}
+
+	@Override
+	public void batch(SpriteBatch batch, float x, float y, float scaleX, float scaleY, float rotate) {
+		final Texture texture = this.texture;
+
+		if (texture != null && color.alpha > 0.0f) {
+			assert texture.isLoaded();
+
+			final float snappedX = anchorX == 0 ? x : x + anchorX * scaleX;
+			final float snappedY = anchorY == 0 ? y : y + anchorY * scaleY;
+
+			// same region as the draw texture crop, negative width and height flips
+			final float texW = texture.width;
+			final float texH = texture.height;
+			final int[] crop = this.crop;
+
+			batch.setState(texture.use(), useColor, useBlend, blendSrc, blendDst, textureMode);
+			batch.add(snappedX, snappedY, width * scaleX, height * scaleY, getOrder(),
+					crop[0] / texW, crop[1] / texH, (crop[0] + crop[2]) / texW, (crop[1] + crop[3]) / texH,
+					color);
+		}
+	}
+
+	@Override
+	public void batch(SpriteBatch batch, float[] mtx) {
+		// draw texture assumes only translation and scale
+		batch(batch, mtx[12], mtx[13], mtx[0], mtx[5], 0);
+	}
+
 	/**
 	 * Ends the drawing and restores the OpenGL state.
 	 * 
@@ -257,15 +328,20 @@ public class DrawableBitmap extends DrawableObject {
 	}
 	
 	public void setTextureByAtlas(TextureAtlas atlas, String element) {
+		setTextureByAtlas(atlas, atlas.getElementHandle(element));
+	}
+	
+	/**
+	 * @param element Handle from TextureAtlas.getElementHandle, the crop is kept if not valid.
+	 */
+	public void setTextureByAtlas(TextureAtlas atlas, int element) {
 		texture = atlas.getTexture();
 		
-		if(element != null) {
-			int elem[] = atlas.getElement(element);
-			if(elem != null) {
-				setCrop(elem[0],elem[1],elem[2],elem[3]);
-				//width = elem[TextureAtlas.ELEM_WIDTH];
-				//height = elem[TextureAtlas.ELEM_HEIGHT];
-			}
+		int elem[] = atlas.getElement(element);
+		if(elem != null) {
+			setCrop(elem[0],elem[1],elem[2],elem[3]);
+			//width = elem[TextureAtlas.ELEM_WIDTH];
+			//height = elem[TextureAtlas.ELEM_HEIGHT];
 		}
 	}
 
@@ -64,7 +64,7 @@ public class DrawableBitmapQuad extends DrawableBitmap {
 			final Color clr = this.color;
 			
 			if (clr.alpha > 0.0f) {
-				OpenGLSystem.bindTexture(GL10.GL_TEXTURE_2D, texture.glId);
+				OpenGLSystem.bindTexture(GL10.GL_TEXTURE_2D, texture.use());
 				
 				if (useColor) {
 					gl.glColor4f(clr.red, clr.green, clr.blue, clr.alpha);
@@ -148,6 +148,13 @@ public class DrawableBitmapQuad extends DrawableBitmap {
 		}
 	}
 	
+	@Override
+	public void drawRecorded(float[] state, int offset, float alphaScale, 
+			float x, float y, float scaleX, float scaleY, float rotate, float screenScaleX, float screenScaleY) {
+		// the crop is in the quad's buffer, so it's drawn as it is now
+		draw(x, y, scaleX, scaleY, rotate, screenScaleX, screenScaleY);
+	}
+	
 	//TODO: refactor to reduce duplicate code!
 	@Override
 	public void draw(float[] mtx, float screenScaleX, float screenScaleY) {
@@ -162,7 +169,7 @@ public class DrawableBitmapQuad extends DrawableBitmap {
 			final Color clr = this.color;
 			
 			if (clr.alpha > 0.0f) {
-				OpenGLSystem.bindTexture(GL10.GL_TEXTURE_2D, texture.glId);
+				OpenGLSystem.bindTexture(GL10.GL_TEXTURE_2D, texture.use());
 				
 				if (useColor) {
 					gl.glColor4f(clr.red, clr.green, clr.blue, clr.alpha);
@@ -229,6 +236,62 @@ public class DrawableBitmapQuad extends DrawableBitmap {
 		}
 	}
 	
+	@Override
+	public void batch(SpriteBatch batch, float x, float y, float scaleX, float scaleY, float rotate) {
+		final Texture texture = this.texture;
+
+		if (texture != null && color.alpha > 0.0f) {
+			assert texture.isLoaded();
+
+			//world space
+			float m0, m1, m4, m5;
+			if(rotate != 0.0f) {
+				final float s = android.util.FloatMath.sin(rotate);
+				final float c = android.util.FloatMath.cos(rotate);
+				m0 = c*scaleX;
+				m1 = s*scaleX;
+				m4 = -s*scaleY;
+				m5 = c*scaleY;
+			}
+			else {
+				m0 = scaleX;
+				m1 = 0.0f;
+				m4 = 0.0f;
+				m5 = scaleY;
+			}
+
+			batchQuad(batch, m0, m1, m4, m5, x, y, order);
+		}
+	}
+
+	@Override
+	public void batch(SpriteBatch batch, float[] mtx) {
+		final Texture texture = this.texture;
+
+		if (texture != null && color.alpha > 0.0f) {
+			assert texture.isLoaded();
+
+			batchQuad(batch, mtx[0], mtx[1], mtx[4], mtx[5], mtx[12], mtx[13], mtx[14]);
+		}
+	}
+
+	private void batchQuad(SpriteBatch batch, float m0, float m1, float m4, float m5, float tx, float ty, float z) {
+		//model space
+		final float left = anchorX;
+		final float bottom = anchorY;
+		final float right = anchorX + width;
+		final float top = anchorY + height;
+
+		batch.setState(texture.use(), useColor, useBlend, blendSrc, blendDst, textureMode);
+		batch.add(m0*left + m4*bottom + tx, m1*left + m5*bottom + ty,
+				m0*right + m4*bottom + tx, m1*right + m5*bottom + ty,
+				m0*left + m4*top + tx, m1*left + m5*top + ty,
+				m0*right + m4*top + tx, m1*right + m5*top + ty,
+				z,
+				tCropS, tCropT + tCropScaleT, tCropS + tCropScaleS, tCropT,
+				color);
+	}
+
 	@Override
 	public int getBufferId() {
 		return grid.id;
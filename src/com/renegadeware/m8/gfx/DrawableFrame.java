@@ -51,7 +51,7 @@ public class DrawableFrame extends DrawableObject {
 		return frame;
 	}
 		
-	private void drawFrame(GL10 gl) {
+	private void drawFrame(GL10 gl, float width, float height, float red, float green, float blue, float alpha) {
 		final Texture texture = frame.getTexture();
 		boolean textureBounded = false;
 		
@@ -63,13 +63,13 @@ public class DrawableFrame extends DrawableObject {
 				OpenGLSystem.bindTextureNearestFilter(GL10.GL_TEXTURE_2D, -1);
 			}
 			else {
-				OpenGLSystem.bindTextureNearestFilter(GL10.GL_TEXTURE_2D, texture.glId);
+				OpenGLSystem.bindTextureNearestFilter(GL10.GL_TEXTURE_2D, texture.use());
 				textureBounded = true;
 			}
 			
 			final Color clr = bodyColorOverride != null ? bodyColorOverride : frame.getBodyColor();
 			if(useColor) {
-				gl.glColor4f(color.red*clr.red, color.green*clr.green, color.blue*clr.blue, color.alpha*clr.alpha);
+				gl.glColor4f(red*clr.red, green*clr.green, blue*clr.blue, alpha*clr.alpha);
 			}
 			else {
 				gl.glColor4f(clr.red, clr.green, clr.blue, clr.alpha);
@@ -105,14 +105,14 @@ public class DrawableFrame extends DrawableObject {
 		}
 		
 		if(useColor) {
-			gl.glColor4f(color.red, color.green, color.blue, color.alpha);
+			gl.glColor4f(red, green, blue, alpha);
 		}
 		else {
 			gl.glColor4f(1.0f, 1.0f, 1.0f, 1.0f);
 		}
 		
 		//if(!textureBounded) {
-			OpenGLSystem.bindTextureNearestFilter(GL10.GL_TEXTURE_2D, texture.glId);
+			OpenGLSystem.bindTextureNearestFilter(GL10.GL_TEXTURE_2D, texture.use());
 		//}
 		
 		frameMtx[0] = 1.0f;
@@ -233,6 +233,31 @@ public class DrawableFrame extends DrawableObject {
 	@Override
 	public void draw(float x, float y, float scaleX, float scaleY,
 			float rotate, float screenScaleX, float screenScaleY) {
+		final Color c = this.color;
+		drawAt(x, y, scaleX, scaleY, rotate, width, height, c.red, c.green, c.blue, c.alpha);
+	}
+
+	@Override
+	public void record(float[] state, int offset) {
+		final Color c = this.color;
+		state[offset + RECORD_RED] = c.red;
+		state[offset + RECORD_GREEN] = c.green;
+		state[offset + RECORD_BLUE] = c.blue;
+		state[offset + RECORD_ALPHA] = c.alpha;
+		state[offset + 4] = width;
+		state[offset + 5] = height;
+	}
+
+	@Override
+	public void drawRecorded(float[] state, int offset, float alphaScale, 
+			float x, float y, float scaleX, float scaleY, float rotate, float screenScaleX, float screenScaleY) {
+		drawAt(x, y, scaleX, scaleY, rotate, state[offset + 4], state[offset + 5], 
+				state[offset + RECORD_RED], state[offset + RECORD_GREEN], state[offset + RECORD_BLUE], 
+				state[offset + RECORD_ALPHA]*alphaScale);
+	}
+
+	private void drawAt(float x, float y, float scaleX, float scaleY, float rotate, 
+			float width, float height, float red, float green, float blue, float alpha) {
 		GL10 gl = OpenGLSystem.getGL();
 		
 		if (gl != null && frame != null && width > 0 && height > 0) {
@@ -265,7 +290,7 @@ public class DrawableFrame extends DrawableObject {
 			quadMtx[14] = order;
 			gl.glLoadMatrixf(quadMtx, 0);
 			
-			drawFrame(gl);
+			drawFrame(gl, width, height, red, green, blue, alpha);
 			
 			gl.glPopMatrix();
 			
@@ -289,7 +314,7 @@ public class DrawableFrame extends DrawableObject {
 			//world space
 			gl.glLoadMatrixf(mtx, 0);
 			
-			drawFrame(gl);
+			drawFrame(gl, width, height, color.red, color.green, color.blue, color.alpha);
 			
 			gl.glPopMatrix();
 		}
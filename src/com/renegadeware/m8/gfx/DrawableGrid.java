@@ -48,19 +48,39 @@ public class DrawableGrid extends DrawableObject {
 	@Override
 	public void draw(float x, float y, float scaleX, float scaleY,
 			float rotate, float screenScaleX, float screenScaleY) {
-		
+		final Color c = this.color;
+		drawAt(x, y, scaleX, scaleY, rotate, c.red, c.green, c.blue, c.alpha);
+	}
+
+	@Override
+	public void record(float[] state, int offset) {
+		final Color c = this.color;
+		state[offset + RECORD_RED] = c.red;
+		state[offset + RECORD_GREEN] = c.green;
+		state[offset + RECORD_BLUE] = c.blue;
+		state[offset + RECORD_ALPHA] = c.alpha;
+	}
+
+	@Override
+	public void drawRecorded(float[] state, int offset, float alphaScale, 
+			float x, float y, float scaleX, float scaleY, float rotate, float screenScaleX, float screenScaleY) {
+		drawAt(x, y, scaleX, scaleY, rotate, 
+				state[offset + RECORD_RED], state[offset + RECORD_GREEN], state[offset + RECORD_BLUE], 
+				state[offset + RECORD_ALPHA]*alphaScale);
+	}
+
+	private void drawAt(float x, float y, float scaleX, float scaleY, float rotate, 
+			float red, float green, float blue, float alpha) {
 		GL10 gl = OpenGLSystem.getGL();
 		
 		if (gl != null && grid != null) {
 			assert grid.isLoaded();
 			
-			final Color clr = this.color;
-			
-			if (clr.alpha > 0.0f) {
+			if (alpha > 0.0f) {
 				if(texture != null) {
 					assert texture.isLoaded();
 					
-					OpenGLSystem.bindTexture(GL10.GL_TEXTURE_2D, texture.glId);
+					OpenGLSystem.bindTexture(GL10.GL_TEXTURE_2D, texture.use());
 					grid.beginDrawingStrips(gl, true);
 				}
 				else {
@@ -68,7 +88,7 @@ public class DrawableGrid extends DrawableObject {
 				}
 				
 				if (useColor) {
-					gl.glColor4f(clr.red, clr.green, clr.blue, clr.alpha);
+					gl.glColor4f(red, green, blue, alpha);
 				}
 				
 				//set world trans
@@ -139,7 +159,7 @@ public class DrawableGrid extends DrawableObject {
 				if(texture != null) {
 					assert texture.isLoaded();
 					
-					OpenGLSystem.bindTexture(GL10.GL_TEXTURE_2D, texture.glId);
+					OpenGLSystem.bindTexture(GL10.GL_TEXTURE_2D, texture.use());
 					grid.beginDrawingStrips(gl, true);
 				}
 				else {
@@ -1,8 +1,6 @@
 package com.renegadeware.m8.gfx;
 
 import javax.microedition.khronos.opengles.GL10;
-import javax.microedition.khronos.opengles.GL11;
-import javax.microedition.khronos.opengles.GL11Ext;
 
 import com.renegadeware.m8.gfx.Font.Character;
 import com.renegadeware.m8.util.Util;
@@ -33,16 +31,22 @@ public class DrawableNumber extends DrawableObject {
 	
 	protected float width;
 	protected float xOfs;
+	
+	// glyph quads, laid out by the render thread when version changes
+	private final GlyphRun run;
+	private int version;
 		
 	public DrawableNumber(int maxChar) {
 		color = new Color();
 		chars = new char[maxChar];
+		run = new GlyphRun();
 				
 		reset();
 	}
 	
 	public void setFont(Font fnt) {
 		font = fnt;
+		version++;
 		
 		calculateWidth();
 		adjustXOfs();
@@ -68,6 +72,8 @@ public class DrawableNumber extends DrawableObject {
 		else {
 			charCount = Util.itoa(num, base, chars, 0);
 		}
+		
+		version++;
 						
 		calculateWidth();
 		adjustXOfs();
@@ -100,17 +106,20 @@ public class DrawableNumber extends DrawableObject {
 	private void calculateWidth() {
 		if(font != null) {
 			//recalculate the width
-			final Character[] chars = font.getChars();
+			final Font font = this.font;
 			width = 0;
 			
 			final int numChar = charCount;
 			final char[] numChars = this.chars;
 			
+			char prev = 0;
 			for(int i = 0; i < numChar; ++i) {
-				Character c = chars[numChars[i]];
+				final char cInd = numChars[i];
+				Character c = font.getChar(cInd);
 				if(c != null) {
-					width += c.xOffset + c.xAdvance;
+					width += font.getKerning(prev, cInd) + c.xOffset + c.xAdvance;
 				}
+				prev = cInd;
 			}
 		}
 	}
@@ -161,30 +170,55 @@ public class DrawableNumber extends DrawableObject {
 		align = ALIGN_LEFT;
 		alignHeight = ALIGN_BOTTOM;
 		ptScale = 0.0f;
+		version++;
 	}
 	
 	@Override
 	public void draw(float x, float y, float scaleX, float scaleY,
 			float rotate, float screenScaleX, float screenScaleY) {
-		GL11 gl = (GL11)OpenGLSystem.getGL();
-		GL11Ext glExt = (GL11Ext)gl;
+		final Color c = this.color;
+		drawText(x, y, scaleX, scaleY, xOfs, ptScale, c.red, c.green, c.blue, c.alpha);
+	}
+
+	@Override
+	public void record(float[] state, int offset) {
+		final Color c = this.color;
+		state[offset + RECORD_RED] = c.red;
+		state[offset + RECORD_GREEN] = c.green;
+		state[offset + RECORD_BLUE] = c.blue;
+		state[offset + RECORD_ALPHA] = c.alpha;
+		state[offset + 4] = xOfs;
+		state[offset + 5] = ptScale;
+	}
 
+	@Override
+	public void drawRecorded(float[] state, int offset, float alphaScale, 
+			float x, float y, float scaleX, float scaleY, float rotate, float screenScaleX, float screenScaleY) {
+		drawText(x, y, scaleX, scaleY, state[offset + 4], state[offset + 5], 
+				state[offset + RECORD_RED], state[offset + RECORD_GREEN], state[offset + RECORD_BLUE], 
+				state[offset + RECORD_ALPHA]*alphaScale);
+	}
+
+	private void drawText(float x, float y, float scaleX, float scaleY, float xOfs, float ptScale, 
+			float red, float green, float blue, float alpha) {
+		GL10 gl = OpenGLSystem.getGL();
+		
+		final Font font = this.font;
 		final int numChar = charCount;
+		
 		if (gl != null && font != null && numChar > 0) {
-			final Color clr = this.color;
-			
-			if (clr.alpha > 0.0f) {
+			if (alpha > 0.0f) {
 				if(ptScale != 0.0f) {
 					scaleX *= ptScale;
 					scaleY *= ptScale;
 				}
 				
-				gl.glColor4f(clr.red, clr.green, clr.blue, clr.alpha);
-				
-				final Character[] chars = font.getChars();
-				final Texture[] txts = font.getTextures();
-				
-				float curX = x + xOfs*scaleX;
+				//lay out the glyphs again only if the number or font changed
+				final GlyphRun run = this.run;
+				final int version = this.version;
+				if(!run.isCurrent(font, version)) {
+					run.set(font, chars, numChar, version);
+				}
 				
 				float adjustedY = y;
 				
@@ -197,33 +231,11 @@ public class DrawableNumber extends DrawableObject {
 					break;
 				}
 				
-				char[] charTexts = this.chars;
-								
-				for(int i = 0; i < numChar; ++i) {
-					Character c = chars[charTexts[i]];
-					if(c != null) {
-						OpenGLSystem.bindTexture(GL10.GL_TEXTURE_2D, txts[c.page].glId);
-						
-						gl.glTexParameteriv(GL10.GL_TEXTURE_2D, GL11Ext.GL_TEXTURE_CROP_RECT_OES, 
-								c.crop, 0);
-						
-						final float ofsX = c.xOffset*scaleX;
-						final float w = c.width * scaleX;
-						
-						glExt.glDrawTexfOES(
-								(curX + ofsX) * screenScaleX, 
-								(adjustedY + c.yOffset*scaleY) * screenScaleY, 
-								getOrder(), 
-								w * screenScaleX, 
-								c.height * scaleY * screenScaleY);
-						
-						curX += (c.xAdvance*scaleX);
-					}
-				}
+				gl.glColor4f(red, green, blue, alpha);
 				
-				gl.glColor4f(1.0f, 1.0f, 1.0f, 1.0f);
+				run.draw(gl, x + xOfs*scaleX, adjustedY, scaleX, scaleY, getOrder());
 				
-				OpenGLSystem.clearTextureCropSignature();
+				gl.glColor4f(1.0f, 1.0f, 1.0f, 1.0f);
 			}
 		}
 	}
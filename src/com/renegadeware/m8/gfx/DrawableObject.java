@@ -31,6 +31,13 @@ public abstract class DrawableObject extends AllocationGuard {
 	
 	private static final int TEXTURE_SORT_BUCKET_SIZE = 1000;
 	
+	// floats of state kept by record, the color comes first
+	public static final int RECORD_SIZE = 10;
+	public static final int RECORD_RED = 0;
+	public static final int RECORD_GREEN = 1;
+	public static final int RECORD_BLUE = 2;
+	public static final int RECORD_ALPHA = 3;
+	
 	protected float order;
     protected ObjectPool parentPool;
     
@@ -69,6 +76,37 @@ public abstract class DrawableObject extends AllocationGuard {
         return 0;
     }
     
+    // Override to opt this type into the renderer's SpriteBatch, batch() must then be implemented.
+    public boolean isBatchable() {
+        return false;
+    }
+
+    /** Add this drawable to the batch instead of drawing it directly. */
+    public void batch(SpriteBatch batch, float x, float y, float scaleX, float scaleY, float rotate) {
+    }
+
+    /** Add this drawable to the batch instead of drawing it directly. */
+    public void batch(SpriteBatch batch, float[] mtx) {
+    }
+
+    /**
+     * Override to copy the state its owner may change while a recorded draw of this drawable
+     * (see UIRenderList) waits for the render thread, drawRecorded must then be implemented.
+     * At most RECORD_SIZE floats, the color first.
+     */
+    public void record(float[] state, int offset) {
+    }
+
+    /**
+     * Draw with the state copied by record instead of the current one.
+     *
+     * @param alphaScale Multiplied to the recorded alpha.
+     */
+    public void drawRecorded(float[] state, int offset, float alphaScale,
+            float x, float y, float scaleX, float scaleY, float rotate, float screenScaleX, float screenScaleY) {
+        draw(x, y, scaleX, scaleY, rotate, screenScaleX, screenScaleY);
+    }
+
     // Function to allow drawables to specify culling rules.
     public boolean visibleAtPosition(float x, float y, float scaleX, float scaleY, float viewWidth, float viewHeight) {
         return true;
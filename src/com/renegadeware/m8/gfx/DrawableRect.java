@@ -31,14 +31,37 @@ public class DrawableRect extends DrawableObject {
 	@Override
 	public void draw(float x, float y, float scaleX, float scaleY,
 			float rotate, float screenScaleX, float screenScaleY) {
+		final Color c = this.color;
+		drawAt(x, y, scaleX, scaleY, rotate, c.red, c.green, c.blue, c.alpha);
+	}
+
+	@Override
+	public void record(float[] state, int offset) {
+		final Color c = this.color;
+		state[offset + RECORD_RED] = c.red;
+		state[offset + RECORD_GREEN] = c.green;
+		state[offset + RECORD_BLUE] = c.blue;
+		state[offset + RECORD_ALPHA] = c.alpha;
+	}
+
+	@Override
+	public void drawRecorded(float[] state, int offset, float alphaScale, 
+			float x, float y, float scaleX, float scaleY, float rotate, float screenScaleX, float screenScaleY) {
+		drawAt(x, y, scaleX, scaleY, rotate, 
+				state[offset + RECORD_RED], state[offset + RECORD_GREEN], state[offset + RECORD_BLUE], 
+				state[offset + RECORD_ALPHA]*alphaScale);
+	}
+
+	private void drawAt(float x, float y, float scaleX, float scaleY, float rotate, 
+			float red, float green, float blue, float alpha) {
 		GL10 gl = OpenGLSystem.getGL();
 
 		if (gl != null && grid != null) {
 			
-			if (color.alpha > 0.0f) {
+			if (alpha > 0.0f) {
 				OpenGLSystem.bindTexture(0, -1);
 	            
-				gl.glColor4f(color.red, color.green, color.blue, color.alpha);
+				gl.glColor4f(red, green, blue, alpha);
 				
 				grid.beginDrawingStrips(gl, false);		
 				
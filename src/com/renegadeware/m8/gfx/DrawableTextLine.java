@@ -1,8 +1,6 @@
 package com.renegadeware.m8.gfx;
 
 import javax.microedition.khronos.opengles.GL10;
-import javax.microedition.khronos.opengles.GL11;
-import javax.microedition.khronos.opengles.GL11Ext;
 
 import com.renegadeware.m8.gfx.Font.Character;
 
@@ -29,15 +27,21 @@ public class DrawableTextLine extends DrawableObject {
 	
 	protected float width;
 	protected float xOfs;
+	
+	// glyph quads, laid out by the render thread when version changes
+	private final GlyphRun run;
+	private int version;
 		
 	public DrawableTextLine() {
 		color = new Color();
+		run = new GlyphRun();
 		
 		reset();
 	}
 	
 	public void setFont(Font fnt) {
 		font = fnt;
+		version++;
 		
 		calculateWidth();
 		adjustXOfs();
@@ -48,7 +52,10 @@ public class DrawableTextLine extends DrawableObject {
 	}
 	
 	public void setText(String txt) {
-		text = txt;
+		if(txt != text) {
+			text = txt;
+			version++;
+		}
 		
 		calculateWidth();
 		adjustXOfs();
@@ -91,15 +98,18 @@ public class DrawableTextLine extends DrawableObject {
 	private void calculateWidth() {
 		if(font != null && text != null) {
 			//recalculate the width
-			final Character[] chars = font.getChars();
+			final Font font = this.font;
 			width = 0;
 			
+			char prev = 0;
 			final int numChar = text.length();
 			for(int i = 0; i < numChar; ++i) {
-				Character c = chars[text.charAt(i)];
+				final char cInd = text.charAt(i);
+				Character c = font.getChar(cInd);
 				if(c != null) {
-					width += c.xAdvance;
+					width += font.getKerning(prev, cInd) + c.xAdvance;
 				}
+				prev = cInd;
 			}
 		}
 	}
@@ -152,34 +162,55 @@ public class DrawableTextLine extends DrawableObject {
 		alignHeight = ALIGN_BOTTOM;
 		text = "";
 		ptScale = 0.0f;
+		version++;
 	}
 	
 	@Override
 	public void draw(float x, float y, float scaleX, float scaleY,
 			float rotate, float screenScaleX, float screenScaleY) {
-		GL11 gl = (GL11)OpenGLSystem.getGL();
-		GL11Ext glExt = (GL11Ext)gl;
+		final Color c = this.color;
+		drawText(x, y, scaleX, scaleY, xOfs, ptScale, c.red, c.green, c.blue, c.alpha);
+	}
+
+	@Override
+	public void record(float[] state, int offset) {
+		final Color c = this.color;
+		state[offset + RECORD_RED] = c.red;
+		state[offset + RECORD_GREEN] = c.green;
+		state[offset + RECORD_BLUE] = c.blue;
+		state[offset + RECORD_ALPHA] = c.alpha;
+		state[offset + 4] = xOfs;
+		state[offset + 5] = ptScale;
+	}
+
+	@Override
+	public void drawRecorded(float[] state, int offset, float alphaScale, 
+			float x, float y, float scaleX, float scaleY, float rotate, float screenScaleX, float screenScaleY) {
+		drawText(x, y, scaleX, scaleY, state[offset + 4], state[offset + 5], 
+				state[offset + RECORD_RED], state[offset + RECORD_GREEN], state[offset + RECORD_BLUE], 
+				state[offset + RECORD_ALPHA]*alphaScale);
+	}
+
+	private void drawText(float x, float y, float scaleX, float scaleY, float xOfs, float ptScale, 
+			float red, float green, float blue, float alpha) {
+		GL10 gl = OpenGLSystem.getGL();
 		
 		final String text = this.text;
+		final Font font = this.font;
 
-		final int numChar = text.length();
-		if (gl != null && font != null && numChar > 0) {
-			final Color clr = this.color;
-			
-			if (clr.alpha > 0.0f) {
-				gl.glColor4f(clr.red, clr.green, clr.blue, clr.alpha);
-				
+		if (gl != null && font != null && text != null && text.length() > 0) {
+			if (alpha > 0.0f) {
 				if(ptScale != 0.0f) {
 					scaleX *= ptScale;
 					scaleY *= ptScale;
 				}
 				
-				final int len = numChar;
-				final Character[] chars = font.getChars();
-				final int maxChars = chars.length;
-				final Texture[] txts = font.getTextures();
-				
-				float curX = x + xOfs*scaleX;
+				//lay out the glyphs again only if the text or font changed
+				final GlyphRun run = this.run;
+				final int version = this.version;
+				if(!run.isCurrent(font, version)) {
+					run.set(font, text, version);
+				}
 				
 				float adjustedY = y;
 				
@@ -191,36 +222,12 @@ public class DrawableTextLine extends DrawableObject {
 					adjustedY -= font.getLineHeight()*0.5f*scaleY;
 					break;
 				}
-								
-				for(int i = 0; i < len; ++i) {
-					final char cInd = text.charAt(i);
-					if(cInd >= maxChars) {
-						continue;
-					}
-					
-					final Character c = chars[cInd];
-					
-					OpenGLSystem.bindTexture(GL10.GL_TEXTURE_2D, txts[c.page].glId);
-					
-					gl.glTexParameteriv(GL10.GL_TEXTURE_2D, GL11Ext.GL_TEXTURE_CROP_RECT_OES, 
-							c.crop, 0);
-					
-					final float ofsX = c.xOffset*scaleX;
-					final float w = c.width * scaleX;
-					
-					glExt.glDrawTexfOES(
-							(curX + ofsX) * screenScaleX, 
-							(adjustedY + c.yOffset*scaleY) * screenScaleY, 
-							getOrder(), 
-							w * screenScaleX, 
-							c.height * scaleY * screenScaleY);
-					
-					curX += (c.xAdvance*scaleX);
-				}
 				
-				gl.glColor4f(1.0f, 1.0f, 1.0f, 1.0f);
+				gl.glColor4f(red, green, blue, alpha);
 				
-				OpenGLSystem.clearTextureCropSignature();
+				run.draw(gl, x + xOfs*scaleX, adjustedY, scaleX, scaleY, getOrder());
+				
+				gl.glColor4f(1.0f, 1.0f, 1.0f, 1.0f);
 			}
 		}
 	}
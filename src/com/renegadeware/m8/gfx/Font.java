@@ -25,6 +25,8 @@ public class Font extends Resource {
 	public static final String LINE_HEIGHT_ATTR = "lineHeight";
 	public static final String BASE_ATTR = "base";
 	public static final String PAGES_ATTR = "pages";
+	public static final String SCALE_W_ATTR = "scaleW";
+	public static final String SCALE_H_ATTR = "scaleH";
 	
 	public static final String PAGES_TAG = "pages";
 	
@@ -42,25 +44,35 @@ public class Font extends Resource {
 	public static final String X_ADVANCE_ATTR = "xadvance";
 	public static final String PAGE_ATTR = "page";
 	
+	public static final String CHARS_TAG = "chars";
+	public static final String COUNT_ATTR = "count";
+	
+	public static final String KERNING_TAG = "kerning";
+	public static final String FIRST_ATTR = "first";
+	public static final String SECOND_ATTR = "second";
+	public static final String AMOUNT_ATTR = "amount";
+	
 	private Texture textures[];
-	private final Character chars[];
+	private final GlyphTable glyphs;
 	
 	private String name;
 	private float lineHeight;
 	private float base;
 	private float pointSize;
+	private int pageWidth;
+	private int pageHeight;
 
 	public Font(ResourceManager creator, int id, String group,
 			boolean isManual, ManualResourceLoader loader) {
 		super(creator, id, group, isManual, loader);
 		
-		chars = new Character[256];
+		glyphs = new GlyphTable();
 	}
 
 	public Font(int id) {
 		super(id);
 		
-		chars = new Character[256];
+		glyphs = new GlyphTable();
 	}
 	
 	public String getName() {
@@ -87,31 +99,59 @@ public class Font extends Resource {
 		return pointSize;
 	}
 	
+	/**
+	 * Width of the page textures the glyph crops are in, from the font's data, so it's known
+	 * before a page loaded on demand is.  0 if the data doesn't say.
+	 */
+	public int getPageWidth() {
+		return pageWidth;
+	}
+	
+	/** Height of the page textures, see getPageWidth. */
+	public int getPageHeight() {
+		return pageHeight;
+	}
+	
+	/** The glyph of the char, null if the font doesn't have it. */
 	public Character getChar(char c) {
-		return chars[c];
+		return glyphs.get(c);
+	}
+	
+	/** Offset to add to the advance of first when followed by second. */
+	public float getKerning(char first, char second) {
+		return glyphs.getKerning(first, second);
 	}
 	
-	public Character[] getChars() {
-		return chars;
+	public boolean hasKerning() {
+		return glyphs.hasKerning();
 	}
 	
 	public float getStringWidth(String str) {
 		float size = 0;
 		
-		final Character[] chars = this.chars;
+		final GlyphTable glyphs = this.glyphs;
+		final boolean kerning = glyphs.hasKerning();
+		char prev = 0;
+		
 		final int strCount = str.length();
 		for(int i = 0; i < strCount; ++i) {
 			char cInd = str.charAt(i);
 			if(cInd == '\t') {
-				Character space = chars[' '];
+				Character space = glyphs.get(' ');
 				size += space == null ? 0 : space.xAdvance*4;
 			}
 			else {
-				Character c = chars[cInd];
+				Character c = glyphs.get(cInd);
 				if(c != null) {
+					if(kerning) {
+						size += glyphs.getKerning(prev, cInd);
+					}
+					
 					size += c.xAdvance;
 				}
 			}
+			
+			prev = cInd;
 		}
 		
 		return size;
@@ -123,11 +163,11 @@ public class Font extends Resource {
 	
 	public int getNumValidChar(String text, boolean ignoreSpaceChar) {
 		int num = 0;
-		final Character[] chars = this.chars;
+		final GlyphTable glyphs = this.glyphs;
 		final int slen = text.length();
 		for(int i = 0; i < slen; ++i) {
 			final char cInd = text.charAt(i);
-			Character c = chars[cInd];
+			Character c = glyphs.get(cInd);
 			if(c != null) {
 				if(!ignoreSpaceChar || !isWhitespace(cInd)) {
 					num++;
@@ -140,11 +180,11 @@ public class Font extends Resource {
 	public ArrayList<String> splitText(String text, float maxWidth, float pointSize) {
 		final ArrayList<String> lines = new ArrayList<String>();
 		
-		final Character[] chars = this.chars;
+		final GlyphTable glyphs = this.glyphs;
 		
 		final float scale = pointSize == 0 ? 1 : pointSize/this.pointSize;
 		
-		Font.Character space = chars[' '];
+		Font.Character space = glyphs.get(' ');
 		final float spaceAdvance = space == null ? 0 : space.xAdvance*scale;
 		
 		float x = 0, xWord = 0;
@@ -200,7 +240,7 @@ public class Font extends Resource {
 				}
 			}
 			else {
-				Character c = chars[cInd];
+				Character c = glyphs.get(cInd);
 				if(c != null) {
 					float adv = c.xAdvance*scale;
 					x += adv;
@@ -246,6 +286,13 @@ public class Font extends Resource {
 		final Context context = systemRegistry.contextParameters.context;
 		assert context != null;
 		
+		final TextureManager txtMgr = systemRegistry.textureManager;
+		
+		//pages that aren't declared with the font's group are created unloaded, they load on
+		//first use and the texture manager's budget can evict them when unused
+		final boolean pagesOnDemand = getCreator() instanceof FontManager 
+				&& ((FontManager)getCreator()).isLoadingPagesOnDemand();
+		
 		XmlResourceParser xml = context.getResources().getXml(id);
 		try {
 			int attrCount;
@@ -288,6 +335,12 @@ public class Font extends Resource {
 							else if(attr.compareTo(BASE_ATTR) == 0) {
 								base = Float.parseFloat(val);
 							}
+							else if(attr.compareTo(SCALE_W_ATTR) == 0) {
+								pageWidth = Integer.parseInt(val);
+							}
+							else if(attr.compareTo(SCALE_H_ATTR) == 0) {
+								pageHeight = Integer.parseInt(val);
+							}
 							else if(attr.compareTo(PAGES_ATTR) == 0) {
 								int numPages = Integer.parseInt(val);
 								textures = new Texture[numPages];
@@ -305,12 +358,24 @@ public class Font extends Resource {
 								pId = Integer.parseInt(val);
 							}
 							else if(attr.compareTo(FILE_ATTR) == 0) {
-								pTxtId = systemRegistry.textureManager.getResourceIdByFilename(val);
+								pTxtId = txtMgr.getResourceIdByFilename(val);
 							}
 						}
 						
 						if(pId >= 0 && pId < textures.length) {
-							textures[pId] = (Texture)systemRegistry.textureManager.getById(pTxtId);
+							Texture page = (Texture)txtMgr.getById(pTxtId);
+							if(page == null && pagesOnDemand && pTxtId > 0) {
+								page = (Texture)txtMgr.create(pTxtId, group, false, null, null);
+							}
+							
+							textures[pId] = page;
+						}
+					}
+					else if(tagName.compareTo(CHARS_TAG) == 0) {
+						for(int i = 0; i < attrCount; ++i) {
+							if(xml.getAttributeName(i).compareTo(COUNT_ATTR) == 0) {
+								glyphs.ensureCapacity(Integer.parseInt(xml.getAttributeValue(i)));
+							}
 						}
 					}
 					else if(tagName.compareTo(CHAR_TAG) == 0) {
@@ -349,8 +414,31 @@ public class Font extends Resource {
 							}
 						}
 																		
-						if(cId >= 0 && cId < chars.length && pId >= 0 && pId < textures.length) {
-							chars[cId] = new Character(x, y, w, h, xOfs, negPtSize ? -yOfs : yOfs, xAdv, pId, lineHeight);
+						if(cId >= 0 && cId <= java.lang.Character.MAX_VALUE && pId >= 0 && pId < textures.length) {
+							glyphs.put((char)cId, new Character(x, y, w, h, xOfs, negPtSize ? -yOfs : yOfs, xAdv, pId, lineHeight));
+						}
+					}
+					else if(tagName.compareTo(KERNING_TAG) == 0) {
+						int first=-1, second=-1, amount=0;
+						
+						for(int i = 0; i < attrCount; ++i) {
+							attr = xml.getAttributeName(i);
+							val = xml.getAttributeValue(i);
+							
+							if(attr.compareTo(FIRST_ATTR) == 0) {
+								first = Integer.parseInt(val);
+							}
+							else if(attr.compareTo(SECOND_ATTR) == 0) {
+								second = Integer.parseInt(val);
+							}
+							else if(attr.compareTo(AMOUNT_ATTR) == 0) {
+								amount = Integer.parseInt(val);
+							}
+						}
+						
+						if(first >= 0 && first <= java.lang.Character.MAX_VALUE 
+								&& second >= 0 && second <= java.lang.Character.MAX_VALUE && amount != 0) {
+							glyphs.putKerning((char)first, (char)second, amount);
 						}
 					}
 				}
@@ -366,9 +454,7 @@ public class Font extends Resource {
 	protected void unloadImpl() {
 		textures = null;
 		
-		for(int i = 0; i < chars.length; ++i) {
-			chars[i] = null;
-		}
+		glyphs.clear();
 	}
 
 	@Override
@@ -13,10 +13,26 @@ import com.renegadeware.m8.res.ResourceManager;
 public class FontManager extends ResourceManager {
 	
 	public static final String Type = "font";
+	
+	private volatile boolean pagesOnDemand;
 
 	public FontManager() {
 		super(0);
 	}
+	
+	/**
+	 * Enable so the page textures of fonts parsed from now on aren't declared with the font's
+	 * group.  Instead, each page is loaded the first time text using it is drawn, and can be
+	 * evicted by the texture manager's memory budget, so only the used pages of a large font
+	 * (e.g. CJK) stay resident.
+	 */
+	public void setLoadingPagesOnDemand(boolean enable) {
+		pagesOnDemand = enable;
+	}
+	
+	public boolean isLoadingPagesOnDemand() {
+		return pagesOnDemand;
+	}
 
 	@Override
 	public int loadingOrder() {
@@ -41,6 +57,11 @@ public class FontManager extends ResourceManager {
 
 	@Override
 	public void parseScript(int id, String groupName) {
+		if(pagesOnDemand) {
+			//the font creates its pages when it loads
+			return;
+		}
+		
 		final Context context = systemRegistry.contextParameters.context;
 		assert context != null;
 		
@@ -0,0 +1,330 @@
+package com.renegadeware.m8.gfx;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.FloatBuffer;
+
+import javax.microedition.khronos.opengles.GL10;
+
+/**
+ * The glyph quads of a line of text, laid out once at the font's point size and kept until the
+ * text or font changes.  Quads are grouped by font page so the whole run is drawn with one
+ * glDrawElements per page, scaled and placed by the modelview matrix.
+ * <p>
+ * Quads use the same corner order as Grid and SpriteBatch: bottom-left, bottom-right, top-left,
+ * top-right.  Only use this within the render thread.
+ */
+public final class GlyphRun {
+	private static final int FLOAT_SIZE = 4;
+	private static final int CHAR_SIZE = 2;
+
+	private static final int VERTEX_SIZE = 2;
+	private static final int TEX_COORD_SIZE = 2;
+
+	// same as GridText, keeps the neighbouring glyphs out of the filtering
+	private static final float GL_MAGIC_OFFSET = 0.375f;
+
+	// unsigned short indices
+	private static final int MAX_QUADS = 65536/4;
+
+	private static final float mtx[] = {1.0f,0.0f,0.0f,0.0f, 0.0f,1.0f,0.0f,0.0f, 0.0f,0.0f,1.0f,0.0f, 0.0f,0.0f,0.0f,1.0f};
+
+	// shared by all runs, grown to the longest run
+	private static CharBuffer indexBuffer;
+	private static int indexQuads;
+
+	private Font font;
+	private int version;
+
+	private FloatBuffer vertexBuffer;
+	private FloatBuffer texCoordBuffer;
+
+	// staging arrays, copied in bulk to the buffers once the run is laid out
+	private float[] vertices;
+	private float[] texCoords;
+
+	private int quadCount;
+
+	// quads of each page: [page*2] first quad, [page*2+1] count
+	private int[] pageRanges;
+
+	private float width;
+
+	public GlyphRun() {
+		version = -1;
+	}
+
+	/**
+	 * Whether the run was laid out with this font and version of the owner's text.
+	 */
+	public boolean isCurrent(Font font, int version) {
+		return this.font == font && this.version == version;
+	}
+
+	/** Width of the run in font units, by the glyphs' advance. */
+	public float getWidth() {
+		return width;
+	}
+
+	public int getQuadCount() {
+		return quadCount;
+	}
+
+	/** Lays out the text, version is what isCurrent checks against. */
+	public void set(Font font, String text, int version) {
+		final int len = text != null ? text.length() : 0;
+
+		begin(font, len);
+
+		for(int i = 0; i < len; ++i) {
+			countChar(text.charAt(i));
+		}
+
+		startPages();
+
+		float x = 0;
+		char prev = 0;
+		for(int i = 0; i < len; ++i) {
+			final char cInd = text.charAt(i);
+			x = addChar(prev, cInd, x);
+			prev = cInd;
+		}
+
+		end(x, version);
+	}
+
+	/** Lays out the chars, version is what isCurrent checks against. */
+	public void set(Font font, char[] chars, int count, int version) {
+		begin(font, count);
+
+		for(int i = 0; i < count; ++i) {
+			countChar(chars[i]);
+		}
+
+		startPages();
+
+		float x = 0;
+		char prev = 0;
+		for(int i = 0; i < count; ++i) {
+			final char cInd = chars[i];
+			x = addChar(prev, cInd, x);
+			prev = cInd;
+		}
+
+		end(x, version);
+	}
+
+	/** Drops the layout, the next isCurrent fails. */
+	public void clear() {
+		font = null;
+		version = -1;
+		quadCount = 0;
+		width = 0;
+	}
+
+	private void begin(Font font, int maxQuads) {
+		this.font = font;
+
+		quadCount = 0;
+
+		if(maxQuads > MAX_QUADS) {
+			maxQuads = MAX_QUADS;
+		}
+
+		if(vertices == null || vertices.length < maxQuads*4*VERTEX_SIZE) {
+			// some room for the text to grow before allocating again
+			final int size = maxQuads < 16 ? 16 : maxQuads + (maxQuads >> 1);
+
+			vertices = new float[size*4*VERTEX_SIZE];
+			texCoords = new float[size*4*TEX_COORD_SIZE];
+
+			vertexBuffer = ByteBuffer.allocateDirect(FLOAT_SIZE * size*4*VERTEX_SIZE)
+			.order(ByteOrder.nativeOrder()).asFloatBuffer();
+
+			texCoordBuffer = ByteBuffer.allocateDirect(FLOAT_SIZE * size*4*TEX_COORD_SIZE)
+			.order(ByteOrder.nativeOrder()).asFloatBuffer();
+		}
+
+		final int pageCount = font != null ? font.getTextures().length : 0;
+		if(pageRanges == null || pageRanges.length < pageCount*2) {
+			pageRanges = new int[pageCount*2];
+		}
+
+		for(int i = 0; i < pageRanges.length; i++) {
+			pageRanges[i] = 0;
+		}
+	}
+
+	private void countChar(char cInd) {
+		final Font.Character c = font != null ? font.getChar(cInd) : null;
+		if(c != null && c.width > 0 && c.height > 0) {
+			pageRanges[c.page*2+1]++;
+		}
+	}
+
+	/** Turns the page counts into each page's first quad, the counts are recounted by addChar. */
+	private void startPages() {
+		int start = 0;
+		for(int i = 0; i < pageRanges.length; i += 2) {
+			final int count = pageRanges[i+1];
+			pageRanges[i] = start;
+			pageRanges[i+1] = 0;
+			start += count;
+		}
+	}
+
+	private float addChar(char prev, char cInd, float x) {
+		if(font == null) {
+			return x;
+		}
+
+		final Font.Character c = font.getChar(cInd);
+		if(c == null) {
+			return x;
+		}
+
+		x += font.getKerning(prev, cInd);
+
+		if(c.width > 0 && c.height > 0) {
+			final int page = c.page*2;
+			final int quad = pageRanges[page] + pageRanges[page+1];
+
+			if(quad < MAX_QUADS) {
+				pageRanges[page+1]++;
+				quadCount++;
+
+				//positions
+				final float x1 = x + c.xOffset;
+				final float y1 = c.yOffset;
+				final float x2 = x1 + c.width;
+				final float y2 = y1 + c.height;
+
+				final float[] v = vertices;
+				int i = quad*4*VERTEX_SIZE;
+				v[i++] = x1; v[i++] = y1;
+				v[i++] = x2; v[i++] = y1;
+				v[i++] = x1; v[i++] = y2;
+				v[i++] = x2; v[i] = y2;
+
+				//texture, same region as the draw texture crop, a page loaded on demand may not
+				//be loaded yet so its size comes from the font when it has it
+				final Texture texture = font.getTexture(c.page);
+				final int pageWidth = font.getPageWidth();
+				final int pageHeight = font.getPageHeight();
+				final float trw = 1.0f/(pageWidth > 0 ? pageWidth : texture.width);
+				final float trh = 1.0f/(pageHeight > 0 ? pageHeight : texture.height);
+				final int crop[] = c.crop;
+
+				final float s1 = (crop[0] + GL_MAGIC_OFFSET)*trw;
+				final float s2 = (crop[0] + crop[2] - GL_MAGIC_OFFSET)*trw;
+				final float t1 = (crop[1] + crop[3] + GL_MAGIC_OFFSET)*trh;
+				final float t2 = (crop[1] - GL_MAGIC_OFFSET)*trh;
+
+				final float[] t = texCoords;
+				i = quad*4*TEX_COORD_SIZE;
+				t[i++] = s1; t[i++] = t2;
+				t[i++] = s2; t[i++] = t2;
+				t[i++] = s1; t[i++] = t1;
+				t[i++] = s2; t[i] = t1;
+			}
+		}
+
+		return x + c.xAdvance;
+	}
+
+	private void end(float x, int version) {
+		width = x;
+		this.version = version;
+
+		final int count = quadCount;
+		if(count > 0) {
+			vertexBuffer.put(vertices, 0, count*4*VERTEX_SIZE).position(0);
+			texCoordBuffer.put(texCoords, 0, count*4*TEX_COORD_SIZE).position(0);
+		}
+	}
+
+	private static void ensureIndices(int quads) {
+		if(indexQuads >= quads) {
+			return;
+		}
+
+		int size = indexQuads > 0 ? indexQuads : 64;
+		while(size < quads) {
+			size *= 2;
+		}
+		if(size > MAX_QUADS) {
+			size = MAX_QUADS;
+		}
+
+		final CharBuffer indices = ByteBuffer.allocateDirect(CHAR_SIZE * size*6)
+		.order(ByteOrder.nativeOrder()).asCharBuffer();
+
+		int i = 0;
+		for(int q = 0; q < size; q++) {
+			final char a = (char)(q * 4);
+			final char b = (char)(a + 1);
+			final char c = (char)(a + 2);
+			final char d = (char)(a + 3);
+
+			indices.put(i++, a);
+			indices.put(i++, b);
+			indices.put(i++, c);
+
+			indices.put(i++, b);
+			indices.put(i++, c);
+			indices.put(i++, d);
+		}
+
+		indexBuffer = indices;
+		indexQuads = size;
+	}
+
+	/**
+	 * Draws the run with its origin at x, y, scaled from the font's point size.  The color must
+	 * already be set.
+	 */
+	public void draw(GL10 gl, float x, float y, float scaleX, float scaleY, float order) {
+		final int count = quadCount;
+		if(count == 0) {
+			return;
+		}
+
+		ensureIndices(count);
+
+		final Texture[] txts = font.getTextures();
+
+		// client-side arrays, with no leftover texture transform
+		Grid.resetBufferBinding(gl);
+
+		gl.glMatrixMode(GL10.GL_TEXTURE);
+		gl.glLoadIdentity();
+
+		gl.glMatrixMode(GL10.GL_MODELVIEW);
+		gl.glPushMatrix();
+		mtx[0] = scaleX;
+		mtx[5] = scaleY;
+		mtx[12] = x;
+		mtx[13] = y;
+		mtx[14] = order;
+		gl.glLoadMatrixf(mtx, 0);
+
+		gl.glVertexPointer(VERTEX_SIZE, GL10.GL_FLOAT, 0, vertexBuffer);
+
+		gl.glEnableClientState(GL10.GL_TEXTURE_COORD_ARRAY);
+		gl.glTexCoordPointer(TEX_COORD_SIZE, GL10.GL_FLOAT, 0, texCoordBuffer);
+
+		final int[] ranges = pageRanges;
+		for(int p = 0; p < txts.length; p++) {
+			final int pageCount = ranges[p*2+1];
+			if(pageCount > 0) {
+				OpenGLSystem.bindTexture(GL10.GL_TEXTURE_2D, txts[p].use());
+
+				gl.glDrawElements(GL10.GL_TRIANGLES, pageCount*6, GL10.GL_UNSIGNED_SHORT,
+						indexBuffer.position(ranges[p*2]*6));
+			}
+		}
+
+		gl.glPopMatrix();
+	}
+}
@@ -0,0 +1,205 @@
+package com.renegadeware.m8.gfx;
+
+/**
+ * The glyphs and kerning pairs of a Font.  Latin-1 glyphs are kept in a dense array, the rest in
+ * an open addressing map keyed by char, so fonts with large character sets (CJK, extended
+ * Cyrillic) don't need an entry for every char.  Kerning pairs are kept in the same kind of map,
+ * keyed by both chars.
+ */
+final class GlyphTable {
+	private static final int DENSE_SIZE = 256;
+
+	private final Font.Character[] dense;
+
+	// chars >= DENSE_SIZE, 0 marks an empty slot since it's always dense
+	private char[] keys;
+	private Font.Character[] values;
+	private int count;
+
+	// (first << 16) | second, 0 marks an empty slot since the pair of nulls is never kerned
+	private int[] kernKeys;
+	private float[] kernAmounts;
+	private int kernCount;
+
+	GlyphTable() {
+		dense = new Font.Character[DENSE_SIZE];
+	}
+
+	/** Makes room for the number of glyphs beyond Latin-1, before they are put. */
+	void ensureCapacity(int glyphs) {
+		if(glyphs > 0 && (keys == null || glyphs*2 > keys.length)) {
+			rehash(capacityFor(glyphs));
+		}
+	}
+
+	Font.Character get(char c) {
+		if(c < DENSE_SIZE) {
+			return dense[c];
+		}
+
+		final char[] keys = this.keys;
+		if(keys == null) {
+			return null;
+		}
+
+		final int mask = keys.length - 1;
+		for(int i = c & mask; ; i = (i + 1) & mask) {
+			final char k = keys[i];
+			if(k == c) {
+				return values[i];
+			}
+			else if(k == 0) {
+				return null;
+			}
+		}
+	}
+
+	void put(char c, Font.Character glyph) {
+		if(c < DENSE_SIZE) {
+			dense[c] = glyph;
+			return;
+		}
+
+		if(keys == null || (count + 1)*2 > keys.length) {
+			rehash(capacityFor(count + 1));
+		}
+
+		final char[] keys = this.keys;
+		final int mask = keys.length - 1;
+		int i = c & mask;
+		while(keys[i] != 0 && keys[i] != c) {
+			i = (i + 1) & mask;
+		}
+
+		if(keys[i] == 0) {
+			keys[i] = c;
+			count++;
+		}
+
+		values[i] = glyph;
+	}
+
+	/** Offset to add to the advance of first when followed by second, 0 if not kerned. */
+	float getKerning(char first, char second) {
+		final int[] keys = kernKeys;
+		if(keys == null) {
+			return 0.0f;
+		}
+
+		final int key = (first << 16) | second;
+		final int mask = keys.length - 1;
+		for(int i = hash(key) & mask; ; i = (i + 1) & mask) {
+			final int k = keys[i];
+			if(k == key) {
+				return kernAmounts[i];
+			}
+			else if(k == 0) {
+				return 0.0f;
+			}
+		}
+	}
+
+	void putKerning(char first, char second, float amount) {
+		final int key = (first << 16) | second;
+		if(key == 0) {
+			return;
+		}
+
+		if(kernKeys == null || (kernCount + 1)*2 > kernKeys.length) {
+			rehashKerning(capacityFor(kernCount + 1));
+		}
+
+		final int[] keys = kernKeys;
+		final int mask = keys.length - 1;
+		int i = hash(key) & mask;
+		while(keys[i] != 0 && keys[i] != key) {
+			i = (i + 1) & mask;
+		}
+
+		if(keys[i] == 0) {
+			keys[i] = key;
+			kernCount++;
+		}
+
+		kernAmounts[i] = amount;
+	}
+
+	boolean hasKerning() {
+		return kernCount > 0;
+	}
+
+	void clear() {
+		for(int i = 0; i < DENSE_SIZE; ++i) {
+			dense[i] = null;
+		}
+
+		keys = null;
+		values = null;
+		count = 0;
+
+		kernKeys = null;
+		kernAmounts = null;
+		kernCount = 0;
+	}
+
+	/** Power of two with the entries at most half full. */
+	private static int capacityFor(int entries) {
+		int capacity = 16;
+		while(capacity < entries*2) {
+			capacity <<= 1;
+		}
+		return capacity;
+	}
+
+	private static int hash(int key) {
+		key ^= key >>> 16;
+		key *= 0x45d9f3b;
+		return key ^ (key >>> 16);
+	}
+
+	private void rehash(int capacity) {
+		final char[] oldKeys = keys;
+		final Font.Character[] oldValues = values;
+
+		keys = new char[capacity];
+		values = new Font.Character[capacity];
+
+		if(oldKeys != null) {
+			final int mask = capacity - 1;
+			for(int j = 0; j < oldKeys.length; ++j) {
+				final char c = oldKeys[j];
+				if(c != 0) {
+					int i = c & mask;
+					while(keys[i] != 0) {
+						i = (i + 1) & mask;
+					}
+					keys[i] = c;
+					values[i] = oldValues[j];
+				}
+			}
+		}
+	}
+
+	private void rehashKerning(int capacity) {
+		final int[] oldKeys = kernKeys;
+		final float[] oldAmounts = kernAmounts;
+
+		kernKeys = new int[capacity];
+		kernAmounts = new float[capacity];
+
+		if(oldKeys != null) {
+			final int mask = capacity - 1;
+			for(int j = 0; j < oldKeys.length; ++j) {
+				final int key = oldKeys[j];
+				if(key != 0) {
+					int i = hash(key) & mask;
+					while(kernKeys[i] != 0) {
+						i = (i + 1) & mask;
+					}
+					kernKeys[i] = key;
+					kernAmounts[i] = oldAmounts[j];
+				}
+			}
+		}
+	}
+}
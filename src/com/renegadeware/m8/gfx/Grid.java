@@ -134,6 +134,17 @@ public class Grid extends Resource {
         }
     }
     
+    /** Unbinds any hardware buffer so client-side arrays can be used, e.g. by SpriteBatch. */
+    public static void resetBufferBinding(GL10 gl) {
+    	if (lastVertBufferIndex != 0) {
+    		final GL11 gl11 = (GL11)gl;
+    		gl11.glBindBuffer(GL11.GL_ARRAY_BUFFER, 0);
+    		gl11.glBindBuffer(GL11.GL_ELEMENT_ARRAY_BUFFER, 0);
+
+    		lastVertBufferIndex = 0;
+    	}
+    }
+
     public void beginDrawingStrips(GL10 gl, boolean useTexture) {
         if (!useHardwareBuffers) {
             gl.glVertexPointer(3, COORD_TYPE, 0, vertexBuffer);
@@ -19,6 +19,12 @@ public class GridManager extends ResourceManager {
 		return DEFAULT_ORDER_GRID;
 	}
 
+	/** Grids are in use until the renderer is done drawing them. */
+	@Override
+	protected int currentFrame() {
+		return OpenGLSystem.getFrameCount();
+	}
+
 	@Override
 	public String name() {
 		return Type;
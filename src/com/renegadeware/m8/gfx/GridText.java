@@ -186,8 +186,12 @@ public class GridText extends Grid {
 							x = 0;
 						}
 						
+						char prev = 0;
 						for(int i = 0; i < cCount; ++i) {
 							final char cInd = line.charAt(i);
+							final char prevInd = prev;
+							prev = cInd;
+							
 							if(cInd == ' ') {
 								x += spaceAdvance;
 							}
@@ -197,6 +201,8 @@ public class GridText extends Grid {
 							else {
 								Font.Character c = font.getChar(cInd);
 								if(c != null) {
+									x += font.getKerning(prevInd, cInd)*scale;
+									
 									setCell(ind+charCount, x, y, scale, texture, c);
 									
 									x += c.xAdvance*scale;
@@ -238,8 +244,11 @@ public class GridText extends Grid {
 		//calculate the texture
 		final int crop[] = c.crop;
 		
-		float trw = 1.0f/texture.width;
-		float trh = 1.0f/texture.height;
+		//the page may not be loaded yet if it's loaded on demand, see GlyphRun
+		final int pageWidth = font.getPageWidth();
+		final int pageHeight = font.getPageHeight();
+		float trw = 1.0f/(pageWidth > 0 ? pageWidth : texture.width);
+		float trh = 1.0f/(pageHeight > 0 ? pageHeight : texture.height);
 		
 		float s1 = crop[0]; s1 = (s1+GL_MAGIC_OFFSET)*trw;
 		float s2 = crop[0]+crop[2]; s2 = (s2-GL_MAGIC_OFFSET)*trw;
@@ -6,6 +6,7 @@ import javax.microedition.khronos.opengles.GL10;
 import com.renegadeware.m8.ContextParameters;
 import com.renegadeware.m8.DebugLog;
 import com.renegadeware.m8.MateInterface;
+import com.renegadeware.m8.Profiler;
 import com.renegadeware.m8.R;
 import com.renegadeware.m8.gfx.RenderSystem.RenderElement;
 import com.renegadeware.m8.obj.BaseObject;
@@ -17,32 +18,34 @@ import com.renegadeware.m8.util.FixedSizeArray;
 
 import android.opengl.GLSurfaceView;
 import android.os.Build;
-import android.os.SystemClock;
 
 public class MateRenderer implements GLSurfaceView.Renderer {
 	public static final int MAX_SURFACE_READY_CALLBACKS = 64;
 	
-	private static final int PROFILE_REPORT_DELAY = 3000;
+	// how long to wait for the game thread to publish a new queue before drawing the last one again
+	private static final long MAILBOX_WAIT_TIMEOUT = 100000000L;
 	
 	private int width;
     private int height;
     
     private float scaleX;
     private float scaleY;
-    private long lastTime;
-    private int profileFrames;
-    private long profileWaitTime;
-    private long profileFrameTime;
-    private long profileSubmitTime;
-    private int profileObjectCount;
     
     private ObjectManager drawQueue;
     private boolean drawQueueChanged;
     private MateInterface game;
     private Object drawLock;
+    private volatile RenderQueueMailbox drawQueueMailbox;
+    
+    // hand off statistics, only written by the render thread
+    private volatile long stallTime;
+    private volatile int repeatedFrames;
     
     private final FixedSizeArray<SurfaceReadyCallback> surfaceReadyCallbacks;
     
+    private final SpriteBatch spriteBatch;
+    private boolean batching;
+    
 	public MateRenderer(MateInterface game, int gameWidth, int gameHeight) {
 		this.game = game;
 		width = gameWidth;
@@ -53,6 +56,9 @@ public class MateRenderer implements GLSurfaceView.Renderer {
         drawLock = new Object();
         
         surfaceReadyCallbacks = new FixedSizeArray<SurfaceReadyCallback>(MAX_SURFACE_READY_CALLBACKS);
+        
+        spriteBatch = new SpriteBatch();
+        batching = false;
 	}
 	
 	private static final float GL_MAGIC_OFFSET = 0.375f;
@@ -94,6 +100,8 @@ public class MateRenderer implements GLSurfaceView.Renderer {
 	public void onSurfaceCreated(GL10 gl, EGLConfig config) {
 		DebugLog.d("Mate", "onSurfaceCreated");
 		
+		final long surfaceStart = Profiler.begin();
+		
 		OpenGLSystem.setGL(gl);
 		
 		/*
@@ -158,6 +166,8 @@ public class MateRenderer implements GLSurfaceView.Renderer {
 		game.surfaceCreated();
 		
 		OpenGLSystem.setGL(null);
+		
+		Profiler.end(Profiler.SCOPE_SURFACE, surfaceStart);
 	}
 	
 	private void hackBrokenDevices() {
@@ -188,6 +198,8 @@ public class MateRenderer implements GLSurfaceView.Renderer {
     	float scaleY =  (float)height / this.height;
     	//final int viewportWidth = (int)(this.width * scaleX);
     	//final int viewportHeight = (int)(this.height * scaleY);
+        final long surfaceStart = Profiler.begin();
+        
         gl.glViewport(0, 0, width, height);
         this.scaleX = scaleX;
         this.scaleY = scaleY;
@@ -208,30 +220,49 @@ public class MateRenderer implements GLSurfaceView.Renderer {
         game.surfaceReady();
         
         OpenGLSystem.setGL(null);
+        
+        Profiler.end(Profiler.SCOPE_SURFACE, surfaceStart);
 	}
 
 	@Override
 	public void onDrawFrame(GL10 gl) {
-		long time = SystemClock.uptimeMillis();
-        long time_delta = (time - lastTime);
+        final long waitStart = System.nanoTime();
         
-        synchronized(drawLock) {
-            if (!drawQueueChanged) {
-                while (!drawQueueChanged) {
-                    try {
-                    	drawLock.wait();
-                    } catch (InterruptedException e) {
-                        // No big deal if this wait is interrupted.
-                    }
-                }
-            }
-            drawQueueChanged = false;
+        RenderQueueMailbox mailbox = drawQueueMailbox;
+        if (mailbox == null) {
+	        synchronized(drawLock) {
+	        	// a mailbox connected while waiting also ends the wait
+	            while (!drawQueueChanged && drawQueueMailbox == null) {
+	                try {
+	                	drawLock.wait();
+	                } catch (InterruptedException e) {
+	                    // No big deal if this wait is interrupted.
+	                }
+	            }
+	            drawQueueChanged = false;
+	        }
+	        
+	        mailbox = drawQueueMailbox;
         }
         
-        final long wait = SystemClock.uptimeMillis();
-                                
+        if (mailbox != null) {
+        	// never blocks the game thread, draw the last queue again if nothing new came in
+        	if (!mailbox.acquire(MAILBOX_WAIT_TIMEOUT)) {
+        		repeatedFrames++;
+        	}
+        }
+        
+        stallTime += System.nanoTime() - waitStart;
+        
         synchronized (this) {
+        	final long drawStart = Profiler.begin();
+        	
         	OpenGLSystem.setGL(gl);
+        	OpenGLSystem.nextFrame();
+        	
+        	// the mailbox may have been disconnected while we were waiting
+        	final ObjectManager drawQueue = mailbox == null ? this.drawQueue 
+        			: (mailbox == drawQueueMailbox ? mailbox.getReadQueue() : null);
         	        	        	
         	DrawableBitmap.beginDrawing(gl, width, height);
             Grid.beginDrawing(gl);
@@ -243,65 +274,70 @@ public class MateRenderer implements GLSurfaceView.Renderer {
                 final float screenScaleX = this.scaleX;
                 final float screenScaleY = this.scaleY;
  
-                profileObjectCount += count;
+                final SpriteBatch batch = batching ? spriteBatch : null;
+                if (batch != null) {
+                	batch.begin();
+                }
+ 
                 for (int i = 0; i < count; i++) {
                     final RenderElement element = (RenderElement)objectArray[i];
+                    final DrawableObject drawable = element.drawable;
+                    
+                    if (batch != null && drawable.isBatchable()) {
+                    	if(element.mtx != null) {
+                        	synchronized(element.mtx) {
+                        		drawable.batch(batch, element.mtx);
+                        	}
+                        }
+                        else {
+                        	drawable.batch(batch, element.x, element.y, element.sx, element.sy, element.rot);
+                        }
+                    	continue;
+                    }
+                    
+                    // pending batch must be drawn first to keep the order
+                    if (batch != null) {
+                    	batch.flush();
+                    }
                     
                     if(element.mtx != null) {
                     	// TODO: might be better to just make a matrix factory...
                     	synchronized(element.mtx) {
-                    		element.drawable.draw(element.mtx, screenScaleX, screenScaleY);
+                    		drawable.draw(element.mtx, screenScaleX, screenScaleY);
                     	}
                     }
                     else {
-                    	element.drawable.draw(element.x, element.y, element.sx, element.sy, element.rot, screenScaleX, screenScaleY);
+                    	drawable.draw(element.x, element.y, element.sx, element.sy, element.rot, screenScaleX, screenScaleY);
                     }
                 }
+                
+                if (batch != null) {
+                	batch.end();
+                }
         	}
         	
         	Grid.endDrawing(gl);
             DrawableBitmap.endDrawing(gl);
             
+            Profiler.end(Profiler.SCOPE_DRAW, drawStart);
+            
             //go through the pending surface ready callbacks
         	final int surfaceReadyCount = surfaceReadyCallbacks.getCount();
         	if(surfaceReadyCount > 0) {
+        		final long surfaceStart = Profiler.begin();
+        		
         		Object[] surfaceReadyArray = surfaceReadyCallbacks.getArray();
         		for(int i = 0; i < surfaceReadyCount; i++) {
         			final SurfaceReadyCallback caller = (SurfaceReadyCallback)surfaceReadyArray[i];
         			caller.onSurfaceReady();
         		}
         		surfaceReadyCallbacks.clear();
+        		
+        		Profiler.end(Profiler.SCOPE_SURFACE, surfaceStart);
         	}
             
             OpenGLSystem.setGL(null);
 		}
-        
-        long time2 = SystemClock.uptimeMillis();
-        lastTime = time2;
-        
-        /*profileFrameTime += time_delta;
-        profileSubmitTime += time2 - time;
-        profileWaitTime += wait - time;
-        
-        profileFrames++;
-        if (profileFrameTime > PROFILE_REPORT_DELAY) {
-        	final int validFrames = profileFrames;
-            final long averageFrameTime = profileFrameTime / validFrames;
-            final long averageSubmitTime = profileSubmitTime / validFrames;
-            final float averageObjectsPerFrame = (float)profileObjectCount / validFrames;
-            final long averageWaitTime = profileWaitTime / validFrames;
-
-            DebugLog.d("Render Profile", 
-            		"Average Submit: " + averageSubmitTime 
-            		+ "  Average Draw: " + averageFrameTime 
-            		+ " Objects/Frame: " + averageObjectsPerFrame
-            		+ " Wait Time: " + averageWaitTime);
-           
-            profileFrameTime = 0;
-            profileSubmitTime = 0;
-            profileFrames = 0;
-            profileObjectCount = 0;
-        }*/
 	}
 	
 	/**
@@ -313,16 +349,78 @@ public class MateRenderer implements GLSurfaceView.Renderer {
 		surfaceReadyCallbacks.add(cb);
     }
 	
+	/**
+	 * Enable to pack consecutive batchable drawables (see DrawableObject.isBatchable) with the same
+	 * texture, blend and color mode into a single draw call.
+	 */
+	public synchronized void setBatching(boolean enable) {
+		batching = enable;
+	}
+	
+	public boolean isBatching() {
+		return batching;
+	}
+	
+	/**
+	 * Use this to query the batch counters of the last frame drawn, e.g. getBatchCount.
+	 */
+	public SpriteBatch getSpriteBatch() {
+		return spriteBatch;
+	}
+	
 	// TODO: implement multi viewport...
-	public synchronized void setDrawQueue(ObjectManager queue) {
+	/**
+	 * Hand off the queue to draw, this blocks while drawing is in progress.
+	 * 
+	 * @return false if the previous queue was replaced before it was drawn.
+	 */
+	public synchronized boolean setDrawQueue(ObjectManager queue) {
 		this.drawQueue = queue;
 		
+		final boolean consumed;
+		
 		//wait until drawing has finished
     	synchronized(drawLock) {
+    		consumed = !drawQueueChanged;
     		drawQueueChanged = true;
     		drawLock.notify();
     	}
+    	
+    	return consumed;
     }
+	
+	/**
+	 * Use the mailbox to get queues to draw instead of setDrawQueue, see RenderSystem.MODE_MAILBOX.
+	 * Set to null to disconnect, this blocks while drawing is in progress.
+	 */
+	public synchronized void setDrawQueueMailbox(RenderQueueMailbox mailbox) {
+		drawQueueMailbox = mailbox;
+		
+		//wake up the render thread if it's waiting on setDrawQueue
+		synchronized(drawLock) {
+			drawQueueChanged = true;
+			drawLock.notify();
+		}
+	}
+	
+	public RenderQueueMailbox getDrawQueueMailbox() {
+		return drawQueueMailbox;
+	}
+	
+	/** Total time in nanoseconds the render thread spent waiting for a queue to draw. */
+	public long getStallTime() {
+		return stallTime;
+	}
+	
+	/** Number of frames the render thread had to draw the last queue again. */
+	public int getRepeatedFrameCount() {
+		return repeatedFrames;
+	}
+	
+	public void resetStats() {
+		stallTime = 0;
+		repeatedFrames = 0;
+	}
     
     public synchronized void onPause() {
     	// Stop waiting to avoid deadlock.
@@ -15,6 +15,7 @@ public class ObjectSprite extends PhasedObject {
 	protected Sprite sprite;	
 
 	protected Sprite.State curState;
+	protected int curStateHandle;
 	protected Sprite.Frame curFrame;
 	protected int curFrameIndex;
 			
@@ -24,7 +25,7 @@ public class ObjectSprite extends PhasedObject {
 	private boolean isPause;
 	private boolean isDone;
 	
-	private String nextState;
+	private int nextState;
 
 	public ObjectSprite() {
 		super();
@@ -40,6 +41,14 @@ public class ObjectSprite extends PhasedObject {
 		setSprite(sprite, initialState);
 	}
 	
+	public ObjectSprite(Sprite sprite, int initialState) {
+		super();
+		
+		assert sprite != null;
+
+		setSprite(sprite, initialState);
+	}
+	
 	public Sprite getSprite() {
 		return sprite;
 	}
@@ -55,11 +64,27 @@ public class ObjectSprite extends PhasedObject {
 			setState(initialState);
 		}
 	}
+	
+	/**
+	 * @param initialState Handle from Sprite.getStateHandle, Sprite.INVALID_STATE for none.
+	 */
+	public void setSprite(Sprite sprite, int initialState) {
+		resetSpriteData();
+		
+		assert sprite != null;
+
+		this.sprite = sprite;
+
+		if(initialState != Sprite.INVALID_STATE) {
+			setState(initialState);
+		}
+	}
 		
 	private void resetSpriteData() {
 		sprite = null;
 
 		curState = null;
+		curStateHandle = Sprite.INVALID_STATE;
 		curFrame = null;
 		curFrameIndex = 0;
 
@@ -68,6 +93,9 @@ public class ObjectSprite extends PhasedObject {
 		isDone = false;
 
 		frameCount = 0.0f;
+		
+		// handles only mean something to the sprite they came from
+		nextState = Sprite.INVALID_STATE;
 	}
 
 	@Override
@@ -84,7 +112,17 @@ public class ObjectSprite extends PhasedObject {
 		curFrame = curState.frames[frame];
 	}
 	
+	/**
+	 * The state to go to once the current one is done, resolved against the current sprite.
+	 */
 	public final void setNextState(String state) {
+		nextState = sprite != null ? sprite.getStateHandle(state) : Sprite.INVALID_STATE;
+	}
+	
+	/**
+	 * @param state Handle from Sprite.getStateHandle, Sprite.INVALID_STATE to stay on the last frame.
+	 */
+	public final void setNextState(int state) {
 		nextState = state;
 	}
 	
@@ -103,11 +141,31 @@ public class ObjectSprite extends PhasedObject {
 	public final Sprite.State getCurSpriteState() {
 		return curState;
 	}
+	
+	/** Handle of the current state, Sprite.INVALID_STATE if none. */
+	public final int getCurSpriteStateHandle() {
+		return curStateHandle;
+	}
 
 	public boolean setState(String state) {
+		final int handle = sprite.getStateHandle(state);
+		if(handle != Sprite.INVALID_STATE) {
+			return setState(handle);
+		}
+		
+		DebugLog.e("DrawableSprite", "set state not found: "+state);
+		
+		return true;
+	}
+	
+	/**
+	 * @param state Handle from Sprite.getStateHandle
+	 */
+	public boolean setState(int state) {
 		Sprite.State newState = sprite.getState(state);
 		if(newState != null) {
 			curState = newState;
+			curStateHandle = state;
 			setFrame(0);
 			isReverse = false;
 			isDone = false;
@@ -197,7 +255,7 @@ public class ObjectSprite extends PhasedObject {
 					}
 				}
 
-				if(isDone && nextState != null) {
+				if(isDone && nextState != Sprite.INVALID_STATE) {
 					setState(nextState);
 				}
 				else if(newFrameInd != curFrameIndex) {
@@ -41,6 +41,8 @@ public class OpenGLSystem extends BaseObject {
     
     private static int sLastFilterUsed;
     
+    private static volatile int sFrameCount;
+    
     public static final void setGL(GL10 gl) {
         sGL = gl;
         sLastBoundTexture = 0;
@@ -56,6 +58,16 @@ public class OpenGLSystem extends BaseObject {
         return sGL;
     }
     
+    /** Called by the renderer at the start of every frame it draws. */
+    public static final void nextFrame() {
+        sFrameCount++;
+    }
+    
+    /** Number of frames the renderer has drawn, unlike the time system's it counts render frames. */
+    public static final int getFrameCount() {
+        return sFrameCount;
+    }
+    
     public static final void bindTexture(int target, int texture) {
         if (sLastBoundTexture != texture || sLastFilterUsed != 0) {        	
         	if(texture == -1) {
@@ -0,0 +1,105 @@
+package com.renegadeware.m8.gfx;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import com.renegadeware.m8.obj.ObjectManager;
+
+/**
+ * Lock-free triple buffer of render queues shared between the game thread and the render thread.
+ * The game thread owns one queue for writing, the render thread owns one queue for drawing, and
+ * the third sits in the mailbox.  Handing off a queue is a single atomic exchange with the mailbox,
+ * so neither thread ever waits on the other's monitor.
+ * <p>
+ * If the game thread publishes again before the render thread picked up the previous queue, the
+ * previous queue is handed back to the game thread and is considered dropped.
+ */
+public class RenderQueueMailbox {
+	public static final int QUEUE_COUNT = 3;
+
+	private static final int FRESH = 0x100;
+	private static final int INDEX_MASK = 0xff;
+
+	private final ObjectManager[] queues;
+	private final AtomicInteger slot;
+
+	private int writeIndex; // game thread only
+	private int readIndex; // render thread only
+
+	private volatile Thread renderThread;
+
+	public RenderQueueMailbox(ObjectManager[] queues) {
+		assert queues.length == QUEUE_COUNT;
+
+		this.queues = queues;
+
+		writeIndex = 0;
+		slot = new AtomicInteger(1);
+		readIndex = 2;
+	}
+
+	/** Game thread: the queue to fill for the current frame. */
+	public ObjectManager getWriteQueue() {
+		return queues[writeIndex];
+	}
+
+	/**
+	 * Game thread: publish the write queue as the newest frame.  The write queue is replaced with the
+	 * queue that came out of the mailbox, this needs to be cleared before use.
+	 *
+	 * @return true if the queue that came out of the mailbox was never drawn.
+	 */
+	public boolean publish() {
+		final int prev = slot.getAndSet(writeIndex | FRESH);
+
+		writeIndex = prev & INDEX_MASK;
+
+		final Thread t = renderThread;
+		if(t != null) {
+			LockSupport.unpark(t);
+		}
+
+		return (prev & FRESH) != 0;
+	}
+
+	/** Game thread: true if the last published queue has not been picked up by the render thread. */
+	public boolean isPending() {
+		return (slot.get() & FRESH) != 0;
+	}
+
+	/**
+	 * Render thread: wait for a published queue and take ownership of it.  The previous queue owned by
+	 * the render thread goes back into the mailbox.
+	 *
+	 * @param timeoutNanos How long to wait for a new queue.
+	 * @return true if a new queue was acquired, otherwise the last queue is to be drawn again.
+	 */
+	public boolean acquire(long timeoutNanos) {
+		renderThread = Thread.currentThread();
+
+		if((slot.get() & FRESH) == 0 && timeoutNanos > 0) {
+			final long deadline = System.nanoTime() + timeoutNanos;
+			while((slot.get() & FRESH) == 0) {
+				final long remaining = deadline - System.nanoTime();
+				if(remaining <= 0) {
+					break;
+				}
+
+				LockSupport.parkNanos(this, remaining);
+			}
+		}
+
+		// only the game thread puts fresh queues in, so once fresh it stays fresh until we take it
+		if((slot.get() & FRESH) != 0) {
+			readIndex = slot.getAndSet(readIndex) & INDEX_MASK;
+			return true;
+		}
+
+		return false;
+	}
+
+	/** Render thread: the queue to draw. */
+	public ObjectManager getReadQueue() {
+		return queues[readIndex];
+	}
+}
@@ -0,0 +1,162 @@
+package com.renegadeware.m8.gfx;
+
+import java.util.Comparator;
+import java.util.Random;
+
+import com.renegadeware.m8.gfx.RenderSystem.RenderElement;
+import com.renegadeware.m8.util.Sort;
+
+/**
+ * Offline benchmark of the render queue sort, run on a desktop JVM with android.jar on the class
+ * path:
+ * <pre>
+ * java com.renegadeware.m8.gfx.RenderSortBenchmark [iterations]
+ * </pre>
+ * Compares the comparator quicksort the render queue used to run every frame (phase, then
+ * texture and buffer through the drawable) with the radix sort over RenderElement.sortKey, at
+ * 100, 384 and 2000 elements.  Each iteration sorts a fresh copy of the same shuffled scene, and
+ * both sorts are checked to produce the same key order.
+ */
+public final class RenderSortBenchmark {
+	private static final int[] SIZES = { 100, 384, 2000 };
+
+	private static final int PHASES = 8;
+	private static final int TEXTURES = 16;
+	private static final int BUFFERS = 8;
+
+	private static final int DEFAULT_ITERATIONS = 2000;
+
+	private RenderSortBenchmark() {
+	}
+
+	public static void main(String[] args) {
+		final int iterations = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_ITERATIONS;
+
+		final Random random = new Random(1);
+
+		final BenchDrawable[] drawables = new BenchDrawable[TEXTURES*BUFFERS];
+		for(int i = 0; i < drawables.length; i++) {
+			drawables[i] = new BenchDrawable(i / BUFFERS + 1, i % BUFFERS + 1);
+		}
+
+		System.out.println("size\tcomparator ns\tradix ns\tspeedup");
+
+		for(int s = 0; s < SIZES.length; s++) {
+			final int size = SIZES[s];
+
+			final RenderElement[] scene = new RenderElement[size];
+			for(int i = 0; i < size; i++) {
+				scene[i] = new RenderElement();
+				scene[i].set(drawables[random.nextInt(drawables.length)], 0, 0, 1, 1, 0,
+						random.nextInt(PHASES));
+			}
+
+			final RenderElement[] sorted = new RenderElement[size];
+			final long[] keys = new long[size];
+			final long[] keysScratch = new long[size];
+			final int[] indices = new int[size];
+			final int[] indicesScratch = new int[size];
+			final int[] counts = new int[Sort.RADIX_COUNTS_SIZE];
+
+			// warm up both paths before timing either
+			for(int i = 0; i < iterations; i++) {
+				comparatorSort(scene, sorted);
+				radixSort(scene, keys, indices, keysScratch, indicesScratch, counts);
+			}
+
+			long start = System.nanoTime();
+			for(int i = 0; i < iterations; i++) {
+				comparatorSort(scene, sorted);
+			}
+			final long comparatorTime = (System.nanoTime() - start) / iterations;
+
+			start = System.nanoTime();
+			for(int i = 0; i < iterations; i++) {
+				radixSort(scene, keys, indices, keysScratch, indicesScratch, counts);
+			}
+			final long radixTime = (System.nanoTime() - start) / iterations;
+
+			for(int i = 0; i < size; i++) {
+				if(sorted[i].sortKey != scene[indices[i]].sortKey) {
+					throw new IllegalStateException("Sorts disagree at "+i+" of "+size);
+				}
+			}
+
+			System.out.println(size+"\t"+comparatorTime+"\t\t"+radixTime+"\t\t"
+					+((float)comparatorTime / radixTime));
+		}
+	}
+
+	private static void comparatorSort(RenderElement[] scene, RenderElement[] sorted) {
+		System.arraycopy(scene, 0, sorted, 0, scene.length);
+		Sort.qsort(sorted, sorted.length, comparator);
+	}
+
+	private static void radixSort(RenderElement[] scene, long[] keys, int[] indices,
+			long[] keysScratch, int[] indicesScratch, int[] counts) {
+		final int size = scene.length;
+		for(int i = 0; i < size; i++) {
+			keys[i] = scene[i].sortKey;
+			indices[i] = i;
+		}
+		Sort.radix(keys, indices, size, keysScratch, indicesScratch, counts);
+	}
+
+	// the comparator the render queue sorted with before the sort key
+	private static final Comparator<RenderElement> comparator = new Comparator<RenderElement>() {
+		public int compare(RenderElement r1, RenderElement r2) {
+			if (r1 != null && r2 != null) {
+				final int p1 = r1.phase;
+				final int p2 = r2.phase;
+
+				if(p1 == p2 && r1.drawable != null && r2.drawable != null) {
+					final int tid1 = r1.drawable.getTextureId();
+					final int tid2 = r2.drawable.getTextureId();
+
+					if(tid1 == tid2) {
+						return r1.drawable.getBufferId() - r2.drawable.getBufferId();
+					}
+					else {
+						return tid1 - tid2;
+					}
+				}
+
+				return p1 - p2;
+			} else if (r1 == null && r2 != null) {
+				return 1;
+			} else if (r2 == null && r1 != null) {
+				return -1;
+			}
+
+			return 0;
+		}
+	};
+
+	private static final class BenchDrawable extends DrawableObject {
+		private final int textureId;
+		private final int bufferId;
+
+		BenchDrawable(int textureId, int bufferId) {
+			this.textureId = textureId;
+			this.bufferId = bufferId;
+		}
+
+		@Override
+		public int getTextureId() {
+			return textureId;
+		}
+
+		@Override
+		public int getBufferId() {
+			return bufferId;
+		}
+
+		@Override
+		public void draw(float x, float y, float scaleX, float scaleY, float rotate, float screenScaleX, float screenScaleY) {
+		}
+
+		@Override
+		public void draw(float[] mtx, float screenScaleX, float screenScaleY) {
+		}
+	}
+}
@@ -16,15 +16,15 @@
 
 package com.renegadeware.m8.gfx;
 
-import java.util.Comparator;
-
+import com.renegadeware.m8.DebugLog;
+import com.renegadeware.m8.Profiler;
+import com.renegadeware.m8.UpdateScheduler;
 import com.renegadeware.m8.obj.BaseObject;
 import com.renegadeware.m8.obj.ObjectManager;
 import com.renegadeware.m8.obj.ObjectPool;
 import com.renegadeware.m8.obj.PhasedObject;
-import com.renegadeware.m8.obj.PhasedObjectManager;
-import com.renegadeware.m8.obj.TObjectPool;
 import com.renegadeware.m8.util.FixedSizeArray;
+import com.renegadeware.m8.util.Sort;
 import com.renegadeware.m8.util.Util;
 
 
@@ -35,29 +35,100 @@ import com.renegadeware.m8.util.Util;
  * manage any number (>=2) of render queues, but increasing the number over two means that the game
  * logic will be running significantly ahead of the rendering thread, which may make the user feel
  * that the controls are "loose."
+ * <p>
+ * In MODE_MAILBOX, three queues are handed off through a lock-free RenderQueueMailbox instead.
+ * The game thread always publishes its newest queue and never waits for the render thread, and the
+ * render thread always draws the newest queue available.  Queues that were never drawn are
+ * recycled by the game thread and counted as dropped frames.
+ * <p>
+ * Drawables can be scheduled from any thread during the update, e.g. children of a
+ * ParallelObjectManager, as long as it happens before swap.  Each thread appends to its own
+ * submission buffer in the write queue, and swap merges the buffers once, sorted, into the list the
+ * renderer draws.  Elements that sort equal are drawn in the order a serial update would have
+ * scheduled them, see UpdateScheduler.getOrdinal, so the draw order doesn't depend on which thread
+ * updated what.
+ * <p>
+ * Each thread's buffer holds a fixed number of elements per frame, anything scheduled beyond that
+ * is dropped and counted as overflow.  With growth enabled, the buffers are grown at swap time after
+ * a frame overflows, so the steady state still doesn't allocate.  Use getHighWaterMark() to size the
+ * capacity from real scenes.
  */
 public class RenderSystem extends BaseObject {
-	private RenderElementPool elementPool;
-	private ObjectManager[] renderQueues;
+	public final static int MODE_DOUBLE_BUFFER = 0;
+	public final static int MODE_MAILBOX = 1;
+	
+	private RenderQueue[] renderQueues;
 	private int queueIndex;
+	private RenderQueue writeQueue;
+	
+	private final int mode;
+	private final int queueCount;
+	private final RenderQueueMailbox mailbox;
+	
+	// hand off statistics, only written by the game thread
+	private volatile long stallTime;
+	private volatile int publishedFrames;
+	private volatile int droppedFrames;
+	
+	// capacity, queues are grown to this when they're owned by the game thread
+	private int capacity;
+	private boolean growth;
+	
+	// overflow statistics, only written by the game thread
+	private volatile int highWaterMark;
+	private volatile int overflowCount;
+	private volatile int overflowFrames;
+	
+	// blend factor between the previous and current update step, see scheduleForDraw
+	private float interpolation = 1.0f;
+	
+	// submission buffer index of the calling thread, -1 if there are too many threads
+	private final ThreadLocal<Integer> submitSlot = new ThreadLocal<Integer>() {
+		@Override
+		protected Integer initialValue() {
+			return assignSubmitSlot();
+		}
+	};
+	private int submitThreadCount;
 	
-	private final static RenderElementComparator comparator = new RenderElementComparator();
-
 	private final static int DRAW_QUEUE_COUNT = 2;
-	private final static int MAX_RENDER_OBJECTS_PER_FRAME = 384;
-	private final static int MAX_RENDER_OBJECTS = MAX_RENDER_OBJECTS_PER_FRAME * DRAW_QUEUE_COUNT;
+	
+	/** The game thread and a full UpdateScheduler. */
+	public final static int MAX_SUBMIT_THREADS = UpdateScheduler.MAX_WORKERS + 1;
+	public final static int DEFAULT_RENDER_OBJECTS_PER_FRAME = 384;
 	
 	public RenderSystem() {
+		this(MODE_DOUBLE_BUFFER, DEFAULT_RENDER_OBJECTS_PER_FRAME);
+	}
+	
+	public RenderSystem(int mode) {
+		this(mode, DEFAULT_RENDER_OBJECTS_PER_FRAME);
+	}
+	
+	/**
+	 * @param mode MODE_DOUBLE_BUFFER or MODE_MAILBOX
+	 * @param capacity Maximum number of elements a thread can schedule per frame.
+	 */
+	public RenderSystem(int mode, int capacity) {
         super();
-        elementPool = new RenderElementPool(MAX_RENDER_OBJECTS);
-        renderQueues = new ObjectManager[DRAW_QUEUE_COUNT];
-        for (int x = 0; x < DRAW_QUEUE_COUNT; x++) {
-        	PhasedObjectManager mgr = new PhasedObjectManager(MAX_RENDER_OBJECTS_PER_FRAME);
-        	mgr.setComparator(comparator);
-        	
-            renderQueues[x] = mgr;
+        this.mode = mode;
+        this.capacity = capacity;
+        growth = false;
+        queueCount = mode == MODE_MAILBOX ? RenderQueueMailbox.QUEUE_COUNT : DRAW_QUEUE_COUNT;
+        renderQueues = new RenderQueue[queueCount];
+        for (int x = 0; x < queueCount; x++) {
+            renderQueues[x] = new RenderQueue(capacity);
         }
         queueIndex = 0;
+        
+        if (mode == MODE_MAILBOX) {
+        	mailbox = new RenderQueueMailbox(renderQueues);
+        	writeQueue = (RenderQueue)mailbox.getWriteQueue();
+        }
+        else {
+        	mailbox = null;
+        	writeQueue = renderQueues[queueIndex];
+        }
     }
 
 	@Override
@@ -65,67 +136,258 @@ public class RenderSystem extends BaseObject {
 
 	}
 
-	/** Note: You'll need to cull the object manually, and set camera position: Viewport.getObjectX/Y */
+	/**
+	 * Note: You'll need to cull the object manually (see CullingSystem), and set camera position: 
+	 * Viewport.getObjectX/Y
+	 */
 	public void scheduleForDraw(DrawableObject object, 
 			float x, float y, float 
 			scaleX, float scaleY, 
 			float rotate, 
 			int priority) {
 		
-			RenderElement element = elementPool.allocate();
+			RenderElement element = allocateElement(object);
 			if (element != null) {
 				element.set(object, x, y, scaleX, scaleY, rotate, priority);
-				renderQueues[queueIndex].add(element);
 			}
 	}
 	
+	/**
+	 * Schedule with the position blended between the previous and current update step by the
+	 * interpolation factor, for use with a fixed timestep.  Same rules as above apply.
+	 */
+	public void scheduleForDraw(DrawableObject object, 
+			float prevX, float prevY, 
+			float x, float y, 
+			float scaleX, float scaleY, 
+			float rotate, 
+			int priority) {
+		
+			final float alpha = interpolation;
+			scheduleForDraw(object, 
+					prevX + (x - prevX)*alpha, prevY + (y - prevY)*alpha, 
+					scaleX, scaleY, rotate, priority);
+	}
+	
 	/** Note: make sure to take the camera location into account for the transformation and cull manually */
 	public void scheduleForDraw(DrawableObject object, float[] mtx, int priority) {
-		RenderElement element = elementPool.allocate();
+		RenderElement element = allocateElement(object);
 		if (element != null) {
 			element.set(object, mtx, priority);
-			renderQueues[queueIndex].add(element);
 		}
 	}
-
-	private void clearQueue(FixedSizeArray<BaseObject> objects) {
-		final int count = objects.getCount();
-		final Object[] objectArray = objects.getArray();
-		final RenderElementPool elementPool = this.elementPool;
-		for (int i = count - 1; i >= 0; i--) {
-			RenderElement element = (RenderElement)objectArray[i];
-			elementPool.release(element);
-			objects.removeLast();
+	
+	private RenderElement allocateElement(DrawableObject object) {
+		final int slot = submitSlot.get();
+		if (slot < 0) {
+			releaseDrawable(object);
+			return null;
+		}
+		
+		final RenderElement element = writeQueue.getBuffer(slot, capacity).allocate(object);
+		if (element != null) {
+			element.ordinal = UpdateScheduler.getOrdinal();
+		}
+		return element;
+	}
+	
+	private synchronized int assignSubmitSlot() {
+		if (submitThreadCount == MAX_SUBMIT_THREADS) {
+			DebugLog.e("RenderSystem", "Too many threads scheduling draws, ignoring: " 
+					+ Thread.currentThread().getName());
+			return -1;
+		}
+		
+		return submitThreadCount++;
+	}
+	
+	/** Number of threads that can schedule draws, so the merged queue can be sized ahead. */
+	private int getSubmitThreadCount() {
+		final UpdateScheduler scheduler = systemRegistry.updateScheduler;
+		int count = scheduler != null ? scheduler.getWorkerCount() + 1 : 1;
+		synchronized (this) {
+			if (submitThreadCount > count) {
+				count = submitThreadCount;
+			}
+		}
+		return Math.min(count, MAX_SUBMIT_THREADS);
+	}
+	
+	/** If the drawable came out of a pool, make sure it is returned to that pool. */
+	static void releaseDrawable(DrawableObject drawable) {
+		final ObjectPool pool = drawable.getParentPool();
+		if (pool != null) {
+			pool.release(drawable);
 		}
-
+	}
+	
+	/** Grow if the frame overflowed and make sure the new write queue's buffers can hold capacity elements. */
+	private void updateCapacity(RenderQueue committed) {
+		if (committed.requested > highWaterMark) {
+			highWaterMark = committed.requested;
+		}
+		
+		if (committed.overflow > 0) {
+			overflowCount += committed.overflow;
+			overflowFrames++;
+			
+			if (growth) {
+				int newCapacity = capacity;
+				while (newCapacity < committed.maxRequested) {
+					newCapacity <<= 1;
+				}
+				
+				DebugLog.w("RenderSystem", "Render queue capacity grown from " + capacity + " to " 
+						+ newCapacity + " (high water mark: " + highWaterMark + ")");
+				
+				capacity = newCapacity;
+			}
+		}
+		
+		// queues owned by the render thread are grown once they come back to us
+		writeQueue.growBuffers(capacity, getSubmitThreadCount());
 	}
 
 	public void swap(MateRenderer renderer) {
-		renderQueues[queueIndex].commitUpdates();
-
-		// This code will block if the previous queue is still being executed.
-		renderer.setDrawQueue(renderQueues[queueIndex]); 
-
-		final int lastQueue = (queueIndex == 0) ? DRAW_QUEUE_COUNT - 1 : queueIndex - 1;
-
-		// Clear the old queue.
-		FixedSizeArray<BaseObject> objects = renderQueues[lastQueue].getObjects();
-		clearQueue(objects);
-
-		queueIndex = (queueIndex + 1) % DRAW_QUEUE_COUNT;
+		final RenderQueue committed = writeQueue;
+		committed.commitUpdates();
+		
+		if (mailbox != null) {
+			if (renderer.getDrawQueueMailbox() != mailbox) {
+				renderer.setDrawQueueMailbox(mailbox);
+			}
+			
+			final long time = System.nanoTime();
+			
+			final boolean dropped = mailbox.publish();
+			
+			stallTime += System.nanoTime() - time;
+			
+			if (dropped) {
+				droppedFrames++;
+			}
+			
+			// Either the render thread is done with this queue, or it never got to it.
+			writeQueue = (RenderQueue)mailbox.getWriteQueue();
+			writeQueue.clear();
+		}
+		else {
+			final long time = System.nanoTime();
+			
+			// This code will block if the previous queue is still being executed.
+			final boolean consumed = renderer.setDrawQueue(renderQueues[queueIndex]);
+			
+			stallTime += System.nanoTime() - time;
+			
+			if (!consumed) {
+				droppedFrames++;
+			}
+	
+			final int lastQueue = (queueIndex == 0) ? queueCount - 1 : queueIndex - 1;
+	
+			// Clear the old queue.
+			renderQueues[lastQueue].clear();
+	
+			queueIndex = (queueIndex + 1) % queueCount;
+			writeQueue = renderQueues[queueIndex];
+		}
+		
+		publishedFrames++;
+		
+		updateCapacity(committed);
 	}
 
+	/**
+	 * Throws away everything scheduled since the last swap.  Used when several update steps run
+	 * before a swap, only the last step's drawables are kept.
+	 */
+	public void discardScheduled() {
+		writeQueue.discard();
+	}
+	
+	/**
+	 * Set by the game thread before the update step that schedules the frame: 0 is the previous
+	 * step's state, 1 is the current.  Always 1 with a variable timestep.
+	 */
+	public void setInterpolation(float alpha) {
+		interpolation = alpha;
+	}
+	
+	public float getInterpolation() {
+		return interpolation;
+	}
+	
 	/* Empties all draw queues and disconnects the game thread from the renderer. */
 	public void emptyQueues(MateRenderer renderer) {
+		if (mailbox != null) {
+			renderer.setDrawQueueMailbox(null);
+		}
 		renderer.setDrawQueue(null); 
-		for (int x = 0; x < DRAW_QUEUE_COUNT; x++) {
-			renderQueues[x].commitUpdates();
-			FixedSizeArray<BaseObject> objects = renderQueues[x].getObjects();
-			clearQueue(objects);
-
+		for (int x = 0; x < queueCount; x++) {
+			renderQueues[x].clear();
 		}
 	}
 
+	public int getMode() {
+		return mode;
+	}
+	
+	/** Total time in nanoseconds the game thread spent handing queues to the renderer. */
+	public long getStallTime() {
+		return stallTime;
+	}
+	
+	/** Number of queues handed to the renderer. */
+	public int getPublishedFrameCount() {
+		return publishedFrames;
+	}
+	
+	/** Number of queues that were replaced by a newer one before the renderer could draw them. */
+	public int getDroppedFrameCount() {
+		return droppedFrames;
+	}
+	
+	/** Maximum number of elements a thread can schedule per frame. */
+	public int getCapacity() {
+		return capacity;
+	}
+	
+	/**
+	 * Enable to grow the submission buffers when a frame overflows, growth happens during swap and
+	 * doubles the capacity until it fits the frame.
+	 */
+	public void setGrowth(boolean enable) {
+		growth = enable;
+	}
+	
+	public boolean isGrowth() {
+		return growth;
+	}
+	
+	/** Most elements scheduled in a single frame, including the ones that overflowed. */
+	public int getHighWaterMark() {
+		return highWaterMark;
+	}
+	
+	/** Number of elements dropped because a thread's buffer was full. */
+	public int getOverflowCount() {
+		return overflowCount;
+	}
+	
+	/** Number of frames where a thread scheduled more elements than the capacity. */
+	public int getOverflowFrameCount() {
+		return overflowFrames;
+	}
+	
+	public void resetStats() {
+		stallTime = 0;
+		publishedFrames = 0;
+		droppedFrames = 0;
+		highWaterMark = 0;
+		overflowCount = 0;
+		overflowFrames = 0;
+	}
+
 	public static final class RenderElement extends PhasedObject {
 		public RenderElement() {
 			super();
@@ -145,6 +407,7 @@ public class RenderSystem extends BaseObject {
 			
 			if(drawable != null) {
 				setPhase(priority);//drawable.generateRenderPriority(priority));
+				sortKey = makeSortKey(priority, drawable);
 			}
 		}
 		
@@ -154,8 +417,21 @@ public class RenderSystem extends BaseObject {
 			
 			if(drawable != null) {
 				setPhase(priority);//drawable.generateRenderPriority(priority));
+				sortKey = makeSortKey(priority, drawable);
 			}
 		}
+		
+		/**
+		 * Packs (phase, texture, buffer) so that the keys sort as unsigned in the same order the
+		 * elements should be drawn.  The phase keeps all 32 bits (sign flipped), texture and buffer
+		 * use the low 16 bits of their resource id, which is the entry index within its type.
+		 */
+		public static long makeSortKey(int phase, DrawableObject drawable) {
+			final long p = (phase ^ 0x80000000) & 0xffffffffL;
+			final long t = drawable.getTextureId() & 0xffff;
+			final long b = drawable.getBufferId() & 0xffff;
+			return (p << 32) | (t << 16) | b;
+		}
 
 		public void reset() {
 			drawable = null;
@@ -165,6 +441,8 @@ public class RenderSystem extends BaseObject {
 			sy = 1.0f;
 			rot = 0.0f;
 			mtx = null;
+			sortKey = 0;
+			ordinal = 0;
 		}
 
 		public DrawableObject drawable;
@@ -176,65 +454,235 @@ public class RenderSystem extends BaseObject {
 		public float[] mtx; //if this is not null, then use the drawTransform method
 							//this will be limited to the elements: 0,5,12,13,14 for draw_texture
 							//so don't use any transformation such as rotation
+		public long sortKey;
+		
+		// UpdateScheduler.getOrdinal of the scheduling thread, orders elements with equal keys
+		long ordinal;
 	}
 	
-	private static class RenderElementComparator implements Comparator<BaseObject>  {
-        public int compare(BaseObject object1, BaseObject object2) {
-            if (object1 != null && object2 != null) {
-            	RenderElement r1 = (RenderElement)object1;
-            	RenderElement r2 = (RenderElement)object2;
-            	
-            	int p1 = r1.phase;
-            	int p2 = r2.phase;
-            	
-            	if(p1 == p2 && r1.drawable != null && r2.drawable != null) {
-            		int tid1 = r1.drawable.getTextureId();
-            		int tid2 = r2.drawable.getTextureId();
-            		
-            		if(tid1 == tid2) {
-            			return r1.drawable.getBufferId() - r2.drawable.getBufferId();
-            		}
-            		else {
-            			return tid1 - tid2;
-            		}
-            	}
- 
-                return p1 - p2;
-                
-            } else if (object1 == null && object2 != null) {
-                return 1;
-            } else if (object2 == null && object1 != null) {
-                return -1;
-            }
-            
-            return 0;
-        }
-    }
-
-	private final class RenderElementPool extends TObjectPool<RenderElement> {
-
-		RenderElementPool(int max) {
-			super(max);
+	/**
+	 * Elements scheduled by one thread into one render queue.  The elements are owned by the buffer
+	 * and reused every frame, only the thread the buffer belongs to appends to it.
+	 */
+	private static final class SubmitBuffer {
+		RenderElement[] elements;
+		int count;
+		int requested;
+		int overflow;
+		
+		SubmitBuffer(int capacity) {
+			elements = new RenderElement[0];
+			setCapacity(capacity);
 		}
-
-		@Override
-		public void release(Object element) {
-			RenderElement renderable = (RenderElement)element;
-			// if this drawable came out of a pool, make sure it is returned to that pool.
-			final ObjectPool pool = renderable.drawable.getParentPool();
-			if (pool != null) {
-				pool.release(renderable.drawable);
+		
+		RenderElement allocate(DrawableObject object) {
+			requested++;
+			
+			if (count == elements.length) {
+				overflow++;
+				
+				// the drawable won't go through the queue, so give it back here
+				releaseDrawable(object);
+				return null;
 			}
-			// reset on release
-			renderable.reset();
-			super.release(element);
+			
+			return elements[count++];
 		}
-
+		
+		/** Grows the buffer, this allocates the new elements. */
+		void setCapacity(int capacity) {
+			final int oldCapacity = elements.length;
+			if (capacity > oldCapacity) {
+				final RenderElement[] newElements = new RenderElement[capacity];
+				System.arraycopy(elements, 0, newElements, 0, oldCapacity);
+				for (int x = oldCapacity; x < capacity; x++) {
+					newElements[x] = new RenderElement();
+				}
+				elements = newElements;
+			}
+		}
+		
+		void clear() {
+			final RenderElement[] elements = this.elements;
+			for (int i = 0; i < count; i++) {
+				if (elements[i].drawable != null) {
+					releaseDrawable(elements[i].drawable);
+				}
+				elements[i].reset();
+			}
+			count = 0;
+			requested = 0;
+			overflow = 0;
+		}
+	}
+	
+	/**
+	 * Render queue with one submission buffer per thread.  On commit, the buffers are merged into the
+	 * object list the renderer draws, sorted by RenderElement.sortKey with a radix sort.  The buffers
+	 * are merged by the elements' ordinals first, each buffer is already in ordinal order, and the
+	 * sort is stable, so elements with equal keys are drawn in the same order every frame no matter
+	 * which thread scheduled them.  Nothing goes through the ObjectManager's pending additions.
+	 */
+	private static final class RenderQueue extends ObjectManager {
+		private final SubmitBuffer[] buffers;
+		private long[] keys;
+		private long[] keysScratch;
+		private int[] indices;
+		private int[] indicesScratch;
+		private final int[] counts;
+		private final int[] cursors;
+		private Object[] merged;
+		
+		// statistics of the last commit
+		int requested;
+		int maxRequested;
+		int overflow;
+		
+		RenderQueue(int capacity) {
+			super(capacity);
+			buffers = new SubmitBuffer[MAX_SUBMIT_THREADS];
+			buffers[0] = new SubmitBuffer(capacity);
+			counts = new int[Sort.RADIX_COUNTS_SIZE];
+			cursors = new int[MAX_SUBMIT_THREADS];
+			allocateSortArrays(capacity);
+		}
+		
+		private void allocateSortArrays(int size) {
+			keys = new long[size];
+			keysScratch = new long[size];
+			indices = new int[size];
+			indicesScratch = new int[size];
+			merged = new Object[size];
+		}
+		
+		/** The buffer for the given submission slot, allocated on first use by its thread. */
+		SubmitBuffer getBuffer(int slot, int capacity) {
+			SubmitBuffer buffer = buffers[slot];
+			if (buffer == null) {
+				buffer = new SubmitBuffer(capacity);
+				buffers[slot] = buffer;
+			}
+			return buffer;
+		}
+		
+		/** Grows the buffers, and the merged list to hold a full buffer from each of threads. */
+		void growBuffers(int capacity, int threads) {
+			for (int i = 0; i < buffers.length; i++) {
+				if (buffers[i] != null) {
+					buffers[i].setCapacity(capacity);
+				}
+			}
+			
+			if (capacity*threads > getCapacity()) {
+				setCapacity(capacity*threads);
+			}
+		}
+		
+		@Override
+		public void setCapacity(int size) {
+			super.setCapacity(size);
+			allocateSortArrays(size);
+		}
+		
+		@Override
+		public void add(BaseObject object) {
+			assert false : "Use RenderSystem.scheduleForDraw";
+		}
+		
 		@Override
-		protected void fill() {
-			for (int x = 0; x < getSize(); x++) {
-				getAvailable().add(new RenderElement());
+		public void commitUpdates() {
+			final SubmitBuffer[] buffers = this.buffers;
+			
+			int total = 0;
+			int maxRequested = 0;
+			int requested = 0;
+			int overflow = 0;
+			for (int b = 0; b < buffers.length; b++) {
+				final SubmitBuffer buffer = buffers[b];
+				if (buffer != null) {
+					total += buffer.count;
+					requested += buffer.requested;
+					overflow += buffer.overflow;
+					if (buffer.requested > maxRequested) {
+						maxRequested = buffer.requested;
+					}
+				}
+			}
+			this.requested = requested;
+			this.maxRequested = maxRequested;
+			this.overflow = overflow;
+			
+			// only before growBuffers has seen every submitting thread
+			if (total > getCapacity()) {
+				setCapacity(total);
+			}
+			
+			final long start = Profiler.begin();
+			
+			final long[] keys = this.keys;
+			final int[] indices = this.indices;
+			final Object[] merged = this.merged;
+			final int[] cursors = this.cursors;
+			for (int b = 0; b < buffers.length; b++) {
+				cursors[b] = 0;
+			}
+			
+			// merge by ordinal, taking every element of the lowest ordinal from its buffer at once
+			int n = 0;
+			while (n < total) {
+				int next = -1;
+				long ordinal = 0;
+				for (int b = 0; b < buffers.length; b++) {
+					final SubmitBuffer buffer = buffers[b];
+					if (buffer != null && cursors[b] < buffer.count) {
+						final long o = buffer.elements[cursors[b]].ordinal;
+						if (next < 0 || o < ordinal) {
+							next = b;
+							ordinal = o;
+						}
+					}
+				}
+				
+				final SubmitBuffer buffer = buffers[next];
+				final RenderElement[] elements = buffer.elements;
+				final int count = buffer.count;
+				int i = cursors[next];
+				do {
+					merged[n] = elements[i];
+					keys[n] = elements[i].sortKey;
+					indices[n] = n;
+					n++;
+					i++;
+				} while (i < count && elements[i].ordinal == ordinal);
+				cursors[next] = i;
 			}
+			
+			if (n > 1) {
+				Sort.radix(keys, indices, n, keysScratch, indicesScratch, counts);
+			}
+			
+			final FixedSizeArray<BaseObject> objects = getObjects();
+			objects.clear();
+			for (int i = 0; i < n; i++) {
+				objects.add((BaseObject)merged[indices[i]]);
+				merged[indices[i]] = null;
+			}
+			
+			Profiler.end(Profiler.SCOPE_SORT, start);
+		}
+		
+		/** Throws away what was scheduled, but keeps the last commit. */
+		void discard() {
+			for (int i = 0; i < buffers.length; i++) {
+				if (buffers[i] != null) {
+					buffers[i].clear();
+				}
+			}
+		}
+		
+		void clear() {
+			discard();
+			getObjects().clear();
 		}
 	}
 }
@@ -54,6 +54,9 @@ public class Sprite extends Resource {
 	public static final int LOOP_REVERSE_REPEAT = 3;
 	public static final String LOOP_REVERSE_REPEAT_NAME = "reverse_repeat";
 	
+	/** Handle of a state that isn't in the sprite */
+	public static final int INVALID_STATE = -1;
+	
 	public static final class Frame {
 		public final float offsetX;
 		public final float offsetY;
@@ -106,7 +109,12 @@ public class Sprite extends Resource {
 		}
 	}
 	
-	private final HashMap<String, State> states;
+	// name -> handle, only used to resolve names, states are indexed by handle
+	private final HashMap<String, Integer> stateHandles;
+	private State[] states;
+	private String[] stateNames;
+	private int stateCount;
+	
 	private TextureAtlas textureAtlas;
 	private float fps;
 	private float width;
@@ -116,15 +124,53 @@ public class Sprite extends Resource {
 			boolean isManual, ManualResourceLoader loader) {
 		super(creator, id, group, isManual, loader);
 		
-		states = Util.newHashMap();
+		stateHandles = Util.newHashMap();
+		states = new State[4];
+		stateNames = new String[4];
 	}
 	
 	public float getFPS() {
 		return fps;
 	}
 	
+	void setFPS(float fps) {
+		this.fps = fps;
+	}
+	
 	public State getState(String name) {
-		return states.get(name);
+		return getState(getStateHandle(name));
+	}
+	
+	/**
+	 * @param handle From getStateHandle
+	 * @return The state, null if the handle is not valid.
+	 */
+	public State getState(int handle) {
+		return handle >= 0 && handle < stateCount ? states[handle] : null;
+	}
+	
+	/**
+	 * Resolve the state name once, then use the handle with getState(int) or
+	 * ObjectSprite.setState(int).  Handles are given in the order the states are declared, so they
+	 * stay the same when the sprite is reloaded from the same data.
+	 * 
+	 * @return The handle, INVALID_STATE if given name is not found.
+	 */
+	public int getStateHandle(String name) {
+		if(name == null) {
+			return INVALID_STATE;
+		}
+		
+		final Integer handle = stateHandles.get(name);
+		return handle != null ? handle : INVALID_STATE;
+	}
+	
+	public int getNumStates() {
+		return stateCount;
+	}
+	
+	public String getStateName(int handle) {
+		return handle >= 0 && handle < stateCount ? stateNames[handle] : null;
 	}
 	
 	public float getWidth() {
@@ -147,7 +193,7 @@ public class Sprite extends Resource {
 		final TextureAtlasManager txtAtlasMgr = systemRegistry.textureAtlasManager;
 		assert txtAtlasMgr != null;
 		
-		states.clear();
+		clearStates();
 		
 		// go through the xml
 		XmlResourceParser xml = context.getResources().getXml(id);
@@ -296,7 +342,7 @@ public class Sprite extends Resource {
 							newState._calcMaxFrames();
 							
 							// stuff it in
-							states.put(curStateName, newState);
+							addState(curStateName, newState);
 						}
 					}
 				}
@@ -311,9 +357,43 @@ public class Sprite extends Resource {
 		}
 	}
 
+	/** Adds or replaces a state, package private so states can be built without the xml. */
+	void addState(String name, State state) {
+		final Integer existing = stateHandles.get(name);
+		if(existing != null) {
+			states[existing] = state;
+			return;
+		}
+		
+		if(stateCount == states.length) {
+			final State[] newStates = new State[stateCount*2];
+			System.arraycopy(states, 0, newStates, 0, stateCount);
+			states = newStates;
+			
+			final String[] newNames = new String[stateCount*2];
+			System.arraycopy(stateNames, 0, newNames, 0, stateCount);
+			stateNames = newNames;
+		}
+		
+		states[stateCount] = state;
+		stateNames[stateCount] = name;
+		stateHandles.put(name, stateCount);
+		stateCount++;
+	}
+	
+	private void clearStates() {
+		for(int i = 0; i < stateCount; i++) {
+			states[i] = null;
+			stateNames[i] = null;
+		}
+		
+		stateHandles.clear();
+		stateCount = 0;
+	}
+
 	@Override
 	protected void unloadImpl() {
-		states.clear();
+		clearStates();
 	}
 
 	@Override
@@ -0,0 +1,292 @@
+package com.renegadeware.m8.gfx;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.FloatBuffer;
+
+import javax.microedition.khronos.opengles.GL10;
+
+/**
+ * Packs consecutive textured quads that share the same texture, blend state and color mode into
+ * client-side vertex, texture coordinate and color arrays, then draws them all with a single
+ * glDrawElements.  The batch is flushed whenever the state changes, when it is full, or when
+ * the renderer needs to draw a drawable that can't be batched.
+ * <p>
+ * Only use this within the render thread, between DrawableBitmap.beginDrawing and
+ * Grid.endDrawing.
+ */
+public class SpriteBatch {
+	public static final int MAX_QUADS = 512;
+
+	private static final int FLOAT_SIZE = 4;
+	private static final int CHAR_SIZE = 2;
+
+	private static final int VERTEX_SIZE = 3;
+	private static final int TEX_COORD_SIZE = 2;
+	private static final int COLOR_SIZE = 4;
+
+	private final FloatBuffer vertexBuffer;
+	private final FloatBuffer texCoordBuffer;
+	private final FloatBuffer colorBuffer;
+	private final CharBuffer indexBuffer;
+
+	// staging arrays, these are copied in bulk to the buffers on flush
+	private final float[] vertices;
+	private final float[] texCoords;
+	private final float[] colors;
+
+	private int quadCount;
+
+	// current state
+	private boolean hasState;
+	private int textureId;
+	private boolean useColor;
+	private boolean useBlend;
+	private int blendSrc;
+	private int blendDst;
+	private int textureMode;
+
+	// counters for the frame in progress
+	private int frameBatchCount;
+	private int frameElementCount;
+	private int frameMaxElements;
+
+	// counters of the last completed frame
+	private int batchCount;
+	private int elementCount;
+	private int maxElementsPerBatch;
+
+	public SpriteBatch() {
+		final int vertexCount = MAX_QUADS * 4;
+
+		vertexBuffer = ByteBuffer.allocateDirect(FLOAT_SIZE * vertexCount * VERTEX_SIZE)
+		.order(ByteOrder.nativeOrder()).asFloatBuffer();
+
+		texCoordBuffer = ByteBuffer.allocateDirect(FLOAT_SIZE * vertexCount * TEX_COORD_SIZE)
+		.order(ByteOrder.nativeOrder()).asFloatBuffer();
+
+		colorBuffer = ByteBuffer.allocateDirect(FLOAT_SIZE * vertexCount * COLOR_SIZE)
+		.order(ByteOrder.nativeOrder()).asFloatBuffer();
+
+		indexBuffer = ByteBuffer.allocateDirect(CHAR_SIZE * MAX_QUADS * 6)
+		.order(ByteOrder.nativeOrder()).asCharBuffer();
+
+		vertices = new float[vertexCount * VERTEX_SIZE];
+		texCoords = new float[vertexCount * TEX_COORD_SIZE];
+		colors = new float[vertexCount * COLOR_SIZE];
+
+		// same layout as Grid: [0] bottom-left, [1] bottom-right, [2] top-left, [3] top-right
+		int i = 0;
+		for(int q = 0; q < MAX_QUADS; q++) {
+			final char a = (char)(q * 4);
+			final char b = (char)(a + 1);
+			final char c = (char)(a + 2);
+			final char d = (char)(a + 3);
+
+			indexBuffer.put(i++, a);
+			indexBuffer.put(i++, b);
+			indexBuffer.put(i++, c);
+
+			indexBuffer.put(i++, b);
+			indexBuffer.put(i++, c);
+			indexBuffer.put(i++, d);
+		}
+
+		quadCount = 0;
+		hasState = false;
+	}
+
+	/**
+	 * Call at the start of the frame, this resets the per-frame counters.
+	 */
+	public void begin() {
+		quadCount = 0;
+		hasState = false;
+
+		frameBatchCount = 0;
+		frameElementCount = 0;
+		frameMaxElements = 0;
+	}
+
+	/**
+	 * Call at the end of the frame, this flushes any pending quads and publishes the counters.
+	 */
+	public void end() {
+		flush();
+
+		hasState = false;
+
+		batchCount = frameBatchCount;
+		elementCount = frameElementCount;
+		maxElementsPerBatch = frameMaxElements;
+	}
+
+	/**
+	 * Set the state for the next quads.  If the state differs from the current batch, the batch
+	 * is flushed first.
+	 */
+	public void setState(int textureId, boolean useColor, boolean useBlend, int blendSrc, int blendDst, int textureMode) {
+		if(hasState
+				&& this.textureId == textureId
+				&& this.useColor == useColor
+				&& this.useBlend == useBlend
+				&& (!useBlend || (this.blendSrc == blendSrc && this.blendDst == blendDst && this.textureMode == textureMode))) {
+			return;
+		}
+
+		flush();
+
+		this.textureId = textureId;
+		this.useColor = useColor;
+		this.useBlend = useBlend;
+		this.blendSrc = blendSrc;
+		this.blendDst = blendDst;
+		this.textureMode = textureMode;
+		hasState = true;
+	}
+
+	/**
+	 * Add an axis aligned quad with the current state.
+	 *
+	 * @param x Left
+	 * @param y Bottom
+	 * @param width
+	 * @param height
+	 * @param z
+	 * @param s0 Texture coordinate of the left side.
+	 * @param t0 Texture coordinate of the bottom side.
+	 * @param s1 Texture coordinate of the right side.
+	 * @param t1 Texture coordinate of the top side.
+	 * @param color Only used if the state uses color.
+	 */
+	public void add(float x, float y, float width, float height, float z,
+			float s0, float t0, float s1, float t1, Color color) {
+		final float x1 = x + width;
+		final float y1 = y + height;
+
+		add(x, y, x1, y, x, y1, x1, y1, z, s0, t0, s1, t1, color);
+	}
+
+	/**
+	 * Add a transformed quad with the current state.  Corners are given as: bottom-left,
+	 * bottom-right, top-left, top-right.
+	 */
+	public void add(float x0, float y0, float x1, float y1,
+			float x2, float y2, float x3, float y3, float z,
+			float s0, float t0, float s1, float t1, Color color) {
+
+		if(quadCount == MAX_QUADS) {
+			flush();
+		}
+
+		final float[] v = vertices;
+		int i = quadCount * 4 * VERTEX_SIZE;
+		v[i++] = x0; v[i++] = y0; v[i++] = z;
+		v[i++] = x1; v[i++] = y1; v[i++] = z;
+		v[i++] = x2; v[i++] = y2; v[i++] = z;
+		v[i++] = x3; v[i++] = y3; v[i] = z;
+
+		final float[] t = texCoords;
+		i = quadCount * 4 * TEX_COORD_SIZE;
+		t[i++] = s0; t[i++] = t0;
+		t[i++] = s1; t[i++] = t0;
+		t[i++] = s0; t[i++] = t1;
+		t[i++] = s1; t[i] = t1;
+
+		if(useColor) {
+			final float r = color.red, g = color.green, b = color.blue, a = color.alpha;
+			final float[] c = colors;
+			i = quadCount * 4 * COLOR_SIZE;
+			for(int n = 0; n < 4; n++) {
+				c[i++] = r; c[i++] = g; c[i++] = b; c[i++] = a;
+			}
+		}
+
+		quadCount++;
+	}
+
+	/**
+	 * Draw all pending quads.
+	 */
+	public void flush() {
+		final int count = quadCount;
+		if(count == 0) {
+			return;
+		}
+
+		final GL10 gl = OpenGLSystem.getGL();
+		if(gl != null) {
+			OpenGLSystem.bindTexture(GL10.GL_TEXTURE_2D, textureId);
+
+			if(useBlend) {
+				gl.glBlendFunc(blendSrc, blendDst);
+				gl.glTexEnvx(GL10.GL_TEXTURE_ENV, GL10.GL_TEXTURE_ENV_MODE, textureMode);
+			}
+
+			// make sure we are using client-side arrays with no leftover transforms
+			Grid.resetBufferBinding(gl);
+
+			gl.glMatrixMode(GL10.GL_TEXTURE);
+			gl.glLoadIdentity();
+			gl.glMatrixMode(GL10.GL_MODELVIEW);
+			gl.glLoadIdentity();
+
+			vertexBuffer.put(vertices, 0, count * 4 * VERTEX_SIZE).position(0);
+			texCoordBuffer.put(texCoords, 0, count * 4 * TEX_COORD_SIZE).position(0);
+
+			gl.glVertexPointer(VERTEX_SIZE, GL10.GL_FLOAT, 0, vertexBuffer);
+
+			gl.glEnableClientState(GL10.GL_TEXTURE_COORD_ARRAY);
+			gl.glTexCoordPointer(TEX_COORD_SIZE, GL10.GL_FLOAT, 0, texCoordBuffer);
+
+			if(useColor) {
+				colorBuffer.put(colors, 0, count * 4 * COLOR_SIZE).position(0);
+
+				gl.glEnableClientState(GL10.GL_COLOR_ARRAY);
+				gl.glColorPointer(COLOR_SIZE, GL10.GL_FLOAT, 0, colorBuffer);
+			}
+
+			gl.glDrawElements(GL10.GL_TRIANGLES, count * 6, GL10.GL_UNSIGNED_SHORT, indexBuffer.position(0));
+
+			if(useColor) {
+				gl.glDisableClientState(GL10.GL_COLOR_ARRAY);
+				gl.glColor4f(1.0f, 1.0f, 1.0f, 1.0f);
+			}
+
+			if(useBlend) {
+				gl.glBlendFunc(GL10.GL_SRC_ALPHA, GL10.GL_ONE_MINUS_SRC_ALPHA);
+				gl.glTexEnvx(GL10.GL_TEXTURE_ENV, GL10.GL_TEXTURE_ENV_MODE, GL10.GL_MODULATE);
+			}
+
+			frameBatchCount++;
+			frameElementCount += count;
+			if(count > frameMaxElements) {
+				frameMaxElements = count;
+			}
+		}
+
+		quadCount = 0;
+	}
+
+	/** Number of draw calls issued by the batch during the last frame. */
+	public int getBatchCount() {
+		return batchCount;
+	}
+
+	/** Number of elements drawn through the batch during the last frame. */
+	public int getElementCount() {
+		return elementCount;
+	}
+
+	/** Largest batch during the last frame. */
+	public int getMaxElementsPerBatch() {
+		return maxElementsPerBatch;
+	}
+
+	/** Average elements per draw call during the last frame. */
+	public float getAverageElementsPerBatch() {
+		final int batches = batchCount;
+		return batches > 0 ? (float)elementCount / batches : 0.0f;
+	}
+}
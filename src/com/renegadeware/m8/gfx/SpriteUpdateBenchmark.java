@@ -0,0 +1,92 @@
+package com.renegadeware.m8.gfx;
+
+import com.renegadeware.m8.UpdateScheduler;
+import com.renegadeware.m8.obj.BaseObject;
+import com.renegadeware.m8.obj.ParallelObjectManager;
+
+/**
+ * Offline benchmark of the UpdateScheduler, run on a desktop JVM (or a device through app_process)
+ * with android.jar on the class path:
+ * <pre>
+ * java com.renegadeware.m8.gfx.SpriteUpdateBenchmark [sprites] [frames] [max workers]
+ * </pre>
+ * Updates a ParallelObjectManager full of animated ObjectSprites with 0 workers (serial), then one
+ * more worker at a time up to one per core (or max workers), and prints the time per frame and
+ * the speedup over the serial update.
+ */
+public final class SpriteUpdateBenchmark {
+	private static final int DEFAULT_SPRITES = 10000;
+	private static final int DEFAULT_FRAMES = 2000;
+
+	private static final int STATE_FRAMES = 8;
+	private static final float FPS = 30.0f;
+	private static final float TIME_DELTA = 1.0f/60.0f;
+
+	private SpriteUpdateBenchmark() {
+	}
+
+	public static void main(String[] args) {
+		final int spriteCount = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_SPRITES;
+		final int frames = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_FRAMES;
+
+		final Sprite sprite = createSprite();
+
+		final int maxWorkers = Math.min(args.length > 2 ? Integer.parseInt(args[2])
+				: UpdateScheduler.getDefaultWorkerCount(), UpdateScheduler.MAX_WORKERS);
+
+		System.out.println(spriteCount+" sprites, "+frames+" frames, "
+				+Runtime.getRuntime().availableProcessors()+" cores");
+		System.out.println("threads\tus/frame\tspeedup");
+
+		long serialTime = 0;
+
+		for(int workers = 0; workers <= maxWorkers; workers++) {
+			final UpdateScheduler scheduler = new UpdateScheduler(workers);
+			BaseObject.systemRegistry.updateScheduler = scheduler;
+
+			final ParallelObjectManager manager = new ParallelObjectManager(spriteCount);
+			for(int i = 0; i < spriteCount; i++) {
+				manager.add(new ObjectSprite(sprite, 0));
+			}
+			manager.commitUpdates();
+
+			// warm up, this also starts the workers
+			for(int i = 0; i < frames; i++) {
+				manager.update(TIME_DELTA, null);
+			}
+
+			final long start = System.nanoTime();
+			for(int i = 0; i < frames; i++) {
+				manager.update(TIME_DELTA, null);
+			}
+			final long time = (System.nanoTime() - start) / frames;
+
+			if(workers == 0) {
+				serialTime = time;
+			}
+
+			System.out.println((workers + 1)+"\t"+(time / 1000.0f)+"\t\t"+((float)serialTime / time));
+
+			scheduler.shutdown();
+		}
+
+		BaseObject.systemRegistry.updateScheduler = null;
+	}
+
+	/** A sprite with one repeating state, built in place of loading it from xml. */
+	private static Sprite createSprite() {
+		final Sprite sprite = new Sprite(null, 0, null, true, null);
+		sprite.setFPS(FPS);
+
+		final Sprite.Frame[] frames = new Sprite.Frame[STATE_FRAMES];
+		for(int i = 0; i < STATE_FRAMES; i++) {
+			frames[i] = new Sprite.Frame(0, 0, 32, 32, 1, new int[] { i*32, 32, 32, -32 });
+		}
+
+		final Sprite.State state = new Sprite.State(STATE_FRAMES, Sprite.LOOP_REPEAT);
+		state.copyFrames(frames);
+		sprite.addState("idle", state);
+
+		return sprite;
+	}
+}
@@ -33,6 +33,14 @@ public class Texture extends Resource {
     public int width;
     public int height;
     public int rowBytes;
+    
+    // decoded or mapped during prepare, so that it can happen off the GL thread
+    private Bitmap bitmap;
+    private TextureData texels;
+    
+    // nanoseconds spent on the last prepare and upload
+    private long decodeTime;
+    private long uploadTime;
 
 	public Texture(ResourceManager creator, int id, String group,
 			boolean isManual, ManualResourceLoader loader) {
@@ -43,11 +51,71 @@ public class Texture extends Resource {
 	}
 
 	@Override
-	protected void loadImpl() {
+	protected void prepareImpl() {
+		if(bitmap == null && texels == null) {
+			final long start = System.nanoTime();
+			
+			final TextureManager mgr = (TextureManager)getCreator();
+			
+			texels = mgr.openTexels(systemRegistry.contextParameters.context, id);
+			if(texels == null) {
+				bitmap = decodeBitmap();
+				if(bitmap != null) {
+					mgr.cacheTexels(id, bitmap);
+				}
+			}
+			
+			decodeTime = System.nanoTime() - start;
+		}
+	}
+	
+	@Override
+	protected void unprepareImpl() {
+		if(bitmap != null) {
+			bitmap.recycle();
+			bitmap = null;
+		}
+		
+		if(texels != null) {
+			texels.release();
+			texels = null;
+		}
+	}
+	
+	/** Time in nanoseconds spent decoding or mapping the texels on the last load. */
+	public long getDecodeTime() {
+		return decodeTime;
+	}
+	
+	/** Time in nanoseconds spent uploading the texels to GL on the last load. */
+	public long getUploadTime() {
+		return uploadTime;
+	}
+	
+	private Bitmap decodeBitmap() {
 		final Context context = systemRegistry.contextParameters.context;
-		final GL10 gl = OpenGLSystem.getGL();
 		
 		assert context != null;
+		
+		InputStream is = context.getResources().openRawResource(id);
+        Bitmap bitmap;
+        try {
+            bitmap = BitmapFactory.decodeStream(is);
+        } finally {
+            try {
+                is.close();
+            } catch (IOException e) {
+            	e.printStackTrace();
+                // Ignore.
+            }
+        }
+        return bitmap;
+	}
+
+	@Override
+	protected void loadImpl() {
+		final GL10 gl = OpenGLSystem.getGL();
+		
 		assert gl != null;
 		
 		gl.glGenTextures(1, textureNameWorkspace, 0);
@@ -84,20 +152,40 @@ public class Texture extends Resource {
 
         gl.glTexEnvf(GL10.GL_TEXTURE_ENV, GL10.GL_TEXTURE_ENV_MODE, GL10.GL_MODULATE); //GL10.GL_REPLACE);
 
-        InputStream is = context.getResources().openRawResource(id);
-        Bitmap bitmap;
-        try {
-            bitmap = BitmapFactory.decodeStream(is);
-        } finally {
-            try {
-                is.close();
-            } catch (IOException e) {
-            	e.printStackTrace();
-                // Ignore.
-            }
+        // normally done by prepare, but a reload skips it
+        if(bitmap == null && texels == null) {
+        	prepareImpl();
+        }
+        
+        final long uploadStart = System.nanoTime();
+        
+        final int texWidth, texHeight, texRowBytes;
+        
+        if(texels != null) {
+        	texels.upload(gl);
+        	
+        	texWidth = texels.width;
+        	texHeight = texels.height;
+        	texRowBytes = texels.getRowBytes();
+        	
+        	texels.release();
+        	texels = null;
+        }
+        else {
+        	GLUtils.texImage2D(GL10.GL_TEXTURE_2D, 0, bitmap, 0);
+        	
+        	texWidth = bitmap.getWidth();
+        	texHeight = bitmap.getHeight();
+        	texRowBytes = bitmap.getRowBytes();
+        	
+        	bitmap.recycle();
+        	bitmap = null;
         }
         
-        GLUtils.texImage2D(GL10.GL_TEXTURE_2D, 0, bitmap, 0);
+        uploadTime = System.nanoTime() - uploadStart;
+        
+        DebugLog.d("Texture", "Loaded: " + id + " " + texWidth + "x" + texHeight
+        		+ " decode: " + (decodeTime / 1000) + "us upload: " + (uploadTime / 1000) + "us");
         
         error = gl.glGetError();
         if (error != GL10.GL_NO_ERROR) {
@@ -107,19 +195,17 @@ public class Texture extends Resource {
         assert error == GL10.GL_NO_ERROR;
 
         cropWorkspace[0] = 0;
-        cropWorkspace[1] = bitmap.getHeight();
-        cropWorkspace[2] = bitmap.getWidth();
-        cropWorkspace[3] = -bitmap.getHeight();
+        cropWorkspace[1] = texHeight;
+        cropWorkspace[2] = texWidth;
+        cropWorkspace[3] = -texHeight;
 
         ((GL11) gl).glTexParameteriv(GL10.GL_TEXTURE_2D, GL11Ext.GL_TEXTURE_CROP_RECT_OES,
                         cropWorkspace, 0);
 
         this.glId = textureName;
-        this.width = bitmap.getWidth();
-        this.height = bitmap.getHeight();
-        this.rowBytes = bitmap.getRowBytes();
-
-        bitmap.recycle();
+        this.width = texWidth;
+        this.height = texHeight;
+        this.rowBytes = texRowBytes;
                 
         error = gl.glGetError();
         if (error != GL10.GL_NO_ERROR) {
@@ -129,6 +215,20 @@ public class Texture extends Resource {
         assert error == GL10.GL_NO_ERROR;
 	}
 
+	/**
+	 * Touches the texture and returns its GL name.  If the texture manager evicted it to stay in
+	 * its memory budget, it is loaded again first.  Render thread only.
+	 */
+	public int use() {
+		try {
+			touch();
+		} catch(ResourceException e) {
+			DebugLog.w("Texture", e.toString());
+		}
+		
+		return glId;
+	}
+
 	@Override
 	protected void unloadImpl() {
 		final GL10 gl = OpenGLSystem.getGL();
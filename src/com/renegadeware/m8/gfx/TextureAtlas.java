@@ -33,15 +33,25 @@ public class TextureAtlas extends Resource {
 	public static final int ELEM_WIDTH = 2;
 	public static final int ELEM_HEIGHT = 3;
 	
+	/** Handle of an element that isn't in the atlas */
+	public static final int INVALID_ELEMENT = -1;
+	
 	private Texture texture;
-	private final HashMap<String, int[]> elements;
+	
+	// name -> handle, only used to resolve names, elements are indexed by handle
+	private final HashMap<String, Integer> elementHandles;
+	private int[][] elements;
+	private String[] elementNames;
+	private int elementCount;
 	private int size;
 	
 	public TextureAtlas(ResourceManager creator, int id, String group,
 			boolean isManual, ManualResourceLoader loader) {
 		super(creator, id, group, isManual, loader);
 		
-		elements = Util.newHashMap();
+		elementHandles = Util.newHashMap();
+		elements = new int[8][];
+		elementNames = new String[8];
 	}
 	
 	public Texture getTexture() {
@@ -55,9 +65,42 @@ public class TextureAtlas extends Resource {
 	 * null if given name is not found.
 	 */
 	public int[] getElement(String name) {
-		assert elements != null;
+		return getElement(getElementHandle(name));
+	}
+	
+	/**
+	 * You should treat the elements of the return value as read-only
+	 * @param handle From getElementHandle
+	 * @return the elements array consisting of the dimension within the texture (x,y,width,height),
+	 * null if the handle is not valid.
+	 */
+	public int[] getElement(int handle) {
+		return handle >= 0 && handle < elementCount ? elements[handle] : null;
+	}
+	
+	/**
+	 * Resolve the sub texture label once, then use the handle with getElement(int).  Handles are
+	 * given in the order the sub textures are declared, so they stay the same when the atlas is
+	 * reloaded from the same data.
+	 * 
+	 * @param name The sub texture label
+	 * @return The handle, INVALID_ELEMENT if given name is not found.
+	 */
+	public int getElementHandle(String name) {
+		if(name == null) {
+			return INVALID_ELEMENT;
+		}
 		
-		return elements.get(name);
+		final Integer handle = elementHandles.get(name);
+		return handle != null ? handle : INVALID_ELEMENT;
+	}
+	
+	public int getElementCount() {
+		return elementCount;
+	}
+	
+	public String getElementName(int handle) {
+		return handle >= 0 && handle < elementCount ? elementNames[handle] : null;
 	}
 
 	@Override
@@ -66,7 +109,7 @@ public class TextureAtlas extends Resource {
 		assert context != null;
 		
 		texture = null;
-		elements.clear();
+		clearElements();
 		size = 0;
 		
 		XmlResourceParser xml = context.getResources().getXml(id);
@@ -121,7 +164,7 @@ public class TextureAtlas extends Resource {
 							ref[ELEM_Y] += ref[ELEM_HEIGHT];
 							
 							//register the sub texture
-							elements.put(name, ref);
+							addElement(name, ref);
 							
 							size += 16;
 						}
@@ -137,10 +180,43 @@ public class TextureAtlas extends Resource {
 		}
 	}
 
+	private void addElement(String name, int[] ref) {
+		final Integer existing = elementHandles.get(name);
+		if(existing != null) {
+			elements[existing] = ref;
+			return;
+		}
+		
+		if(elementCount == elements.length) {
+			final int[][] newElements = new int[elementCount*2][];
+			System.arraycopy(elements, 0, newElements, 0, elementCount);
+			elements = newElements;
+			
+			final String[] newNames = new String[elementCount*2];
+			System.arraycopy(elementNames, 0, newNames, 0, elementCount);
+			elementNames = newNames;
+		}
+		
+		elements[elementCount] = ref;
+		elementNames[elementCount] = name;
+		elementHandles.put(name, elementCount);
+		elementCount++;
+	}
+	
+	private void clearElements() {
+		for(int i = 0; i < elementCount; i++) {
+			elements[i] = null;
+			elementNames[i] = null;
+		}
+		
+		elementHandles.clear();
+		elementCount = 0;
+	}
+
 	@Override
 	protected void unloadImpl() {
 		texture = null;
-		elements.clear();
+		clearElements();
 		size = 0;
 	}
 
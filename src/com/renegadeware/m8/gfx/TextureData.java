@@ -0,0 +1,253 @@
+package com.renegadeware.m8.gfx;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import javax.microedition.khronos.opengles.GL10;
+
+import android.content.res.AssetFileDescriptor;
+import android.graphics.Bitmap;
+import android.opengl.ETC1;
+
+import com.renegadeware.m8.DebugLog;
+
+/**
+ * Texels ready to be uploaded without going through a Bitmap, mapped straight from a texture
+ * container file.  The container is a 24 byte header followed by the texel data:
+ * <pre>
+ * int magic 'MTEX', int version, int format, int width, int height, int data size
+ * </pre>
+ * The header is big endian, 16 bit formats are stored in the native order of the device that wrote
+ * them, which is fine for the texel cache.  Offline tools should write them little endian.
+ * <p>
+ * Raw resources in this format need to be stored uncompressed in the apk so that they can be
+ * mapped, e.g. with an extension aapt doesn't compress.
+ */
+public final class TextureData {
+	public static final int FORMAT_ETC1 = 1;
+	public static final int FORMAT_RGB565 = 2;
+	public static final int FORMAT_RGBA4444 = 3;
+	public static final int FORMAT_RGBA8888 = 4;
+
+	public static final int HEADER_SIZE = 24;
+
+	private static final int MAGIC = 0x4d544558; // MTEX
+	private static final int VERSION = 1;
+
+	private static final String ETC1_EXTENSION = "GL_OES_compressed_ETC1_RGB8_texture";
+
+	// -1 until checked, the extensions don't change for the device
+	private static int etc1Supported = -1;
+
+	public final int format;
+	public final int width;
+	public final int height;
+	private ByteBuffer data;
+
+	private TextureData(int format, int width, int height, ByteBuffer data) {
+		this.format = format;
+		this.width = width;
+		this.height = height;
+		this.data = data;
+	}
+
+	/** Bytes per row as uploaded, for the texture's size. */
+	public int getRowBytes() {
+		return height > 0 ? data.capacity() / height : 0;
+	}
+
+	/**
+	 * Maps a container from a file.
+	 *
+	 * @return null if the file is not a valid container.
+	 */
+	public static TextureData map(File file) throws IOException {
+		final FileInputStream fis = new FileInputStream(file);
+		try {
+			return map(fis.getChannel(), 0, file.length());
+		} finally {
+			fis.close();
+		}
+	}
+
+	/**
+	 * Maps a container from an asset or raw resource.
+	 *
+	 * @return null if the asset is not a container.
+	 */
+	public static TextureData map(AssetFileDescriptor afd) throws IOException {
+		final FileInputStream fis = new FileInputStream(afd.getFileDescriptor());
+		try {
+			return map(fis.getChannel(), afd.getStartOffset(), afd.getLength());
+		} finally {
+			fis.close();
+		}
+	}
+
+	private static TextureData map(FileChannel channel, long offset, long length) throws IOException {
+		if(length < HEADER_SIZE) {
+			return null;
+		}
+
+		final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+
+		if(buffer.getInt(0) != MAGIC) {
+			return null;
+		}
+
+		final int version = buffer.getInt(4);
+		final int format = buffer.getInt(8);
+		final int width = buffer.getInt(12);
+		final int height = buffer.getInt(16);
+		final int size = buffer.getInt(20);
+
+		if(version != VERSION || size > length - HEADER_SIZE || format < FORMAT_ETC1 || format > FORMAT_RGBA8888) {
+			DebugLog.w("TextureData", "Invalid texture container, version: " + version + " format: " + format);
+			return null;
+		}
+
+		// bring the pages in now rather than during the upload
+		buffer.load();
+
+		buffer.position(HEADER_SIZE);
+		buffer.limit(HEADER_SIZE + size);
+		final ByteBuffer data = buffer.slice().order(ByteOrder.nativeOrder());
+
+		return new TextureData(format, width, height, data);
+	}
+
+	/**
+	 * Writes the bitmap's texels as a container, to a temporary file first so a partial write is
+	 * never picked up.
+	 *
+	 * @return false if the bitmap's config can't be stored.
+	 */
+	public static boolean write(File file, Bitmap bitmap) throws IOException {
+		final int format;
+		final int pixelSize;
+		switch(bitmap.getConfig()) {
+		case RGB_565:
+			format = FORMAT_RGB565;
+			pixelSize = 2;
+			break;
+		case ARGB_4444:
+			format = FORMAT_RGBA4444;
+			pixelSize = 2;
+			break;
+		case ARGB_8888:
+			format = FORMAT_RGBA8888;
+			pixelSize = 4;
+			break;
+		default:
+			return false;
+		}
+
+		final int width = bitmap.getWidth();
+		final int height = bitmap.getHeight();
+
+		// GL wants the rows packed
+		if(bitmap.getRowBytes() != width * pixelSize) {
+			return false;
+		}
+
+		final int size = width * height * pixelSize;
+
+		final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		header.putInt(MAGIC);
+		header.putInt(VERSION);
+		header.putInt(format);
+		header.putInt(width);
+		header.putInt(height);
+		header.putInt(size);
+		header.flip();
+
+		final ByteBuffer texels = ByteBuffer.allocateDirect(size);
+		bitmap.copyPixelsToBuffer(texels);
+		texels.flip();
+
+		final File tmp = new File(file.getPath() + ".tmp");
+		final FileOutputStream fos = new FileOutputStream(tmp);
+		try {
+			final FileChannel channel = fos.getChannel();
+			while(header.hasRemaining()) {
+				channel.write(header);
+			}
+			while(texels.hasRemaining()) {
+				channel.write(texels);
+			}
+		} finally {
+			fos.close();
+		}
+
+		if(!tmp.renameTo(file)) {
+			tmp.delete();
+			return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Uploads to the bound texture.  ETC1 is decoded to RGB565 first if the device doesn't support
+	 * it.
+	 */
+	public void upload(GL10 gl) {
+		final ByteBuffer data = this.data;
+
+		switch(format) {
+		case FORMAT_ETC1:
+			if(isETC1Supported(gl)) {
+				gl.glCompressedTexImage2D(GL10.GL_TEXTURE_2D, 0, ETC1.ETC1_RGB8_OES, width, height, 0,
+						data.remaining(), data);
+			}
+			else {
+				final ByteBuffer decoded = ByteBuffer.allocateDirect(width * height * 2).order(ByteOrder.nativeOrder());
+				ETC1.decodeImage(data, decoded, width, height, 2, width * 2);
+				upload16(gl, GL10.GL_RGB, GL10.GL_UNSIGNED_SHORT_5_6_5, decoded);
+			}
+			break;
+
+		case FORMAT_RGB565:
+			upload16(gl, GL10.GL_RGB, GL10.GL_UNSIGNED_SHORT_5_6_5, data);
+			break;
+
+		case FORMAT_RGBA4444:
+			upload16(gl, GL10.GL_RGBA, GL10.GL_UNSIGNED_SHORT_4_4_4_4, data);
+			break;
+
+		case FORMAT_RGBA8888:
+			gl.glTexImage2D(GL10.GL_TEXTURE_2D, 0, GL10.GL_RGBA, width, height, 0,
+					GL10.GL_RGBA, GL10.GL_UNSIGNED_BYTE, data);
+			break;
+		}
+	}
+
+	/**
+	 * Rows of an odd width 16 bit image aren't 4 byte aligned, so the unpack alignment is lowered
+	 * for the upload and put back to the GL default after.
+	 */
+	private void upload16(GL10 gl, int format, int type, ByteBuffer pixels) {
+		gl.glPixelStorei(GL10.GL_UNPACK_ALIGNMENT, 2);
+		gl.glTexImage2D(GL10.GL_TEXTURE_2D, 0, format, width, height, 0, format, type, pixels);
+		gl.glPixelStorei(GL10.GL_UNPACK_ALIGNMENT, 4);
+	}
+
+	/** Lets go of the mapping, the data can't be uploaded after this. */
+	public void release() {
+		data = null;
+	}
+
+	private static boolean isETC1Supported(GL10 gl) {
+		if(etc1Supported < 0) {
+			final String extensions = gl.glGetString(GL10.GL_EXTENSIONS);
+			etc1Supported = extensions != null && extensions.indexOf(ETC1_EXTENSION) >= 0 ? 1 : 0;
+		}
+		return etc1Supported == 1;
+	}
+}
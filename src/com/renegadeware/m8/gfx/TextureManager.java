@@ -1,26 +1,59 @@
 package com.renegadeware.m8.gfx;
 
+import java.io.File;
+import java.io.IOException;
+
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.content.res.AssetFileDescriptor;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 
+import com.renegadeware.m8.DebugLog;
 import com.renegadeware.m8.res.ManualResourceLoader;
 import com.renegadeware.m8.res.Resource;
 import com.renegadeware.m8.res.ResourceManager;
 
+/**
+ * Manages textures.  Besides regular images, textures can be TextureData containers (ETC1, RGB565,
+ * RGBA4444, RGBA8888), which are mapped and uploaded without decoding.
+ * <p>
+ * Decoded images are also written to a texel cache in the app's cache directory, keyed by
+ * resource id and app version, so that reloading them (e.g. after the GL context is lost) only
+ * needs to map the cached texels.
+ */
 public class TextureManager extends ResourceManager {
 	public static final String Type = "texture";
 	
 	static final int DEFAULT_SIZE = 512;
 	
+	private static final String CACHE_DIR = "texels";
+	private static final String CACHE_PREFIX = "tex_";
+	private static final String CACHE_EXTENSION = ".mtex";
+	
 	BitmapFactory.Options bitmapOptions;
 	
+	private boolean texelCacheEnabled;
+	private File texelCacheDir;
+	private int texelCacheVersion;
+	
 	public TextureManager() {
 		super(DEFAULT_SIZE);
+		
+		texelCacheEnabled = true;
 	}
 		
 	@Override
 	public int loadingOrder() {
 		return DEFAULT_ORDER_TEXTURE;
 	}
+	
+	/** Textures are in use until the renderer is done drawing them. */
+	@Override
+	protected int currentFrame() {
+		return OpenGLSystem.getFrameCount();
+	}
 
 	@Override
 	public String name() {
@@ -37,4 +70,119 @@ public class TextureManager extends ResourceManager {
 			ManualResourceLoader loader, Resource.Param createParams) {
 		return new Texture(this, id, group, isManual, loader);
 	}
+	
+	public synchronized void setTexelCacheEnabled(boolean enable) {
+		texelCacheEnabled = enable;
+	}
+	
+	public synchronized boolean isTexelCacheEnabled() {
+		return texelCacheEnabled;
+	}
+	
+	/** Deletes all cached texels. */
+	public synchronized void clearTexelCache() {
+		final File dir = getTexelCacheDir();
+		if(dir != null) {
+			deleteCacheFiles(dir, null);
+		}
+	}
+	
+	/**
+	 * Gets the texels of a texture that doesn't need decoding: either a cached copy, or the
+	 * resource itself if it is a TextureData container.
+	 * 
+	 * @return null if the resource needs to be decoded.
+	 */
+	TextureData openTexels(Context context, int id) {
+		final File cached = getTexelCacheFile(id);
+		if(cached != null && cached.exists()) {
+			try {
+				final TextureData data = TextureData.map(cached);
+				if(data != null) {
+					return data;
+				}
+			} catch(IOException e) {
+				DebugLog.w("TextureManager", "Unable to map cached texels: " + cached + " " + e.toString());
+			}
+			cached.delete();
+		}
+		
+		AssetFileDescriptor afd = null;
+		try {
+			afd = context.getResources().openRawResourceFd(id);
+			if(afd != null) {
+				return TextureData.map(afd);
+			}
+		} catch(Resources.NotFoundException e) {
+			// compressed in the apk, can't be a container
+		} catch(IOException e) {
+			DebugLog.w("TextureManager", "Unable to map texture: " + id + " " + e.toString());
+		} finally {
+			if(afd != null) {
+				try {
+					afd.close();
+				} catch(IOException e) {
+				}
+			}
+		}
+		
+		return null;
+	}
+	
+	/** Saves the decoded bitmap to the texel cache, if enabled. */
+	void cacheTexels(int id, Bitmap bitmap) {
+		final File file = getTexelCacheFile(id);
+		if(file != null) {
+			try {
+				TextureData.write(file, bitmap);
+			} catch(IOException e) {
+				DebugLog.w("TextureManager", "Unable to cache texels: " + file + " " + e.toString());
+			}
+		}
+	}
+	
+	private synchronized File getTexelCacheFile(int id) {
+		final File dir = texelCacheEnabled ? getTexelCacheDir() : null;
+		return dir != null ? new File(dir, CACHE_PREFIX + id + "_" + texelCacheVersion + CACHE_EXTENSION) : null;
+	}
+	
+	private File getTexelCacheDir() {
+		if(texelCacheDir == null) {
+			final Context context = systemRegistry.contextParameters.context;
+			final File cacheDir = context.getCacheDir();
+			if(cacheDir == null) {
+				return null;
+			}
+			
+			try {
+				texelCacheVersion = context.getPackageManager().getPackageInfo(context.getPackageName(), 0).versionCode;
+			} catch(PackageManager.NameNotFoundException e) {
+				texelCacheVersion = 0;
+			}
+			
+			final File dir = new File(cacheDir, CACHE_DIR);
+			if(!dir.isDirectory() && !dir.mkdirs()) {
+				return null;
+			}
+			
+			// texels of other versions are stale
+			deleteCacheFiles(dir, "_" + texelCacheVersion + CACHE_EXTENSION);
+			
+			texelCacheDir = dir;
+		}
+		
+		return texelCacheDir;
+	}
+	
+	private static void deleteCacheFiles(File dir, String keepSuffix) {
+		final File[] files = dir.listFiles();
+		if(files != null) {
+			for(File f : files) {
+				final String name = f.getName();
+				if(name.startsWith(CACHE_PREFIX) && (keepSuffix == null || !name.endsWith(keepSuffix))) {
+					f.delete();
+				}
+			}
+		}
+	}
 }
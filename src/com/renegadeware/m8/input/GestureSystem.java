@@ -0,0 +1,448 @@
+package com.renegadeware.m8.input;
+
+import android.os.SystemClock;
+import android.util.FloatMath;
+
+import com.renegadeware.m8.obj.BaseObject;
+import com.renegadeware.m8.util.FixedSizeArray;
+
+/**
+ * Recognizes tap, double tap, long press, drag, fling, and two finger pinch/rotate from the touch
+ * events of the InputSystem, and reports them to the listeners.  Events come in through
+ * InputSystem.TouchListener with their exact times, historical samples included, so fling
+ * velocities don't depend on the frame rate.
+ * <p>
+ * Create after the InputSystem, then add it to the game graph so long presses are recognized
+ * while the touch doesn't move.  Coordinates are in game space with y going up, times and
+ * velocities are in seconds.  Only use from the game thread.  All state is allocated on
+ * construction.
+ */
+public class GestureSystem extends BaseObject implements InputSystem.TouchListener {
+	public static final int MAX_LISTENERS = 8;
+
+	// samples kept per pointer for fling velocities
+	private static final int SAMPLE_COUNT = 8;
+
+	private static final int STATE_NONE = 0;
+	private static final int STATE_DOWN = 1; // pressed, could still be a tap or long press
+	private static final int STATE_DRAG = 2;
+	private static final int STATE_LONG_PRESS = 3;
+	private static final int STATE_PINCH = 4;
+
+	public interface Listener {
+		void onTap(int pointer, float x, float y);
+		void onDoubleTap(int pointer, float x, float y);
+		void onLongPress(int pointer, float x, float y);
+
+		void onDragStart(int pointer, float x, float y);
+		/** dx, dy are since the last drag call. */
+		void onDrag(int pointer, float x, float y, float dx, float dy);
+		void onDragEnd(int pointer, float x, float y);
+
+		/** After onDragEnd, if the touch was moving fast enough when released. */
+		void onFling(int pointer, float x, float y, float velocityX, float velocityY);
+
+		void onPinchStart(float centerX, float centerY);
+		/**
+		 * @param scale Distance between the two touches relative to when the pinch started.
+		 * @param rotation Radians the two touches turned since the pinch started, counter clockwise.
+		 */
+		void onPinch(float centerX, float centerY, float scale, float rotation);
+		void onPinchEnd(float centerX, float centerY);
+	}
+
+	/** Empty listener, override only the gestures needed. */
+	public static class Adapter implements Listener {
+		public void onTap(int pointer, float x, float y) {}
+		public void onDoubleTap(int pointer, float x, float y) {}
+		public void onLongPress(int pointer, float x, float y) {}
+		public void onDragStart(int pointer, float x, float y) {}
+		public void onDrag(int pointer, float x, float y, float dx, float dy) {}
+		public void onDragEnd(int pointer, float x, float y) {}
+		public void onFling(int pointer, float x, float y, float velocityX, float velocityY) {}
+		public void onPinchStart(float centerX, float centerY) {}
+		public void onPinch(float centerX, float centerY, float scale, float rotation) {}
+		public void onPinchEnd(float centerX, float centerY) {}
+	}
+
+	private final FixedSizeArray<Listener> listeners;
+
+	// thresholds
+	private float dragThreshold;
+	private float doubleTapSlop;
+	private long doubleTapTime;
+	private long longPressTime;
+	private long velocityWindow;
+	private float minFlingVelocity;
+
+	// per pointer
+	private final int pointerCount;
+	private final int[] states;
+	private final float[] downX;
+	private final float[] downY;
+	private final long[] downTimes;
+	private final float[] lastX;
+	private final float[] lastY;
+
+	// per pointer rings of the latest samples
+	private final float[] sampleX;
+	private final float[] sampleY;
+	private final long[] sampleTimes;
+	private final int[] sampleHeads;
+	private final int[] sampleCounts;
+
+	// the last tap, for double taps
+	private long lastTapTime;
+	private float lastTapX;
+	private float lastTapY;
+	private boolean hasLastTap;
+
+	// the two pointers of the pinch in progress, -1 if none
+	private int pinchA;
+	private int pinchB;
+	private float pinchStartDist;
+	private float pinchStartAngle;
+	private float pinchCenterX;
+	private float pinchCenterY;
+
+	public GestureSystem() {
+		super();
+
+		final InputSystem input = systemRegistry.inputSystem;
+
+		listeners = new FixedSizeArray<Listener>(MAX_LISTENERS);
+
+		pointerCount = input.touchGetPointerCount();
+
+		states = new int[pointerCount];
+		downX = new float[pointerCount];
+		downY = new float[pointerCount];
+		downTimes = new long[pointerCount];
+		lastX = new float[pointerCount];
+		lastY = new float[pointerCount];
+
+		sampleX = new float[pointerCount*SAMPLE_COUNT];
+		sampleY = new float[pointerCount*SAMPLE_COUNT];
+		sampleTimes = new long[pointerCount*SAMPLE_COUNT];
+		sampleHeads = new int[pointerCount];
+		sampleCounts = new int[pointerCount];
+
+		setDragThreshold(8.0f);
+		setDoubleTap(0.3f, 24.0f);
+		setLongPressTime(0.5f);
+		setFling(0.1f, 150.0f);
+
+		reset();
+
+		input.addTouchListener(this);
+	}
+
+	@Override
+	public void reset() {
+		for(int i = 0; i < pointerCount; i++) {
+			states[i] = STATE_NONE;
+			sampleCounts[i] = 0;
+		}
+
+		hasLastTap = false;
+		pinchA = pinchB = -1;
+	}
+
+	public void addListener(Listener listener) {
+		if(listeners.find(listener, false) == -1) {
+			listeners.add(listener);
+		}
+	}
+
+	public void removeListener(Listener listener) {
+		final int index = listeners.find(listener, false);
+		if(index != -1) {
+			listeners.remove(index);
+		}
+	}
+
+	/** Distance a touch has to move before it's a drag instead of a tap. */
+	public void setDragThreshold(float distance) {
+		dragThreshold = distance;
+	}
+
+	/** Most time and distance between two taps for them to be a double tap. */
+	public void setDoubleTap(float seconds, float distance) {
+		doubleTapTime = (long)(seconds * 1000000000.0f);
+		doubleTapSlop = distance;
+	}
+
+	/** Time a touch has to be held without dragging to be a long press. */
+	public void setLongPressTime(float seconds) {
+		longPressTime = (long)(seconds * 1000000000.0f);
+	}
+
+	/**
+	 * @param window Seconds of samples before the release used for the velocity.
+	 * @param minVelocity Least speed at release, in units per second, for a drag to be a fling.
+	 */
+	public void setFling(float window, float minVelocity) {
+		velocityWindow = (long)(window * 1000000000.0f);
+		minFlingVelocity = minVelocity;
+	}
+
+	/** Checks for long presses, the touch events are handled as the InputSystem applies them. */
+	@Override
+	public void update(float timeDelta, BaseObject parent) {
+		final long now = SystemClock.uptimeMillis() * 1000000L;
+
+		for(int i = 0; i < pointerCount; i++) {
+			if(states[i] == STATE_DOWN && now - downTimes[i] >= longPressTime) {
+				states[i] = STATE_LONG_PRESS;
+
+				final Object[] objs = listeners.getArray();
+				for(int l = 0, count = listeners.getCount(); l < count; l++) {
+					((Listener)objs[l]).onLongPress(i, lastX[i], lastY[i]);
+				}
+			}
+		}
+	}
+
+	public void onTouchEvent(int pointer, int action, float x, float y, long time) {
+		if(pointer < 0 || pointer >= pointerCount) {
+			return;
+		}
+
+		switch(action) {
+		case TouchEventQueue.ACTION_DOWN:
+			touchDown(pointer, x, y, time);
+			break;
+
+		case TouchEventQueue.ACTION_MOVE:
+			if(states[pointer] == STATE_NONE) {
+				// moves can come without a down
+				touchDown(pointer, x, y, time);
+			}
+			else {
+				touchMove(pointer, x, y, time);
+			}
+			break;
+
+		default:
+			if(states[pointer] != STATE_NONE) {
+				touchUp(pointer, x, y, time);
+			}
+			break;
+		}
+	}
+
+	private void touchDown(int pointer, float x, float y, long time) {
+		states[pointer] = STATE_DOWN;
+		downX[pointer] = lastX[pointer] = x;
+		downY[pointer] = lastY[pointer] = y;
+		downTimes[pointer] = time;
+
+		sampleCounts[pointer] = 0;
+		addSample(pointer, x, y, time);
+
+		// a second touch turns the first into a pinch
+		if(pinchA == -1) {
+			for(int i = 0; i < pointerCount; i++) {
+				if(i != pointer && states[i] != STATE_NONE) {
+					startPinch(i, pointer);
+					break;
+				}
+			}
+		}
+	}
+
+	private void touchMove(int pointer, float x, float y, long time) {
+		final float dx = x - lastX[pointer];
+		final float dy = y - lastY[pointer];
+
+		lastX[pointer] = x;
+		lastY[pointer] = y;
+
+		addSample(pointer, x, y, time);
+
+		final Object[] objs = listeners.getArray();
+		final int count = listeners.getCount();
+
+		switch(states[pointer]) {
+		case STATE_DOWN:
+		case STATE_LONG_PRESS: {
+			final float mx = x - downX[pointer];
+			final float my = y - downY[pointer];
+			if(mx*mx + my*my >= dragThreshold*dragThreshold) {
+				states[pointer] = STATE_DRAG;
+
+				for(int l = 0; l < count; l++) {
+					final Listener listener = (Listener)objs[l];
+					listener.onDragStart(pointer, downX[pointer], downY[pointer]);
+					listener.onDrag(pointer, x, y, mx, my);
+				}
+			}
+			break;
+		}
+
+		case STATE_DRAG:
+			for(int l = 0; l < count; l++) {
+				((Listener)objs[l]).onDrag(pointer, x, y, dx, dy);
+			}
+			break;
+
+		case STATE_PINCH:
+			updatePinch();
+			break;
+		}
+	}
+
+	private void touchUp(int pointer, float x, float y, long time) {
+		final int state = states[pointer];
+		states[pointer] = STATE_NONE;
+
+		lastX[pointer] = x;
+		lastY[pointer] = y;
+
+		final Object[] objs = listeners.getArray();
+		final int count = listeners.getCount();
+
+		switch(state) {
+		case STATE_DOWN: {
+			// a quick second tap close to the first is a double tap
+			final float tx = x - lastTapX;
+			final float ty = y - lastTapY;
+			final boolean isDouble = hasLastTap && time - lastTapTime <= doubleTapTime
+					&& tx*tx + ty*ty <= doubleTapSlop*doubleTapSlop;
+
+			for(int l = 0; l < count; l++) {
+				final Listener listener = (Listener)objs[l];
+				if(isDouble) {
+					listener.onDoubleTap(pointer, x, y);
+				}
+				else {
+					listener.onTap(pointer, x, y);
+				}
+			}
+
+			// a third tap starts over
+			hasLastTap = !isDouble;
+			lastTapTime = time;
+			lastTapX = x;
+			lastTapY = y;
+			break;
+		}
+
+		case STATE_DRAG: {
+			addSample(pointer, x, y, time);
+
+			for(int l = 0; l < count; l++) {
+				((Listener)objs[l]).onDragEnd(pointer, x, y);
+			}
+
+			final int last = (sampleHeads[pointer] + SAMPLE_COUNT - 1) % SAMPLE_COUNT;
+			final int base = pointer*SAMPLE_COUNT;
+
+			// oldest sample within the window
+			int oldest = last;
+			for(int n = 1; n < sampleCounts[pointer]; n++) {
+				final int s = (last + SAMPLE_COUNT - n) % SAMPLE_COUNT;
+				if(time - sampleTimes[base + s] > velocityWindow) {
+					break;
+				}
+				oldest = s;
+			}
+
+			final long dt = sampleTimes[base + last] - sampleTimes[base + oldest];
+			if(dt > 0) {
+				final float seconds = dt * 0.000000001f;
+				final float vx = (sampleX[base + last] - sampleX[base + oldest]) / seconds;
+				final float vy = (sampleY[base + last] - sampleY[base + oldest]) / seconds;
+
+				if(vx*vx + vy*vy >= minFlingVelocity*minFlingVelocity) {
+					for(int l = 0; l < count; l++) {
+						((Listener)objs[l]).onFling(pointer, x, y, vx, vy);
+					}
+				}
+			}
+			break;
+		}
+
+		case STATE_PINCH: {
+			for(int l = 0; l < count; l++) {
+				((Listener)objs[l]).onPinchEnd(pinchCenterX, pinchCenterY);
+			}
+
+			// the touch left holds until it's released, it won't turn into a tap
+			final int other = pointer == pinchA ? pinchB : pinchA;
+			if(states[other] == STATE_PINCH) {
+				states[other] = STATE_LONG_PRESS;
+			}
+
+			pinchA = pinchB = -1;
+			break;
+		}
+		}
+	}
+
+	private void startPinch(int a, int b) {
+		// a drag in progress is over
+		if(states[a] == STATE_DRAG) {
+			final Object[] objs = listeners.getArray();
+			for(int l = 0, count = listeners.getCount(); l < count; l++) {
+				((Listener)objs[l]).onDragEnd(a, lastX[a], lastY[a]);
+			}
+		}
+
+		states[a] = states[b] = STATE_PINCH;
+		pinchA = a;
+		pinchB = b;
+
+		final float dx = lastX[b] - lastX[a];
+		final float dy = lastY[b] - lastY[a];
+		pinchStartDist = FloatMath.sqrt(dx*dx + dy*dy);
+		pinchStartAngle = (float)Math.atan2(dy, dx);
+		pinchCenterX = (lastX[a] + lastX[b])*0.5f;
+		pinchCenterY = (lastY[a] + lastY[b])*0.5f;
+
+		final Object[] objs = listeners.getArray();
+		for(int l = 0, count = listeners.getCount(); l < count; l++) {
+			((Listener)objs[l]).onPinchStart(pinchCenterX, pinchCenterY);
+		}
+	}
+
+	private void updatePinch() {
+		final int a = pinchA, b = pinchB;
+
+		final float dx = lastX[b] - lastX[a];
+		final float dy = lastY[b] - lastY[a];
+		final float dist = FloatMath.sqrt(dx*dx + dy*dy);
+
+		final float scale = pinchStartDist > 0.0f ? dist / pinchStartDist : 1.0f;
+
+		float rotation = (float)Math.atan2(dy, dx) - pinchStartAngle;
+		if(rotation > Math.PI) {
+			rotation -= 2.0f*(float)Math.PI;
+		}
+		else if(rotation < -Math.PI) {
+			rotation += 2.0f*(float)Math.PI;
+		}
+
+		pinchCenterX = (lastX[a] + lastX[b])*0.5f;
+		pinchCenterY = (lastY[a] + lastY[b])*0.5f;
+
+		final Object[] objs = listeners.getArray();
+		for(int l = 0, count = listeners.getCount(); l < count; l++) {
+			((Listener)objs[l]).onPinch(pinchCenterX, pinchCenterY, scale, rotation);
+		}
+	}
+
+	private void addSample(int pointer, float x, float y, long time) {
+		final int head = sampleHeads[pointer];
+		final int i = pointer*SAMPLE_COUNT + head;
+
+		sampleX[i] = x;
+		sampleY[i] = y;
+		sampleTimes[i] = time;
+
+		sampleHeads[pointer] = (head + 1) % SAMPLE_COUNT;
+		if(sampleCounts[pointer] < SAMPLE_COUNT) {
+			sampleCounts[pointer]++;
+		}
+	}
+}
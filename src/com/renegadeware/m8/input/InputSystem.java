@@ -1,12 +1,39 @@
 package com.renegadeware.m8.input;
 
+import android.os.SystemClock;
+
 import com.renegadeware.m8.math.Vector2;
 import com.renegadeware.m8.obj.BaseObject;
+import com.renegadeware.m8.util.FixedSizeArray;
 
+/**
+ * Touch input.  The touch filters queue events from the UI thread with touchDown, touchMove,
+ * touchUp or touchEvent, and update applies them to the touch points on the game thread, before
+ * anything else is updated.
+ */
 public class InputSystem extends BaseObject {
 	
+	private static final int EVENT_QUEUE_SIZE = 256;
+	private static final int MAX_TOUCH_LISTENERS = 8;
+	
+	/**
+	 * Gets every touch event as it's applied, e.g. to recognize gestures with the exact times
+	 * and the historical samples in between frames.  Called on the game thread.
+	 */
+	public interface TouchListener {
+		/**
+		 * @param action One of the TouchEventQueue actions.
+		 * @param x In game coordinates, with y going up.
+		 * @param time Time of the event in nanoseconds, on the SystemClock.uptimeMillis clock.
+		 */
+		void onTouchEvent(int pointer, int action, float x, float y, long time);
+	}
+	
 	private int MAX_TOUCH_POINTS = 5;
 	private InputXY touchPoints[];
+	
+	private final TouchEventQueue touchEvents;
+	private final FixedSizeArray<TouchListener> touchListeners;
 
 	public InputSystem() {
 		super();
@@ -16,6 +43,9 @@ public class InputSystem extends BaseObject {
 			touchPoints[x] = new InputXY();
 		}
 		
+		touchEvents = new TouchEventQueue(EVENT_QUEUE_SIZE);
+		touchListeners = new FixedSizeArray<TouchListener>(MAX_TOUCH_LISTENERS);
+		
 		reset();
 	}
 
@@ -25,47 +55,133 @@ public class InputSystem extends BaseObject {
 		for (int x = 0; x < MAX_TOUCH_POINTS; x++) {
 			touchPoints[x].reset();
 		}
+		
+		touchEvents.clear();
+	}
+	
+	/**
+	 * Applies the queued touch events to the touch points.  A release of a touch pressed within
+	 * the same update is left for the next one, so the press is seen for at least one frame.
+	 */
+	@Override
+	public void update(float timeDelta, BaseObject parent) {
+		final TouchEventQueue events = touchEvents;
+		final int count = events.available();
+		if (count == 0) {
+			return;
+		}
+		
+		// events are placed in the frame by their age, no earlier than the last frame
+		final float gameTime = systemRegistry.timeSystem.getGameTime();
+		final float frameDelta = systemRegistry.timeSystem.getFrameDelta();
+		final long now = SystemClock.uptimeMillis() * 1000000L;
+		final float gameHeight = systemRegistry.contextParameters.gameHeight;
+		
+		final Object[] listeners = touchListeners.getArray();
+		final int listenerCount = touchListeners.getCount();
+		
+		int pressedMask = 0;
+		int handled = 0;
+		
+		for (; handled < count; handled++) {
+			final int index = events.getPointer(handled);
+			final int action = events.getAction(handled);
+			
+			if (action == TouchEventQueue.ACTION_UP && index < 32 && (pressedMask & (1 << index)) != 0) {
+				break;
+			}
+			
+			final float x = events.getX(handled);
+			final float y = gameHeight - events.getY(handled);
+			final long time = events.getTime(handled);
+			
+			float eventTime = gameTime - (now - time) * 0.000000001f;
+			if (eventTime > gameTime) {
+				eventTime = gameTime;
+			}
+			else if (eventTime < gameTime - frameDelta) {
+				eventTime = gameTime - frameDelta;
+			}
+			
+			if (index < MAX_TOUCH_POINTS) {
+				final InputXY touch = touchPoints[index];
+				
+				switch (action) {
+				case TouchEventQueue.ACTION_DOWN:
+					touch.press(eventTime, x, y);
+					pressedMask |= 1 << index;
+					break;
+					
+				case TouchEventQueue.ACTION_MOVE:
+					// for some reason, touch event will use move even if 'down' was not called
+					if(touch.getPressed()) {
+						touch.move(eventTime, x, y);
+					}
+					else {
+						touch.press(eventTime, x, y);
+						pressedMask |= 1 << index;
+					}
+					break;
+					
+				default:
+					touch.release();
+					break;
+				}
+			}
+			
+			for (int i = 0; i < listenerCount; i++) {
+				((TouchListener)listeners[i]).onTouchEvent(index, action, x, y, time);
+			}
+		}
+		
+		events.remove(handled);
+	}
+	
+	/** Game thread only. */
+	public void addTouchListener(TouchListener listener) {
+		if (touchListeners.find(listener, false) == -1) {
+			touchListeners.add(listener);
+		}
+	}
+	
+	/** Game thread only. */
+	public void removeTouchListener(TouchListener listener) {
+		final int index = touchListeners.find(listener, false);
+		if (index != -1) {
+			touchListeners.remove(index);
+		}
+	}
+	
+	/** The queue the touch filters fill, for its counters. */
+	public TouchEventQueue getTouchEventQueue() {
+		return touchEvents;
 	}
 
 	/* ******************************************************************************
 	 * Touch Interfaces
 	 * ******************************************************************************/
 	
+	/**
+	 * Queues a touch event, UI thread only.
+	 * 
+	 * @param x In view coordinates scaled to the game, with y going down.
+	 * @param time Time of the event in nanoseconds, on the SystemClock.uptimeMillis clock, e.g.
+	 * 		  MotionEvent.getEventTime() * 1000000.
+	 */
+	public void touchEvent(int index, int action, float x, float y, long time) {
+		touchEvents.push(index, action, x, y, time);
+	}
+	
 	public void touchDown(int index, float x, float y) {
-		if (index < MAX_TOUCH_POINTS) {
-			final InputXY touch = touchPoints[index];
-			
-			touch.press(
-					systemRegistry.timeSystem.getGameTime(), 
-					x, 
-					systemRegistry.contextParameters.gameHeight - y);
-		}
+		touchEvent(index, TouchEventQueue.ACTION_DOWN, x, y, SystemClock.uptimeMillis() * 1000000L);
 	}
 	
 	public void touchMove(int index, float x, float y) {
-		if (index < MAX_TOUCH_POINTS) {
-			final InputXY touch = touchPoints[index];
-			
-			// for some reason, touch event will use move even if 'down' was not called
-			if(touch.getPressed()) {
-				touch.move(systemRegistry.timeSystem.getGameTime(), 
-						x, 
-						systemRegistry.contextParameters.gameHeight - y);
-			}
-			else {
-				touch.press(systemRegistry.timeSystem.getGameTime(), 
-						x, 
-						systemRegistry.contextParameters.gameHeight - y);
-			}
-		}
+		touchEvent(index, TouchEventQueue.ACTION_MOVE, x, y, SystemClock.uptimeMillis() * 1000000L);
 	}
 	
 	public void touchUp(int index, float x, float y) {
-		if (index < MAX_TOUCH_POINTS) {
-			final InputXY touch = touchPoints[index];
-			
-			touch.release();
-		}
+		touchEvent(index, TouchEventQueue.ACTION_UP, x, y, SystemClock.uptimeMillis() * 1000000L);
 	}
 	
 	public boolean touchGetTriggered(int index, float time) {
@@ -136,6 +252,14 @@ public class InputSystem extends BaseObject {
 		return time;
 	}
 	
+	public final int touchGetPointerCount() {
+		return MAX_TOUCH_POINTS;
+	}
+	
+	public final InputXY touchGetPointer(int index) {
+		return index < MAX_TOUCH_POINTS ? touchPoints[index] : null;
+	}
+	
 	public InputXY touchFindPointerInRegion(float regionX, float regionY, float regionWidth, float regionHeight) {
 		InputXY touch = null;
 		for (int x = 0; x < MAX_TOUCH_POINTS; x++) {
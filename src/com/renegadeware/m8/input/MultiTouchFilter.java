@@ -14,29 +14,55 @@ public class MultiTouchFilter extends SingleTouchFilter {
     @Override
     public void updateTouch(MotionEvent event) {
 		ContextParameters params = systemRegistry.contextParameters;
+		final InputSystem input = BaseObject.systemRegistry.inputSystem;
+		final float scaleX = 1.0f / params.viewScaleX;
+		final float scaleY = 1.0f / params.viewScaleY;
+		
     	final int pointerCount = event.getPointerCount();
-    	for (int x = 0; x < pointerCount; x++) {
-    		final int action = event.getAction();
-    		final int actualEvent = action & MotionEvent.ACTION_MASK;
-    		final int id = event.getPointerId(x);
-    		if (actualEvent == MotionEvent.ACTION_POINTER_UP || 
-    				actualEvent == MotionEvent.ACTION_UP || 
-    				actualEvent == MotionEvent.ACTION_CANCEL) {
-        		BaseObject.systemRegistry.inputSystem.touchUp(id, 
-        				event.getX(x) * (1.0f / params.viewScaleX), 
-        				event.getY(x) * (1.0f / params.viewScaleY));
-        	}
-    		else if(actualEvent == MotionEvent.ACTION_MOVE) {
-    			BaseObject.systemRegistry.inputSystem.touchMove(id, 
-        				event.getX(x) * (1.0f / params.viewScaleX), 
-        				event.getY(x) * (1.0f / params.viewScaleY));
-    		}
-    		else {
-        		BaseObject.systemRegistry.inputSystem.touchDown(id, 
-        				event.getX(x) * (1.0f / params.viewScaleX),
-        				event.getY(x) * (1.0f / params.viewScaleY));
-        	}
-    	}
+    	final int action = event.getAction();
+		final int actualEvent = action & MotionEvent.ACTION_MASK;
+		final long time = event.getEventTime() * 1000000L;
+		
+		if (actualEvent == MotionEvent.ACTION_MOVE) {
+			// the samples batched since the last event come first, oldest to newest
+			final int historySize = event.getHistorySize();
+			for (int h = 0; h < historySize; h++) {
+				final long historicalTime = event.getHistoricalEventTime(h) * 1000000L;
+				for (int x = 0; x < pointerCount; x++) {
+					input.touchEvent(event.getPointerId(x), TouchEventQueue.ACTION_MOVE, 
+							event.getHistoricalX(x, h) * scaleX, 
+							event.getHistoricalY(x, h) * scaleY, 
+							historicalTime);
+				}
+			}
+			
+			for (int x = 0; x < pointerCount; x++) {
+				input.touchEvent(event.getPointerId(x), TouchEventQueue.ACTION_MOVE, 
+						event.getX(x) * scaleX, 
+						event.getY(x) * scaleY, 
+						time);
+			}
+		}
+		else if (actualEvent == MotionEvent.ACTION_UP || actualEvent == MotionEvent.ACTION_CANCEL) {
+			// every pointer still down goes up
+			for (int x = 0; x < pointerCount; x++) {
+				input.touchEvent(event.getPointerId(x), TouchEventQueue.ACTION_UP, 
+						event.getX(x) * scaleX, 
+						event.getY(x) * scaleY, 
+						time);
+			}
+		}
+		else {
+			// only the pointer that changed goes down or up
+			final int x = actualEvent == MotionEvent.ACTION_DOWN ? 0 
+					: (action & MotionEvent.ACTION_POINTER_INDEX_MASK) >> MotionEvent.ACTION_POINTER_INDEX_SHIFT;
+			
+			input.touchEvent(event.getPointerId(x), 
+					actualEvent == MotionEvent.ACTION_POINTER_UP ? TouchEventQueue.ACTION_UP : TouchEventQueue.ACTION_DOWN, 
+					event.getX(x) * scaleX, 
+					event.getY(x) * scaleY, 
+					time);
+		}
     }
     
     @Override
@@ -8,17 +8,33 @@ public class SingleTouchFilter extends TouchFilter {
 
 	public void updateTouch(MotionEvent event) {
 		ContextParameters params = systemRegistry.contextParameters;
+		final InputSystem input = systemRegistry.inputSystem;
+		final float scaleX = 1.0f / params.viewScaleX;
+		final float scaleY = 1.0f / params.viewScaleY;
+		
     	if (event.getAction() == MotionEvent.ACTION_UP) {
-    		systemRegistry.inputSystem.touchUp(0, event.getRawX() * (1.0f / params.viewScaleX), 
-    				event.getRawY() * (1.0f / params.viewScaleY));
+    		input.touchEvent(0, TouchEventQueue.ACTION_UP, event.getRawX() * scaleX, 
+    				event.getRawY() * scaleY, event.getEventTime() * 1000000L);
     	}
     	else if(event.getAction() == MotionEvent.ACTION_MOVE) {
-    		systemRegistry.inputSystem.touchMove(0, event.getRawX() * (1.0f / params.viewScaleX), 
-    				event.getRawY() * (1.0f / params.viewScaleY));
+    		// the samples batched since the last event, the raw position has no history so
+    		// they're offset like the current one
+    		final float ofsX = event.getRawX() - event.getX();
+    		final float ofsY = event.getRawY() - event.getY();
+    		final int historySize = event.getHistorySize();
+    		for (int h = 0; h < historySize; h++) {
+    			input.touchEvent(0, TouchEventQueue.ACTION_MOVE, 
+    					(event.getHistoricalX(0, h) + ofsX) * scaleX, 
+    					(event.getHistoricalY(0, h) + ofsY) * scaleY, 
+    					event.getHistoricalEventTime(h) * 1000000L);
+    		}
+    		
+    		input.touchEvent(0, TouchEventQueue.ACTION_MOVE, event.getRawX() * scaleX, 
+    				event.getRawY() * scaleY, event.getEventTime() * 1000000L);
     	}
     	else {
-    		systemRegistry.inputSystem.touchDown(0, event.getRawX() * (1.0f / params.viewScaleX),
-    				event.getRawY() * (1.0f / params.viewScaleY));
+    		input.touchEvent(0, TouchEventQueue.ACTION_DOWN, event.getRawX() * scaleX,
+    				event.getRawY() * scaleY, event.getEventTime() * 1000000L);
     	}
     }
 	@Override
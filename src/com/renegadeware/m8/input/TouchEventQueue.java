@@ -0,0 +1,128 @@
+package com.renegadeware.m8.input;
+
+/**
+ * Single producer, single consumer ring of touch events.  The UI thread pushes the events of each
+ * MotionEvent, historical samples included, and the game thread drains them once per update, so
+ * the touch points are only ever changed on the game thread and no event is lost or torn.
+ * <p>
+ * Events are kept in primitive arrays, nothing is allocated once the queue is created.  If the
+ * game thread falls so far behind that the queue fills up, new moves are dropped; downs and ups
+ * are only dropped once there is no room left at all.
+ */
+public final class TouchEventQueue {
+	public static final int ACTION_DOWN = 0;
+	public static final int ACTION_MOVE = 1;
+	public static final int ACTION_UP = 2;
+
+	// room kept for downs and ups once moves are dropped
+	private static final int RESERVE = 16;
+
+	private final int mask;
+
+	private final int[] pointers;
+	private final int[] actions;
+	private final float[] xs;
+	private final float[] ys;
+	private final long[] times;
+
+	// only the consumer writes head, only the producer writes tail
+	private volatile int head;
+	private volatile int tail;
+
+	private volatile int droppedCount;
+
+	/**
+	 * @param capacity Rounded up to a power of two.
+	 */
+	public TouchEventQueue(int capacity) {
+		int size = RESERVE*2;
+		while(size < capacity) {
+			size <<= 1;
+		}
+
+		mask = size - 1;
+
+		pointers = new int[size];
+		actions = new int[size];
+		xs = new float[size];
+		ys = new float[size];
+		times = new long[size];
+	}
+
+	public int getCapacity() {
+		return mask + 1;
+	}
+
+	/** Number of events dropped because the queue was full. */
+	public int getDroppedCount() {
+		return droppedCount;
+	}
+
+	/**
+	 * Producer only.
+	 *
+	 * @param time Time of the event in nanoseconds, on the SystemClock.uptimeMillis clock.
+	 *
+	 * @return false if the queue is full and the event was dropped.
+	 */
+	public boolean push(int pointer, int action, float x, float y, long time) {
+		final int t = tail;
+		final int used = t - head;
+		final int room = mask + 1 - used;
+
+		if(room <= 0 || (action == ACTION_MOVE && room <= RESERVE)) {
+			droppedCount++;
+			return false;
+		}
+
+		final int i = t & mask;
+		pointers[i] = pointer;
+		actions[i] = action;
+		xs[i] = x;
+		ys[i] = y;
+		times[i] = time;
+
+		// publishes the event to the consumer
+		tail = t + 1;
+
+		return true;
+	}
+
+	/**
+	 * Consumer only.  The number of events available, index them from 0 with the getters below
+	 * then call remove with the number handled.
+	 */
+	public int available() {
+		return tail - head;
+	}
+
+	public int getPointer(int index) {
+		return pointers[(head + index) & mask];
+	}
+
+	public int getAction(int index) {
+		return actions[(head + index) & mask];
+	}
+
+	public float getX(int index) {
+		return xs[(head + index) & mask];
+	}
+
+	public float getY(int index) {
+		return ys[(head + index) & mask];
+	}
+
+	public long getTime(int index) {
+		return times[(head + index) & mask];
+	}
+
+	/** Consumer only.  Lets the producer reuse the first count events. */
+	public void remove(int count) {
+		head = head + count;
+	}
+
+	/** Consumer only.  Drops everything pushed so far. */
+	public void clear() {
+		head = tail;
+	}
+}
@@ -16,6 +16,7 @@
 
 package com.renegadeware.m8.obj;
 
+import com.renegadeware.m8.Profiler;
 import com.renegadeware.m8.util.FixedSizeArray;
 
 /** 
@@ -31,6 +32,7 @@ public class ObjectManager extends BaseObject {
     private final FixedSizeArray<BaseObject> mObjects;
     private final FixedSizeArray<BaseObject> mPendingAdditions;
     private final FixedSizeArray<BaseObject> mPendingRemovals;
+    private int mProfileScope = Profiler.NO_SCOPE;
 
     public ObjectManager() {
         super();
@@ -89,16 +91,30 @@ public class ObjectManager extends BaseObject {
     
     @Override
     public void update(float timeDelta, BaseObject parent) {
+        final long start = mProfileScope != Profiler.NO_SCOPE ? Profiler.begin() : 0;
         commitUpdates();
         final int count = mObjects.getCount();
         if (count > 0) {
-            final Object[] objectArray = mObjects.getArray();
-            for (int i = 0; i < count; i++) {
-                BaseObject object = (BaseObject)objectArray[i];
-                object.update(timeDelta, this);
-            }
+            updateChildren(mObjects.getArray(), count, timeDelta);
+        }
+        Profiler.end(mProfileScope, start);
+    }
+    
+    /** Called by update once the pending updates are committed, override to change the traversal. */
+    protected void updateChildren(Object[] objectArray, int count, float timeDelta) {
+        for (int i = 0; i < count; i++) {
+            BaseObject object = (BaseObject)objectArray[i];
+            object.update(timeDelta, this);
         }
     }
+    
+    /**
+     * Record the time spent updating this manager and its children in the Profiler under the given
+     * scope name.  Pass null to stop recording.
+     */
+    public void setProfileScope(String name) {
+        mProfileScope = name != null ? Profiler.registerScope(name) : Profiler.NO_SCOPE;
+    }
 
     public final FixedSizeArray<BaseObject> getObjects() {
         return mObjects;
@@ -121,6 +137,15 @@ public class ObjectManager extends BaseObject {
     	return mObjects.getCapacity();
     }
     
+    /**
+     * Changes the capacity of the children, this allocates.  Can't go below the current count.
+     */
+    public void setCapacity(int capacity) {
+        mObjects.setCapacity(capacity);
+        mPendingAdditions.setCapacity(capacity);
+        mPendingRemovals.setCapacity(capacity);
+    }
+    
     public final BaseObject get(int index) {
         return mObjects.get(index);
     }
@@ -2,6 +2,8 @@ package com.renegadeware.m8.obj;
 
 import com.renegadeware.m8.ContextParameters;
 import com.renegadeware.m8.TimeSystem;
+import com.renegadeware.m8.UpdateScheduler;
+import com.renegadeware.m8.gfx.CullingSystem;
 import com.renegadeware.m8.gfx.FontManager;
 import com.renegadeware.m8.gfx.GridManager;
 import com.renegadeware.m8.gfx.OpenGLSystem;
@@ -10,9 +12,11 @@ import com.renegadeware.m8.gfx.SpriteManager;
 import com.renegadeware.m8.gfx.TextureAtlasManager;
 import com.renegadeware.m8.gfx.TextureManager;
 import com.renegadeware.m8.gfx.ViewSystem;
+import com.renegadeware.m8.input.GestureSystem;
 import com.renegadeware.m8.input.InputSystem;
 import com.renegadeware.m8.res.ResourceGroupManager;
 import com.renegadeware.m8.screen.ScreenSystem;
+import com.renegadeware.m8.sound.MusicManager;
 import com.renegadeware.m8.sound.SoundManager;
 import com.renegadeware.m8.ui.UIResManager;
 
@@ -35,8 +39,11 @@ public class ObjectRegistry extends BaseObjectRegistry {
 	public RenderSystem renderSystem;
 	public TimeSystem timeSystem;
 	public InputSystem inputSystem;
+	public GestureSystem gestureSystem;
 	public ViewSystem viewSystem;
+	public CullingSystem cullingSystem;
 	public ScreenSystem screenSystem;
+	public UpdateScheduler updateScheduler;
 	
 	//Managers
 	public ResourceGroupManager resourceGroupManager;
@@ -48,4 +55,5 @@ public class ObjectRegistry extends BaseObjectRegistry {
 	public FontManager fontManager;
 	public UIResManager uiResManager;
 	public SoundManager soundManager;
+	public MusicManager musicManager;
 }
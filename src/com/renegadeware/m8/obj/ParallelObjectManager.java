@@ -0,0 +1,49 @@
+package com.renegadeware.m8.obj;
+
+import com.renegadeware.m8.UpdateScheduler;
+
+/**
+ * A derivation of ObjectManager that updates its children in parallel through the registry's
+ * UpdateScheduler.  Only use this for children that are independent of each other: they may not
+ * modify each other, their parent, or any shared system while updating.  Scheduling draws is fine,
+ * the render system keeps a submission buffer per thread.
+ * <p>
+ * update returns once every child is done, so anything after it (e.g. the render system swap)
+ * sees all of the children's changes.  Falls back to a serial update if there is no scheduler or
+ * there are fewer children than the threshold.
+ */
+public class ParallelObjectManager extends ObjectManager {
+	public static final int DEFAULT_THRESHOLD = 32;
+
+	private int threshold;
+
+	public ParallelObjectManager() {
+		super();
+		threshold = DEFAULT_THRESHOLD;
+	}
+
+	public ParallelObjectManager(int arraySize) {
+		super(arraySize);
+		threshold = DEFAULT_THRESHOLD;
+	}
+
+	/** Number of children needed before the update is split across threads. */
+	public void setThreshold(int threshold) {
+		this.threshold = threshold;
+	}
+
+	public int getThreshold() {
+		return threshold;
+	}
+
+	@Override
+	protected void updateChildren(Object[] objectArray, int count, float timeDelta) {
+		final UpdateScheduler scheduler = systemRegistry.updateScheduler;
+		if(scheduler != null && count >= threshold) {
+			scheduler.update(objectArray, count, timeDelta, this);
+		}
+		else {
+			super.updateChildren(objectArray, count, timeDelta);
+		}
+	}
+}
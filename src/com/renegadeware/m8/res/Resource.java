@@ -134,12 +134,7 @@ public abstract class Resource extends BaseObject {
 		// Set the preparing, if the current state is not unloaded, then we're in trouble
         if(!loadingStatusCas(StatusUnloaded, StatusPreparing)) {
         	// Someone else is preparing?
-        	while(loadingStatus == StatusPreparing) {
-        		try {
-        			loadingStatusLock.wait();
-				} catch (InterruptedException e) {
-				}
-        	}
+        	waitWhileStatus(StatusPreparing);
         	
         	final int status = loadingStatus;
         	if(status != StatusPrepared && status != StatusLoading && status != StatusLoaded) {
@@ -212,12 +207,7 @@ public abstract class Resource extends BaseObject {
 			old = loadingStatus;
 			
 			if(old == StatusPreparing) {
-				while(loadingStatus == StatusPreparing) {
-					try {
-						loadingStatusLock.wait();
-					} catch (InterruptedException e) {
-					}
-				}
+				waitWhileStatus(StatusPreparing);
 				old = loadingStatus;
 			}
 			
@@ -228,12 +218,7 @@ public abstract class Resource extends BaseObject {
 			// atomically do slower check to make absolutely sure,
 			// and set the load state to LOADING
 			if(old == StatusLoading || !loadingStatusCas(old, StatusLoading)) {
-				while(loadingStatus == StatusLoading) {
-					try {
-						loadingStatusLock.wait();
-					} catch (InterruptedException e) {
-					}
-				}
+				waitWhileStatus(StatusLoading);
 				
 				final int status = loadingStatus;
 				if(status == StatusPrepared || status == StatusPreparing) {
@@ -372,16 +357,44 @@ public abstract class Resource extends BaseObject {
     	return size;
     }
     
-    /** 'Touches' the resource to indicate it has been used. 
+    /**
+     * 'Touches' the resource to indicate it has been used.  If the resource was unloaded, e.g.
+     * evicted by its manager's memory budget, it is loaded again first, escalating the load if it
+     * is background loaded.
      * 
      * @throws ResourceException 
      */
     public void touch() throws ResourceException {
-    	load(false);
+    	final boolean wasLoaded = loadingStatus == StatusLoaded;
+    	if(!wasLoaded) {
+    		if(isBackgroundLoaded) {
+    			escalateLoading();
+    		}
+    		else {
+    			load(false);
+    		}
+    	}
     	
     	final ResourceManager mgr = getCreator();
     	if(mgr != null)
-    		mgr.notifyResourceTouched(this);
+    		mgr.notifyResourceTouched(this, wasLoaded);
+    }
+    
+    /**
+     * Pinned resources are never evicted by their manager's memory budget.  Resources that are
+     * not reloadable are never evicted either.
+     */
+    public void setPinned(boolean pinned) {
+    	isPinned = pinned;
+    }
+    
+    public boolean isPinned() {
+    	return isPinned;
+    }
+    
+    /** The frame this resource was last touched or loaded in, see ResourceManager.currentFrame. */
+    public int getLastTouchedFrame() {
+    	return lastTouchedFrame;
     }
     
     /** Returns true if the Resource has been prepared, false otherwise. */
@@ -577,6 +590,8 @@ public abstract class Resource extends BaseObject {
 	protected ManualResourceLoader loader;
 	/** State count, the number of times this resource has changed state */
 	protected int stateCount;
+	/** Is this resource kept loaded regardless of the memory budget? */
+	protected volatile boolean isPinned;
 	
 	protected final LinkedList<Listener> listenerList;
 	
@@ -589,6 +604,18 @@ public abstract class Resource extends BaseObject {
 		}
 	}
 	
+	/** Blocks until another thread moves the loading status away from s. */
+	protected void waitWhileStatus(int s) {
+		synchronized (loadingStatusLock) {
+			while(loadingStatus == s) {
+				try {
+					loadingStatusLock.wait();
+				} catch (InterruptedException e) {
+				}
+			}
+		}
+	}
+	
 	protected boolean loadingStatusCas(int old, int now) {
 		synchronized (loadingStatusLock) {
 			if(loadingStatus != old) {
@@ -659,5 +686,10 @@ public abstract class Resource extends BaseObject {
 	
 	private final WeakReference<ResourceManager> creator; 
 	
+	// the manager's least recently used list, guarded by the manager
+	Resource lruPrev;
+	Resource lruNext;
+	volatile int lastTouchedFrame;
+	
 	private static final String DTag = "Resource"; 
 }
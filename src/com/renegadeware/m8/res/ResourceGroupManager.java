@@ -6,15 +6,20 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import android.util.SparseArray;
 
 import com.renegadeware.m8.DebugLog;
+import com.renegadeware.m8.MateActivity;
+import com.renegadeware.m8.gfx.SurfaceReadyCallback;
 import com.renegadeware.m8.obj.BaseObject;
 import com.renegadeware.m8.res.Resource.ResourceException;
 import com.renegadeware.m8.util.DataSection;
 import com.renegadeware.m8.util.Util;
-import com.renegadeware.m8.util.XmlSection;
 
 public final class ResourceGroupManager extends BaseObject {
 
@@ -151,6 +156,27 @@ public final class ResourceGroupManager extends BaseObject {
 		boolean resourceCollision(Resource res, ResourceManager resMgr);
 	};
 	
+	/**
+	 * This interface allows users to follow a loadGroupAsync.
+	 */
+	public static interface AsyncGroupLoadListener {
+		/**
+		 * This event is called during loadGroupAsync each time a resource is prepared or loaded.
+		 * Note that it is called from the loader threads and the render thread.
+		 *
+		 * @param load The load in progress.
+		 */
+		void resourceGroupLoadProgress(AsyncGroupLoad load);
+		
+		/**
+		 * This event is called once loadGroupAsync is done, check the load to see whether it
+		 * was cancelled or failed.  Called from a loader thread.
+		 *
+		 * @param load The finished load.
+		 */
+		void resourceGroupLoadFinished(AsyncGroupLoad load);
+	}
+	
 	/** Nested struct defining a Resource declaration. */
 	public final class ResourceDeclaration {
 		public String resourceType;
@@ -189,6 +215,8 @@ public final class ResourceGroupManager extends BaseObject {
 
 		resGroupMap = Util.newHashMap();
 
+		asyncLoads = Util.newLinkedList();
+
 		createGroup(DefaultResourceGroupName, true);
 		createGroup(InternalResourceGroupName, true); 
 	}
@@ -487,6 +515,105 @@ public final class ResourceGroupManager extends BaseObject {
 		}
 	}
 	
+	/**
+	 * Loads a resource group without blocking the caller, see loadGroupAsync(String, AsyncGroupLoadListener).
+	 *
+	 * @param name The name of the resource group to load.
+	 *
+	 * @return A handle to follow or cancel the load.
+	 *
+	 * @throws ResourceGroupException
+	 */
+	public AsyncGroupLoad loadGroupAsync(String name) throws ResourceGroupException {
+		return loadGroupAsync(name, null);
+	}
+	
+	/**
+	 * Loads a resource group without blocking the caller.
+	 * <p>
+	 * Resources are processed in ResourceManager.loadingOrder() order.  All the resources of one
+	 * loading order are prepared (file I/O, decoding, parsing) on the loader threads, then loaded
+	 * on the render thread through a surface ready callback, a few at a time so that a frame isn't
+	 * held up for long, before going on to the next loading order.  Progress is reported through
+	 * the given AsyncGroupLoadListener.
+	 * <p>
+	 * The resources are marked as background loaded until they're done, so on demand loads of them
+	 * are ignored in the meantime.  Resources that are already loaded are skipped.
+	 * <p>
+	 * The ResourceGroupListeners and resource listeners get the same events as with loadGroup, from
+	 * whichever thread gets to that part of the load.  The group load always ends, even if it was
+	 * cancelled.
+	 *
+	 * @param name The name of the resource group to load.
+	 * @param listener The listener to notify of the progress, can be null.
+	 *
+	 * @return A handle to follow or cancel the load.
+	 *
+	 * @throws ResourceGroupException
+	 */
+	public AsyncGroupLoad loadGroupAsync(String name, AsyncGroupLoadListener listener) throws ResourceGroupException {
+		DebugLog.i(DTag, "Loading resource group asynchronously: " + name);
+		
+		final AsyncGroupLoad load;
+		
+		synchronized(this) {
+			ResourceGroup grp = _getResourceGroup(name);
+			if(grp == null) {
+				throw new ResourceGroupException("loadGroupAsync: Cannot find group: " + name);
+			}
+			
+			synchronized(grp) {
+				if(grp.status == ResourceGroup.StatusLoading) {
+					throw new ResourceGroupException("loadGroupAsync: Group is already loading: " + name);
+				}
+				
+				grp.status = ResourceGroup.StatusLoading;
+				
+				// take a snapshot of the resources so the group isn't locked during the load
+				final Collection<LinkedList<Resource>> c = grp.loadResOrderMap.values();
+				final ArrayList<Resource[]> stages = new ArrayList<Resource[]>(c.size());
+				int resCount = 0;
+				
+				for(LinkedList<Resource> resList : c) {
+					final ArrayList<Resource> stage = new ArrayList<Resource>(resList.size());
+					for(Resource res : resList) {
+						if(!res.isLoaded()) {
+							res.isBackgroundLoaded(true);
+							stage.add(res);
+						}
+					}
+					
+					if(stage.size() > 0) {
+						stages.add(stage.toArray(new Resource[stage.size()]));
+						resCount += stage.size();
+					}
+				}
+				
+				load = new AsyncGroupLoad(grp, stages, resCount, listener);
+			}
+			
+			if(loaderPool == null) {
+				loaderPool = Executors.newFixedThreadPool(LOADER_THREAD_COUNT, new ThreadFactory() {
+					private int count = 0;
+					
+					public Thread newThread(Runnable r) {
+						final Thread t = new Thread(r, "Mate Loader " + count++);
+						t.setDaemon(true);
+						t.setPriority(Thread.MIN_PRIORITY);
+						return t;
+					}
+				});
+			}
+			
+			asyncLoads.add(load);
+			
+			load.pool = loaderPool;
+			loaderPool.execute(load);
+		}
+		
+		return load;
+	}
+	
 	/**
 	 * Unloads a resource group.
 	 * <p>
@@ -898,6 +1025,16 @@ public final class ResourceGroupManager extends BaseObject {
 		loadingListener = null;
 		
 		currentGroup = null;
+		
+		for(AsyncGroupLoad load : asyncLoads) {
+			load.cancel();
+		}
+		asyncLoads.clear();
+		
+		if(loaderPool != null) {
+			loaderPool.shutdown();
+			loaderPool = null;
+		}
 	}
 	
 	/**
@@ -1024,7 +1161,7 @@ public final class ResourceGroupManager extends BaseObject {
 	}
 	
 	public final void createGroupsFromXml(int xmlId, boolean initialize) {
-		DataSection ds = XmlSection.createFromResourceId(systemRegistry.contextParameters.context, xmlId);
+		DataSection ds = DataSection.createFromResourceId(systemRegistry.contextParameters.context, xmlId);
 		
 		createGroupsFromDataSection(ds, initialize);
 	}
@@ -1408,6 +1545,295 @@ public final class ResourceGroupManager extends BaseObject {
 	
 	private static final String DTag = "ResourceGroupManager"; 
 	
+	private static final int LOADER_THREAD_COUNT = 2;
+	
+	// time the render thread spends loading resources of an async load per frame
+	private static final long LOAD_FRAME_BUDGET = 8000000L;
+	
+	/**
+	 * Handle of a loadGroupAsync, this is also the task that runs the load on the loader threads.
+	 */
+	public final class AsyncGroupLoad implements Runnable, SurfaceReadyCallback {
+		private final ResourceGroup group;
+		private final ArrayList<Resource[]> stages;
+		private final int totalCount;
+		private final AsyncGroupLoadListener listener;
+		private ExecutorService pool;
+		
+		private final AtomicInteger preparedCount;
+		private volatile int loadedCount;
+		private volatile boolean cancelled;
+		private volatile boolean done;
+		private volatile Exception error;
+		
+		// current stage, the prepare counters are per stage so a late helper can't mix them up
+		private int stageIndex;
+		private Resource[] stage;
+		private final AtomicInteger[] prepareIndices;
+		private final AtomicInteger[] prepareFinished;
+		private int loadIndex;
+		private boolean loadPending;
+		
+		private final Runnable prepareHelper;
+		
+		AsyncGroupLoad(ResourceGroup group, ArrayList<Resource[]> stages, int totalCount, AsyncGroupLoadListener listener) {
+			this.group = group;
+			this.stages = stages;
+			this.totalCount = totalCount;
+			this.listener = listener;
+			
+			preparedCount = new AtomicInteger(0);
+			
+			final int stageCount = stages.size();
+			prepareIndices = new AtomicInteger[stageCount];
+			prepareFinished = new AtomicInteger[stageCount];
+			for(int i = 0; i < stageCount; i++) {
+				prepareIndices[i] = new AtomicInteger(0);
+				prepareFinished[i] = new AtomicInteger(0);
+			}
+			
+			stageIndex = -1;
+			
+			prepareHelper = new Runnable() {
+				public void run() {
+					prepareStage();
+				}
+			};
+		}
+		
+		public String getGroupName() {
+			return group.name;
+		}
+		
+		/** Number of resources this load goes through. */
+		public int getTotalCount() {
+			return totalCount;
+		}
+		
+		public int getPreparedCount() {
+			return preparedCount.get();
+		}
+		
+		public int getLoadedCount() {
+			return loadedCount;
+		}
+		
+		/** [0, 1] fraction of the resources loaded. */
+		public float getProgress() {
+			return totalCount > 0 ? (float)loadedCount / totalCount : 1.0f;
+		}
+		
+		/** True once the load finished, was cancelled or failed. */
+		public boolean isDone() {
+			return done;
+		}
+		
+		public boolean isCancelled() {
+			return cancelled;
+		}
+		
+		/** The exception that stopped the load, null if there was none. */
+		public Exception getError() {
+			return error;
+		}
+		
+		/**
+		 * Stops the load as soon as possible, resources already loaded stay loaded, use
+		 * unloadGroup to release them.
+		 */
+		public void cancel() {
+			synchronized(this) {
+				cancelled = true;
+				notifyAll();
+			}
+		}
+		
+		/** Blocks until the load is done.  Don't call this from the render thread. */
+		public void waitUntilDone() throws InterruptedException {
+			synchronized(this) {
+				while(!done) {
+					wait();
+				}
+			}
+		}
+		
+		/** Coordinates the stages, runs on a loader thread. */
+		public void run() {
+			final int stageCount = stages.size();
+			
+			_fireResourceGroupLoadStarted(group.name, totalCount);
+			
+			try {
+				for(int i = 0; i < stageCount && !cancelled; i++) {
+					final Resource[] stage = stages.get(i);
+					
+					// prepare, the other loader threads help out if they're free
+					synchronized(this) {
+						this.stage = stage;
+						stageIndex = i;
+					}
+					
+					for(int n = 1; n < LOADER_THREAD_COUNT && n < stage.length; n++) {
+						pool.execute(prepareHelper);
+					}
+					
+					prepareStage();
+					
+					synchronized(this) {
+						while(prepareFinished[i].get() < stage.length && !cancelled) {
+							wait();
+						}
+					}
+					
+					// load on the render thread
+					loadIndex = 0;
+					while(loadIndex < stage.length && !cancelled) {
+						synchronized(this) {
+							loadPending = true;
+						}
+						
+						((MateActivity)systemRegistry.contextParameters.context).requestSurfaceReadyCall(this);
+						
+						synchronized(this) {
+							while(loadPending && !cancelled) {
+								wait();
+							}
+						}
+					}
+				}
+			} catch(Exception e) {
+				DebugLog.e(DTag, "loadGroupAsync: " + group.name + " failed: " + e.toString(), e);
+				error = e;
+				cancelled = true;
+			}
+			
+			finish();
+		}
+		
+		/** Prepare resources of the current stage until there are none left, runs on loader threads. */
+		private void prepareStage() {
+			final Resource[] stage;
+			final int stageIndex;
+			synchronized(this) {
+				stage = this.stage;
+				stageIndex = this.stageIndex;
+			}
+			
+			if(stage == null) {
+				return;
+			}
+			
+			final AtomicInteger prepareIndex = prepareIndices[stageIndex];
+			final AtomicInteger prepareFinished = this.prepareFinished[stageIndex];
+			
+			int i;
+			while((i = prepareIndex.getAndIncrement()) < stage.length) {
+				try {
+					if(!cancelled) {
+						final Resource res = stage[i];
+						final boolean unprepared = res.getLoadingStatus() == Resource.StatusUnloaded;
+						
+						res.prepare(true);
+						
+						if(unprepared) {
+							res.firePreparingComplete(true);
+						}
+						
+						preparedCount.incrementAndGet();
+						fireProgress();
+					}
+				} catch(Exception e) {
+					DebugLog.e(DTag, "loadGroupAsync: " + group.name + " failed to prepare: " + stage[i].id, e);
+					error = e;
+					cancel();
+				} finally {
+					if(prepareFinished.incrementAndGet() == stage.length) {
+						synchronized(this) {
+							notifyAll();
+						}
+					}
+				}
+			}
+		}
+		
+		/** Loads part of the current stage, runs on the render thread. */
+		@Override
+		public void onSurfaceReady() {
+			final Resource[] stage = this.stage;
+			final long deadline = System.nanoTime() + LOAD_FRAME_BUDGET;
+			
+			try {
+				while(stage != null && loadIndex < stage.length && !cancelled) {
+					final Resource res = stage[loadIndex++];
+					
+					_fireResourceLoadStarted(res);
+					
+					res.load(true);
+					res.isBackgroundLoaded(false);
+					res.fireLoadingComplete(true);
+					
+					_fireResourceLoadEnded();
+					
+					loadedCount++;
+					fireProgress();
+					
+					if(System.nanoTime() >= deadline) {
+						break;
+					}
+				}
+			} catch(Exception e) {
+				DebugLog.e(DTag, "loadGroupAsync: " + group.name + " failed to load: " + stage[loadIndex - 1].id, e);
+				error = e;
+				cancelled = true;
+			}
+			
+			synchronized(this) {
+				loadPending = false;
+				notifyAll();
+			}
+		}
+		
+		private void fireProgress() {
+			if(listener != null) {
+				listener.resourceGroupLoadProgress(this);
+			}
+		}
+		
+		private void finish() {
+			// anything left over goes back to loading on demand
+			final int stageCount = stages.size();
+			for(int i = 0; i < stageCount; i++) {
+				final Resource[] stage = stages.get(i);
+				for(int n = 0; n < stage.length; n++) {
+					stage[n].isBackgroundLoaded(false);
+				}
+			}
+			
+			synchronized(group) {
+				group.status = cancelled ? ResourceGroup.StatusInitialized : ResourceGroup.StatusLoaded;
+			}
+			
+			synchronized(ResourceGroupManager.this) {
+				asyncLoads.remove(this);
+			}
+			
+			_fireResourceGroupLoadEnded(group.name);
+			
+			synchronized(this) {
+				stage = null;
+				done = true;
+				notifyAll();
+			}
+			
+			if(listener != null) {
+				listener.resourceGroupLoadFinished(this);
+			}
+			
+			DebugLog.i(DTag, "Finished loading resource group asynchronously: " + group.name 
+					+ " loaded: " + loadedCount + "/" + totalCount + (cancelled ? " (cancelled)" : ""));
+		}
+	}
+	
 	// resourceGroupElement: resource declaration list, resource load order
 	private final class ResourceGroup {
 		
@@ -1454,6 +1880,10 @@ public final class ResourceGroupManager extends BaseObject {
 	
 	private final HashMap<String, ResourceGroup> resGroupMap;
 	
+	private ExecutorService loaderPool;
+	
+	private final LinkedList<AsyncGroupLoad> asyncLoads;
+	
 	// Stored current group - optimisation for when bulk loading a group
 	private ResourceGroup currentGroup;
 }
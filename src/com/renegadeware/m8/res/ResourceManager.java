@@ -2,6 +2,7 @@ package com.renegadeware.m8.res;
 
 import com.renegadeware.m8.DebugLog;
 import com.renegadeware.m8.R;
+import com.renegadeware.m8.TimeSystem;
 import com.renegadeware.m8.obj.BaseObject;
 import com.renegadeware.m8.res.Resource.ResourceException;
 
@@ -112,12 +113,19 @@ public abstract class ResourceManager extends BaseObject implements ScriptLoader
      * budget, it will temporarily unload a resource to make room for the new one. This unloading
      * is not permanent and the Resource is not destroyed; it simply needs to be reloaded when
      * next used.
+     * <p>
+     * Resources are unloaded least recently touched first, skipping pinned and non-reloadable
+     * resources as well as those touched in the last frame.  Eviction happens after a load, on
+     * the loading thread, since that's where resources of this type can be unloaded.  A budget
+     * of 0 (the default) means no limit.
      *
 	 * @param bytes Number of bytes to limit.
+	 * 
+	 * @see Resource#touch
+	 * @see Resource#setPinned
 	 */
 	public void setMemoryBudget(int bytes) {
 		memoryBudget = bytes;
-		checkUsage();
 	}
 	
 	/** Get the memory budget number of bytes. */
@@ -130,6 +138,27 @@ public abstract class ResourceManager extends BaseObject implements ScriptLoader
 		return memoryUsage;
 	}
 	
+	/** Number of touches that found the resource loaded, counted once per resource per frame. */
+	public int getHitCount() {
+		return hitCount;
+	}
+	
+	/** Number of touches that had to load the resource. */
+	public int getMissCount() {
+		return missCount;
+	}
+	
+	/** Number of resources unloaded to stay within the memory budget. */
+	public int getEvictionCount() {
+		return evictionCount;
+	}
+	
+	public synchronized void resetStats() {
+		hitCount = 0;
+		missCount = 0;
+		evictionCount = 0;
+	}
+	
 	/**
 	 * Unloads a single resource by id.
 	 * <p>
@@ -263,6 +292,10 @@ public abstract class ResourceManager extends BaseObject implements ScriptLoader
 	
 	/** Removes all resources. */
 	public synchronized void removeAll() {
+		while(lruHead != null) {
+			lruRemove(lruHead);
+		}
+		
 		resources.clear();
 		
 		systemRegistry.resourceGroupManager.notifyAllResourcesRemoved(this);
@@ -292,18 +325,54 @@ public abstract class ResourceManager extends BaseObject implements ScriptLoader
 		return resources.get(getResourceIdByName(name)) != null;
 	}
 	
-	/** Use in Resource only!<p>Notify this manager that a resource which it manages has been * 'touched', i.e. used. */
-	public void notifyResourceTouched(Resource res) {
+	/**
+	 * Use in Resource only!<p>Notify this manager that a resource which it manages has been 'touched', i.e. used.
+	 * 
+	 * @param wasLoaded Whether the resource was already loaded when touched.
+	 */
+	public void notifyResourceTouched(Resource res, boolean wasLoaded) {
+		final int frame = currentFrame();
+		
+		// only the first touch of a frame needs the lock
+		if(wasLoaded && res.lastTouchedFrame == frame) {
+			return;
+		}
+		
+		synchronized (this) {
+			res.lastTouchedFrame = frame;
+			
+			if(wasLoaded) {
+				hitCount++;
+			}
+			else {
+				missCount++;
+			}
+			
+			if(res.isLoaded()) {
+				lruRemove(res);
+				lruAddFirst(res);
+			}
+		}
 	}
 
 	/** Use in Resource only!<p>Notify this manager that a resource which it manages has been loaded. */
-	public synchronized void notifyResourceLoaded(Resource res) {
-	    memoryUsage += res.getSize();
+	public void notifyResourceLoaded(Resource res) {
+		synchronized (this) {
+			memoryUsage += res.getSize();
+			
+			res.lastTouchedFrame = currentFrame();
+			lruRemove(res);
+			lruAddFirst(res);
+		}
+		
+		checkUsage();
 	}
 
 	/** Use in Resource only!<p>Notify this manager that a resource which it manages has been unloaded. */
 	public synchronized void notifyResourceUnloaded(Resource res) {
 	    memoryUsage -= res.getSize();
+	    
+	    lruRemove(res);
 	}
 	
 	/**
@@ -495,13 +564,100 @@ public abstract class ResourceManager extends BaseObject implements ScriptLoader
      protected synchronized void removeImpl(Resource res) {   	 
     	 resources.delete(res.id);
     	 
+    	 lruRemove(res);
+    	 
     	 // notify the group manager
     	 systemRegistry.resourceGroupManager.notifyResourceRemoved(res);
      }
      
      /** Checks memory usage and pages out if required. */
      protected void checkUsage() {
+    	 if(memoryBudget <= 0) {
+    		 return;
+    	 }
+    	 
+    	 final int frame = currentFrame();
     	 
+    	 while(true) {
+    		 Resource victim = null;
+    		 
+    		 synchronized (this) {
+    			 if(memoryUsage <= memoryBudget) {
+    				 break;
+    			 }
+    			 
+    			 for(Resource res = lruTail; res != null; res = res.lruPrev) {
+    				 // touched last frame or later, could still be drawing
+    				 if(frame - res.lastTouchedFrame <= 1) {
+    					 break;
+    				 }
+    				 
+    				 if(!res.isPinned() && res.isReloadable() && res.isLoaded()) {
+    					 victim = res;
+    					 break;
+    				 }
+    			 }
+    			 
+    			 if(victim == null) {
+    				 if(verbose) {
+    					 DebugLog.w(DTag, name()+" over budget: "+memoryUsage+"/"+memoryBudget+" with nothing to evict.");
+    				 }
+    				 break;
+    			 }
+    			 
+    			 // off the list now so it isn't picked again if the unload doesn't go through
+    			 lruRemove(victim);
+    			 
+    			 evictionCount++;
+    		 }
+    		 
+    		 victim.unload();
+    	 }
+     }
+     
+     /**
+      * The frame the LRU and the eviction guard count in, the time system's by default.  Managers
+      * of resources used by the renderer count render frames instead.
+      */
+     protected int currentFrame() {
+    	 final TimeSystem time = systemRegistry.timeSystem;
+    	 return time != null ? time.getFrameCount() : 0;
+     }
+     
+     // most recently used at the head
+     private void lruAddFirst(Resource res) {
+    	 res.lruPrev = null;
+    	 res.lruNext = lruHead;
+    	 if(lruHead != null) {
+    		 lruHead.lruPrev = res;
+    	 }
+    	 else {
+    		 lruTail = res;
+    	 }
+    	 lruHead = res;
+     }
+     
+     private void lruRemove(Resource res) {
+    	 if(res.lruPrev != null) {
+    		 res.lruPrev.lruNext = res.lruNext;
+    	 }
+    	 else if(lruHead == res) {
+    		 lruHead = res.lruNext;
+    	 }
+    	 else {
+    		 // not in the list
+    		 return;
+    	 }
+    	 
+    	 if(res.lruNext != null) {
+    		 res.lruNext.lruPrev = res.lruPrev;
+    	 }
+    	 else {
+    		 lruTail = res.lruPrev;
+    	 }
+    	 
+    	 res.lruPrev = null;
+    	 res.lruNext = null;
      }
 	
     /* **********************************************************************************************
@@ -513,7 +669,14 @@ public abstract class ResourceManager extends BaseObject implements ScriptLoader
     protected SparseArray<Resource> resources;
 	
 	private int memoryUsage;
-	private int memoryBudget;
+	private volatile int memoryBudget;
+	
+	private Resource lruHead;
+	private Resource lruTail;
+	
+	private volatile int hitCount;
+	private volatile int missCount;
+	private volatile int evictionCount;
 	
 	private boolean verbose;
 	
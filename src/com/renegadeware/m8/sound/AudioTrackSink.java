@@ -0,0 +1,55 @@
+package com.renegadeware.m8.sound;
+
+import android.media.AudioFormat;
+import android.media.AudioManager;
+import android.media.AudioTrack;
+
+/**
+ * Streams the mixed frames to a stereo 16 bit AudioTrack.
+ */
+public class AudioTrackSink implements PcmSink {
+	private final int sampleRate;
+	private final AudioTrack track;
+
+	public AudioTrackSink(int sampleRate) {
+		this.sampleRate = sampleRate;
+
+		final int minSize = AudioTrack.getMinBufferSize(sampleRate,
+				AudioFormat.CHANNEL_OUT_STEREO, AudioFormat.ENCODING_PCM_16BIT);
+
+		track = new AudioTrack(AudioManager.STREAM_MUSIC, sampleRate,
+				AudioFormat.CHANNEL_OUT_STEREO, AudioFormat.ENCODING_PCM_16BIT,
+				minSize > 0 ? minSize : sampleRate, AudioTrack.MODE_STREAM);
+
+		track.play();
+	}
+
+	public int getSampleRate() {
+		return sampleRate;
+	}
+
+	public void write(short[] buffer, int frames) {
+		int offset = 0;
+		final int size = frames*2;
+		while(offset < size) {
+			final int written = track.write(buffer, offset, size - offset);
+			if(written <= 0) {
+				break;
+			}
+			offset += written;
+		}
+	}
+
+	public void pause() {
+		track.pause();
+	}
+
+	public void resume() {
+		track.play();
+	}
+
+	public void release() {
+		track.stop();
+		track.release();
+	}
+}
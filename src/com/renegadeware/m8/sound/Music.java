@@ -0,0 +1,87 @@
+package com.renegadeware.m8.sound;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.renegadeware.m8.DebugLog;
+import com.renegadeware.m8.res.ManualResourceLoader;
+import com.renegadeware.m8.res.Resource;
+import com.renegadeware.m8.res.ResourceManager;
+
+/**
+ * A music track, streamed from its raw resource while it plays.  Loading only reads the format,
+ * the samples are never held in memory.  The resource must be an uncompressed 16 bit WAV.
+ * 
+ * @see MusicManager
+ */
+public class Music extends Resource {
+	private int channels;
+	private int sampleRate;
+	private int dataSize;
+
+	public Music(ResourceManager creator, int id, String group,
+			boolean isManual, ManualResourceLoader loader) {
+		super(creator, id, group, isManual, loader);
+	}
+	
+	/**
+	 * Play this track, crossfading from the one playing.
+	 * 
+	 * @param fadeSeconds 0 to cut.
+	 */
+	public void play(float fadeSeconds) {
+		((MusicManager)getCreator()).play(this, fadeSeconds);
+	}
+	
+	/**
+	 * @return Seconds, played once.
+	 */
+	public float getDuration() {
+		return sampleRate > 0 ? dataSize / (float)(channels*2*sampleRate) : 0.0f;
+	}
+	
+	public float getVolume() {
+		return params != null ? ((MusicParam)params).volume : 1.0f;
+	}
+	
+	public boolean isLooping() {
+		return params != null ? ((MusicParam)params).loop : true;
+	}
+	
+	boolean isPlayable() {
+		return dataSize > 0;
+	}
+
+	@Override
+	protected void loadImpl() {
+		final WavHeader header = new WavHeader();
+		
+		InputStream is = systemRegistry.contextParameters.context.getResources().openRawResource(id);
+		try {
+			if(header.read(is)) {
+				channels = header.channels;
+				sampleRate = header.sampleRate;
+				dataSize = header.dataSize;
+			}
+		} catch(IOException e) {
+			DebugLog.e("Music", "Unable to read music: " + id, e);
+		} finally {
+			try {
+				is.close();
+			} catch(IOException e) {
+			}
+		}
+	}
+
+	@Override
+	protected void unloadImpl() {
+		channels = 0;
+		sampleRate = 0;
+		dataSize = 0;
+	}
+
+	@Override
+	protected int calculateSize() {
+		return 0;
+	}
+}
@@ -0,0 +1,411 @@
+package com.renegadeware.m8.sound;
+
+import java.util.concurrent.locks.LockSupport;
+
+import android.content.Context;
+
+import com.renegadeware.m8.res.ManualResourceLoader;
+import com.renegadeware.m8.res.Resource;
+import com.renegadeware.m8.res.ResourceManager;
+
+/**
+ * Manager for streaming music.  Tracks are decoded ahead in chunks by a reader thread into a
+ * fixed set of buffers, and mixed out to a PcmSink by a player thread, so a track costs a few
+ * buffers of memory however long it is.  Two tracks can play at once to crossfade between them.
+ * <p>
+ * Calls only hand a request to the player thread, they don't wait on it.
+ */
+public class MusicManager extends ResourceManager {
+	public static final String Type = "music";
+
+	public static final int DEFAULT_SAMPLE_RATE = 44100;
+
+	private static final int MAX_MUSIC = 1;
+
+	// frames mixed and written at a time
+	private static final int MIX_FRAMES = 1024;
+
+	private final PcmSink sink;
+	private final int sampleRate;
+
+	private final MusicStream[] streams;
+
+	// player thread only
+	private MusicStream current;
+	private MusicStream fading;
+	private int fadeFrames;
+	private int fadePos;
+	private final short[] out;
+	private final int[] accum;
+
+	// requests from the game thread
+	private final Object requestLock;
+	private Music requestMusic;
+	private float requestFade;
+	private int requestSerial;
+	private int handledSerial;
+
+	private volatile Music playing;
+	private volatile float volume;
+	private volatile boolean paused;
+	private volatile boolean suspended;
+
+	private volatile int underrunCount;
+	private volatile float bufferFill;
+	private volatile float minBufferFill;
+
+	private final Thread player;
+	private final Thread reader;
+	private volatile boolean shutdown;
+
+	/**
+	 * Plays through an AudioTrack at the default rate.
+	 */
+	public MusicManager() {
+		this(new AudioTrackSink(DEFAULT_SAMPLE_RATE));
+	}
+
+	public MusicManager(PcmSink sink) {
+		super(MAX_MUSIC);
+
+		this.sink = sink;
+		sampleRate = sink.getSampleRate();
+
+		streams = new MusicStream[] { new MusicStream(sampleRate), new MusicStream(sampleRate) };
+
+		out = new short[MIX_FRAMES*2];
+		accum = new int[MIX_FRAMES*2];
+
+		requestLock = new Object();
+
+		volume = 1.0f;
+		minBufferFill = 1.0f;
+
+		player = new Thread(new Runnable() {
+			public void run() {
+				runPlayer();
+			}
+		});
+		player.setName("Mate Music");
+		player.setDaemon(true);
+
+		reader = new Thread(new Runnable() {
+			public void run() {
+				runReader();
+			}
+		});
+		reader.setName("Mate Music Reader");
+		reader.setDaemon(true);
+
+		player.start();
+		reader.start();
+	}
+
+	/**
+	 * Play the track, crossfading from the one playing.  A crossfade still in progress is cut.
+	 *
+	 * @param fadeSeconds 0 to cut.
+	 */
+	public void play(Music music, float fadeSeconds) {
+		request(music != null && music.isPlayable() ? music : null, fadeSeconds);
+	}
+
+	/**
+	 * @param fadeSeconds 0 to cut.
+	 */
+	public void stop(float fadeSeconds) {
+		request(null, fadeSeconds);
+	}
+
+	/** The track playing, null once it ends or is stopped. */
+	public Music getPlaying() {
+		return playing;
+	}
+
+	/**
+	 * @param volume [0.0, 1.0], scales every track's own volume.
+	 */
+	public void setVolume(float volume) {
+		this.volume = volume;
+	}
+
+	public float getVolume() {
+		return volume;
+	}
+
+	public void pause() {
+		paused = true;
+	}
+
+	public void resume() {
+		paused = false;
+		LockSupport.unpark(player);
+	}
+
+	public boolean isPaused() {
+		return paused;
+	}
+
+	/**
+	 * Pause while the game thread is paused, apart from pause so that resuming the game doesn't
+	 * resume music the game paused.
+	 */
+	public void setSuspended(boolean suspended) {
+		this.suspended = suspended;
+		if(!suspended) {
+			LockSupport.unpark(player);
+		}
+	}
+
+	/** Number of times the playing track ran out of decoded buffers. */
+	public int getUnderrunCount() {
+		return underrunCount;
+	}
+
+	/**
+	 * Portion of the playing track's buffers that are decoded ahead.
+	 *
+	 * @return [0.0, 1.0]
+	 */
+	public float getBufferFill() {
+		return bufferFill;
+	}
+
+	/** Lowest buffer fill since the stats were reset. */
+	public float getMinBufferFill() {
+		return minBufferFill;
+	}
+
+	/** Number of buffers decoded so far. */
+	public int getFilledBufferCount() {
+		return streams[0].getFilledCount() + streams[1].getFilledCount();
+	}
+
+	@Override
+	public synchronized void resetStats() {
+		super.resetStats();
+
+		underrunCount = 0;
+		minBufferFill = 1.0f;
+	}
+
+	@Override
+	public void reset() {
+		super.reset();
+
+		//stops the threads, the player releases the sink
+		shutdown = true;
+		LockSupport.unpark(player);
+		LockSupport.unpark(reader);
+	}
+
+	@Override
+	public int loadingOrder() {
+		return DEFAULT_ORDER_AUDIO;
+	}
+
+	@Override
+	public String name() {
+		return Type;
+	}
+
+	@Override
+	public String defType() {
+		return "raw";
+	}
+
+	@Override
+	protected Resource createImpl(int id, String group, boolean isManual,
+			ManualResourceLoader loader, Resource.Param params) {
+		Music ret = new Music(this, id, group, isManual, loader);
+		ret.setParameters(params);
+
+		return ret;
+	}
+
+	private void request(Music music, float fadeSeconds) {
+		synchronized(requestLock) {
+			requestMusic = music;
+			requestFade = fadeSeconds;
+			requestSerial++;
+		}
+
+		LockSupport.unpark(player);
+	}
+
+	/* ******************
+	 * Player thread
+	 */
+
+	private void runPlayer() {
+		boolean sinkPaused = false;
+
+		while(!shutdown) {
+			handleRequest();
+
+			if(paused || suspended) {
+				if(!sinkPaused) {
+					sink.pause();
+					sinkPaused = true;
+				}
+				LockSupport.park(this);
+				continue;
+			}
+
+			if(current == null && fading == null) {
+				LockSupport.park(this);
+				continue;
+			}
+
+			if(sinkPaused) {
+				sink.resume();
+				sinkPaused = false;
+			}
+
+			mix();
+
+			// blocks until the device takes it, which paces this thread
+			sink.write(out, MIX_FRAMES);
+		}
+
+		sink.release();
+	}
+
+	private void handleRequest() {
+		final Music music;
+		final float fade;
+
+		synchronized(requestLock) {
+			if(requestSerial == handledSerial) {
+				return;
+			}
+
+			handledSerial = requestSerial;
+			music = requestMusic;
+			fade = requestFade;
+			requestMusic = null;
+		}
+
+		if(fading != null) {
+			release(fading);
+			fading = null;
+		}
+
+		final int frames = (int)(fade*sampleRate);
+
+		if(current != null) {
+			if(frames > 0) {
+				fading = current;
+			}
+			else {
+				release(current);
+			}
+			current = null;
+		}
+
+		if(music != null) {
+			current = streams[0] != fading ? streams[0] : streams[1];
+			current.assign(music, music.isLooping());
+			LockSupport.unpark(reader);
+		}
+
+		playing = music;
+
+		fadeFrames = frames;
+		fadePos = 0;
+	}
+
+	private void release(MusicStream stream) {
+		stream.assign(null, false);
+		LockSupport.unpark(reader);
+	}
+
+	private void mix() {
+		final int[] accum = this.accum;
+		final int size = MIX_FRAMES*2;
+
+		for(int i = 0; i < size; i++) {
+			accum[i] = 0;
+		}
+
+		final float volume = this.volume;
+		final float t = fadeFrames > 0 ? fadePos / (float)fadeFrames : 1.0f;
+
+		if(current != null) {
+			final float max = volume*current.getMusic().getVolume();
+			final int n = current.mix(accum, MIX_FRAMES, t < 1.0f ? t*max : max, fadeFrames > 0 ? max/fadeFrames : 0, max);
+
+			if(n < MIX_FRAMES) {
+				if(current.isEnded()) {
+					release(current);
+					current = null;
+					playing = null;
+				}
+				else if(current.isStarted()) {
+					underrunCount++;
+				}
+			}
+		}
+
+		if(fading != null) {
+			final float max = volume*fading.getMusic().getVolume();
+			final int n = fading.mix(accum, MIX_FRAMES, (1.0f - t)*max, -max/fadeFrames, max);
+
+			if(n < MIX_FRAMES && fading.isEnded()) {
+				release(fading);
+				fading = null;
+			}
+		}
+
+		if(fadeFrames > 0) {
+			fadePos += MIX_FRAMES;
+			if(fadePos >= fadeFrames) {
+				fadeFrames = 0;
+
+				if(fading != null) {
+					release(fading);
+					fading = null;
+				}
+			}
+		}
+
+		if(current != null) {
+			final float fill = current.getBufferedCount() / (float)MusicStream.BUFFER_COUNT;
+			bufferFill = fill;
+			if(current.isStarted() && fill < minBufferFill) {
+				minBufferFill = fill;
+			}
+		}
+
+		for(int i = 0; i < size; i++) {
+			final int v = accum[i];
+			out[i] = (short)(v > Short.MAX_VALUE ? Short.MAX_VALUE : (v < Short.MIN_VALUE ? Short.MIN_VALUE : v));
+		}
+
+		// the mix freed buffers
+		LockSupport.unpark(reader);
+	}
+
+	/* ******************
+	 * Reader thread
+	 */
+
+	private void runReader() {
+		final Context context = systemRegistry.contextParameters.context;
+
+		while(!shutdown) {
+			boolean busy = false;
+			for(int i = 0; i < streams.length; i++) {
+				busy |= streams[i].fill(context);
+			}
+
+			if(!busy) {
+				LockSupport.park(this);
+			}
+		}
+
+		for(int i = 0; i < streams.length; i++) {
+			streams[i].close();
+		}
+	}
+}
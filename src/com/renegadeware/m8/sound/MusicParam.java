@@ -0,0 +1,8 @@
+package com.renegadeware.m8.sound;
+
+import com.renegadeware.m8.res.Resource;
+
+public final class MusicParam implements Resource.Param {
+	public float volume = 1.0f; //range [0.0, 1.0]
+	public boolean loop = true;
+}
@@ -0,0 +1,323 @@
+package com.renegadeware.m8.sound;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import android.content.Context;
+
+import com.renegadeware.m8.DebugLog;
+
+/**
+ * One track being streamed by the MusicManager.  The reader thread decodes the track ahead in
+ * chunks into a fixed ring of buffers, converted to stereo at the output rate, and the player
+ * thread mixes them out.  The buffers are allocated once and reused for every track played on
+ * this stream.
+ * <p>
+ * The player assigns a track by bumping the generation, buffers decoded for an older generation
+ * are skipped, so a track can be replaced without waiting on the reader.  A looping track is
+ * reopened as soon as its data runs out, while the buffers ahead of it are still playing, so the
+ * loop has no gap.
+ */
+final class MusicStream {
+	static final int BUFFER_COUNT = 4;
+	static final int BUFFER_FRAMES = 4096;
+
+	// source frames read at a time
+	private static final int SOURCE_FRAMES = 2048;
+
+	private static final int FRAC_BITS = 16;
+
+	private final int outRate;
+
+	private final short[][] buffers;
+	private final int[] bufferFrames;
+	private final int[] bufferGenerations;
+
+	// the player writes head, the reader writes tail
+	private volatile int head;
+	private volatile int tail;
+
+	// written by the player, the generation write publishes the rest
+	private Music music;
+	private boolean loop;
+	private volatile int generation;
+
+	// last generation the reader reached the end of
+	private volatile int endedGeneration;
+
+	// reader only
+	private int openGeneration;
+	private Music openMusic;
+	private boolean openLoop;
+	private InputStream input;
+	private final WavHeader header;
+	private int remaining;
+	private final byte[] sourceBytes;
+	private int sourceFrames;
+	private long sourcePos;
+	private long step;
+	private volatile int filledCount;
+
+	// player only
+	private int readOffset;
+	private boolean started;
+
+	MusicStream(int outRate) {
+		this.outRate = outRate;
+
+		buffers = new short[BUFFER_COUNT][BUFFER_FRAMES*2];
+		bufferFrames = new int[BUFFER_COUNT];
+		bufferGenerations = new int[BUFFER_COUNT];
+
+		header = new WavHeader();
+		sourceBytes = new byte[SOURCE_FRAMES*4];
+
+		endedGeneration = -1;
+	}
+
+	/* ******************
+	 * Player thread
+	 */
+
+	/**
+	 * Start streaming the track, or stop with null.  The reader has to be woken up after.
+	 */
+	void assign(Music music, boolean loop) {
+		this.music = music;
+		this.loop = loop;
+
+		// drop what's buffered, anything the reader is still decoding is skipped by its generation
+		head = tail;
+		readOffset = 0;
+		started = false;
+
+		generation = generation + 1;
+	}
+
+	Music getMusic() {
+		return music;
+	}
+
+	/** Whether the track played through to its end. */
+	boolean isEnded() {
+		return endedGeneration == generation && head == tail;
+	}
+
+	/** Whether the track has delivered its first frames, underruns only count after. */
+	boolean isStarted() {
+		return started;
+	}
+
+	/** Number of decoded buffers waiting to be played. */
+	int getBufferedCount() {
+		return tail - head;
+	}
+
+	/** Number of buffers the reader has decoded. */
+	int getFilledCount() {
+		return filledCount;
+	}
+
+	/**
+	 * Adds up to frames of the track into accum, gain moves by gainStep every frame within
+	 * [0, gainMax].
+	 *
+	 * @return The number of frames mixed, less than frames if the buffers ran out.
+	 */
+	int mix(int[] accum, int frames, float gain, float gainStep, float gainMax) {
+		final int gen = generation;
+
+		int f = 0;
+		while(f < frames) {
+			final int h = head;
+			if(h == tail) {
+				break;
+			}
+
+			final int i = h % BUFFER_COUNT;
+			if(bufferGenerations[i] != gen) {
+				head = h + 1;
+				readOffset = 0;
+				continue;
+			}
+
+			final short[] buffer = buffers[i];
+			final int count = bufferFrames[i];
+
+			int n = count - readOffset;
+			if(n > frames - f) {
+				n = frames - f;
+			}
+
+			int src = readOffset*2;
+			final int end = (f + n)*2;
+			for(int dst = f*2; dst < end; dst += 2) {
+				accum[dst] += (int)(buffer[src++]*gain);
+				accum[dst+1] += (int)(buffer[src++]*gain);
+
+				gain += gainStep;
+				if(gain < 0) {
+					gain = 0;
+				}
+				else if(gain > gainMax) {
+					gain = gainMax;
+				}
+			}
+
+			readOffset += n;
+			f += n;
+			started = true;
+
+			if(readOffset == count) {
+				// lets the reader refill the buffer
+				head = h + 1;
+				readOffset = 0;
+			}
+		}
+
+		return f;
+	}
+
+	/* ******************
+	 * Reader thread
+	 */
+
+	/**
+	 * Opens a newly assigned track, or decodes the next buffer if there is room.
+	 *
+	 * @return false if there was nothing to do.
+	 */
+	boolean fill(Context context) {
+		final int gen = generation;
+
+		if(gen != openGeneration) {
+			close();
+			openGeneration = gen;
+			openMusic = music;
+			openLoop = loop;
+
+			if(openMusic != null && !open(context)) {
+				endedGeneration = gen;
+			}
+
+			return true;
+		}
+
+		if(input == null || tail - head >= BUFFER_COUNT) {
+			return false;
+		}
+
+		final int t = tail;
+		final int i = t % BUFFER_COUNT;
+		final short[] buffer = buffers[i];
+
+		boolean eof = false;
+
+		int f = 0;
+		while(f < BUFFER_FRAMES) {
+			final int index = (int)(sourcePos >> FRAC_BITS);
+			if(index >= sourceFrames) {
+				sourcePos -= (long)sourceFrames << FRAC_BITS;
+				if(!readChunk(context)) {
+					eof = true;
+					break;
+				}
+				continue;
+			}
+
+			final int b = index*header.channels*2;
+			final short l = WavHeader.readShort(sourceBytes, b);
+			final short r = header.channels == 2 ? WavHeader.readShort(sourceBytes, b + 2) : l;
+
+			buffer[f*2] = l;
+			buffer[f*2+1] = r;
+			f++;
+
+			sourcePos += step;
+		}
+
+		if(f > 0) {
+			bufferFrames[i] = f;
+			bufferGenerations[i] = gen;
+
+			// publishes the buffer to the player
+			tail = t + 1;
+			filledCount++;
+		}
+
+		if(eof) {
+			close();
+			endedGeneration = gen;
+		}
+
+		return true;
+	}
+
+	void close() {
+		if(input != null) {
+			try {
+				input.close();
+			} catch(IOException e) {
+			}
+			input = null;
+		}
+	}
+
+	private boolean open(Context context) {
+		sourcePos = 0;
+		sourceFrames = 0;
+
+		if(!reopen(context)) {
+			return false;
+		}
+
+		step = ((long)header.sampleRate << FRAC_BITS) / outRate;
+		return true;
+	}
+
+	private boolean reopen(Context context) {
+		close();
+
+		input = context.getResources().openRawResource(openMusic.id);
+		try {
+			if(!header.read(input)) {
+				close();
+				return false;
+			}
+		} catch(IOException e) {
+			DebugLog.e("MusicStream", "Unable to open music: " + openMusic.id, e);
+			close();
+			return false;
+		}
+
+		remaining = header.dataSize;
+		return true;
+	}
+
+	/** Reads the next chunk of source frames, from the start again when looping. */
+	private boolean readChunk(Context context) {
+		if(remaining == 0) {
+			if(!openLoop || !reopen(context) || remaining == 0) {
+				return false;
+			}
+		}
+
+		final int frameSize = header.channels*2;
+
+		int bytes = SOURCE_FRAMES*frameSize;
+		if(bytes > remaining) {
+			bytes = remaining;
+		}
+
+		try {
+			WavHeader.readFully(input, sourceBytes, bytes);
+		} catch(IOException e) {
+			DebugLog.e("MusicStream", "Unable to read music: " + openMusic.id, e);
+			return false;
+		}
+
+		remaining -= bytes;
+		sourceFrames = bytes / frameSize;
+		return true;
+	}
+}
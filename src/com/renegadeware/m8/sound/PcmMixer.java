@@ -0,0 +1,356 @@
+package com.renegadeware.m8.sound;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import android.content.Context;
+
+import com.renegadeware.m8.DebugLog;
+
+/**
+ * Mixes 16 bit PCM samples in software and writes the result to a PcmSink.  Samples are loaded
+ * from uncompressed WAV raw resources, or given directly with load(short[], int, int).  Rate is
+ * applied by linear resampling, volume in fixed point, and the mix is clamped to 16 bit.
+ * <p>
+ * Nothing is allocated while mixing.  Give it a fake sink to run the mixing without a device.
+ */
+public class PcmMixer implements VoiceOutput {
+	public static final int DEFAULT_SAMPLE_RATE = 22050;
+	public static final int DEFAULT_BUFFER_FRAMES = 512;
+
+	// channel id: (generation << CHANNEL_BITS) | (index + 1)
+	private static final int CHANNEL_BITS = 8;
+	private static final int CHANNEL_MASK = (1 << CHANNEL_BITS) - 1;
+
+	private static final int FRAC_BITS = 16;
+	private static final int VOLUME_BITS = 8;
+
+	private final PcmSink sink;
+	private final int outRate;
+
+	// sample id - 1 -> sample, replaced whole by the loading thread
+	private volatile Sample[] samples;
+
+	// channels, audio thread only
+	private final Sample[] channelSamples;
+	private final long[] positions;
+	private final long[] steps;
+	private final int[] volumes;
+	private final int[] loops;
+	private final boolean[] paused;
+	private final int[] generations;
+
+	private final short[] buffer;
+	private final int[] accum;
+
+	/**
+	 * @param maxChannels At most 255.
+	 * @param bufferFrames Frames mixed and written per update.
+	 */
+	public PcmMixer(PcmSink sink, int maxChannels, int bufferFrames) {
+		if(maxChannels > CHANNEL_MASK) {
+			maxChannels = CHANNEL_MASK;
+		}
+
+		this.sink = sink;
+		outRate = sink.getSampleRate();
+
+		samples = new Sample[0];
+
+		channelSamples = new Sample[maxChannels];
+		positions = new long[maxChannels];
+		steps = new long[maxChannels];
+		volumes = new int[maxChannels];
+		loops = new int[maxChannels];
+		paused = new boolean[maxChannels];
+		generations = new int[maxChannels];
+
+		buffer = new short[bufferFrames*2];
+		accum = new int[bufferFrames*2];
+	}
+
+	public int getSampleRate() {
+		return outRate;
+	}
+
+	public int load(Context context, int resId) {
+		final InputStream is = context.getResources().openRawResource(resId);
+		try {
+			return loadWav(is);
+		} catch(IOException e) {
+			DebugLog.e("PcmMixer", "Unable to load sound: " + resId, e);
+			return 0;
+		} finally {
+			try {
+				is.close();
+			} catch(IOException e) {
+			}
+		}
+	}
+
+	/**
+	 * Load uncompressed 16 bit mono or stereo WAV data.
+	 *
+	 * @return The sample id, 0 if the data isn't supported.
+	 */
+	public int loadWav(InputStream is) throws IOException {
+		final WavHeader header = new WavHeader();
+		if(!header.read(is)) {
+			return 0;
+		}
+
+		final byte[] bytes = new byte[header.dataSize];
+		WavHeader.readFully(is, bytes, bytes.length);
+
+		final short[] data = new short[bytes.length/2];
+		for(int i = 0; i < data.length; i++) {
+			data[i] = WavHeader.readShort(bytes, i*2);
+		}
+
+		return load(data, header.channels, header.sampleRate);
+	}
+
+	/**
+	 * Add a sample from data already in memory, the data is kept, not copied.
+	 *
+	 * @param data Interleaved if stereo.
+	 * @param channels 1 or 2
+	 * @return The sample id.
+	 */
+	public synchronized int load(short[] data, int channels, int sampleRate) {
+		final Sample sample = new Sample(data, channels, sampleRate);
+
+		final Sample[] cur = samples;
+		for(int i = 0; i < cur.length; i++) {
+			if(cur[i] == null) {
+				final Sample[] newSamples = cur.clone();
+				newSamples[i] = sample;
+				samples = newSamples;
+				return i + 1;
+			}
+		}
+
+		final Sample[] newSamples = new Sample[cur.length + 8];
+		System.arraycopy(cur, 0, newSamples, 0, cur.length);
+		newSamples[cur.length] = sample;
+		samples = newSamples;
+		return cur.length + 1;
+	}
+
+	/** Channels still playing the sample play it to the end. */
+	public synchronized void unload(int sampleId) {
+		final Sample[] cur = samples;
+		if(sampleId > 0 && sampleId <= cur.length) {
+			final Sample[] newSamples = cur.clone();
+			newSamples[sampleId - 1] = null;
+			samples = newSamples;
+		}
+	}
+
+	public float getDuration(int sampleId) {
+		final Sample sample = getSample(sampleId);
+		return sample != null ? sample.frames / (float)sample.rate : 0.0f;
+	}
+
+	public int start(int sampleId, float volume, int loop, float rate) {
+		final Sample sample = getSample(sampleId);
+		if(sample == null || sample.frames == 0) {
+			return 0;
+		}
+
+		for(int i = 0; i < channelSamples.length; i++) {
+			if(channelSamples[i] == null) {
+				channelSamples[i] = sample;
+				positions[i] = 0;
+				steps[i] = step(sample, rate);
+				volumes[i] = volume(volume);
+				loops[i] = loop;
+				paused[i] = false;
+
+				final int gen = (generations[i] + 1) & (0x7fffffff >>> CHANNEL_BITS);
+				generations[i] = gen;
+
+				return (gen << CHANNEL_BITS) | (i + 1);
+			}
+		}
+
+		return 0;
+	}
+
+	public boolean isPlaying(int channel) {
+		return channelIndex(channel) >= 0;
+	}
+
+	public void stop(int channel) {
+		final int i = channelIndex(channel);
+		if(i >= 0) {
+			channelSamples[i] = null;
+		}
+	}
+
+	public void pause(int channel) {
+		final int i = channelIndex(channel);
+		if(i >= 0) {
+			paused[i] = true;
+		}
+	}
+
+	public void resume(int channel) {
+		final int i = channelIndex(channel);
+		if(i >= 0) {
+			paused[i] = false;
+		}
+	}
+
+	public void setVolume(int channel, float volume) {
+		final int i = channelIndex(channel);
+		if(i >= 0) {
+			volumes[i] = volume(volume);
+		}
+	}
+
+	public void setRate(int channel, float rate) {
+		final int i = channelIndex(channel);
+		if(i >= 0) {
+			steps[i] = step(channelSamples[i], rate);
+		}
+	}
+
+	public void setLoop(int channel, int loop) {
+		final int i = channelIndex(channel);
+		if(i >= 0) {
+			loops[i] = loop;
+		}
+	}
+
+	/** Mixes one buffer and writes it to the sink. */
+	public boolean update() {
+		final int frames = buffer.length/2;
+		mix(buffer, frames);
+		sink.write(buffer, frames);
+		return true;
+	}
+
+	public void release() {
+		for(int i = 0; i < channelSamples.length; i++) {
+			channelSamples[i] = null;
+		}
+
+		sink.release();
+	}
+
+	/**
+	 * Mixes the playing channels into interleaved stereo frames, advancing them.  Audio thread
+	 * only.
+	 *
+	 * @param frames At most the buffer frames given at construction.
+	 */
+	public void mix(short[] out, int frames) {
+		final int[] accum = this.accum;
+		final int size = frames*2;
+
+		for(int i = 0; i < size; i++) {
+			accum[i] = 0;
+		}
+
+		for(int c = 0; c < channelSamples.length; c++) {
+			final Sample sample = channelSamples[c];
+			if(sample == null || paused[c]) {
+				continue;
+			}
+
+			final short[] data = sample.data;
+			final int channels = sample.channels;
+			final int count = sample.frames;
+			final long end = (long)count << FRAC_BITS;
+			final long step = steps[c];
+			final int volume = volumes[c];
+
+			long pos = positions[c];
+			int loop = loops[c];
+
+			for(int f = 0; f < size; f += 2) {
+				while(pos >= end) {
+					if(loop == 0) {
+						break;
+					}
+					if(loop > 0) {
+						loop--;
+					}
+					pos -= end;
+				}
+
+				if(pos >= end) {
+					channelSamples[c] = null;
+					break;
+				}
+
+				final int index = (int)(pos >> FRAC_BITS);
+				final int frac = (int)(pos & ((1 << FRAC_BITS) - 1));
+
+				int next = index + 1;
+				if(next == count) {
+					next = loop != 0 ? 0 : index;
+				}
+
+				final int i0 = index*channels, i1 = next*channels;
+
+				// the difference times frac takes 33 bits
+				int l = data[i0];
+				l += (int)(((long)(data[i1] - l)*frac) >> FRAC_BITS);
+
+				int r = l;
+				if(channels == 2) {
+					r = data[i0+1];
+					r += (int)(((long)(data[i1+1] - r)*frac) >> FRAC_BITS);
+				}
+
+				accum[f] += (l*volume) >> VOLUME_BITS;
+				accum[f+1] += (r*volume) >> VOLUME_BITS;
+
+				pos += step;
+			}
+
+			positions[c] = pos;
+			loops[c] = loop;
+		}
+
+		for(int i = 0; i < size; i++) {
+			final int v = accum[i];
+			out[i] = (short)(v > Short.MAX_VALUE ? Short.MAX_VALUE : (v < Short.MIN_VALUE ? Short.MIN_VALUE : v));
+		}
+	}
+
+	private Sample getSample(int sampleId) {
+		final Sample[] cur = samples;
+		return sampleId > 0 && sampleId <= cur.length ? cur[sampleId - 1] : null;
+	}
+
+	private int channelIndex(int channel) {
+		final int i = (channel & CHANNEL_MASK) - 1;
+		return i >= 0 && i < channelSamples.length && channelSamples[i] != null
+				&& generations[i] == (channel >>> CHANNEL_BITS) ? i : -1;
+	}
+
+	private long step(Sample sample, float rate) {
+		return (long)(rate * sample.rate / outRate * (1 << FRAC_BITS));
+	}
+
+	private static int volume(float volume) {
+		return (int)(volume * (1 << VOLUME_BITS));
+	}
+
+	private static final class Sample {
+		final short[] data;
+		final int channels;
+		final int rate;
+		final int frames;
+
+		Sample(short[] data, int channels, int rate) {
+			this.data = data;
+			this.channels = channels;
+			this.rate = rate;
+			frames = data.length / channels;
+		}
+	}
+}
@@ -0,0 +1,23 @@
+package com.renegadeware.m8.sound;
+
+/**
+ * Where the PcmMixer writes its mixed frames, an AudioTrack on the device or a fake in tests.
+ *
+ * @see AudioTrackSink
+ */
+public interface PcmSink {
+	/** Frames per second. */
+	public int getSampleRate();
+
+	/**
+	 * Write interleaved stereo 16 bit frames, blocks until the device has taken them.
+	 */
+	public void write(short[] buffer, int frames);
+
+	/** Stop playing what was written, keeping it for resume. */
+	public void pause();
+
+	public void resume();
+
+	public void release();
+}
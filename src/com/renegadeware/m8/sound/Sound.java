@@ -1,7 +1,5 @@
 package com.renegadeware.m8.sound;
 
-import android.media.SoundPool;
-
 import com.renegadeware.m8.res.ManualResourceLoader;
 import com.renegadeware.m8.res.Resource;
 import com.renegadeware.m8.res.ResourceManager;
@@ -12,7 +10,12 @@ public class Sound extends Resource {
     public static final int PRIORITY_HIGH = 2;
     public static final int PRIORITY_MUSIC = 3;
     
-    private int soundId;    
+    int soundId;
+    
+    // the last play and when, for the cooldown, guarded by playLock
+    final Object playLock = new Object();
+    int lastHandle;
+    long lastPlayTime;
 
 	public Sound(ResourceManager creator, int id, String group,
 			boolean isManual, ManualResourceLoader loader) {
@@ -22,69 +25,61 @@ public class Sound extends Resource {
 	/**
 	 * Play the sound with settings from param if valid. Otherwise it just plays it in default settings.
 	 * 
-	 * @return The stream, 0 if failed.
+	 * @return The voice handle, 0 if failed.
 	 */
 	public int play() {
-		int stream = 0;
-		
 		SoundManager mgr = (SoundManager)getCreator();
 		
-		synchronized(mgr) {
-			if(mgr.isSoundEnabled) {
-				SoundPool soundPool = mgr.soundPool;
-				
-				if(params == null) {
-					float v = mgr.getGlobalVolume();
-					
-					stream = soundPool.play(soundId, v, v, PRIORITY_NORMAL, 0, 1.0f);
-				}
-				else {
-					SoundParam p = (SoundParam)params;
-					
-					float v = p.volume * mgr.getGlobalVolume();
-					
-					stream = soundPool.play(soundId, v, v, p.priority, p.loop, p.rate);
-				}
-			}
+		if(params == null) {
+			return mgr.play(this, 1.0f, PRIORITY_NORMAL, 0, 1.0f, 0, SoundParam.DEFAULT_COOLDOWN);
+		}
+		else {
+			SoundParam p = (SoundParam)params;
 			
-			return stream;
+			return mgr.play(this, p.volume, p.priority, p.loop, p.rate, p.maxVoices, p.cooldown);
 		}
 	}
 	
 	/**
-	 * Play the sound with given settings.
+	 * Play the sound with given settings, the voice cap and cooldown still come from param.
 	 * 
 	 * @param volume [0.0, 1.0]
 	 * @param priority 0 = lowest, use PRIORITY_*
 	 * @param loop -1 = infinite loop, 0 = play once, > 1 = play this many times
 	 * @param rate [0.5, 2.0]
-	 * @return
+	 * @return The voice handle, 0 if failed.
 	 */
 	public int play(float volume, int priority, int loop, float rate) {
 		SoundManager mgr = (SoundManager)getCreator();
 		
-		synchronized(mgr) {
-			if(mgr.isSoundEnabled) {
-				return mgr.soundPool.play(soundId, volume, volume, priority, loop, rate);
-			}
-			else {
-				return 0;
-			}
+		if(params == null) {
+			return mgr.play(this, volume, priority, loop, rate, 0, SoundParam.DEFAULT_COOLDOWN);
+		}
+		else {
+			SoundParam p = (SoundParam)params;
+			
+			return mgr.play(this, volume, priority, loop, rate, p.maxVoices, p.cooldown);
 		}
 	}
 
 	@Override
 	protected void loadImpl() {
-		SoundPool soundPool = ((SoundManager)getCreator()).soundPool;
+		SoundManager mgr = (SoundManager)getCreator();
 		
-		soundId = soundPool.load(systemRegistry.contextParameters.context, id, 1);
+		soundId = mgr.voices.getOutput().load(systemRegistry.contextParameters.context, id);
 	}
 
 	@Override
 	protected void unloadImpl() {
-		SoundPool soundPool = ((SoundManager)getCreator()).soundPool;
+		SoundManager mgr = (SoundManager)getCreator();
+		
+		mgr.voices.getOutput().unload(soundId);
 		
-		soundPool.unload(soundId);
+		soundId = 0;
+		
+		synchronized(playLock) {
+			lastHandle = 0;
+		}
 	}
 
 	@Override
@@ -2,7 +2,6 @@ package com.renegadeware.m8.sound;
 
 import android.content.Context;
 import android.media.AudioManager;
-import android.media.SoundPool;
 
 import com.renegadeware.m8.res.ManualResourceLoader;
 import com.renegadeware.m8.res.Resource;
@@ -10,6 +9,9 @@ import com.renegadeware.m8.res.ResourceManager;
 
 /**
  * Manager for playing sounds. Do not use this for playing long samples (e.g. music)
+ * <p>
+ * Sounds are played through a VoiceManager on its own thread, plays and the stream calls below
+ * only queue a command, so they don't block and should only be made from the game thread.
  * 
  * @author ddionisio
  *
@@ -20,80 +22,132 @@ public class SoundManager extends ResourceManager {
 	private static final int MAX_STREAMS = 8;
     private static final int MAX_SOUNDS = 1;
     
-    SoundPool soundPool;
-    AudioManager audioManager;
+    final VoiceManager voices;
     
-    boolean isSoundEnabled;
+    volatile boolean isSoundEnabled;
 
+	/**
+	 * Plays through a SoundPool.
+	 */
 	public SoundManager() {
+		this(new SoundPoolOutput(MAX_STREAMS), MAX_STREAMS);
+	}
+	
+	/**
+	 * @param output Where the sounds are played, e.g. a PcmMixer.
+	 * @param maxVoices Voices playing at once, at most what the output can play.
+	 */
+	public SoundManager(VoiceOutput output, int maxVoices) {
 		super(MAX_SOUNDS);
 		
-		soundPool = new SoundPool(MAX_STREAMS, AudioManager.STREAM_MUSIC, 0);
+		AudioManager audioManager = (AudioManager)systemRegistry.contextParameters.context.getSystemService(Context.AUDIO_SERVICE);
 		
-		audioManager = (AudioManager)systemRegistry.contextParameters.context.getSystemService(Context.AUDIO_SERVICE);
+		voices = new VoiceManager(output, maxVoices, audioManager);
 		
 		isSoundEnabled = true;
 	}
 	
-	public synchronized void enableSound(boolean bYes) {
+	public void enableSound(boolean bYes) {
 		isSoundEnabled = bYes;
 	}
 	
 	/**
-	 * Get the global audio volume from android.
+	 * Get the global audio volume from android, cached and refreshed once a second.
 	 * 
 	 * @return [0.0, 1.0]
 	 */
 	public float getGlobalVolume() {
-		return audioManager.getStreamVolume(AudioManager.STREAM_MUSIC) / audioManager.getStreamMaxVolume(AudioManager.STREAM_MUSIC);
+		return voices.getGlobalVolume();
+	}
+	
+	public VoiceManager getVoiceManager() {
+		return voices;
+	}
+	
+	/**
+	 * Plays sooner than cooldown after the sound's last play return the last play's handle
+	 * instead, so duplicate triggers in the same frame make one voice.
+	 */
+	int play(Sound sound, float volume, int priority, int loop, float rate, int maxVoices, float cooldown) {
+		if(!isSoundEnabled || sound.soundId == 0) {
+			return 0;
+		}
+		
+		// threads playing the same sound at once still make one voice
+		synchronized(sound.playLock) {
+			final long now = System.nanoTime();
+			
+			if(sound.lastHandle != 0 && now - sound.lastPlayTime < (long)(cooldown*1000000000L)) {
+				return sound.lastHandle;
+			}
+			
+			final int handle = voices.play(sound.soundId, volume, priority, loop, rate, maxVoices);
+			if(handle != 0) {
+				sound.lastHandle = handle;
+				sound.lastPlayTime = now;
+			}
+			
+			return handle;
+		}
 	}
 	
 	/* ******************
-	 * Stream stuff
+	 * Stream stuff, by the handle returned from Sound.play
 	 */
 	
 	public void pause(int streamId) {
-		soundPool.pause(streamId);
+		voices.pause(streamId);
 	}
 	
 	public void resume(int streamId) {
 		if(isSoundEnabled) {
-			soundPool.resume(streamId);
+			voices.resume(streamId);
 		}
 	}
 	
 	public void setLoop(int streamId, int loop) {
-		soundPool.setLoop(streamId, loop);
+		voices.setLoop(streamId, loop);
 	}
 	
 	public void setPriority(int streamId, int priority) {
-		soundPool.setPriority(streamId, priority);
+		voices.setPriority(streamId, priority);
 	}
 	
 	public void setRate(int streamId, float rate) {
-		soundPool.setRate(streamId, rate);
+		voices.setRate(streamId, rate);
 	}
 	
+	/**
+	 * @param volume [0.0, 1.0], scaled by the global volume.
+	 */
 	public void setVolume(int streamId, float volume) {
-		float v = volume*getGlobalVolume();
-		
-		soundPool.setVolume(streamId, v, v);
+		voices.setVolume(streamId, volume);
 	}
 	
 	public void stop(int streamId) {
-		soundPool.stop(streamId);
+		voices.stop(streamId);
+	}
+	
+	public void pauseAll() {
+		voices.pauseAll();
+	}
+	
+	public void resumeAll() {
+		if(isSoundEnabled) {
+			voices.resumeAll();
+		}
+	}
+	
+	public void stopAll() {
+		voices.stopAll();
 	}
 			
 	@Override
 	public void reset() {
 		super.reset();
 		
-		//release stuff
-		soundPool.release();
-		
-		soundPool = null;
-		
-		audioManager = null;
+		//stops the audio thread, which releases the output
+		voices.shutdown();
 	}
 
 	@Override
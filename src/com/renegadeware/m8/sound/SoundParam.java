@@ -3,8 +3,12 @@ package com.renegadeware.m8.sound;
 import com.renegadeware.m8.res.Resource;
 
 public final class SoundParam implements Resource.Param {
+	public static final float DEFAULT_COOLDOWN = 0.03f;
+	
 	public float volume = 1.0f; //range [0.0, 1.0]
 	public int priority = Sound.PRIORITY_NORMAL; //0 = lowest
 	public int loop = 0; //-1 = infinite loop
 	public float rate = 1.0f; //range [0.5, 2.0]
+	public int maxVoices = 0; //most voices playing at once, 0 = no cap
+	public float cooldown = DEFAULT_COOLDOWN; //seconds, plays sooner than this after the last are collapsed into it
 }
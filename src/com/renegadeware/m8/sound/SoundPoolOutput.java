@@ -0,0 +1,100 @@
+package com.renegadeware.m8.sound;
+
+import android.content.Context;
+import android.media.AudioManager;
+import android.media.MediaPlayer;
+import android.media.SoundPool;
+import android.util.SparseArray;
+
+/**
+ * Plays the voices through a SoundPool.  SoundPool mixes on its own, so this only forwards to it
+ * and keeps each sample's duration, read once at load, so the VoiceManager knows when a voice is
+ * done.
+ */
+public class SoundPoolOutput implements VoiceOutput {
+	private final SoundPool soundPool;
+
+	// sample id -> duration in seconds, written by the loading thread
+	private final SparseArray<Float> durations;
+
+	public SoundPoolOutput(int maxStreams) {
+		soundPool = new SoundPool(maxStreams, AudioManager.STREAM_MUSIC, 0);
+		durations = new SparseArray<Float>();
+	}
+
+	public int load(Context context, int resId) {
+		final int sampleId = soundPool.load(context, resId, 1);
+
+		if(sampleId != 0) {
+			float duration = 0.0f;
+
+			final MediaPlayer player = MediaPlayer.create(context, resId);
+			if(player != null) {
+				duration = player.getDuration() / 1000.0f;
+				player.release();
+			}
+
+			synchronized(durations) {
+				durations.put(sampleId, duration);
+			}
+		}
+
+		return sampleId;
+	}
+
+	public void unload(int sampleId) {
+		soundPool.unload(sampleId);
+
+		synchronized(durations) {
+			durations.remove(sampleId);
+		}
+	}
+
+	public float getDuration(int sampleId) {
+		synchronized(durations) {
+			final Float duration = durations.get(sampleId);
+			return duration != null ? duration : 0.0f;
+		}
+	}
+
+	public int start(int sampleId, float volume, int loop, float rate) {
+		// voice stealing is done by the VoiceManager, all priorities are equal to the pool
+		return soundPool.play(sampleId, volume, volume, 0, loop, rate);
+	}
+
+	public boolean isPlaying(int channel) {
+		return true;
+	}
+
+	public void stop(int channel) {
+		soundPool.stop(channel);
+	}
+
+	public void pause(int channel) {
+		soundPool.pause(channel);
+	}
+
+	public void resume(int channel) {
+		soundPool.resume(channel);
+	}
+
+	public void setVolume(int channel, float volume) {
+		soundPool.setVolume(channel, volume, volume);
+	}
+
+	public void setRate(int channel, float rate) {
+		soundPool.setRate(channel, rate);
+	}
+
+	public void setLoop(int channel, int loop) {
+		soundPool.setLoop(channel, loop);
+	}
+
+	public boolean update() {
+		return false;
+	}
+
+	public void release() {
+		soundPool.release();
+	}
+}
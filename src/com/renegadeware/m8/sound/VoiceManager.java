@@ -0,0 +1,559 @@
+package com.renegadeware.m8.sound;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.LockSupport;
+
+import android.media.AudioManager;
+
+/**
+ * Plays voices on a dedicated audio thread.  Any thread can queue commands into a bounded ring
+ * without locking, and gets back a handle for each voice it plays right away; the audio thread
+ * runs the commands against a VoiceOutput.  Producers claim a slot of the ring by advancing the
+ * tail, and publish it through the slot's sequence, so the audio thread never reads a command
+ * that is still being written.
+ * <p>
+ * When every voice is busy a new voice takes over the lowest priority voice, the oldest one among
+ * equals, or is dropped if all the playing voices have a higher priority.  A sound can also be
+ * capped to a number of voices, playing it past its cap takes over its own oldest voice.
+ * <p>
+ * The global volume from AudioManager is cached and refreshed by the audio thread once a second
+ * while voices play, every voice's volume is scaled by it.
+ * <p>
+ * With an output that doesn't wait on the device, the audio thread sleeps until a command comes
+ * in or the next voice is due to end.
+ */
+public class VoiceManager {
+	private static final int OP_PLAY = 0;
+	private static final int OP_STOP = 1;
+	private static final int OP_PAUSE = 2;
+	private static final int OP_RESUME = 3;
+	private static final int OP_VOLUME = 4;
+	private static final int OP_RATE = 5;
+	private static final int OP_LOOP = 6;
+	private static final int OP_PRIORITY = 7;
+	private static final int OP_STOP_ALL = 8;
+	private static final int OP_PAUSE_ALL = 9;
+	private static final int OP_RESUME_ALL = 10;
+
+	private static final int QUEUE_SIZE = 256;
+
+	// how long a voice of unknown duration is assumed to play
+	private static final long UNKNOWN_DURATION_NANOS = 2000000000L;
+
+	private static final long VOLUME_REFRESH_NANOS = 1000000000L;
+
+	private final VoiceOutput output;
+	private final AudioManager audioManager;
+
+	// command ring, a slot's sequence is its position once published, and its position plus
+	// QUEUE_SIZE once the audio thread is done with it
+	private final int[] ops;
+	private final int[] cmdHandles;
+	private final int[] cmdSamples;
+	private final int[] cmdPriorities;
+	private final int[] cmdLoops;
+	private final int[] cmdMaxVoices;
+	private final float[] cmdVolumes;
+	private final float[] cmdRates;
+	private final AtomicIntegerArray sequences;
+	private final AtomicInteger tail;
+	private int head;
+
+	private final AtomicInteger nextHandle;
+	private final AtomicInteger droppedCommands;
+
+	// voices, audio thread only, a handle of 0 is a free voice
+	private final int[] handles;
+	private final int[] channels;
+	private final int[] samples;
+	private final int[] priorities;
+	private final float[] volumes;
+	private final float[] rates;
+	private final long[] starts;
+	private final long[] ends;
+	private final long[] pausedAt;
+
+	private volatile float globalVolume;
+	private long nextVolumeRefresh;
+
+	private volatile int stolenCount;
+	private volatile int droppedVoices;
+
+	private final Thread thread;
+	private volatile boolean parked;
+	private volatile boolean shutdown;
+
+	/**
+	 * @param audioManager Where the global volume comes from, null to keep it at 1.
+	 */
+	public VoiceManager(VoiceOutput output, int maxVoices, AudioManager audioManager) {
+		this.output = output;
+		this.audioManager = audioManager;
+
+		ops = new int[QUEUE_SIZE];
+		cmdHandles = new int[QUEUE_SIZE];
+		cmdSamples = new int[QUEUE_SIZE];
+		cmdPriorities = new int[QUEUE_SIZE];
+		cmdLoops = new int[QUEUE_SIZE];
+		cmdMaxVoices = new int[QUEUE_SIZE];
+		cmdVolumes = new float[QUEUE_SIZE];
+		cmdRates = new float[QUEUE_SIZE];
+		sequences = new AtomicIntegerArray(QUEUE_SIZE);
+		for(int i = 0; i < QUEUE_SIZE; i++) {
+			sequences.set(i, i);
+		}
+		tail = new AtomicInteger(0);
+
+		nextHandle = new AtomicInteger(0);
+		droppedCommands = new AtomicInteger(0);
+
+		handles = new int[maxVoices];
+		channels = new int[maxVoices];
+		samples = new int[maxVoices];
+		priorities = new int[maxVoices];
+		volumes = new float[maxVoices];
+		rates = new float[maxVoices];
+		starts = new long[maxVoices];
+		ends = new long[maxVoices];
+		pausedAt = new long[maxVoices];
+
+		globalVolume = 1.0f;
+		refreshGlobalVolume();
+
+		thread = new Thread(new Runnable() {
+			public void run() {
+				VoiceManager.this.run();
+			}
+		});
+		thread.setName("Mate Audio");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	public VoiceOutput getOutput() {
+		return output;
+	}
+
+	/**
+	 * The cached global audio volume.
+	 *
+	 * @return [0.0, 1.0]
+	 */
+	public float getGlobalVolume() {
+		return globalVolume;
+	}
+
+	/** Number of commands dropped because the queue was full. */
+	public int getDroppedCommandCount() {
+		return droppedCommands.get();
+	}
+
+	/** Number of voices taken over by another. */
+	public int getStolenCount() {
+		return stolenCount;
+	}
+
+	/** Number of plays dropped because every voice had a higher priority. */
+	public int getDroppedVoiceCount() {
+		return droppedVoices;
+	}
+
+	/* ******************
+	 * Any thread
+	 */
+
+	/**
+	 * Queue a voice.
+	 *
+	 * @param maxVoices Most voices of this sample playing at once, 0 for no cap.
+	 * @return The voice's handle, 0 if the queue is full.
+	 */
+	public int play(int sampleId, float volume, int priority, int loop, float rate, int maxVoices) {
+		int handle;
+		do {
+			handle = nextHandle.incrementAndGet() & Integer.MAX_VALUE;
+		} while(handle == 0);
+
+		if(!push(OP_PLAY, handle, sampleId, priority, loop, maxVoices, volume, rate)) {
+			return 0;
+		}
+
+		return handle;
+	}
+
+	public void stop(int handle) {
+		push(OP_STOP, handle, 0, 0, 0, 0, 0, 0);
+	}
+
+	public void pause(int handle) {
+		push(OP_PAUSE, handle, 0, 0, 0, 0, 0, 0);
+	}
+
+	public void resume(int handle) {
+		push(OP_RESUME, handle, 0, 0, 0, 0, 0, 0);
+	}
+
+	public void setVolume(int handle, float volume) {
+		push(OP_VOLUME, handle, 0, 0, 0, 0, volume, 0);
+	}
+
+	public void setRate(int handle, float rate) {
+		push(OP_RATE, handle, 0, 0, 0, 0, 0, rate);
+	}
+
+	public void setLoop(int handle, int loop) {
+		push(OP_LOOP, handle, 0, 0, loop, 0, 0, 0);
+	}
+
+	public void setPriority(int handle, int priority) {
+		push(OP_PRIORITY, handle, 0, priority, 0, 0, 0, 0);
+	}
+
+	public void stopAll() {
+		push(OP_STOP_ALL, 0, 0, 0, 0, 0, 0, 0);
+	}
+
+	public void pauseAll() {
+		push(OP_PAUSE_ALL, 0, 0, 0, 0, 0, 0, 0);
+	}
+
+	public void resumeAll() {
+		push(OP_RESUME_ALL, 0, 0, 0, 0, 0, 0, 0);
+	}
+
+	/** Stops every voice and the audio thread, which then releases the output. */
+	public void shutdown() {
+		shutdown = true;
+		LockSupport.unpark(thread);
+	}
+
+	private boolean push(int op, int handle, int sample, int priority, int loop, int maxVoices,
+			float volume, float rate) {
+		int t;
+		int i;
+		while(true) {
+			t = tail.get();
+			i = t & (QUEUE_SIZE - 1);
+
+			// behind t means the audio thread hasn't freed the slot yet, the ring is full
+			final int seq = sequences.get(i);
+			if(seq - t < 0) {
+				droppedCommands.incrementAndGet();
+				return false;
+			}
+
+			if(seq == t && tail.compareAndSet(t, t + 1)) {
+				break;
+			}
+		}
+
+		ops[i] = op;
+		cmdHandles[i] = handle;
+		cmdSamples[i] = sample;
+		cmdPriorities[i] = priority;
+		cmdLoops[i] = loop;
+		cmdMaxVoices[i] = maxVoices;
+		cmdVolumes[i] = volume;
+		cmdRates[i] = rate;
+
+		// publishes the command to the audio thread
+		sequences.set(i, t + 1);
+
+		if(parked) {
+			LockSupport.unpark(thread);
+		}
+
+		return true;
+	}
+
+	/* ******************
+	 * Audio thread
+	 */
+
+	private void run() {
+		while(!shutdown) {
+			final long now = System.nanoTime();
+
+			if(now - nextVolumeRefresh >= 0) {
+				refreshGlobalVolume();
+				nextVolumeRefresh = now + VOLUME_REFRESH_NANOS;
+			}
+
+			processCommands(now);
+			expireVoices(now);
+
+			if(!output.update()) {
+				idle();
+			}
+		}
+
+		for(int v = 0; v < handles.length; v++) {
+			if(handles[v] != 0) {
+				freeVoice(v);
+			}
+		}
+
+		output.release();
+	}
+
+	/**
+	 * Sleeps until a command is pushed or the next voice ends, refreshing the volume once a second
+	 * while voices play.
+	 */
+	private void idle() {
+		long wake = Long.MAX_VALUE;
+		for(int v = 0; v < handles.length; v++) {
+			if(handles[v] != 0) {
+				if(wake == Long.MAX_VALUE || nextVolumeRefresh - wake < 0) {
+					wake = nextVolumeRefresh;
+				}
+				if(pausedAt[v] == 0 && ends[v] != Long.MAX_VALUE && ends[v] - wake < 0) {
+					wake = ends[v];
+				}
+			}
+		}
+
+		// push only unparks after seeing parked, so check for commands once it's set
+		parked = true;
+		if(!shutdown && !hasCommands()) {
+			if(wake == Long.MAX_VALUE) {
+				LockSupport.park(this);
+			}
+			else {
+				final long wait = wake - System.nanoTime();
+				if(wait > 0) {
+					LockSupport.parkNanos(this, wait);
+				}
+			}
+		}
+		parked = false;
+	}
+
+	private boolean hasCommands() {
+		final int h = head;
+		return sequences.get(h & (QUEUE_SIZE - 1)) == h + 1;
+	}
+
+	private void refreshGlobalVolume() {
+		if(audioManager == null) {
+			return;
+		}
+
+		final int max = audioManager.getStreamMaxVolume(AudioManager.STREAM_MUSIC);
+		final float volume = max > 0 ? audioManager.getStreamVolume(AudioManager.STREAM_MUSIC) / (float)max : 0.0f;
+
+		if(volume != globalVolume) {
+			globalVolume = volume;
+
+			for(int v = 0; v < handles.length; v++) {
+				if(handles[v] != 0) {
+					output.setVolume(channels[v], volumes[v]*volume);
+				}
+			}
+		}
+	}
+
+	private void processCommands(long now) {
+		int h = head;
+		while(true) {
+			final int i = h & (QUEUE_SIZE - 1);
+			if(sequences.get(i) != h + 1) {
+				break;
+			}
+
+			final int op = ops[i];
+
+			if(op == OP_PLAY) {
+				startVoice(cmdHandles[i], cmdSamples[i], cmdVolumes[i], cmdPriorities[i],
+						cmdLoops[i], cmdRates[i], cmdMaxVoices[i], now);
+			}
+			else if(op == OP_STOP_ALL || op == OP_PAUSE_ALL || op == OP_RESUME_ALL) {
+				for(int v = 0; v < handles.length; v++) {
+					if(handles[v] != 0) {
+						runVoiceCommand(op, v, i, now);
+					}
+				}
+			}
+			else {
+				final int v = findVoice(cmdHandles[i]);
+				if(v >= 0) {
+					runVoiceCommand(op, v, i, now);
+				}
+			}
+
+			// lets the producers reuse the slot
+			sequences.set(i, h + QUEUE_SIZE);
+			h++;
+		}
+
+		head = h;
+	}
+
+	private void runVoiceCommand(int op, int v, int cmd, long now) {
+		final int channel = channels[v];
+
+		switch(op) {
+		case OP_STOP:
+		case OP_STOP_ALL:
+			freeVoice(v);
+			break;
+
+		case OP_PAUSE:
+		case OP_PAUSE_ALL:
+			if(pausedAt[v] == 0) {
+				output.pause(channel);
+				pausedAt[v] = now;
+			}
+			break;
+
+		case OP_RESUME:
+		case OP_RESUME_ALL:
+			if(pausedAt[v] != 0) {
+				output.resume(channel);
+				if(ends[v] != Long.MAX_VALUE) {
+					ends[v] += now - pausedAt[v];
+				}
+				pausedAt[v] = 0;
+			}
+			break;
+
+		case OP_VOLUME:
+			volumes[v] = cmdVolumes[cmd];
+			output.setVolume(channel, volumes[v]*globalVolume);
+			break;
+
+		case OP_RATE: {
+			final float rate = cmdRates[cmd];
+			if(rate > 0 && ends[v] != Long.MAX_VALUE) {
+				final long from = pausedAt[v] != 0 ? pausedAt[v] : now;
+				ends[v] = from + (long)((ends[v] - from)*(rates[v]/rate));
+			}
+			rates[v] = rate;
+			output.setRate(channel, rate);
+			break;
+		}
+
+		case OP_LOOP: {
+			final int loop = cmdLoops[cmd];
+			final long from = pausedAt[v] != 0 ? pausedAt[v] : now;
+			ends[v] = endTime(from, samples[v], rates[v], loop);
+			output.setLoop(channel, loop);
+			break;
+		}
+
+		case OP_PRIORITY:
+			priorities[v] = cmdPriorities[cmd];
+			break;
+		}
+	}
+
+	private void startVoice(int handle, int sample, float volume, int priority, int loop, float rate,
+			int maxVoices, long now) {
+		int slot = -1;
+
+		// over the sound's cap, take over its oldest voice
+		if(maxVoices > 0) {
+			int count = 0;
+			int oldest = -1;
+			for(int v = 0; v < handles.length; v++) {
+				if(handles[v] != 0 && samples[v] == sample) {
+					count++;
+					if(oldest < 0 || starts[v] - starts[oldest] < 0) {
+						oldest = v;
+					}
+				}
+			}
+
+			if(count >= maxVoices) {
+				slot = oldest;
+			}
+		}
+
+		if(slot < 0) {
+			for(int v = 0; v < handles.length; v++) {
+				if(handles[v] == 0) {
+					slot = v;
+					break;
+				}
+			}
+		}
+
+		// all busy, take over the lowest priority, oldest voice
+		if(slot < 0) {
+			for(int v = 0; v < handles.length; v++) {
+				if(slot < 0 || priorities[v] < priorities[slot]
+						|| (priorities[v] == priorities[slot] && starts[v] - starts[slot] < 0)) {
+					slot = v;
+				}
+			}
+
+			if(slot < 0 || priorities[slot] > priority) {
+				droppedVoices++;
+				return;
+			}
+		}
+
+		if(handles[slot] != 0) {
+			freeVoice(slot);
+			stolenCount++;
+		}
+
+		final int channel = output.start(sample, volume*globalVolume, loop, rate);
+		if(channel == 0) {
+			droppedVoices++;
+			return;
+		}
+
+		handles[slot] = handle;
+		channels[slot] = channel;
+		samples[slot] = sample;
+		priorities[slot] = priority;
+		volumes[slot] = volume;
+		rates[slot] = rate;
+		starts[slot] = now;
+		ends[slot] = endTime(now, sample, rate, loop);
+		pausedAt[slot] = 0;
+	}
+
+	/** Frees the voices that are done. */
+	private void expireVoices(long now) {
+		for(int v = 0; v < handles.length; v++) {
+			if(handles[v] != 0 && pausedAt[v] == 0
+					&& ((ends[v] != Long.MAX_VALUE && now - ends[v] >= 0) || !output.isPlaying(channels[v]))) {
+				freeVoice(v);
+			}
+		}
+	}
+
+	private void freeVoice(int v) {
+		output.stop(channels[v]);
+		handles[v] = 0;
+		channels[v] = 0;
+	}
+
+	private int findVoice(int handle) {
+		if(handle != 0) {
+			for(int v = 0; v < handles.length; v++) {
+				if(handles[v] == handle) {
+					return v;
+				}
+			}
+		}
+		return -1;
+	}
+
+	/** When a voice playing from now with loop more repeats ends, Long.MAX_VALUE if it loops forever. */
+	private long endTime(long now, int sample, float rate, int loop) {
+		return loop < 0 ? Long.MAX_VALUE : now + duration(sample, rate)*(loop + 1);
+	}
+
+	private long duration(int sample, float rate) {
+		final float seconds = output.getDuration(sample);
+		if(seconds <= 0) {
+			return UNKNOWN_DURATION_NANOS;
+		}
+
+		return (long)(seconds / (rate > 0 ? rate : 1.0f) * 1000000000L);
+	}
+}
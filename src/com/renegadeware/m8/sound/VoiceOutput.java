@@ -0,0 +1,64 @@
+package com.renegadeware.m8.sound;
+
+import android.content.Context;
+
+/**
+ * Where the VoiceManager plays its voices.  Samples are loaded and unloaded by the resource
+ * loading thread, everything else is only called from the audio thread.
+ *
+ * @see SoundPoolOutput
+ * @see PcmMixer
+ */
+public interface VoiceOutput {
+	/**
+	 * Load the raw resource.
+	 *
+	 * @return The sample id, 0 if failed.
+	 */
+	public int load(Context context, int resId);
+
+	public void unload(int sampleId);
+
+	/**
+	 * Length of the sample played once at rate 1.
+	 *
+	 * @return Seconds, 0 if unknown.
+	 */
+	public float getDuration(int sampleId);
+
+	/**
+	 * Start playing the sample.
+	 *
+	 * @param loop -1 = infinite loop, 0 = play once, > 1 = play this many more times
+	 * @return The channel, 0 if failed.
+	 */
+	public int start(int sampleId, float volume, int loop, float rate);
+
+	/**
+	 * Whether the channel is still playing or paused.  Outputs that can't tell return true, the
+	 * VoiceManager then goes by the sample's duration.
+	 */
+	public boolean isPlaying(int channel);
+
+	public void stop(int channel);
+
+	public void pause(int channel);
+
+	public void resume(int channel);
+
+	public void setVolume(int channel, float volume);
+
+	public void setRate(int channel, float rate);
+
+	public void setLoop(int channel, int loop);
+
+	/**
+	 * Called by the audio thread after each batch of commands.
+	 *
+	 * @return true if this waited on the device, which then paces the audio thread.
+	 */
+	public boolean update();
+
+	/** Stops everything and frees the device, called from the audio thread as it exits. */
+	public void release();
+}
@@ -0,0 +1,105 @@
+package com.renegadeware.m8.sound;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.renegadeware.m8.DebugLog;
+
+/**
+ * Format of an uncompressed WAV file, read up to the start of its samples.  Only 16 bit mono or
+ * stereo PCM is supported.
+ */
+final class WavHeader {
+	int channels;
+	int sampleRate;
+
+	// bytes of sample data
+	int dataSize;
+
+	/**
+	 * Reads the header, leaving the stream at the first sample.
+	 *
+	 * @return false if the data isn't supported.
+	 */
+	boolean read(InputStream is) throws IOException {
+		channels = 0;
+		sampleRate = 0;
+		dataSize = 0;
+
+		final byte[] header = new byte[12];
+		readFully(is, header, 12);
+		if(header[0] != 'R' || header[1] != 'I' || header[2] != 'F' || header[3] != 'F'
+				|| header[8] != 'W' || header[9] != 'A' || header[10] != 'V' || header[11] != 'E') {
+			DebugLog.e("WavHeader", "Not a WAV file");
+			return false;
+		}
+
+		final byte[] chunk = new byte[8];
+		for(;;) {
+			readFully(is, chunk, 8);
+			final int size = readInt(chunk, 4);
+
+			if(chunk[0] == 'f' && chunk[1] == 'm' && chunk[2] == 't' && chunk[3] == ' ') {
+				final byte[] fmt = new byte[size + (size & 1)];
+				readFully(is, fmt, fmt.length);
+
+				final int format = readShort(fmt, 0) & 0xffff;
+				final int bits = readShort(fmt, 14);
+
+				channels = readShort(fmt, 2);
+				sampleRate = readInt(fmt, 4);
+
+				if(format != 1 || bits != 16 || channels < 1 || channels > 2) {
+					DebugLog.e("WavHeader", "Only 16 bit mono or stereo PCM is supported");
+					return false;
+				}
+			}
+			else if(chunk[0] == 'd' && chunk[1] == 'a' && chunk[2] == 't' && chunk[3] == 'a') {
+				if(channels == 0) {
+					DebugLog.e("WavHeader", "WAV data before format");
+					return false;
+				}
+
+				dataSize = size - size % (channels*2);
+				return true;
+			}
+			else {
+				skipFully(is, size + (size & 1));
+			}
+		}
+	}
+
+	static void readFully(InputStream is, byte[] b, int len) throws IOException {
+		int offset = 0;
+		while(offset < len) {
+			final int read = is.read(b, offset, len - offset);
+			if(read < 0) {
+				throw new IOException("Unexpected end of WAV data");
+			}
+			offset += read;
+		}
+	}
+
+	static void skipFully(InputStream is, long len) throws IOException {
+		while(len > 0) {
+			final long skipped = is.skip(len);
+			if(skipped <= 0) {
+				if(is.read() < 0) {
+					throw new IOException("Unexpected end of WAV data");
+				}
+				len--;
+			}
+			else {
+				len -= skipped;
+			}
+		}
+	}
+
+	static short readShort(byte[] b, int i) {
+		return (short)((b[i] & 0xff) | (b[i+1] << 8));
+	}
+
+	static int readInt(byte[] b, int i) {
+		return (b[i] & 0xff) | ((b[i+1] & 0xff) << 8) | ((b[i+2] & 0xff) << 16) | (b[i+3] << 24);
+	}
+}
@@ -128,11 +128,10 @@ public class BaseButtonUI extends BaseUI {
 	}
 	
 	@Override
-	public void render(float x, float y, float scaleX, float scaleY,
-			float rotate, float screenScaleX, float screenScaleY, float alpha) {		
+	public void render(UIRenderList list, float x, float y, float scaleX, float scaleY,
+			float rotate, float alpha) {		
 		if(!textDrawable.isEmpty()) {
-			textDrawable.color.alpha = alpha;
-			textDrawable.draw(x+getWidth()*0.5f*scaleX, y+getHeight()*0.5f*scaleY, scaleX*textScale, scaleY*textScale, rotate, screenScaleX, screenScaleY);
+			list.add(textDrawable, textDrawable.color, x+getWidth()*0.5f*scaleX, y+getHeight()*0.5f*scaleY, scaleX*textScale, scaleY*textScale, rotate, alpha);
 		}
 	}
 
@@ -36,12 +36,16 @@ public class BaseLayout {
 		}
 		
 		childrenAdds.add(ui);
+		
+		invalidate();
 	}
 	
 	public final void removeChild(BaseUI ui) {
 		//sanity check
 		if(ui._parent == _parent) {
 			childrenRemoves.add(ui);
+			
+			invalidate();
 		}
 		else {
 			DebugLog.w("BaseLayout", "Given ui: "+ui.name+" is not associated with this layout");
@@ -55,6 +59,26 @@ public class BaseLayout {
         	childrenRemoves.add((BaseUI)objectArray[i]);
         }
         childrenAdds.clear();
+        
+        invalidate();
+	}
+	
+	/**
+	 * Refresh this layout on the next layout pass.  The ui it belongs to and its parents are
+	 * marked so that the pass gets to it.
+	 */
+	public final void invalidate() {
+		doRefresh = true;
+		
+		BaseUI parent = getParent();
+		if(parent != null) {
+			parent.invalidateLayout();
+		}
+	}
+	
+	/** Whether updateCommit or updateRefresh has anything to do. */
+	final boolean isPending() {
+		return doRefresh || childrenAdds.getCount() > 0 || childrenRemoves.getCount() > 0;
 	}
 	
 	private static final void _resetChildren(FixedSizeArray<BaseUI> array) {
@@ -191,16 +215,7 @@ public class BaseLayout {
 	protected final void updateCommit() {
 		final int additionCount = childrenAdds.getCount();
         if (additionCount > 0) {
-        	//for safety's sake
-        	BaseUI parent = getParent();
-        	if(parent != null) {
-        		synchronized(parent) {
-        			_addChildren(childrenAdds.getArray(), additionCount);
-        		}
-        	}
-        	else {
-        		_addChildren(childrenAdds.getArray(), additionCount);
-        	}
+        	_addChildren(childrenAdds.getArray(), additionCount);
         	
 	        childrenAdds.clear();
 	        
@@ -209,16 +224,7 @@ public class BaseLayout {
         
         final int removalCount = childrenRemoves.getCount();
         if (removalCount > 0) {
-        	//for safety's sake
-        	BaseUI parent = getParent();
-        	if(parent != null) {
-        		synchronized(parent) {
-        			_removeChildren(childrenRemoves.getArray(), removalCount);
-        		}
-        	}
-        	else {
-        		_removeChildren(childrenRemoves.getArray(), removalCount);
-        	}
+        	_removeChildren(childrenRemoves.getArray(), removalCount);
         	
             childrenRemoves.clear();
             
@@ -1,10 +1,7 @@
 package com.renegadeware.m8.ui;
 
-import javax.microedition.khronos.opengles.GL10;
-
 import android.util.FloatMath;
 
-import com.renegadeware.m8.gfx.OpenGLSystem;
 import com.renegadeware.m8.input.InputXY;
 import com.renegadeware.m8.math.Ease;
 
@@ -212,22 +209,16 @@ public abstract class BaseSelectScrollUI extends BaseUI {
 	}
 	
 	@Override
-	public void render(float x, float y, float scaleX, float scaleY,
-			float rotate, float screenScaleX, float screenScaleY, float alpha) {
+	public void render(UIRenderList list, float x, float y, float scaleX, float scaleY,
+			float rotate, float alpha) {
 		
 		final float w = getWidth(), h = getHeight();
 		
-		final GL10 gl = OpenGLSystem.getGL();
-		gl.glEnable(GL10.GL_SCISSOR_TEST);
-		gl.glScissor(
-				(int)(x*screenScaleX), 
-				(int)(y*screenScaleY), 
-				(int)(w*scaleX*screenScaleX), 
-				(int)(h*scaleY*screenScaleY));
+		list.beginScissor(x, y, w*scaleX, h*scaleY);
 		
-		renderItems(x, y, scaleX, scaleY, rotate, screenScaleX, screenScaleY, alpha);
+		renderItems(list, x, y, scaleX, scaleY, rotate, alpha);
 		
-		gl.glDisable(GL10.GL_SCISSOR_TEST);
+		list.endScissor();
 	}
 	
 	@Override
@@ -284,6 +275,6 @@ public abstract class BaseSelectScrollUI extends BaseUI {
 	protected abstract void arrangeItems();
 	protected abstract float getCurOfs(int ind);
 	protected abstract float getNewOfs(InputXY input);
-	protected abstract void renderItems(float x, float y, float scaleX, float scaleY,
-			float rotate, float screenScaleX, float screenScaleY, float alpha);
+	protected abstract void renderItems(UIRenderList list, float x, float y, float scaleX, float scaleY,
+			float rotate, float alpha);
 }
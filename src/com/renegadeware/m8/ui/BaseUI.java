@@ -2,7 +2,6 @@ package com.renegadeware.m8.ui;
 
 import java.lang.ref.WeakReference;
 
-import com.renegadeware.m8.gfx.DrawableObject;
 import com.renegadeware.m8.input.InputSystem;
 import com.renegadeware.m8.input.InputXY;
 import com.renegadeware.m8.obj.BaseObject;
@@ -28,9 +27,12 @@ public class BaseUI extends PhasedObject {
 		//check to see if ui is from another file
 		String file = ds.getAttributeAsString("file", 0);
 		if(file != null && file.length() > 0) {
-			DataSection fileDs = XmlSection.createFromResourceId(systemRegistry.contextParameters.context, Util.getResourceIdByName(file));
+			DataSection fileDs = DataSection.createFromResourceId(systemRegistry.contextParameters.context, Util.getResourceIdByName(file));
 			
-			//possible override from current ds
+			//possible override from current ds, compiled sections can't be modified
+			if(fileDs.isReadOnly()) {
+				fileDs = XmlSection.createCopy(fileDs);
+			}
 			fileDs.copySections(ds);
 			
 			ui = createUIFromDataSection(fileDs);
@@ -149,7 +151,7 @@ public class BaseUI extends PhasedObject {
 				LoadUI(cui);
 			}
 			
-			layout.doRefresh = true;
+			layout.invalidate();
 		}
 		
 		ui.load();
@@ -174,7 +176,7 @@ public class BaseUI extends PhasedObject {
 	
 	protected UIListener inputListener;
 	
-	final UIDrawable _drawable;
+	private float alpha;
 	
 	protected boolean inputEnabled;
 	protected boolean visible;
@@ -185,12 +187,22 @@ public class BaseUI extends PhasedObject {
 	boolean _animatorRemoveUIOnEnd;
 			
 	protected WeakReference<BaseUI> _parent;
+	
+	// this ui's layout or a layout below it needs a pass
+	private boolean _layoutDirty;
+	
+	// set on the root when the hit index of UISystem needs to index the tree again
+	boolean _hitDirty;
+	
+	// layout pass counters, UISystem keeps them per frame
+	static int _layoutVisitCount;
+	static int _layoutRefreshCount;
 			
 	public BaseUI() {
 		super();
 		
 		name = "";
-		_drawable = new UIDrawable();
+		alpha = 1.0f;
 		index = -1;
 		visible = true;
 	}
@@ -214,7 +226,7 @@ public class BaseUI extends PhasedObject {
 		if(_layout != null) {
 			_layout._parent = new WeakReference<BaseUI>(this);
 			_layout._refreshChildrenParent();
-			_layout.doRefresh = true;
+			_layout.invalidate();
 		}
 	}
 	
@@ -228,7 +240,7 @@ public class BaseUI extends PhasedObject {
 	
 	public void setIndex(BaseLayout parentLayout, int i) {
 		index = i;
-		parentLayout.doRefresh = true;
+		parentLayout.invalidate();
 	}
 	
 	/**
@@ -239,6 +251,7 @@ public class BaseUI extends PhasedObject {
 	 */
 	public void enableInput(boolean enable) {
 		inputEnabled = enable;
+		invalidateHitTest();
 	}
 	
 	public boolean isInputEnabled() {
@@ -246,7 +259,10 @@ public class BaseUI extends PhasedObject {
 	}
 	
 	public final void setVisible(boolean visible) {
-		this.visible = visible;
+		if(this.visible != visible) {
+			this.visible = visible;
+			invalidateHitTest();
+		}
 	}
 	
 	public final void setModal(boolean enable) {
@@ -272,6 +288,7 @@ public class BaseUI extends PhasedObject {
 	public final void setAnchor(int horizontal, int vertical) {
 		anchorH = horizontal;
 		anchorV = vertical;
+		invalidateHitTest();
 	}
 	
 	public final float getWidth() {
@@ -328,10 +345,36 @@ public class BaseUI extends PhasedObject {
 	
 	public final void refreshLayout() {
 		if(_layout != null) {
-			_layout.doRefresh = true;
+			_layout.invalidate();
+		}
+	}
+	
+	/**
+	 * Marks this ui and its parents so that the next layout pass goes through here.  Parents
+	 * that are already marked have their own parents marked as well.
+	 */
+	final void invalidateLayout() {
+		for(BaseUI ui = this; ui != null && !ui._layoutDirty; ui = ui.getParent()) {
+			ui._layoutDirty = true;
 		}
 	}
 	
+	public final boolean isLayoutDirty() {
+		return _layoutDirty;
+	}
+	
+	/**
+	 * Marks the tree this ui is in to be indexed again for touch hit tests.  Call this after
+	 * moving a child directly, layouts already do.
+	 */
+	public final void invalidateHitTest() {
+		BaseUI root = this;
+		for(BaseUI parent = getParent(); parent != null; parent = parent.getParent()) {
+			root = parent;
+		}
+		root._hitDirty = true;
+	}
+	
 	public final BaseUI findChild(String name, boolean recursive) {
 		return _layout != null ? _layout.findChild(name, recursive) : null;
 	}
@@ -438,11 +481,11 @@ public class BaseUI extends PhasedObject {
 	}
 	
 	public final void setAlpha(float a) {
-		_drawable.setAlpha(a);
+		alpha = a;
 	}
 	
 	public final float getAlpha() {
-		return _drawable.getAlpha();
+		return alpha;
 	}
 	
 	/**
@@ -454,7 +497,6 @@ public class BaseUI extends PhasedObject {
 	public final void setAnimator(UIAnimator a, boolean removeOnEnd) {
 		_animator = a;
 		if(_animator != null) {
-			_drawable.resetCurAlpha();
 			_animator.start();
 		}
 		
@@ -465,12 +507,34 @@ public class BaseUI extends PhasedObject {
 		return _animator;
 	}
 	
+	/**
+	 * Commits and refreshes the layouts that changed, this ui's and those below it.
+	 */
 	public void doLayoutUpdate() {
+		if(_layoutDirty) {
+			_layoutPass();
+		}
+	}
+	
+	/**
+	 * Only goes into the children that are marked.  Anything marked during the pass, e.g. by a
+	 * refresh resizing a child's parent, is done on the next one.
+	 */
+	private void _layoutPass() {
+		_layoutDirty = false;
+		_layoutVisitCount++;
+		
 		final BaseLayout layout = _layout;
 		if(layout != null) {
-			layout.updateCommit();
-			
-			layout.updateRefresh(this);
+			if(layout.isPending()) {
+				layout.updateCommit();
+				
+				layout.updateRefresh(this);
+				
+				_layoutRefreshCount++;
+				
+				invalidateHitTest();
+			}
 			
 			final FixedSizeArray<BaseUI> children = layout.getChildren();
 			final int count = children.getCount();
@@ -479,7 +543,10 @@ public class BaseUI extends PhasedObject {
 				final Object[] objects = children.getArray();
 				
 				for(int i = 0; i < count; i++) {
-					((BaseUI)objects[i]).doLayoutUpdate();
+					final BaseUI child = (BaseUI)objects[i];
+					if(child._layoutDirty) {
+						child._layoutPass();
+					}
 				}
 			}
 		}
@@ -488,12 +555,12 @@ public class BaseUI extends PhasedObject {
 	protected final void _update(float timeDelta) {
 		update(timeDelta);
 		
+		if(_layoutDirty) {
+			_layoutPass();
+		}
+		
 		final BaseLayout layout = _layout;
 		if(layout != null) {
-			layout.updateCommit();
-			
-			layout.updateRefresh(this);
-			
 			final FixedSizeArray<BaseUI> children = layout.getChildren();
 			final int count = children.getCount();
 			
@@ -515,7 +582,7 @@ public class BaseUI extends PhasedObject {
 	}
 	
 	@Override
-	public final synchronized void reset() {
+	public final void reset() {
 		if(_layout != null) {
 			_layout.reset();
 		}
@@ -540,13 +607,17 @@ public class BaseUI extends PhasedObject {
 		
 	public void resize(float w, float h) {
 		if(_layout != null && (width != w || height != h)) {
-			_layout.doRefresh = true;
+			_layout.invalidate();
 			
 			BaseUI parent = getParent();
 			if(parent != null && parent._layout != null) {
-				parent._layout.doRefresh = true;
+				parent._layout.invalidate();
 			}
 		}
+		
+		if(width != w || height != h) {
+			invalidateHitTest();
+		}
 						
 		width = w;
 		height = h;
@@ -555,11 +626,73 @@ public class BaseUI extends PhasedObject {
 	protected void update(float timeDelta) {
 	}
 			
-	//you'll want to directly call any drawable's render function here directly
-	//or do something manually
-	//note: this is called within the render thread
-	protected void render(float x, float y, float scaleX, float scaleY,
-			float rotate, float screenScaleX, float screenScaleY, float alpha) {
+	/**
+	 * Record this ui's draws into the list with UIRenderList.add, the children are recorded after.
+	 * This is called on the game thread, the drawables are drawn later by the render thread.
+	 */
+	protected void render(UIRenderList list, float x, float y, float scaleX, float scaleY,
+			float rotate, float alpha) {
+	}
+	
+	/**
+	 * Records this ui and its visible children into the list, with (x, y) where the ui's anchor
+	 * goes.
+	 * 
+	 * @param alpha The alpha this ui is rendered with, its children are rendered with this times
+	 * their own alpha.
+	 */
+	public final void record(UIRenderList list, float x, float y, float scaleX, float scaleY,
+			float rotate, float alpha) {
+		if(scaleX == 0.0f || scaleY == 0.0f || alpha <= 0.0f) {
+			return;
+		}
+		
+		//adjust location based on anchor
+		float adjustedX = x;
+		float adjustedY = y;
+		
+		switch(anchorH) {
+		case ANCHOR_CENTER:
+			adjustedX -= width*0.5f*scaleX;
+			break;
+		case ANCHOR_RIGHT:
+			adjustedX -= width*scaleX;
+			break;
+		}
+		
+		switch(anchorV) {
+		case ANCHOR_CENTER:
+			adjustedY -= height*0.5f*scaleY;
+			break;
+		case ANCHOR_TOP:
+			adjustedY -= height*scaleY;
+			break;
+		}
+		
+		render(list, adjustedX, adjustedY, scaleX, scaleY, rotate, alpha);
+		
+		//record the layout's children
+		final BaseLayout layout = _layout;
+		if(layout != null) {
+			final FixedSizeArray<BaseUI> children = layout.getChildren();
+			final int count = children.getCount();
+			
+			if(count > 0) {
+				final Object[] objects = children.getArray();
+				
+				for(int i = 0; i < count; i++) {
+					BaseUI cui = (BaseUI)objects[i];
+					if(cui.visible) {
+						cui.record(list,
+								adjustedX + cui.x*scaleX,
+								adjustedY + cui.y*scaleY, 
+								scaleX, scaleY, 
+								rotate, 
+								alpha*cui.alpha);
+					}
+				}
+			}
+		}
 	}
 	
 	protected void inputTouchPressed(InputXY input) {
@@ -583,108 +716,4 @@ public class BaseUI extends PhasedObject {
 	protected void animationComplete(UIAnimator anim) {
 		
 	}
-	
-	public final class UIDrawable extends DrawableObject {
-		
-		private float alpha; // this is generally constant
-		
-		// only used for animation and children, a child's curAlpha is overridden
-		// by its parent
-		private float curAlpha;
-		
-		public UIDrawable() {
-			curAlpha = alpha = 1.0f;
-		}
-		
-		public void setCurAlpha(float a) {
-			curAlpha = a;
-		}
-		
-		public float getCurAlpha() {
-			return curAlpha;
-		}
-		
-		public void setAlpha(float a) {
-			alpha = curAlpha = a;
-		}
-		
-		public float getAlpha() {
-			return alpha;
-		}
-		
-		protected void resetCurAlpha() {
-			curAlpha = alpha;
-		}
-
-		@Override
-		public void draw(float x, float y, float scaleX, float scaleY,
-				float rotate, float screenScaleX, float screenScaleY) {
-			if(scaleX == 0.0f || scaleY == 0.0f) {
-				return;
-			}
-			
-			final BaseUI ui = BaseUI.this;
-			//synchronized with this ui, to avoid conflict such as unload, adding children
-			synchronized(ui) {
-				//adjust location based on anchor
-				float adjustedX = x;
-				float adjustedY = y;
-				float width = ui.getWidth();
-				float height = ui.getHeight();
-				
-				switch(anchorH) {
-				case ANCHOR_CENTER:
-					adjustedX -= width*0.5f*scaleX;
-					break;
-				case ANCHOR_RIGHT:
-					adjustedX -= width*scaleX;
-					break;
-				}
-				
-				switch(anchorV) {
-				case ANCHOR_CENTER:
-					adjustedY -= height*0.5f*scaleY;
-					break;
-				case ANCHOR_TOP:
-					adjustedY -= height*scaleY;
-					break;
-				}
-				
-				//call this ui's rendering
-				if(curAlpha > 0.0f) {
-					ui.render(adjustedX, adjustedY, scaleX, scaleY, rotate, screenScaleX, screenScaleY, curAlpha);
-					
-					//render the layout's children
-					final BaseLayout _layout = ui._layout;
-					if(_layout != null) {
-						final FixedSizeArray<BaseUI> children = _layout.getChildren();
-						final int count = children.getCount();
-						
-						if(count > 0) {
-							final Object[] objects = children.getArray();
-							
-							for(int i = 0; i < count; i++) {
-								BaseUI cui = (BaseUI)objects[i];
-								if(cui.visible) {
-									cui._drawable.curAlpha = curAlpha*cui._drawable.alpha;
-									
-									cui._drawable.draw(
-											adjustedX + cui.x*scaleX,
-											adjustedY + cui.y*scaleY, 
-											scaleX, scaleY, 
-											rotate, 
-											screenScaleX, screenScaleY);
-								}
-							}
-						}
-					}
-				}
-			}
-		}
-
-		@Override
-		public void draw(float[] mtx, float screenScaleX, float screenScaleY) {
-			//this should never be called!
-		}
-	}
 }
@@ -71,12 +71,11 @@ public class ButtonFrameUI extends BaseButtonUI {
 	}
 	
 	@Override
-	public void render(float x, float y, float scaleX, float scaleY,
-			float rotate, float screenScaleX, float screenScaleY, float alpha) {
-		frameDrawable.color.alpha = alpha;
-		frameDrawable.draw(x, y, scaleX, scaleY, rotate, screenScaleX, screenScaleY);
+	public void render(UIRenderList list, float x, float y, float scaleX, float scaleY,
+			float rotate, float alpha) {
+		list.add(frameDrawable, frameDrawable.color, x, y, scaleX, scaleY, rotate, alpha);
 		
-		super.render(x, y, scaleX, scaleY, rotate, screenScaleX, screenScaleY, alpha);
+		super.render(list, x, y, scaleX, scaleY, rotate, alpha);
 	}
 	
 	protected void setState(int newState) {
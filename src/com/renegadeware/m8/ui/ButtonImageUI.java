@@ -23,6 +23,11 @@ public class ButtonImageUI extends BaseButtonUI {
 	protected final DrawableBitmap imageDrawable;
 	
 	protected TextureAtlas atlas;
+	
+	// atlas refs resolved against the atlas
+	private int atlasElemUp = TextureAtlas.INVALID_ELEMENT;
+	private int atlasElemDown = TextureAtlas.INVALID_ELEMENT;
+	private int atlasElemDisabled = TextureAtlas.INVALID_ELEMENT;
 
 	public ButtonImageUI() {
 		super();
@@ -33,12 +38,16 @@ public class ButtonImageUI extends BaseButtonUI {
 	
 	public void setAtlas(int atlasId) {
 		atlas = (TextureAtlas)systemRegistry.textureAtlasManager.getById(atlasId);
+		
+		resolveAtlasRefs();
 	}
 	
 	public void setAtlasRefStates(String up, String down, String disabled) {
 		atlasRefUp = up;
 		atlasRefDown = down;
 		atlasRefDisabled = disabled;
+		
+		resolveAtlasRefs();
 	}
 	
 	@Override
@@ -47,6 +56,8 @@ public class ButtonImageUI extends BaseButtonUI {
 			atlas = (TextureAtlas)systemRegistry.textureAtlasManager.getByName(atlasId);
 		}
 		
+		resolveAtlasRefs();
+		
 		super.load();
 	}
 	
@@ -59,34 +70,38 @@ public class ButtonImageUI extends BaseButtonUI {
 	}
 	
 	@Override
-	public void render(float x, float y, float scaleX, float scaleY,
-			float rotate, float screenScaleX, float screenScaleY, float alpha) {
-		imageDrawable.color.alpha = alpha;
-		imageDrawable.draw(x, y, scaleX, scaleY, rotate, screenScaleX, screenScaleY);
+	public void render(UIRenderList list, float x, float y, float scaleX, float scaleY,
+			float rotate, float alpha) {
+		list.add(imageDrawable, imageDrawable.color, x, y, scaleX, scaleY, rotate, alpha);
 		
-		super.render(x, y, scaleX, scaleY, rotate, screenScaleX, screenScaleY, alpha);
+		super.render(list, x, y, scaleX, scaleY, rotate, alpha);
 	}
 
 	protected void setState(int newState) {
 		super.setState(newState);
 		
-		String ref = null;
+		//the atlas may not have been loaded yet when the refs were resolved
+		if(atlasElemUp == TextureAtlas.INVALID_ELEMENT && atlasRefUp != null) {
+			resolveAtlasRefs();
+		}
+		
+		int elem = TextureAtlas.INVALID_ELEMENT;
 		Color clr = null;
 		
 		switch(state) {
 		case STATE_DOWN:
-			ref = atlasRefDown;
+			elem = atlasElemDown;
 			clr = colorDown;
 			break;
 		case STATE_DISABLED:
-			ref = atlasRefDisabled;
+			elem = atlasElemDisabled;
 			clr = colorDisabled;
 			break;
 		}
 		
 		//set the texture
 		if(atlas != null) {
-			imageDrawable.setTextureByAtlas(atlas, ref != null ? ref : atlasRefUp);
+			imageDrawable.setTextureByAtlas(atlas, elem != TextureAtlas.INVALID_ELEMENT ? elem : atlasElemUp);
 			imageDrawable.setFlip(hFlip, vFlip);
 			imageDrawable.width = getWidth();
 			imageDrawable.height = getHeight();
@@ -103,6 +118,17 @@ public class ButtonImageUI extends BaseButtonUI {
 		}
 	}
 	
+	private void resolveAtlasRefs() {
+		if(atlas != null) {
+			atlasElemUp = atlas.getElementHandle(atlasRefUp);
+			atlasElemDown = atlas.getElementHandle(atlasRefDown);
+			atlasElemDisabled = atlas.getElementHandle(atlasRefDisabled);
+		}
+		else {
+			atlasElemUp = atlasElemDown = atlasElemDisabled = TextureAtlas.INVALID_ELEMENT;
+		}
+	}
+	
 	/**
 	 * Adjust the scale of the string to fit inside the frame
 	 */
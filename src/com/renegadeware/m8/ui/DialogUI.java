@@ -458,10 +458,10 @@ public class DialogUI extends FrameUI {
 	}
 	
 	@Override
-	public void render(float x, float y, float scaleX, float scaleY,
-			float rotate, float screenScaleX, float screenScaleY, float alpha) {
+	public void render(UIRenderList list, float x, float y, float scaleX, float scaleY,
+			float rotate, float alpha) {
 		//draw frame
-		super.render(x, y, scaleX, scaleY, rotate, screenScaleX, screenScaleY, alpha);
+		super.render(list, x, y, scaleX, scaleY, rotate, alpha);
 		//
 		
 		//render the other elements only if no animation is involved
@@ -469,8 +469,7 @@ public class DialogUI extends FrameUI {
 			//draw portraits
 			for(int i = 0; i < curActorNum; i++) {
 				DrawableBitmap portraitDrawable = portraitDrawables[i];
-				portraitDrawable.color.alpha = alpha;
-				portraitDrawable.draw(x + portraitOffsetX*scaleX, y + portraitOffsetY*scaleY, scaleX, scaleY, rotate, screenScaleX, screenScaleY);
+				list.add(portraitDrawable, portraitDrawable.color, x + portraitOffsetX*scaleX, y + portraitOffsetY*scaleY, scaleX, scaleY, rotate, alpha);
 			}
 			//
 			
@@ -479,15 +478,14 @@ public class DialogUI extends FrameUI {
 				float ofsX = nameOffsetX*scaleX;
 				float ofsY = nameOffsetY*scaleY;
 				
-				namePlateDrawable.draw(x + ofsX, y + ofsY, scaleX, scaleY, rotate, screenScaleX, screenScaleY);
-				nameTextDrawable.draw(x + ofsX, y + ofsY, scaleX, scaleY, rotate, screenScaleX, screenScaleY);
+				list.add(namePlateDrawable, null, x + ofsX, y + ofsY, scaleX, scaleY, rotate, alpha);
+				list.add(nameTextDrawable, null, x + ofsX, y + ofsY, scaleX, scaleY, rotate, alpha);
 			}
 			//
 			
 			//draw dialog text
 			if(textDrawable.count > 0) {
-				textDrawable.color.alpha = alpha;
-				textDrawable.draw(x, y, scaleX, scaleY, rotate, screenScaleX, screenScaleY);
+				list.add(textDrawable, textDrawable.color, x, y, scaleX, scaleY, rotate, alpha);
 			}
 			//
 			
@@ -495,13 +493,11 @@ public class DialogUI extends FrameUI {
 			if(readyToTurnPage) {
 				if(isLastPage) {
 					if(endPageVisible) {
-						endPageDrawable.color.alpha = alpha;
-						endPageDrawable.draw(x, y, scaleX, scaleY, rotate, screenScaleX, screenScaleY);
+						list.add(endPageDrawable, endPageDrawable.color, x, y, scaleX, scaleY, rotate, alpha);
 					}
 				}
 				else {
-					turnPageDrawable.color.alpha = alpha;
-					turnPageDrawable.draw(x, y, scaleX, scaleY, rotate, screenScaleX, screenScaleY);
+					list.add(turnPageDrawable, turnPageDrawable.color, x, y, scaleX, scaleY, rotate, alpha);
 				}
 			}
 			//
@@ -565,7 +561,7 @@ public class DialogUI extends FrameUI {
 		}
 
 		@Override
-		public void update(float timeDelta, UIDrawable drawable, int renderOrder, float x, float y) {
+		public void update(float timeDelta, UIRenderList list, int renderOrder, float x, float y) {
 			curDelay += timeDelta;
 			if(curDelay > maxDelay) {
 				curDelay = maxDelay;
@@ -576,9 +572,11 @@ public class DialogUI extends FrameUI {
 			
 			float t = Ease.out(curDelay, maxDelay, 0.0f, 1.0f);
 			
-			drawable.setCurAlpha(t);//e);
-			
-			systemRegistry.renderSystem.scheduleForDraw(drawable, x, y, t, t, 0.0f, renderOrder);
+			if(list != null) {
+				list.setAlpha(t);//e);
+				
+				systemRegistry.renderSystem.scheduleForDraw(list, x, y, t, t, 0.0f, renderOrder);
+			}
 		}
 
 		@Override
@@ -602,7 +600,7 @@ public class DialogUI extends FrameUI {
 		}
 
 		@Override
-		public void update(float timeDelta, UIDrawable drawable, int renderOrder, float x, float y) {
+		public void update(float timeDelta, UIRenderList list, int renderOrder, float x, float y) {
 			curDelay += timeDelta;
 			if(curDelay > maxDelay) {
 				curDelay = maxDelay;
@@ -610,8 +608,10 @@ public class DialogUI extends FrameUI {
 			
 			float t = 1.0f - curDelay/maxDelay;
 
-			drawable.setCurAlpha(t);
-			systemRegistry.renderSystem.scheduleForDraw(drawable, x, y, t, t, 0.0f, renderOrder);
+			if(list != null) {
+				list.setAlpha(t);
+				systemRegistry.renderSystem.scheduleForDraw(list, x, y, t, t, 0.0f, renderOrder);
+			}
 		}
 
 		@Override
@@ -98,11 +98,10 @@ public class FrameImageUI extends FrameUI {
 	}
 	
 	@Override
-	public void render(float x, float y, float scaleX, float scaleY,
-			float rotate, float screenScaleX, float screenScaleY, float alpha) {
-		super.render(x, y, scaleX, scaleY, rotate, screenScaleX, screenScaleY, alpha);
+	public void render(UIRenderList list, float x, float y, float scaleX, float scaleY,
+			float rotate, float alpha) {
+		super.render(list, x, y, scaleX, scaleY, rotate, alpha);
 		
-		imageDrawable.color.alpha = alpha;
-		imageDrawable.draw(x, y, scaleX, scaleY, rotate, screenScaleX, screenScaleY);
+		list.add(imageDrawable, imageDrawable.color, x, y, scaleX, scaleY, rotate, alpha);
 	}
 }
@@ -72,13 +72,12 @@ public class FrameTextUI extends FrameUI {
 	}
 		
 	@Override
-	public void render(float x, float y, float scaleX, float scaleY,
-			float rotate, float screenScaleX, float screenScaleY, float alpha) {
-		super.render(x, y, scaleX, scaleY, rotate, screenScaleX, screenScaleY, alpha);
+	public void render(UIRenderList list, float x, float y, float scaleX, float scaleY,
+			float rotate, float alpha) {
+		super.render(list, x, y, scaleX, scaleY, rotate, alpha);
 		
 		if(!textDrawable.isEmpty()) {
-			textDrawable.color.alpha = alpha;
-			textDrawable.draw(x+getWidth()*0.5f*scaleX, y+getHeight()*0.5f*scaleY, scaleX, scaleY, rotate, screenScaleX, screenScaleY);
+			list.add(textDrawable, textDrawable.color, x+getWidth()*0.5f*scaleX, y+getHeight()*0.5f*scaleY, scaleX, scaleY, rotate, alpha);
 		}
 	}
 }
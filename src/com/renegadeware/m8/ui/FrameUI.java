@@ -64,9 +64,8 @@ public class FrameUI extends BaseUI {
 	}
 	
 	@Override
-	public void render(float x, float y, float scaleX, float scaleY,
-			float rotate, float screenScaleX, float screenScaleY, float alpha) {
-		frameDrawable.color.alpha = alpha;
-		frameDrawable.draw(x, y, scaleX, scaleY, rotate, screenScaleX, screenScaleY);
+	public void render(UIRenderList list, float x, float y, float scaleX, float scaleY,
+			float rotate, float alpha) {
+		list.add(frameDrawable, frameDrawable.color, x, y, scaleX, scaleY, rotate, alpha);
 	}
 }
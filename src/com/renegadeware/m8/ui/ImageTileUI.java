@@ -38,23 +38,25 @@ public class ImageTileUI extends ImageUI {
 	}
 	
 	@Override
-	public void render(float x, float y, float scaleX, float scaleY,
-			float rotate, float screenScaleX, float screenScaleY, float alpha) {
-		imageDrawable.color.alpha = alpha;
+	public void render(UIRenderList list, float x, float y, float scaleX, float scaleY,
+			float rotate, float alpha) {
+		//each tile is recorded at its own position, the drawable is shared by all of them
+		imageDrawable.anchorX = 0;
+		imageDrawable.anchorY = 0;
 		
-		imageDrawable.anchorY = y;
+		float tileY = y;
 		
 		for(int r = 0; r < numTileV; r++) {
 			
-			imageDrawable.anchorX = x;
+			float tileX = x;
 			
 			for(int c = 0; c < numTileH; c++) {
-				imageDrawable.draw(x, y, scaleX, scaleY, rotate, screenScaleX, screenScaleY);
+				list.add(imageDrawable, imageDrawable.color, tileX, tileY, scaleX, scaleY, rotate, alpha);
 				
-				imageDrawable.anchorX += tileWidth;
+				tileX += tileWidth*scaleX;
 			}
 			
-			imageDrawable.anchorY += tileHeight;
+			tileY += tileHeight*scaleY;
 		}
 	}
 }
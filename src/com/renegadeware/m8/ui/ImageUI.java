@@ -98,9 +98,8 @@ public class ImageUI extends BaseUI {
 	}
 	
 	@Override
-	public void render(float x, float y, float scaleX, float scaleY,
-			float rotate, float screenScaleX, float screenScaleY, float alpha) {
-		imageDrawable.color.alpha = alpha;
-		imageDrawable.draw(x, y, scaleX, scaleY, rotate, screenScaleX, screenScaleY);
+	public void render(UIRenderList list, float x, float y, float scaleX, float scaleY,
+			float rotate, float alpha) {
+		list.add(imageDrawable, imageDrawable.color, x, y, scaleX, scaleY, rotate, alpha);
 	}
 }
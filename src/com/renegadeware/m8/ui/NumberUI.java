@@ -76,9 +76,8 @@ public class NumberUI extends BaseUI {
 	}
 		
 	@Override
-	public void render(float x, float y, float scaleX, float scaleY,
-			float rotate, float screenScaleX, float screenScaleY, float alpha) {
-		numDrawable.color.alpha = alpha;
-		numDrawable.draw(x, y, scaleX, scaleY, rotate, screenScaleX, screenScaleY);
+	public void render(UIRenderList list, float x, float y, float scaleX, float scaleY,
+			float rotate, float alpha) {
+		list.add(numDrawable, numDrawable.color, x, y, scaleX, scaleY, rotate, alpha);
 	}
 }
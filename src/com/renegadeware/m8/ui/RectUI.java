@@ -28,9 +28,8 @@ public class RectUI extends BaseUI {
 	}
 	
 	@Override
-	public void render(float x, float y, float scaleX, float scaleY,
-			float rotate, float screenScaleX, float screenScaleY, float alpha) {
-		rectDrawable.color.alpha = alpha;
-		rectDrawable.draw(x, y, getWidth()*scaleX, getHeight()*scaleY, rotate, screenScaleX, screenScaleY);
+	public void render(UIRenderList list, float x, float y, float scaleX, float scaleY,
+			float rotate, float alpha) {
+		list.add(rectDrawable, rectDrawable.color, x, y, getWidth()*scaleX, getHeight()*scaleY, rotate, alpha);
 	}
 }
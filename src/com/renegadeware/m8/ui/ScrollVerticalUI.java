@@ -4,7 +4,6 @@ import javax.microedition.khronos.opengles.GL10;
 
 import com.renegadeware.m8.gfx.Color;
 import com.renegadeware.m8.gfx.DrawableBitmap;
-import com.renegadeware.m8.gfx.OpenGLSystem;
 import com.renegadeware.m8.gfx.TextureAtlas;
 import com.renegadeware.m8.input.InputXY;
 import com.renegadeware.m8.util.Util;
@@ -134,25 +133,18 @@ public class ScrollVerticalUI extends BaseUI {
 	}
 
 	@Override
-	public void render(float x, float y, float scaleX, float scaleY,
-			float rotate, float screenScaleX, float screenScaleY, float alpha) {
+	public void render(UIRenderList list, float x, float y, float scaleX, float scaleY,
+			float rotate, float alpha) {
 		final float w = getWidth(), h = getHeight();
 		
-		final GL10 gl = OpenGLSystem.getGL();
-		gl.glEnable(GL10.GL_SCISSOR_TEST);
-		gl.glScissor(
-				(int)(x*screenScaleX), 
-				(int)(y*screenScaleY), 
-				(int)(w*scaleX*screenScaleX), 
-				(int)(h*scaleY*screenScaleY));
+		list.beginScissor(x, y, w*scaleX, h*scaleY);
 		
-		item._drawable.setCurAlpha(alpha);
-		item._drawable.draw(
+		item.record(list, 
 				x + (w*0.5f - item.getWidth()*0.5f)*scaleX, 
 				y + (h - item.getHeight() - itemPaddingY + curOfs)*scaleY, 
-				scaleX, scaleY, rotate, screenScaleX, screenScaleY);
+				scaleX, scaleY, rotate, alpha);
 		
-		gl.glDisable(GL10.GL_SCISSOR_TEST);
+		list.endScissor();
 		
 		//display highlight
 		if(highlightAlpha > 0) {
@@ -174,8 +166,7 @@ public class ScrollVerticalUI extends BaseUI {
 				break;
 			}
 			
-			highlightDrawable.color.alpha = highlightAlpha*alpha;
-			highlightDrawable.draw(x, y + highlightY, scaleX, scaleY, rotate, screenScaleX, screenScaleY);
+			list.add(highlightDrawable, highlightDrawable.color, x, y + highlightY, scaleX, scaleY, rotate, highlightAlpha*alpha);
 		}
 	}
 	
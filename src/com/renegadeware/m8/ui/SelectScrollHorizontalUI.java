@@ -55,8 +55,8 @@ public class SelectScrollHorizontalUI extends BaseSelectScrollUI {
 	}
 
 	@Override
-	protected void renderItems(float x, float y, float scaleX, float scaleY,
-			float rotate, float screenScaleX, float screenScaleY, float alpha) {
+	protected void renderItems(UIRenderList list, float x, float y, float scaleX, float scaleY,
+			float rotate, float alpha) {
 		final float w = getWidth();
 		final float h = getHeight();
 		
@@ -78,31 +78,28 @@ public class SelectScrollHorizontalUI extends BaseSelectScrollUI {
 			float delta = item.x + curOfs;
 									
 			if(delta == 0) {
-				item._drawable.setCurAlpha(alpha);
-				item._drawable.draw(
+				item.record(list,
 						x + (itmX - itmHalfW)*scaleX, 
 						y + (h*0.5f - item.getHeight()*0.5f)*scaleY, 
-						scaleX, scaleY, rotate, screenScaleX, screenScaleY);
+						scaleX, scaleY, rotate, alpha);
 			}
 			else {
 				float t = delta/scalerSize;
 				t *= t;
 				
 				if(t >= 1) {
-					item._drawable.setCurAlpha(alpha*unselectAlpha);
-					item._drawable.draw(
+					item.record(list,
 							x + (itmX - itmHalfW*unselectScale)*scaleX, 
 							y + (h*0.5f - item.getHeight()*0.5f*unselectScale)*scaleY, 
-							scaleX*unselectScale, scaleY*unselectScale, rotate, screenScaleX, screenScaleY);
+							scaleX*unselectScale, scaleY*unselectScale, rotate, alpha*unselectAlpha);
 				}
 				else {
 					float scale = 1.0f + t*(unselectScale - 1.0f);
 					
-					item._drawable.setCurAlpha((1.0f + t*(unselectAlpha - 1.0f))*alpha);
-					item._drawable.draw(
+					item.record(list,
 							x + (itmX - itmHalfW*scale)*scaleX, 
 							y + (h*0.5f - item.getHeight()*0.5f*scale)*scaleY, 
-							scaleX*scale, scaleY*scale, rotate, screenScaleX, screenScaleY);
+							scaleX*scale, scaleY*scale, rotate, (1.0f + t*(unselectAlpha - 1.0f))*alpha);
 				}
 			}
 		}
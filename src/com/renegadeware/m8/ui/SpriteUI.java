@@ -73,9 +73,8 @@ public class SpriteUI extends BaseUI {
 	}
 	
 	@Override
-	protected void render(float x, float y, float scaleX, float scaleY,
-			float rotate, float screenScaleX, float screenScaleY, float alpha) {
-		drawable.color.alpha = alpha;
-		drawable.draw(x, y, scaleX, scaleY, rotate, screenScaleX, screenScaleY);
+	protected void render(UIRenderList list, float x, float y, float scaleX, float scaleY,
+			float rotate, float alpha) {
+		list.add(drawable, drawable.color, x, y, scaleX, scaleY, rotate, alpha);
 	}
 }
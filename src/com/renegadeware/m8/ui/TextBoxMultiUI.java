@@ -97,12 +97,11 @@ public class TextBoxMultiUI extends BaseUI {
 	}
 	
 	@Override
-	public void render(float x, float y, float scaleX, float scaleY,
-			float rotate, float screenScaleX, float screenScaleY, float alpha) {
+	public void render(UIRenderList list, float x, float y, float scaleX, float scaleY,
+			float rotate, float alpha) {
 		DrawableGrid textDrawable = textDrawables[curPage];
 		if(textDrawable != null) {
-			textDrawable.color.alpha = alpha;
-			textDrawable.draw(x, y, scaleX, scaleY, rotate, screenScaleX, screenScaleY);
+			list.add(textDrawable, textDrawable.color, x, y, scaleX, scaleY, rotate, alpha);
 		}
 	}
 
@@ -29,17 +29,15 @@ public class TextFixedSizeUI extends TextUI {
 	}
 	
 	@Override
-	public void render(float x, float y, float scaleX, float scaleY,
-			float rotate, float screenScaleX, float screenScaleY, float alpha) {
-		textDrawable.color.alpha = alpha;
-		
+	public void render(UIRenderList list, float x, float y, float scaleX, float scaleY,
+			float rotate, float alpha) {
 		float _x = x, _y = y;
 		
 		if(textAnchorH == ANCHOR_STRETCH || textAnchorV == ANCHOR_STRETCH) {
 			_x += (getWidth()*0.5f - textDrawable.getWidth()*textScale*0.5f)*scaleX;
 			_y += (getHeight()*0.5f - textDrawable.getHeight()*textScale*0.5f)*scaleY;
 			
-			textDrawable.draw(_x, _y, scaleX*textScale, scaleY*textScale, rotate, screenScaleX, screenScaleY);
+			list.add(textDrawable, textDrawable.color, _x, _y, scaleX*textScale, scaleY*textScale, rotate, alpha);
 		}
 		else {
 			switch(textAnchorH) {
@@ -60,7 +58,7 @@ public class TextFixedSizeUI extends TextUI {
 				break;
 			}
 			
-			textDrawable.draw(_x, _y, scaleX, scaleY, rotate, screenScaleX, screenScaleY);
+			list.add(textDrawable, textDrawable.color, _x, _y, scaleX, scaleY, rotate, alpha);
 		}
 	}
 	
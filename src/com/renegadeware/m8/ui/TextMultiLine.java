@@ -20,9 +20,13 @@ public class TextMultiLine extends BaseUI {
 	protected final DrawableTextLine textDrawable;
 	
 	protected ArrayList<String> texts;
+	
+	//one per line, so that each line can be recorded for rendering
+	private final ArrayList<DrawableTextLine> lineDrawables;
 
 	public TextMultiLine() {
 		textDrawable = new DrawableTextLine();
+		lineDrawables = new ArrayList<DrawableTextLine>();
 	}
 
 	public void setColor(Color c) {
@@ -36,6 +40,8 @@ public class TextMultiLine extends BaseUI {
 			textDrawable.color.set(c);
 			setAlpha(c.alpha);
 		}
+		
+		_refreshLines();
 	}
 	
 	public void setAlign(int align) {
@@ -60,12 +66,16 @@ public class TextMultiLine extends BaseUI {
 	public void setText(String text) {
 		texts = generateTextLines(text);
 		
+		_refreshLines();
+		
 		resize(getWidth(), _getTextLinesHeight());
 	}
 	
 	public void setText(ArrayList<String> texts) {
 		this.texts = texts;
 		
+		_refreshLines();
+		
 		resize(getWidth(), _getTextLinesHeight());
 	}
 	
@@ -104,6 +114,25 @@ public class TextMultiLine extends BaseUI {
 		texts = null;
 	}
 	
+	private void _refreshLines() {
+		final int count = texts != null ? texts.size() : 0;
+		
+		while(lineDrawables.size() < count) {
+			lineDrawables.add(new DrawableTextLine());
+		}
+		
+		for(int i = 0; i < count; i++) {
+			DrawableTextLine line = lineDrawables.get(i);
+			
+			line.setFont(textDrawable.getFont());
+			if(fontPtSize > 0.0f) {
+				line.setPointSize(fontPtSize);
+			}
+			line.color.set(textDrawable.color);
+			line.setText(texts.get(i));
+		}
+	}
+	
 	private float _getTextLinesHeight() {
 		float h = 0;
 		
@@ -117,37 +146,37 @@ public class TextMultiLine extends BaseUI {
 	}
 	
 	@Override
-	public void render(float x, float y, float scaleX, float scaleY,
-			float rotate, float screenScaleX, float screenScaleY, float alpha) {
+	public void render(UIRenderList list, float x, float y, float scaleX, float scaleY,
+			float rotate, float alpha) {
 		if(texts == null) {
 			return;
 		}
 		
-		textDrawable.color.alpha = alpha;
-		
 		//start from top
 		float w = getWidth();
 		float _y = y + getHeight();
 		float fntH = textDrawable.getHeight();
 		
-		for(String text : texts) {
+		final int count = texts.size();
+		
+		for(int i = 0; i < count; i++) {
 			_y -= fntH;
 			
-			textDrawable.setText(text);
+			DrawableTextLine line = lineDrawables.get(i);
 			
-			float txtW = textDrawable.getWidth();
+			float txtW = line.getWidth();
 			
 			switch(align) {
 			case ALIGN_LEFT:
-				textDrawable.draw(x, _y, scaleX, scaleY, rotate, screenScaleX, screenScaleY);
+				list.add(line, line.color, x, _y, scaleX, scaleY, rotate, alpha);
 				break;
 				
 			case ALIGN_RIGHT:
-				textDrawable.draw(x + (w - txtW)*scaleX, _y, scaleX, scaleY, rotate, screenScaleX, screenScaleY);
+				list.add(line, line.color, x + (w - txtW)*scaleX, _y, scaleX, scaleY, rotate, alpha);
 				break;
 				
 			case ALIGN_CENTER:
-				textDrawable.draw(x + (w*0.5f - txtW*0.5f)*scaleX, _y, scaleX, scaleY, rotate, screenScaleX, screenScaleY);
+				list.add(line, line.color, x + (w*0.5f - txtW*0.5f)*scaleX, _y, scaleX, scaleY, rotate, alpha);
 				break;
 			}
 		}
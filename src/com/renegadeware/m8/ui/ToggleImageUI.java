@@ -60,14 +60,12 @@ public class ToggleImageUI extends ToggleUI {
 	}
 	
 	@Override
-	public void render(float x, float y, float scaleX, float scaleY,
-			float rotate, float screenScaleX, float screenScaleY, float alpha) {
-		baseDrawable.color.alpha = alpha;
-		baseDrawable.draw(x, y, scaleX, scaleY, rotate, screenScaleX, screenScaleY);
+	public void render(UIRenderList list, float x, float y, float scaleX, float scaleY,
+			float rotate, float alpha) {
+		list.add(baseDrawable, baseDrawable.color, x, y, scaleX, scaleY, rotate, alpha);
 		
 		if(toggle) {
-			toggleDrawable.color.alpha = alpha;
-			toggleDrawable.draw(x, y, scaleX, scaleY, rotate, screenScaleX, screenScaleY);
+			list.add(toggleDrawable, toggleDrawable.color, x, y, scaleX, scaleY, rotate, alpha);
 		}
 	}
 
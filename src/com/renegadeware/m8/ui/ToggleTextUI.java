@@ -88,10 +88,9 @@ public class ToggleTextUI extends ToggleUI {
 	}
 		
 	@Override
-	public void render(float x, float y, float scaleX, float scaleY,
-			float rotate, float screenScaleX, float screenScaleY, float alpha) {
-		textDrawable.color.alpha = alpha;
-		textDrawable.draw(x, y, scaleX, scaleY, rotate, screenScaleX, screenScaleY);
+	public void render(UIRenderList list, float x, float y, float scaleX, float scaleY,
+			float rotate, float alpha) {
+		list.add(textDrawable, textDrawable.color, x, y, scaleX, scaleY, rotate, alpha);
 	}
 
 	@Override
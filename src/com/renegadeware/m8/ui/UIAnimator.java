@@ -2,6 +2,11 @@ package com.renegadeware.m8.ui;
 
 public interface UIAnimator {
 	public void start();
-	public void update(float timeDelta, BaseUI.UIDrawable drawable, int renderOrder, float x, float y);
+	/**
+	 * Called every frame while the ui is animated, the animator has to schedule the list for
+	 * draw.  The list is the ui's render snapshot for this frame, recorded at the ui's origin, null
+	 * if the snapshots ran out this frame, in which case only the animation is advanced.
+	 */
+	public void update(float timeDelta, UIRenderList list, int renderOrder, float x, float y);
 	public boolean isDone();
 }
@@ -0,0 +1,319 @@
+package com.renegadeware.m8.ui;
+
+import com.renegadeware.m8.util.FixedSizeArray;
+
+/**
+ * Uniform grid over the absolute bounds of the visible uis, used by UISystem to find the ui under
+ * a touch without going through every ui.  Each ui tree given to update is indexed separately, and
+ * only re-indexed when its root moved or something in it was laid out, resized, shown, hidden, or
+ * had its input enabled or disabled.
+ * <p>
+ * hitTest returns the top-most ui in draw order: by the root's phase, then the root's order in
+ * the UISystem, then children over their parents and later children over earlier ones.
+ */
+final class UIHitIndex {
+	private static final int CELL_SIZE = 64;
+
+	private final int cols;
+	private final int rows;
+
+	// (tree slot << 16) | entry index, per cell
+	private final int[][] cells;
+	private final int[] cellCounts;
+
+	private Tree[] trees;
+	private int frame;
+
+	UIHitIndex(int width, int height, int capacity) {
+		cols = width > 0 ? (width + CELL_SIZE - 1) / CELL_SIZE : 1;
+		rows = height > 0 ? (height + CELL_SIZE - 1) / CELL_SIZE : 1;
+
+		cells = new int[cols*rows][];
+		cellCounts = new int[cols*rows];
+		for(int i = 0; i < cells.length; i++) {
+			cells[i] = new int[8];
+		}
+
+		trees = new Tree[capacity > 0 ? capacity : 1];
+	}
+
+	/**
+	 * Brings the index up to date with the uis, in UISystem order.  Trees of uis that are no
+	 * longer given are dropped.
+	 */
+	void update(FixedSizeArray<?> uis) {
+		frame++;
+
+		final int count = uis.getCount();
+		final Object[] objects = uis.getArray();
+		for(int i = 0; i < count; i++) {
+			final BaseUI root = (BaseUI)objects[i];
+
+			Tree tree = find(root);
+			if(tree == null) {
+				tree = add(root);
+			}
+			else if(root._hitDirty || tree.x != root.getAdjustedX() || tree.y != root.getAdjustedY()) {
+				remove(tree);
+				insert(tree);
+			}
+
+			tree.order = i;
+			tree.frame = frame;
+		}
+
+		for(int s = 0; s < trees.length; s++) {
+			final Tree tree = trees[s];
+			if(tree != null && tree.frame != frame) {
+				remove(tree);
+				trees[s] = null;
+			}
+		}
+	}
+
+	/** Drops everything. */
+	void clear() {
+		for(int s = 0; s < trees.length; s++) {
+			trees[s] = null;
+		}
+
+		for(int c = 0; c < cellCounts.length; c++) {
+			cellCounts[c] = 0;
+		}
+	}
+
+	/**
+	 * The top-most ui at the point with input enabled, in a tree whose root takes input, isn't
+	 * animating, and isn't covered by a modal root.
+	 */
+	BaseUI hitTest(float x, float y) {
+		final int col = (int)(x / CELL_SIZE);
+		final int row = (int)(y / CELL_SIZE);
+
+		BaseUI found = null;
+		Tree foundTree = null;
+		int foundEntry = -1;
+
+		if(x >= 0 && y >= 0 && col < cols && row < rows) {
+			final int cell = row*cols + col;
+			final int[] values = cells[cell];
+			final int count = cellCounts[cell];
+
+			for(int i = 0; i < count; i++) {
+				final int value = values[i];
+				final Tree tree = trees[value >>> 16];
+				final int entry = value & 0xffff;
+
+				if(foundTree != null && (compare(tree, foundTree) < 0
+						|| (tree == foundTree && entry < foundEntry))) {
+					continue;
+				}
+
+				final BaseUI root = tree.root;
+				final BaseUI ui = tree.uis[entry];
+				final float[] r = tree.rects;
+				final int ri = entry*4;
+
+				if(ui.inputEnabled && root.inputEnabled && root.visible && root._animator == null
+						&& r[ri] <= x && x <= r[ri+2] && r[ri+1] <= y && y <= r[ri+3]) {
+					found = ui;
+					foundTree = tree;
+					foundEntry = entry;
+				}
+			}
+		}
+
+		// modal roots keep the touch from anything below them
+		for(int s = 0; s < trees.length; s++) {
+			final Tree tree = trees[s];
+			if(tree != null && tree.root.modal && tree != foundTree
+					&& (foundTree == null || compare(tree, foundTree) > 0)) {
+				return null;
+			}
+		}
+
+		return found;
+	}
+
+	private static int compare(Tree a, Tree b) {
+		final int pa = a.root.phase, pb = b.root.phase;
+		if(pa != pb) {
+			return pa < pb ? -1 : 1;
+		}
+		return a.order < b.order ? -1 : (a.order == b.order ? 0 : 1);
+	}
+
+	private Tree find(BaseUI root) {
+		for(int s = 0; s < trees.length; s++) {
+			final Tree tree = trees[s];
+			if(tree != null && tree.root == root) {
+				return tree;
+			}
+		}
+		return null;
+	}
+
+	private Tree add(BaseUI root) {
+		int slot = -1;
+		for(int s = 0; s < trees.length; s++) {
+			if(trees[s] == null) {
+				slot = s;
+				break;
+			}
+		}
+
+		if(slot < 0) {
+			slot = trees.length;
+
+			final Tree[] newTrees = new Tree[trees.length*2];
+			System.arraycopy(trees, 0, newTrees, 0, trees.length);
+			trees = newTrees;
+		}
+
+		final Tree tree = new Tree(root, slot);
+		trees[slot] = tree;
+
+		insert(tree);
+
+		return tree;
+	}
+
+	private void insert(Tree tree) {
+		final BaseUI root = tree.root;
+
+		root._hitDirty = false;
+
+		tree.count = 0;
+		tree.x = root.getAdjustedX();
+		tree.y = root.getAdjustedY();
+
+		if(root.visible) {
+			tree.collect(root, tree.x, tree.y);
+		}
+
+		final int code = tree.slot << 16;
+		final float[] r = tree.rects;
+		for(int e = 0; e < tree.count; e++) {
+			final int ri = e*4;
+			final int c0 = clampCol(r[ri]), c1 = clampCol(r[ri+2]);
+			final int r0 = clampRow(r[ri+1]), r1 = clampRow(r[ri+3]);
+
+			for(int row = r0; row <= r1; row++) {
+				for(int col = c0; col <= c1; col++) {
+					addToCell(row*cols + col, code | e);
+				}
+			}
+		}
+	}
+
+	private void remove(Tree tree) {
+		final int slot = tree.slot;
+		final float[] r = tree.rects;
+		for(int e = 0; e < tree.count; e++) {
+			final int ri = e*4;
+			final int c0 = clampCol(r[ri]), c1 = clampCol(r[ri+2]);
+			final int r0 = clampRow(r[ri+1]), r1 = clampRow(r[ri+3]);
+
+			for(int row = r0; row <= r1; row++) {
+				for(int col = c0; col <= c1; col++) {
+					removeFromCell(row*cols + col, slot);
+				}
+			}
+		}
+
+		tree.count = 0;
+	}
+
+	private void addToCell(int cell, int value) {
+		int[] values = cells[cell];
+		final int count = cellCounts[cell];
+		if(count == values.length) {
+			final int[] newValues = new int[values.length*2];
+			System.arraycopy(values, 0, newValues, 0, count);
+			cells[cell] = values = newValues;
+		}
+		values[count] = value;
+		cellCounts[cell] = count + 1;
+	}
+
+	/** Removes all of the tree's values from the cell. */
+	private void removeFromCell(int cell, int slot) {
+		final int[] values = cells[cell];
+		final int count = cellCounts[cell];
+		int n = 0;
+		for(int i = 0; i < count; i++) {
+			if((values[i] >>> 16) != slot) {
+				values[n++] = values[i];
+			}
+		}
+		cellCounts[cell] = n;
+	}
+
+	private int clampCol(float x) {
+		final int c = (int)(x / CELL_SIZE);
+		return c < 0 ? 0 : (c >= cols ? cols - 1 : c);
+	}
+
+	private int clampRow(float y) {
+		final int r = (int)(y / CELL_SIZE);
+		return r < 0 ? 0 : (r >= rows ? rows - 1 : r);
+	}
+
+	private static final class Tree {
+		final BaseUI root;
+		final int slot;
+
+		// where the root was indexed
+		float x;
+		float y;
+
+		int order;
+		int frame;
+
+		// visible uis in draw order and their absolute bounds: left, bottom, right, top
+		BaseUI[] uis;
+		float[] rects;
+		int count;
+
+		Tree(BaseUI root, int slot) {
+			this.root = root;
+			this.slot = slot;
+			uis = new BaseUI[8];
+			rects = new float[8*4];
+		}
+
+		void collect(BaseUI ui, float x, float y) {
+			if(count == uis.length) {
+				final BaseUI[] newUis = new BaseUI[uis.length*2];
+				System.arraycopy(uis, 0, newUis, 0, count);
+				uis = newUis;
+
+				final float[] newRects = new float[rects.length*2];
+				System.arraycopy(rects, 0, newRects, 0, count*4);
+				rects = newRects;
+			}
+
+			uis[count] = ui;
+			final int ri = count*4;
+			rects[ri] = x;
+			rects[ri+1] = y;
+			rects[ri+2] = x + ui.getWidth();
+			rects[ri+3] = y + ui.getHeight();
+			count++;
+
+			final BaseLayout layout = ui.getLayout();
+			if(layout != null) {
+				final FixedSizeArray<BaseUI> children = layout.getChildren();
+				final int childCount = children.getCount();
+				final Object[] objects = children.getArray();
+
+				for(int i = 0; i < childCount; i++) {
+					final BaseUI child = (BaseUI)objects[i];
+					if(child.visible) {
+						collect(child, x + child.getAdjustedX(), y + child.getAdjustedY());
+					}
+				}
+			}
+		}
+	}
+}
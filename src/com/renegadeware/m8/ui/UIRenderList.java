@@ -0,0 +1,176 @@
+package com.renegadeware.m8.ui;
+
+import com.renegadeware.m8.gfx.Color;
+import com.renegadeware.m8.gfx.DrawableObject;
+import com.renegadeware.m8.gfx.DrawableScissor;
+import com.renegadeware.m8.obj.TObjectPool;
+
+/**
+ * A flattened snapshot of a ui tree's draws for one frame, recorded by the game thread.  The
+ * render thread only plays the commands back, so it never goes through the ui or its layouts.
+ * <p>
+ * Commands are recorded relative to the ui's origin at a scale of 1, then placed where the list
+ * is scheduled: a command at (x, y) is drawn at the scheduled position plus (x, y) times the
+ * scheduled scale.  Each command keeps a copy of its drawable's color, crop and size (see
+ * DrawableObject.record) so that the ui can go on changing them, and is played back with that
+ * copy.  Commands given a color have their alpha replaced by the command's alpha times the
+ * list's alpha.
+ * <p>
+ * Lists come from a Pool and go back to it once the render queue they were scheduled in is done.
+ */
+public final class UIRenderList extends DrawableObject {
+	private static final int STATE = 6;
+	private static final int STRIDE = STATE + DrawableObject.RECORD_SIZE;
+
+	// stateless, so they can be shared by every list
+	private static final DrawableScissor scissorBegin = new DrawableScissor();
+	private static final DrawableScissor scissorEnd = new DrawableScissor();
+
+	static {
+		scissorBegin.enable = true;
+		scissorEnd.enable = false;
+	}
+
+	private DrawableObject[] drawables;
+	private float[] params; // x, y, scaleX, scaleY, rotate, 1 if given a color, recorded state
+	private int count;
+
+	private float alpha;
+
+	public UIRenderList() {
+		drawables = new DrawableObject[16];
+		params = new float[16*STRIDE];
+		alpha = 1.0f;
+	}
+
+	public int getCount() {
+		return count;
+	}
+
+	/** Multiplied to every command's alpha, set when the list is scheduled. */
+	public void setAlpha(float a) {
+		alpha = a;
+	}
+
+	public float getAlpha() {
+		return alpha;
+	}
+
+	/**
+	 * Records a draw of the drawable.
+	 *
+	 * @param color The drawable's color, if given alpha replaces its alpha.  Can be null.
+	 */
+	public void add(DrawableObject drawable, Color color,
+			float x, float y, float scaleX, float scaleY, float rotate, float alpha) {
+		if(count == drawables.length) {
+			grow();
+		}
+
+		drawables[count] = drawable;
+
+		final float[] p = params;
+		final int i = count*STRIDE;
+		p[i] = x;
+		p[i+1] = y;
+		p[i+2] = scaleX;
+		p[i+3] = scaleY;
+		p[i+4] = rotate;
+
+		drawable.record(p, i+STATE);
+		if(color != null) {
+			p[i+STATE+DrawableObject.RECORD_ALPHA] = alpha;
+			p[i+5] = 1.0f;
+		}
+		else {
+			p[i+5] = 0.0f;
+		}
+
+		count++;
+	}
+
+	/** Clips the following draws to the region until endScissor. */
+	public void beginScissor(float x, float y, float width, float height) {
+		add(scissorBegin, null, x, y, width, height, 0.0f, 1.0f);
+	}
+
+	public void endScissor() {
+		add(scissorEnd, null, 0.0f, 0.0f, 0.0f, 0.0f, 0.0f, 1.0f);
+	}
+
+	/** Lets go of the recorded drawables. */
+	public void clear() {
+		for(int i = 0; i < count; i++) {
+			drawables[i] = null;
+		}
+
+		count = 0;
+		alpha = 1.0f;
+	}
+
+	/** Allocates, only until the lists have grown to the largest tree. */
+	private void grow() {
+		final int size = drawables.length*2;
+
+		final DrawableObject[] newDrawables = new DrawableObject[size];
+		System.arraycopy(drawables, 0, newDrawables, 0, count);
+		drawables = newDrawables;
+
+		final float[] newParams = new float[size*STRIDE];
+		System.arraycopy(params, 0, newParams, 0, count*STRIDE);
+		params = newParams;
+	}
+
+	@Override
+	public void draw(float x, float y, float scaleX, float scaleY,
+			float rotate, float screenScaleX, float screenScaleY) {
+		final float alpha = this.alpha;
+		if(alpha <= 0.0f || scaleX == 0.0f || scaleY == 0.0f) {
+			return;
+		}
+
+		final DrawableObject[] drawables = this.drawables;
+		final float[] p = params;
+		final int count = this.count;
+
+		for(int c = 0; c < count; c++) {
+			final int i = c*STRIDE;
+
+			// the list's alpha only goes to commands given a color, the others are drawn as recorded
+			drawables[c].drawRecorded(p, i+STATE, p[i+5] != 0.0f ? alpha : 1.0f,
+					x + p[i]*scaleX, y + p[i+1]*scaleY,
+					p[i+2]*scaleX, p[i+3]*scaleY,
+					rotate + p[i+4],
+					screenScaleX, screenScaleY);
+		}
+	}
+
+	@Override
+	public void draw(float[] mtx, float screenScaleX, float screenScaleY) {
+		// assumes only translation and scale, like the bitmaps
+		draw(mtx[12], mtx[13], mtx[0], mtx[5], 0, screenScaleX, screenScaleY);
+	}
+
+	/** Recycles the lists, the render system releases them once they've been drawn. */
+	public static final class Pool extends TObjectPool<UIRenderList> {
+		public Pool(int size) {
+			super(size);
+		}
+
+		@Override
+		protected void fill() {
+			final int size = getSize();
+			for(int x = 0; x < size; x++) {
+				UIRenderList entry = new UIRenderList();
+				entry.setParentPool(this);
+				getAvailable().add(entry);
+			}
+		}
+
+		@Override
+		public void release(Object entry) {
+			((UIRenderList)entry).clear();
+			super.release(entry);
+		}
+	}
+}
@@ -10,7 +10,6 @@ import com.renegadeware.m8.res.ResourceManager;
 import com.renegadeware.m8.util.DataSection;
 import com.renegadeware.m8.util.FixedSizeArray;
 import com.renegadeware.m8.util.Util;
-import com.renegadeware.m8.util.XmlSection;
 
 public class UIRes extends Resource {
 	public static final String UI_TAG = "UI";
@@ -31,7 +30,7 @@ public class UIRes extends Resource {
 	
 	@Override
 	protected void prepareImpl() {
-		XmlSection xml = XmlSection.createFromResourceId(systemRegistry.contextParameters.context, id);
+		DataSection xml = DataSection.createFromResourceId(systemRegistry.contextParameters.context, id);
 		if(xml != null) {
 			DataSection.SearchIterator it = xml.search(UI_TAG);
 			while(it.hasNext()) {
@@ -1,7 +1,6 @@
 package com.renegadeware.m8.ui;
 
 import com.renegadeware.m8.DebugLog;
-import com.renegadeware.m8.MateActivity;
 import com.renegadeware.m8.input.InputSystem;
 import com.renegadeware.m8.input.InputXY;
 import com.renegadeware.m8.obj.BaseObject;
@@ -13,13 +12,33 @@ public class UISystem extends ObjectManager {
 	public static final float DRAG_THRESHOLD = 3.5f;
 	public static final float DRAG_THRESHOLD_SQ = DRAG_THRESHOLD*DRAG_THRESHOLD;
 	
-	private InputXY curTouch;
-	private BaseUI curInputUI;
+	//frames a render list can be in flight: the queue being written and up to three queued
+	private static final int RENDER_LIST_FRAMES = 4;
+	
 	private UIListener curListener;
 	
+	private final int capacity;
+	
+	// created on the first update, once the game size is known
+	private UIHitIndex hitIndex;
+	
+	// by touch point index, the ui holding the touch and whether the touch is in process
+	private BaseUI[] touchUIs;
+	private boolean[] touchHeld;
+	
+	private int layoutVisitCount;
+	private int layoutRefreshCount;
+	
+	// a list per ui per frame, until the render queues holding them are cleared
+	private final UIRenderList.Pool renderListPool;
+	
 	//set the maximum uis this object can process
 	public UISystem(int capacity) {
 		super(capacity);
+		
+		this.capacity = capacity;
+		
+		renderListPool = new UIRenderList.Pool(capacity*RENDER_LIST_FRAMES);
 	}
 		
 	/**
@@ -30,10 +49,29 @@ public class UISystem extends ObjectManager {
 		curListener = l;
 	}
 	
+	/** The number of uis the layout pass went through last frame. */
+	public int getLayoutVisitCount() {
+		return layoutVisitCount;
+	}
+	
+	/** The number of layouts committed or refreshed last frame. */
+	public int getLayoutRefreshCount() {
+		return layoutRefreshCount;
+	}
+	
 	@Override
 	public void reset() {
-		curTouch = null;
-		curInputUI = null;
+		if(touchUIs != null) {
+			for(int i = 0; i < touchUIs.length; i++) {
+				touchUIs[i] = null;
+				touchHeld[i] = false;
+			}
+		}
+		
+		if(hitIndex != null) {
+			hitIndex.clear();
+		}
+		
 		curListener = null;
 	}
 	
@@ -47,8 +85,16 @@ public class UISystem extends ObjectManager {
 	
 	@Override
 	public void remove(BaseObject object) {
-		if(object == curInputUI) {
-			curInputUI = null;
+		//let go of the touches held by the ui or its children
+		if(touchUIs != null) {
+			for(int i = 0; i < touchUIs.length; i++) {
+				for(BaseUI ui = touchUIs[i]; ui != null; ui = ui.getParent()) {
+					if(ui == object) {
+						touchUIs[i] = null;
+						break;
+					}
+				}
+			}
 		}
 		
         super.remove(object);
@@ -69,163 +115,169 @@ public class UISystem extends ObjectManager {
 		}
 	}
 		
-	private BaseUI _getInputUI(InputSystem uiSys) {
-		BaseUI foundUI = null;
+	/**
+	 * Finds the ui under the touch and presses it, unless another touch point already holds it.
+	 */
+	private BaseUI _pressInputUI(int pointer, InputXY touch) {
+		BaseUI foundUI = hitIndex.hitTest(touch.getX(), touch.getY());
 		
-		final int count = getCount();
-        if (count > 0) {
-        	//go from front to back, ie. last to first
-            final Object[] objectArray = getObjects().getArray();
-            for (int i = count-1; i >= 0; i--) {
-            	BaseUI ui = (BaseUI)objectArray[i];
-            	
-            	//break early if ui is modal to prevent flow
-            	if(ui.inputEnabled && ui.visible && ui._animator == null) {
-            		//grab touch based on ui's region if not available
-            		if(curTouch == null) {
-            			curTouch = ui.getTouch(uiSys);
-            		}
-            		
-            		//otherwise check if we are still in region
-            		if(curTouch != null && ui.isInRegion(curTouch.getX(), curTouch.getY(), false)) {
-        				//check for any child in found ui, otherwise just set ui as current
-        				BaseUI childUI = ui.getChildFromPoint(curTouch.getX(), curTouch.getY(), true);
-        				
-        				foundUI = childUI != null ? childUI : ui;
-        				
-        				//do an input callback
-        				foundUI.inputTouchPressed(curTouch);
-        				
-        				if(foundUI.inputListener != null) {
-        					foundUI.inputListener.inputTouchPressed(foundUI, curTouch);
-        				}
-        				else if(curListener != null) {
-        					curListener.inputTouchPressed(foundUI, curTouch);
-        				}
-        			}
-            	}
-            	
-            	if(foundUI != null || ui.modal) { //prevent processing other uis if this is modal
-            		break;
-            	}
-            }
-        }
-        
-        return foundUI;
+		if(foundUI != null) {
+			//a ui only takes one touch at a time
+			for(int i = 0; i < touchUIs.length; i++) {
+				if(i != pointer && touchUIs[i] == foundUI) {
+					return null;
+				}
+			}
+			
+			//do an input callback
+			foundUI.inputTouchPressed(touch);
+			
+			if(foundUI.inputListener != null) {
+				foundUI.inputListener.inputTouchPressed(foundUI, touch);
+			}
+			else if(curListener != null) {
+				curListener.inputTouchPressed(foundUI, touch);
+			}
+		}
+		
+		return foundUI;
 	}
 	
-	@Override
-	public void update(float timeDelta, BaseObject parent) {	
-		commitUpdates();
-		
-		//update the UIs
-		final FixedSizeArray<BaseObject> objs = getObjects();
-        final int count = objs.getCount();
-        if (count > 0) {
-            final Object[] objectArray = objs.getArray();
-            for (int i = 0; i < count; i++) {
-                BaseUI ui = (BaseUI)objectArray[i];
-                
-                ui._update(timeDelta);
-				
-        		//schedule ui render
-        		//if we have an animator, call its update with given drawable and render order
-        		if(ui.visible) {
-        			final UIAnimator animator = ui._animator;
-        			final BaseUI.UIDrawable drawable = ui._drawable;
-        			
-        			if(animator != null) {
-        				animator.update(timeDelta, drawable, ui.phase, ui.x, ui.y);
-        					
-    					if(animator.isDone()) {
-    						//wait for drawings to be done
-    						((MateActivity)systemRegistry.contextParameters.context).getRenderer().waitDrawingComplete();
-    						
-    						//synchronized(ui) { //wait for any drawing of this ui
-	    						drawable.resetCurAlpha();
-	    						ui.animationComplete(animator);
-	    						
-	    						if(ui._animatorRemoveOnEnd) {
-	    							ui._animator = null;
-	    						}
-	    						
-	    						if(ui._animatorRemoveUIOnEnd) {
-	    							remove(ui);
-	    							ui._animatorRemoveUIOnEnd = false;
-	    						}
-    						//}
-    					}
-        			}
-        			else {
-        				systemRegistry.renderSystem.scheduleForDraw(drawable, ui.x, ui.y, 1.0f, 1.0f, 0.0f, ui.phase);
-        			}
-        		}
-            }
-        }
-				
-		//process input
-		final InputSystem uiSys = BaseObject.systemRegistry.inputSystem;
-		
+	private void _updateTouch(int pointer, InputXY touch, float gameTime) {
 		//check if we currently have a touch in process
-		if(curTouch != null) {
+		if(touchHeld[pointer]) {
+			final BaseUI curInputUI = touchUIs[pointer];
 			
 			//make sure the ui still exists and that its input is still enabled
 			//if not, get another ui
 			if(curInputUI == null || !curInputUI.inputEnabled) {
-				if(curTouch.getPressed()) {
-					curInputUI = _getInputUI(uiSys);
-					if(curInputUI == null) {
+				touchUIs[pointer] = null;
+				
+				if(touch.getPressed()) {
+					touchUIs[pointer] = _pressInputUI(pointer, touch);
+					if(touchUIs[pointer] == null) {
 						//no ui found, reset
-						curTouch = null;
+						touchHeld[pointer] = false;
 					}
 				}
 				else {
 					//touch is released, reset input
-					curTouch = null;
+					touchHeld[pointer] = false;
 				}
 			}
-			else if(curTouch.getPressed()) {
+			else if(touch.getPressed()) {
 				//check for drag threshold based on pressed pos and current pos
 				//then call for drag callback
-				float dSq = curTouch.getDistanceSq();
+				float dSq = touch.getDistanceSq();
 				
 				if(dSq >= DRAG_THRESHOLD_SQ ) {
 					
 					//reset input if drag call returns false
-					if(!curInputUI.inputTouchDrag(curTouch, dSq)) {
-						//DebugLog.w("Board", "loc: "+curTouch.getX()+", "+curTouch.getY());
-						curInputUI = null;
+					if(!curInputUI.inputTouchDrag(touch, dSq)) {
+						touchUIs[pointer] = null;
 					}
 					else if(curInputUI.inputListener != null) {
-						curInputUI.inputListener.inputTouchDrag(curInputUI, curTouch);
+						curInputUI.inputListener.inputTouchDrag(curInputUI, touch);
 					}
 					else if(curListener != null) {
-						curListener.inputTouchDrag(curInputUI, curTouch);
+						curListener.inputTouchDrag(curInputUI, touch);
 					}
 				}
 			}
 			else {
 				//do input callback release
-				curInputUI.inputTouchReleased(curTouch);
+				curInputUI.inputTouchReleased(touch);
 				
 				if(curInputUI.inputListener != null) {
-					curInputUI.inputListener.inputTouchReleased(curInputUI, curTouch);
+					curInputUI.inputListener.inputTouchReleased(curInputUI, touch);
 				}
 				else if(curListener != null) {
-					curListener.inputTouchReleased(curInputUI, curTouch);
+					curListener.inputTouchReleased(curInputUI, touch);
 				}
 				
-				curTouch = null;
-				curInputUI = null;
+				touchHeld[pointer] = false;
+				touchUIs[pointer] = null;
 			}
 		}
-		else if(uiSys.touchGetTriggered(BaseObject.systemRegistry.timeSystem.getGameTime())) {
-			//for now, just get one touch from any ui region
-			//also, assuming uis are not sorted from smallest to largest region
-			//and uis are not overlapping
-			curTouch = null;
+		else if(touch.getTriggered(gameTime)) {
+			touchUIs[pointer] = _pressInputUI(pointer, touch);
+			touchHeld[pointer] = touchUIs[pointer] != null;
+		}
+	}
+	
+	@Override
+	public void update(float timeDelta, BaseObject parent) {	
+		commitUpdates();
+		
+		BaseUI._layoutVisitCount = 0;
+		BaseUI._layoutRefreshCount = 0;
+		
+		//update the UIs
+		final FixedSizeArray<BaseObject> objs = getObjects();
+        final int count = objs.getCount();
+        if (count > 0) {
+            final Object[] objectArray = objs.getArray();
+            for (int i = 0; i < count; i++) {
+                BaseUI ui = (BaseUI)objectArray[i];
+                
+                ui._update(timeDelta);
+				
+        		//record and schedule ui render, the renderer only sees the snapshot
+        		//if we have an animator, call its update with the snapshot and render order
+        		if(ui.visible) {
+        			final UIAnimator animator = ui._animator;
+        			final UIRenderList list = renderListPool.allocate();
+        			
+        			if(list != null) {
+        				list.setAlpha(ui.getAlpha());
+        				ui.record(list, 0.0f, 0.0f, 1.0f, 1.0f, 0.0f, 1.0f);
+        			}
+        			
+        			if(animator != null) {
+        				// keeps animating even if there was no snapshot to draw this frame
+        				animator.update(timeDelta, list, ui.phase, ui.x, ui.y);
+        				
+    					if(animator.isDone()) {
+    						ui.animationComplete(animator);
+    						
+    						if(ui._animatorRemoveOnEnd) {
+    							ui._animator = null;
+    						}
+    						
+    						if(ui._animatorRemoveUIOnEnd) {
+    							remove(ui);
+    							ui._animatorRemoveUIOnEnd = false;
+    						}
+    					}
+        			}
+        			else if(list != null) {
+        				systemRegistry.renderSystem.scheduleForDraw(list, ui.x, ui.y, 1.0f, 1.0f, 0.0f, ui.phase);
+        			}
+        		}
+            }
+        }
+        
+        layoutVisitCount = BaseUI._layoutVisitCount;
+        layoutRefreshCount = BaseUI._layoutRefreshCount;
+				
+		//process input, each touch point goes to its own ui
+		final InputSystem inputSys = BaseObject.systemRegistry.inputSystem;
+		
+		if(hitIndex == null) {
+			hitIndex = new UIHitIndex(
+					systemRegistry.contextParameters.gameWidth, 
+					systemRegistry.contextParameters.gameHeight, 
+					capacity);
 			
-			curInputUI = _getInputUI(uiSys);
+			touchUIs = new BaseUI[inputSys.touchGetPointerCount()];
+			touchHeld = new boolean[touchUIs.length];
+		}
+		
+		hitIndex.update(objs);
+		
+		final float gameTime = BaseObject.systemRegistry.timeSystem.getGameTime();
+		for(int p = 0; p < touchUIs.length; p++) {
+			_updateTouch(p, inputSys.touchGetPointer(p), gameTime);
 		}
     }
 }
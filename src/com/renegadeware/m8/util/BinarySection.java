@@ -0,0 +1,631 @@
+package com.renegadeware.m8.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.content.res.Resources;
+
+import com.renegadeware.m8.DebugLog;
+import com.renegadeware.m8.math.Vector2;
+
+/**
+ * A read only DataSection compiled from xml by DataSectionCompiler.  The whole document is a
+ * single buffer, usually memory mapped: a string table, a flat node table laid out breadth first
+ * so that each node's children are contiguous, and an attribute table.  Values that are plain
+ * numbers are stored as ints or floats so they don't need to be parsed.
+ * <p>
+ * Sections are small views into the buffer, created when first opened.  They read the same as
+ * the XmlSection of the source document.
+ * <p>
+ * Compiled documents go in res/raw named after the xml they replace plus RESOURCE_SUFFIX, see
+ * DataSection.createFromResourceId.  Store them uncompressed in the apk (e.g. with an extension
+ * aapt doesn't compress) so that they can be mapped, otherwise they are read into memory.
+ */
+public final class BinarySection extends DataSection {
+	public static final String EXTENSION = ".mds";
+	public static final String RESOURCE_SUFFIX = "_dsc";
+
+	private static final int MAGIC = 0x4d445331; // MDS1
+	private static final int VERSION = 1;
+
+	// header: magic, version, string count, node count, attribute count, string data size
+	private static final int HEADER_INTS = 6;
+
+	// node: name, value type, value, parent, first child, child count, first attribute, attribute count
+	private static final int NODE_INTS = 8;
+	private static final int NODE_NAME = 0;
+	private static final int NODE_TYPE = 1;
+	private static final int NODE_VALUE = 2;
+	private static final int NODE_PARENT = 3;
+	private static final int NODE_FIRST_CHILD = 4;
+	private static final int NODE_CHILD_COUNT = 5;
+	private static final int NODE_FIRST_ATTR = 6;
+	private static final int NODE_ATTR_COUNT = 7;
+
+	// attribute: name, value type, value
+	private static final int ATTR_INTS = 3;
+
+	private static final int TYPE_NONE = 0;
+	private static final int TYPE_STRING = 1;
+	private static final int TYPE_INT = 2;
+	private static final int TYPE_FLOAT = 3;
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	/** The document shared by all of its sections. */
+	private static final class Document {
+		final ByteBuffer buffer;
+		final IntBuffer ints;
+
+		final int offsetBase;
+		final int nodeBase;
+		final int attrBase;
+		final int stringDataStart;
+
+		final String[] strings;
+		final BinarySection[] sections;
+
+		private byte[] stringBytes;
+
+		Document(ByteBuffer buffer, int stringCount, int nodeCount, int attrCount) {
+			this.buffer = buffer;
+
+			buffer.position(0);
+			ints = buffer.asIntBuffer();
+
+			offsetBase = HEADER_INTS;
+			nodeBase = offsetBase + stringCount + 1;
+			attrBase = nodeBase + nodeCount*NODE_INTS;
+			stringDataStart = (attrBase + attrCount*ATTR_INTS)*4;
+
+			strings = new String[stringCount];
+			sections = new BinarySection[nodeCount];
+		}
+
+		int node(int node, int field) {
+			return ints.get(nodeBase + node*NODE_INTS + field);
+		}
+
+		int attr(int attr, int field) {
+			return ints.get(attrBase + attr*ATTR_INTS + field);
+		}
+
+		String string(int index) {
+			String s = strings[index];
+			if(s == null) {
+				final int start = ints.get(offsetBase + index);
+				final int len = ints.get(offsetBase + index + 1) - start;
+
+				if(stringBytes == null || stringBytes.length < len) {
+					stringBytes = new byte[len];
+				}
+
+				buffer.position(stringDataStart + start);
+				buffer.get(stringBytes, 0, len);
+
+				s = new String(stringBytes, 0, len, UTF8);
+				strings[index] = s;
+			}
+			return s;
+		}
+
+		BinarySection section(int node) {
+			BinarySection s = sections[node];
+			if(s == null) {
+				s = new BinarySection(this, node);
+				sections[node] = s;
+			}
+			return s;
+		}
+
+		int findAttr(int node, String name) {
+			final int first = node(node, NODE_FIRST_ATTR);
+			final int end = first + node(node, NODE_ATTR_COUNT);
+			for(int i = first; i < end; i++) {
+				if(string(attr(i, 0)).equals(name)) {
+					return i;
+				}
+			}
+			return -1;
+		}
+	}
+
+	/**
+	 * Opens the compiled version of the given resource: the resource itself if it is a raw
+	 * resource, otherwise the raw resource of the same name plus RESOURCE_SUFFIX.  Only the
+	 * header is read until the magic checks out.
+	 *
+	 * @return null if there is no compiled version.
+	 */
+	public static BinarySection createFromResourceId(Context context, int id) {
+		final Resources res = context.getResources();
+
+		int rawId;
+		try {
+			if("raw".equals(res.getResourceTypeName(id))) {
+				rawId = id;
+			}
+			else {
+				rawId = res.getIdentifier(res.getResourceEntryName(id) + RESOURCE_SUFFIX, "raw", context.getPackageName());
+			}
+		} catch(Resources.NotFoundException e) {
+			return null;
+		}
+
+		if(rawId == 0) {
+			return null;
+		}
+
+		try {
+			if(!hasMagic(res, rawId)) {
+				return null;
+			}
+			return create(readResource(res, rawId));
+		} catch(IOException e) {
+			DebugLog.w("BinarySection", "Unable to read "+rawId+": "+e.toString());
+			return null;
+		}
+	}
+
+	/**
+	 * Opens a compiled document from a buffer, which is used as is.
+	 *
+	 * @return The root section, null if the buffer is not a compiled document.
+	 */
+	public static BinarySection create(ByteBuffer buffer) {
+		if(buffer.capacity() < HEADER_INTS*4 || buffer.getInt(0) != MAGIC) {
+			return null;
+		}
+
+		final int version = buffer.getInt(4);
+		if(version != VERSION) {
+			DebugLog.w("BinarySection", "Unsupported version: "+version);
+			return null;
+		}
+
+		final int stringCount = buffer.getInt(8);
+		final int nodeCount = buffer.getInt(12);
+		final int attrCount = buffer.getInt(16);
+
+		if(nodeCount == 0) {
+			return null;
+		}
+
+		return new Document(buffer, stringCount, nodeCount, attrCount).section(0);
+	}
+
+	private static boolean hasMagic(Resources res, int id) throws IOException {
+		final DataInputStream is = new DataInputStream(res.openRawResource(id));
+		try {
+			return is.readInt() == MAGIC;
+		} catch(EOFException e) {
+			return false;
+		} finally {
+			is.close();
+		}
+	}
+
+	private static ByteBuffer readResource(Resources res, int id) throws IOException {
+		AssetFileDescriptor afd = null;
+		try {
+			afd = res.openRawResourceFd(id);
+		} catch(Resources.NotFoundException e) {
+			// compressed in the apk, read it instead
+		}
+
+		if(afd != null) {
+			final FileInputStream fis = new FileInputStream(afd.getFileDescriptor());
+			try {
+				return fis.getChannel().map(FileChannel.MapMode.READ_ONLY, afd.getStartOffset(), afd.getLength());
+			} finally {
+				fis.close();
+				afd.close();
+			}
+		}
+
+		final InputStream is = res.openRawResource(id);
+		try {
+			final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			final byte[] buf = new byte[4096];
+			int len;
+			while((len = is.read(buf)) > 0) {
+				bytes.write(buf, 0, len);
+			}
+			return ByteBuffer.wrap(bytes.toByteArray());
+		} finally {
+			is.close();
+		}
+	}
+
+	/**
+	 * Compiles a section and everything under it.  Values and attributes that read back as the
+	 * same number are stored as numbers, everything else as strings.
+	 */
+	public static void write(DataSection root, OutputStream out) throws IOException {
+		final ArrayList<DataSection> nodes = new ArrayList<DataSection>();
+		final ArrayList<String> strings = new ArrayList<String>();
+		final HashMap<String, Integer> stringIndices = new HashMap<String, Integer>();
+
+		int attrCount = 0;
+
+		nodes.add(root);
+
+		// breadth first, so that children are contiguous
+		for(int i = 0; i < nodes.size(); i++) {
+			final DataSection d = nodes.get(i);
+			for(int c = 0; c < d.countChildren(); c++) {
+				nodes.add(d.openChild(c));
+			}
+			attrCount += d.countAttributes();
+		}
+
+		final int nodeCount = nodes.size();
+
+		final int[] nodeTable = new int[nodeCount*NODE_INTS];
+		final int[] attrTable = new int[attrCount*ATTR_INTS];
+
+		int nextChild = 1;
+		int nextAttr = 0;
+
+		for(int i = 0; i < nodeCount; i++) {
+			final DataSection d = nodes.get(i);
+			final int n = i*NODE_INTS;
+
+			nodeTable[n + NODE_NAME] = stringIndex(d.sectionName(), strings, stringIndices);
+			encodeValue(d.asString(FLAG_INCLUDE_WHITESPACE), nodeTable, n + NODE_TYPE, strings, stringIndices);
+
+			final int childCount = d.countChildren();
+			nodeTable[n + NODE_FIRST_CHILD] = nextChild;
+			nodeTable[n + NODE_CHILD_COUNT] = childCount;
+			for(int c = 0; c < childCount; c++) {
+				nodeTable[(nextChild + c)*NODE_INTS + NODE_PARENT] = i;
+			}
+			nextChild += childCount;
+
+			final int numAttrs = d.countAttributes();
+			nodeTable[n + NODE_FIRST_ATTR] = nextAttr;
+			nodeTable[n + NODE_ATTR_COUNT] = numAttrs;
+			for(int a = 0; a < numAttrs; a++, nextAttr++) {
+				final String name = d.attributeName(a);
+				attrTable[nextAttr*ATTR_INTS] = stringIndex(name, strings, stringIndices);
+				encodeValue(d.getAttributeAsString(name, FLAG_INCLUDE_WHITESPACE), attrTable, nextAttr*ATTR_INTS + 1, strings, stringIndices);
+			}
+		}
+
+		nodeTable[NODE_PARENT] = -1;
+
+		final int stringCount = strings.size();
+		final int[] offsets = new int[stringCount + 1];
+		final ByteArrayOutputStream stringData = new ByteArrayOutputStream();
+		for(int i = 0; i < stringCount; i++) {
+			offsets[i] = stringData.size();
+			final byte[] bytes = strings.get(i).getBytes(UTF8);
+			stringData.write(bytes, 0, bytes.length);
+		}
+		offsets[stringCount] = stringData.size();
+
+		final DataOutputStream dos = new DataOutputStream(out);
+
+		dos.writeInt(MAGIC);
+		dos.writeInt(VERSION);
+		dos.writeInt(stringCount);
+		dos.writeInt(nodeCount);
+		dos.writeInt(attrCount);
+		dos.writeInt(stringData.size());
+
+		for(int v : offsets) {
+			dos.writeInt(v);
+		}
+		for(int v : nodeTable) {
+			dos.writeInt(v);
+		}
+		for(int v : attrTable) {
+			dos.writeInt(v);
+		}
+
+		stringData.writeTo(dos);
+
+		dos.flush();
+	}
+
+	private static int stringIndex(String s, ArrayList<String> strings, HashMap<String, Integer> indices) {
+		Integer ind = indices.get(s);
+		if(ind == null) {
+			ind = strings.size();
+			strings.add(s);
+			indices.put(s, ind);
+		}
+		return ind;
+	}
+
+	private static void encodeValue(String s, int[] table, int typeInd, ArrayList<String> strings, HashMap<String, Integer> indices) {
+		if(s == null) {
+			table[typeInd] = TYPE_NONE;
+			table[typeInd+1] = 0;
+			return;
+		}
+
+		// only if it converts back to the exact same string, so asString is unchanged
+		try {
+			final int i = Integer.parseInt(s);
+			if(String.valueOf(i).equals(s)) {
+				table[typeInd] = TYPE_INT;
+				table[typeInd+1] = i;
+				return;
+			}
+		} catch(NumberFormatException e) {
+		}
+
+		try {
+			final float f = Float.parseFloat(s);
+			if(Float.toString(f).equals(s)) {
+				table[typeInd] = TYPE_FLOAT;
+				table[typeInd+1] = Float.floatToRawIntBits(f);
+				return;
+			}
+		} catch(NumberFormatException e) {
+		}
+
+		table[typeInd] = TYPE_STRING;
+		table[typeInd+1] = stringIndex(s, strings, indices);
+	}
+
+	private final Document doc;
+	private final int node;
+
+	private BinarySection(Document doc, int node) {
+		this.doc = doc;
+		this.node = node;
+	}
+
+	@Override
+	public boolean isReadOnly() {
+		return true;
+	}
+
+	@Override
+	public DataSection getParent() {
+		final int parent = doc.node(node, NODE_PARENT);
+		return parent >= 0 ? doc.section(parent) : null;
+	}
+
+	@Override
+	public int countChildren() {
+		return doc.node(node, NODE_CHILD_COUNT);
+	}
+
+	@Override
+	public DataSection openChild(int index) {
+		return doc.section(doc.node(node, NODE_FIRST_CHILD) + index);
+	}
+
+	@Override
+	public DataSection findChild(String tag) {
+		final int first = doc.node(node, NODE_FIRST_CHILD);
+		final int end = first + doc.node(node, NODE_CHILD_COUNT);
+		for(int i = first; i < end; i++) {
+			if(doc.string(doc.node(i, NODE_NAME)).equals(tag)) {
+				return doc.section(i);
+			}
+		}
+
+		return null;
+	}
+
+	@Override
+	public DataSection newSection(String tag) {
+		return null;
+	}
+
+	@Override
+	public void delChild(String tag) {
+	}
+
+	@Override
+	public void delChild(DataSection section) {
+	}
+
+	@Override
+	public void delChildren() {
+	}
+
+	@Override
+	public String sectionName() {
+		return doc.string(doc.node(node, NODE_NAME));
+	}
+
+	@Override
+	public int bytes() {
+		int sz = NODE_INTS*4 + doc.node(node, NODE_ATTR_COUNT)*ATTR_INTS*4;
+
+		final int count = countChildren();
+		for(int i = 0; i < count; i++) {
+			sz += openChild(i).bytes();
+		}
+
+		return sz;
+	}
+
+	@Override
+	public boolean save(OutputStream out) {
+		try {
+			write(this, out);
+			return true;
+		} catch(IOException e) {
+			DebugLog.w("BinarySection", e.toString());
+			return false;
+		}
+	}
+
+	@Override
+	public int countAttributes() {
+		return doc.node(node, NODE_ATTR_COUNT);
+	}
+
+	@Override
+	public String attributeName(int index) {
+		return doc.string(doc.attr(doc.node(node, NODE_FIRST_ATTR) + index, 0));
+	}
+
+	/////////////////////////////////////////////////////
+	// Methods for reading the value of the DataSection
+
+	@Override
+	public boolean asBool() {
+		return doc.node(node, NODE_TYPE) == TYPE_STRING && Boolean.parseBoolean(doc.string(doc.node(node, NODE_VALUE)));
+	}
+
+	@Override
+	public int asInt(int defaultVal) {
+		return toInt(doc.node(node, NODE_TYPE), doc.node(node, NODE_VALUE), defaultVal);
+	}
+
+	@Override
+	public long asLong(long defaultVal) {
+		return toLong(doc.node(node, NODE_TYPE), doc.node(node, NODE_VALUE), defaultVal);
+	}
+
+	@Override
+	public float asFloat(float defaultVal) {
+		return toFloat(doc.node(node, NODE_TYPE), doc.node(node, NODE_VALUE), defaultVal);
+	}
+
+	@Override
+	public double asDouble(double defaultVal) {
+		return toDouble(doc.node(node, NODE_TYPE), doc.node(node, NODE_VALUE), defaultVal);
+	}
+
+	@Override
+	public String asString(int flags) {
+		final String s = toString(doc.node(node, NODE_TYPE), doc.node(node, NODE_VALUE));
+		return s != null && flags == FLAG_INCLUDE_TRIM_WHITESPACE ? s.trim() : s;
+	}
+
+	@Override
+	public Vector2 asVector2(Vector2 defaultVal) {
+		return parseVector2(toString(doc.node(node, NODE_TYPE), doc.node(node, NODE_VALUE)), defaultVal);
+	}
+
+	////////////////////////////////////////////
+	// attributes
+
+	@Override
+	public String getAttributeAsString(String attr, int flags) {
+		final int a = doc.findAttr(node, attr);
+		if(a >= 0) {
+			final String s = toString(doc.attr(a, 1), doc.attr(a, 2));
+			return flags == FLAG_INCLUDE_TRIM_WHITESPACE ? s.trim() : s;
+		}
+
+		return "";
+	}
+
+	@Override
+	public int getAttributeAsInt(String attr, int defaultVal) {
+		final int a = doc.findAttr(node, attr);
+		return a >= 0 ? toInt(doc.attr(a, 1), doc.attr(a, 2), defaultVal) : defaultVal;
+	}
+
+	@Override
+	public long getAttributeAsLong(String attr, long defaultVal) {
+		final int a = doc.findAttr(node, attr);
+		return a >= 0 ? toLong(doc.attr(a, 1), doc.attr(a, 2), defaultVal) : defaultVal;
+	}
+
+	@Override
+	public float getAttributeAsFloat(String attr, float defaultVal) {
+		final int a = doc.findAttr(node, attr);
+		return a >= 0 ? toFloat(doc.attr(a, 1), doc.attr(a, 2), defaultVal) : defaultVal;
+	}
+
+	@Override
+	public double getAttributeAsDouble(String attr, double defaultVal) {
+		final int a = doc.findAttr(node, attr);
+		return a >= 0 ? toDouble(doc.attr(a, 1), doc.attr(a, 2), defaultVal) : defaultVal;
+	}
+
+	@Override
+	public Vector2 getAttributeAsVector2(String attr, Vector2 defaultVal) {
+		final int a = doc.findAttr(node, attr);
+		return a >= 0 ? parseVector2(toString(doc.attr(a, 1), doc.attr(a, 2)), defaultVal) : defaultVal.clone();
+	}
+
+	////////////////////////////////////////////
+	// typed values, read the same as the string they were compiled from
+
+	private String toString(int type, int value) {
+		switch(type) {
+		case TYPE_STRING:
+			return doc.string(value);
+		case TYPE_INT:
+			return String.valueOf(value);
+		case TYPE_FLOAT:
+			return Float.toString(Float.intBitsToFloat(value));
+		default:
+			return null;
+		}
+	}
+
+	private int toInt(int type, int value, int defaultVal) {
+		switch(type) {
+		case TYPE_INT:
+			return value;
+		case TYPE_STRING:
+			return parseInt(doc.string(value), defaultVal);
+		default:
+			return defaultVal;
+		}
+	}
+
+	private long toLong(int type, int value, long defaultVal) {
+		switch(type) {
+		case TYPE_INT:
+			return value;
+		case TYPE_STRING:
+			return parseLong(doc.string(value), defaultVal);
+		default:
+			return defaultVal;
+		}
+	}
+
+	private float toFloat(int type, int value, float defaultVal) {
+		switch(type) {
+		case TYPE_INT:
+			return value;
+		case TYPE_FLOAT:
+			return Float.intBitsToFloat(value);
+		case TYPE_STRING:
+			return parseFloat(doc.string(value), defaultVal);
+		default:
+			return defaultVal;
+		}
+	}
+
+	private double toDouble(int type, int value, double defaultVal) {
+		switch(type) {
+		case TYPE_INT:
+			return value;
+		case TYPE_FLOAT:
+			// the float's digits, not its binary value widened
+			return parseDouble(Float.toString(Float.intBitsToFloat(value)), defaultVal);
+		case TYPE_STRING:
+			return parseDouble(doc.string(value), defaultVal);
+		default:
+			return defaultVal;
+		}
+	}
+}
@@ -0,0 +1,192 @@
+package com.renegadeware.m8.util;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.lang.reflect.Field;
+import java.net.URL;
+import java.net.URLClassLoader;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import android.content.SharedPreferences;
+
+/**
+ * Offline benchmark of DataSection.readObjectFields with and without a generated FieldBinder,
+ * run on a desktop JDK (javac is needed) with the compiled classes and android.jar on the class
+ * path:
+ * <pre>
+ * java com.renegadeware.m8.util.BinderBenchmark [fields] [iterations]
+ * </pre>
+ * Writes and compiles a class with that many public fields of mixed types, generates its binder
+ * with BinderGenerator, then times reading a new instance from the same section through
+ * reflection and through the binder.  Both are checked to set every field the same.
+ */
+public final class BinderBenchmark {
+	private static final int DEFAULT_FIELDS = 500;
+	private static final int DEFAULT_ITERATIONS = 2000;
+
+	private static final String PACKAGE = "binderbench";
+	private static final String CLASS_NAME = "Fields";
+
+	private static final String[] TYPES = { "int", "float", "boolean", "String", "long", "double" };
+
+	// always falls back to reflection
+	private static final FieldBinder REFLECTION = new FieldBinder() {
+		public boolean readField(Object obj, DataSection d) { return false; }
+		public boolean load(Object obj, String base, SaveFileLoader loader) { return false; }
+		public boolean save(Object obj, String base, SaveFileWriter save) { return false; }
+		public boolean loadPreferences(Object obj, String base, SharedPreferences prefs) { return false; }
+		public boolean savePreferences(Object obj, String base, SharedPreferences.Editor edit) { return false; }
+		public boolean clearPreferences(Object obj, String base, SharedPreferences.Editor edit) { return false; }
+	};
+
+	private BinderBenchmark() {
+	}
+
+	public static void main(String[] args) throws Exception {
+		final int fieldCount = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_FIELDS;
+		final int iterations = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_ITERATIONS;
+
+		final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		if(compiler == null) {
+			System.err.println("No java compiler, run with a JDK");
+			System.exit(1);
+		}
+
+		final File dir = File.createTempFile(PACKAGE, "");
+		if(!dir.delete() || !dir.mkdirs()) {
+			System.err.println("Unable to create "+dir);
+			System.exit(1);
+		}
+
+		final String classPath = dir.getPath() + File.pathSeparator + System.getProperty("java.class.path");
+		final String className = PACKAGE + "." + CLASS_NAME;
+
+		// the class, then its binder generated from the compiled class
+		compile(compiler, classPath, dir, writeClass(dir, fieldCount));
+
+		ClassLoader loader = new URLClassLoader(new URL[] { dir.toURI().toURL() }, BinderBenchmark.class.getClassLoader());
+		final File binderSource = BinderGenerator.generate(Class.forName(className, false, loader), dir);
+		compile(compiler, classPath, dir, binderSource);
+
+		// a fresh loader so the binder is found
+		loader = new URLClassLoader(new URL[] { dir.toURI().toURL() }, BinderBenchmark.class.getClassLoader());
+		final Class<?> c = Class.forName(className, true, loader);
+
+		if(FieldBinders.get(c) == null) {
+			System.err.println("Unable to load the binder of "+className);
+			System.exit(1);
+		}
+
+		final DataSection section = createSection(fieldCount);
+
+		final Object reflected = c.newInstance();
+		final Object bound = c.newInstance();
+
+		// warm up both paths before timing either
+		FieldBinders.register(c, REFLECTION);
+		for(int i = 0; i < iterations; i++) {
+			section.readObjectFields(reflected);
+		}
+		FieldBinders.register(c, null);
+		for(int i = 0; i < iterations; i++) {
+			section.readObjectFields(bound);
+		}
+
+		FieldBinders.register(c, REFLECTION);
+		long start = System.nanoTime();
+		for(int i = 0; i < iterations; i++) {
+			section.readObjectFields(c.newInstance());
+		}
+		final long reflectionTime = (System.nanoTime() - start) / iterations;
+
+		FieldBinders.register(c, null);
+		start = System.nanoTime();
+		for(int i = 0; i < iterations; i++) {
+			section.readObjectFields(c.newInstance());
+		}
+		final long binderTime = (System.nanoTime() - start) / iterations;
+
+		for(Field f : c.getFields()) {
+			final Object r = f.get(reflected);
+			final Object b = f.get(bound);
+			if(r == null ? b != null : !r.equals(b)) {
+				throw new IllegalStateException("Field "+f.getName()+" differs: "+r+" "+b);
+			}
+		}
+
+		System.out.println("fields\treflection us\tbinder us\tspeedup");
+		System.out.println(fieldCount+"\t"+(reflectionTime / 1000.0f)+"\t\t"+(binderTime / 1000.0f)+"\t\t"
+				+((float)reflectionTime / binderTime));
+
+		delete(dir);
+	}
+
+	private static File writeClass(File dir, int fieldCount) throws Exception {
+		final File pkgDir = new File(dir, PACKAGE);
+		if(!pkgDir.isDirectory() && !pkgDir.mkdirs()) {
+			throw new Exception("Unable to create "+pkgDir);
+		}
+
+		final File file = new File(pkgDir, CLASS_NAME + ".java");
+
+		final PrintWriter w = new PrintWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+		try {
+			w.println("package " + PACKAGE + ";");
+			w.println();
+			w.println("public class " + CLASS_NAME + " {");
+			for(int i = 0; i < fieldCount; i++) {
+				w.println("\tpublic " + TYPES[i % TYPES.length] + " field" + i + ";");
+			}
+			w.println("}");
+		} finally {
+			w.close();
+		}
+
+		return file;
+	}
+
+	/** A section setting every field, the values depend on the type. */
+	private static DataSection createSection(int fieldCount) {
+		final XmlSection root = new XmlSection(CLASS_NAME);
+
+		for(int i = 0; i < fieldCount; i++) {
+			final DataSection d = root.newSection("field" + i);
+
+			final String type = TYPES[i % TYPES.length];
+			if(type.equals("float") || type.equals("double")) {
+				d.setString(String.valueOf(i + 0.5f));
+			}
+			else if(type.equals("boolean")) {
+				d.setString(String.valueOf(i % 2 == 0));
+			}
+			else if(type.equals("String")) {
+				d.setString("value" + i);
+			}
+			else {
+				d.setString(String.valueOf(i));
+			}
+		}
+
+		return root;
+	}
+
+	private static void compile(JavaCompiler compiler, String classPath, File outDir, File source) throws Exception {
+		if(compiler.run(null, null, null, "-nowarn", "-cp", classPath, "-d", outDir.getPath(), source.getPath()) != 0) {
+			throw new Exception("Unable to compile "+source);
+		}
+	}
+
+	private static void delete(File f) {
+		final File[] files = f.listFiles();
+		if(files != null) {
+			for(File child : files) {
+				delete(child);
+			}
+		}
+		f.delete();
+	}
+}
@@ -0,0 +1,283 @@
+package com.renegadeware.m8.util;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashSet;
+
+/**
+ * Build time tool that writes the FieldBinder source of classes, run with the compiled classes
+ * (and android.jar) on the class path:
+ * <pre>
+ * java com.renegadeware.m8.util.BinderGenerator &lt;source output dir&gt; &lt;class names...&gt;
+ * </pre>
+ * The generated binders do what the reflection in DataSection.readObjectFields, SaveFile and
+ * Preference does for fields of primitive, String, Vector2 and Color types.  Fields the binder
+ * can't reach (e.g. private) or types it doesn't handle (arrays, nested objects) are left to
+ * reflection: per field for readObjectFields, for the whole class for SaveFile and Preference.
+ */
+public final class BinderGenerator {
+	
+	private static final String VECTOR2 = "com.renegadeware.m8.math.Vector2";
+	private static final String COLOR = "com.renegadeware.m8.gfx.Color";
+	
+	private BinderGenerator() {
+	}
+	
+	public static void main(String[] args) throws Exception {
+		if(args.length < 2) {
+			System.err.println("usage: BinderGenerator <source output dir> <class names...>");
+			System.exit(1);
+		}
+		
+		final File outDir = new File(args[0]);
+		
+		for(int i = 1; i < args.length; i++) {
+			final Class<?> c = Class.forName(args[i], false, BinderGenerator.class.getClassLoader());
+			
+			final File out = generate(c, outDir);
+			if(out != null) {
+				System.out.println(c.getName()+" -> "+out);
+			}
+			else {
+				System.out.println(c.getName()+" skipped, not accessible");
+			}
+		}
+	}
+	
+	/**
+	 * Writes the binder source of the class under the output dir.
+	 * 
+	 * @return The file written, null if the class can't be bound.
+	 */
+	public static File generate(Class<?> c, File outDir) throws Exception {
+		final String typeName = c.getCanonicalName();
+		if(typeName == null || !isAccessible(c)) {
+			return null;
+		}
+		
+		final String binderName = FieldBinders.getBinderName(c);
+		final int dot = binderName.lastIndexOf('.');
+		final String pkg = dot > 0 ? binderName.substring(0, dot) : "";
+		final String simpleName = binderName.substring(dot+1);
+		
+		final File dir = new File(outDir, pkg.replace('.', File.separatorChar));
+		if(!dir.isDirectory() && !dir.mkdirs()) {
+			throw new Exception("Unable to create "+dir);
+		}
+		
+		final File file = new File(dir, simpleName+".java");
+		
+		final PrintWriter w = new PrintWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+		try {
+			write(w, c, typeName, pkg, simpleName);
+		} finally {
+			w.close();
+		}
+		
+		return file;
+	}
+	
+	private static boolean isAccessible(Class<?> c) {
+		for(Class<?> k = c; k != null; k = k.getEnclosingClass()) {
+			if(Modifier.isPrivate(k.getModifiers())) {
+				return false;
+			}
+		}
+		return !c.isAnonymousClass() && !c.isLocalClass();
+	}
+	
+	/** Fields readObjectFields would find by name, first one wins, that the binder can set. */
+	private static ArrayList<Field> getReadFields(Class<?> c) {
+		final ArrayList<Field> ret = new ArrayList<Field>();
+		final HashSet<String> names = new HashSet<String>();
+		final String pkg = c.getPackage() != null ? c.getPackage().getName() : "";
+		
+		for(Class<?> k = c; k != null && k != Object.class; k = k.getSuperclass()) {
+			for(Field f : k.getDeclaredFields()) {
+				if(!names.add(f.getName())) {
+					continue;
+				}
+				
+				final int mod = f.getModifiers();
+				if(Modifier.isStatic(mod) || Modifier.isFinal(mod) || Modifier.isPrivate(mod) || f.isSynthetic()) {
+					continue;
+				}
+				
+				// protected and package fields are only reachable from the same package
+				final String fieldPkg = k.getPackage() != null ? k.getPackage().getName() : "";
+				if(!Modifier.isPublic(mod) && !fieldPkg.equals(pkg)) {
+					continue;
+				}
+				
+				if(readExpression(f.getType().getName()) != null) {
+					ret.add(f);
+				}
+			}
+		}
+		
+		return ret;
+	}
+	
+	/** Fields SaveFile and Preference go through, null if any of them isn't handled. */
+	private static ArrayList<Field> getStoredFields(Class<?> c) {
+		final ArrayList<Field> ret = new ArrayList<Field>();
+		
+		for(Field f : c.getDeclaredFields()) {
+			final int mod = f.getModifiers();
+			if(Modifier.isFinal(mod) || Modifier.isStatic(mod) || !Modifier.isPublic(mod)) {
+				continue;
+			}
+			
+			final String type = f.getType().getName();
+			if(!type.equals("boolean") && !type.equals("int") && !type.equals("long")
+					&& !type.equals("float") && !type.equals("java.lang.String")) {
+				return null;
+			}
+			
+			ret.add(f);
+		}
+		
+		return ret;
+	}
+	
+	private static String readExpression(String type) {
+		if(type.equals("boolean")) return "d.asBool()";
+		if(type.equals("byte")) return "(byte)d.asInt(0)";
+		if(type.equals("char")) return "d.asString(DataSection.FLAG_INCLUDE_WHITESPACE).charAt(0)";
+		if(type.equals("double")) return "d.asDouble(0)";
+		if(type.equals("float")) return "d.asFloat(0)";
+		if(type.equals("int")) return "d.asInt(0)";
+		if(type.equals("long")) return "d.asLong(0)";
+		if(type.equals("short")) return "(short)d.asInt(0)";
+		if(type.equals("java.lang.String")) return "d.asString(0)";
+		if(type.equals(VECTOR2)) return "d.asVector2(" + VECTOR2 + ".ZERO)";
+		if(type.equals(COLOR)) return "new " + COLOR + "(android.graphics.Color.parseColor(d.asString(0)))";
+		return null;
+	}
+	
+	private static String accessorName(String type) {
+		if(type.equals("java.lang.String")) {
+			return "String";
+		}
+		return Character.toUpperCase(type.charAt(0)) + type.substring(1);
+	}
+	
+	private static String key(Field f) {
+		return "prefix ? base + \"." + f.getName() + "\" : \"" + f.getName() + "\"";
+	}
+	
+	private static void write(PrintWriter w, Class<?> c, String typeName, String pkg, String simpleName) {
+		final ArrayList<Field> readFields = getReadFields(c);
+		final ArrayList<Field> storedFields = getStoredFields(c);
+		
+		w.println("// Generated by BinderGenerator from " + c.getName() + ", do not edit.");
+		if(pkg.length() > 0) {
+			w.println("package " + pkg + ";");
+		}
+		w.println();
+		w.println("import java.util.HashMap;");
+		w.println();
+		w.println("import android.content.SharedPreferences;");
+		w.println();
+		w.println("import com.renegadeware.m8.DebugLog;");
+		w.println("import com.renegadeware.m8.util.DataSection;");
+		w.println("import com.renegadeware.m8.util.FieldBinder;");
+		w.println("import com.renegadeware.m8.util.SaveFileLoader;");
+		w.println("import com.renegadeware.m8.util.SaveFileWriter;");
+		w.println();
+		w.println("public final class " + simpleName + " implements FieldBinder {");
+		w.println("\tprivate static final HashMap<String, Integer> fields = new HashMap<String, Integer>();");
+		w.println();
+		w.println("\tstatic {");
+		for(int i = 0; i < readFields.size(); i++) {
+			w.println("\t\tfields.put(\"" + readFields.get(i).getName() + "\", " + i + ");");
+		}
+		w.println("\t}");
+		w.println();
+		
+		// DataSection
+		w.println("\tpublic boolean readField(Object obj, DataSection d) {");
+		w.println("\t\tfinal Integer index = fields.get(d.sectionName());");
+		w.println("\t\tif(index == null) {");
+		w.println("\t\t\treturn false;");
+		w.println("\t\t}");
+		w.println();
+		w.println("\t\tfinal " + typeName + " o = (" + typeName + ")obj;");
+		w.println();
+		w.println("\t\ttry {");
+		w.println("\t\t\tswitch(index) {");
+		for(int i = 0; i < readFields.size(); i++) {
+			final Field f = readFields.get(i);
+			w.println("\t\t\tcase " + i + ": o." + f.getName() + " = " + readExpression(f.getType().getName()) + "; break;");
+		}
+		w.println("\t\t\t}");
+		w.println("\t\t} catch(Exception e) {");
+		w.println("\t\t\tDebugLog.w(\"DataSection\", \"Trying to set field \"+d.sectionName()+\" failed: \"+e.toString());");
+		w.println("\t\t}");
+		w.println();
+		w.println("\t\treturn true;");
+		w.println("\t}");
+		
+		// SaveFile
+		w.println();
+		w.println("\tpublic boolean load(Object obj, String base, SaveFileLoader loader) {");
+		writeStored(w, typeName, storedFields, "o.%1$s = loader.get%2$s(%3$s, o.%1$s);");
+		w.println("\t}");
+		w.println();
+		w.println("\tpublic boolean save(Object obj, String base, SaveFileWriter save) {");
+		writeStored(w, typeName, storedFields, "save.put%2$s(%3$s, o.%1$s);");
+		w.println("\t}");
+		
+		// Preference
+		w.println();
+		w.println("\tpublic boolean loadPreferences(Object obj, String base, SharedPreferences prefs) {");
+		writeStored(w, typeName, storedFields, "o.%1$s = prefs.get%2$s(%3$s, o.%1$s);");
+		w.println("\t}");
+		w.println();
+		w.println("\tpublic boolean savePreferences(Object obj, String base, SharedPreferences.Editor edit) {");
+		writeStored(w, typeName, storedFields, "edit.put%2$s(%3$s, o.%1$s);");
+		w.println("\t}");
+		w.println();
+		w.println("\tpublic boolean clearPreferences(Object obj, String base, SharedPreferences.Editor edit) {");
+		writeStored(w, typeName, storedFields, "edit.remove(%3$s);");
+		w.println("\t}");
+		
+		w.println("}");
+	}
+	
+	private static void writeStored(PrintWriter w, String typeName, ArrayList<Field> fields, String format) {
+		if(fields == null) {
+			w.println("\t\treturn false;");
+			return;
+		}
+		
+		w.println("\t\tfinal " + typeName + " o = (" + typeName + ")obj;");
+		w.println("\t\tfinal boolean prefix = base.length() > 0;");
+		w.println();
+		
+		final boolean isSave = format.startsWith("save.");
+		
+		for(Field f : fields) {
+			final String type = f.getType().getName();
+			final String line = String.format(format, f.getName(), accessorName(type), key(f));
+			
+			// SaveFile doesn't store empty strings
+			if(isSave && type.equals("java.lang.String")) {
+				w.println("\t\tif(o." + f.getName() + " != null && o." + f.getName() + ".length() > 0) {");
+				w.println("\t\t\t" + line);
+				w.println("\t\t}");
+			}
+			else {
+				w.println("\t\t" + line);
+			}
+		}
+		
+		w.println();
+		w.println("\t\treturn true;");
+	}
+}
@@ -9,6 +9,7 @@ import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.Iterator;
 
+import android.content.Context;
 import android.graphics.Color;
 
 import com.renegadeware.m8.DebugLog;
@@ -22,6 +23,16 @@ public abstract class DataSection implements Iterable<DataSection> {
 	public static final int FLAG_INCLUDE_APPEND_VECTOR = 0x0000;
 	public static final int FLAG_INCLUDE_OVERWRITE_VECTOR = 0x0001;
 	
+	/**
+	 * Opens the document of the given xml resource, from its compiled BinarySection in res/raw
+	 * (the xml's name plus BinarySection.RESOURCE_SUFFIX) if there is one, otherwise by parsing
+	 * the xml as an XmlSection.
+	 */
+	public static DataSection createFromResourceId(Context context, int id) {
+		final DataSection compiled = BinarySection.createFromResourceId(context, id);
+		return compiled != null ? compiled : XmlSection.createFromResourceId(context, id);
+	}
+	
 	public class DataSectionIterator implements Iterator<DataSection> {
 		public DataSectionIterator() {
 			index = 0;
@@ -167,6 +178,21 @@ public abstract class DataSection implements Iterable<DataSection> {
 		 return true; 
 	 }
 	 
+	 /** Read only sections return null from newSection and ignore the set methods. */
+	 public boolean isReadOnly() {
+		 return false;
+	 }
+	 
+	 /** This method returns the number of attributes of this section. */
+	 public int countAttributes() {
+		 return 0;
+	 }
+	 
+	 /** This method returns the name of the attribute with the given index. */
+	 public String attributeName(int index) {
+		 return null;
+	 }
+	 
 	 ///////////////////////////////////////////////////
 	 // Access methods
 	 	 
@@ -371,10 +397,20 @@ public abstract class DataSection implements Iterable<DataSection> {
 		 return ret;
 	 }
 	 
+	 /**
+	  * Sets the fields of obj from the children of this section, by name.  Uses the class'
+	  * generated FieldBinder if there is one, reflection otherwise.
+	  */
 	 public void readObjectFields(Object obj) {
 		 Class<?> c = obj.getClass();
+		 
+		 FieldBinder binder = FieldBinders.get(c);
 
 		 for(DataSection d : this) {
+			 if(binder != null && binder.readField(obj, d)) {
+				 continue;
+			 }
+			 
 			 try {
 				 //get the field and make sure we can access it
 				 Field f = null;
@@ -1252,6 +1288,84 @@ public abstract class DataSection implements Iterable<DataSection> {
 		 return 0;
 	 }
 	 
+	 /////////////////////////////////////////////////////
+	 // Parsing of string values, shared so that every implementation reads them the same way
+	 
+	 /** Parses decimal, or hex if that fails. */
+	 static int parseInt(String val, int defaultVal) {
+		 if(val == null) {
+			 return defaultVal;
+		 }
+		 
+		 try {
+			 return Integer.parseInt(val);
+		 } catch(NumberFormatException e) {
+			 try {
+				 return Integer.parseInt(val, 16);
+			 }
+			 catch(NumberFormatException e2) {
+				 return defaultVal;
+			 }
+		 }
+	 }
+	 
+	 /** Parses decimal, or hex if that fails. */
+	 static long parseLong(String val, long defaultVal) {
+		 if(val == null) {
+			 return defaultVal;
+		 }
+		 
+		 try {
+			 return Long.parseLong(val);
+		 } catch(NumberFormatException e) {
+			 try {
+				 return Long.parseLong(val, 16);
+			 }
+			 catch(NumberFormatException e2) {
+				 return defaultVal;
+			 }
+		 }
+	 }
+	 
+	 static float parseFloat(String val, float defaultVal) {
+		 if(val == null) {
+			 return defaultVal;
+		 }
+		 
+		 try {
+			 return Float.parseFloat(val);
+		 } catch(NumberFormatException e) {
+			 return defaultVal;
+		 }
+	 }
+	 
+	 static double parseDouble(String val, double defaultVal) {
+		 if(val == null) {
+			 return defaultVal;
+		 }
+		 
+		 try {
+			 return Double.parseDouble(val);
+		 } catch(NumberFormatException e) {
+			 return defaultVal;
+		 }
+	 }
+	 
+	 /** Parses "x y" or "x, y", returns a copy of defaultVal if that fails. */
+	 static Vector2 parseVector2(String val, Vector2 defaultVal) {
+		 if(val != null) {
+			 String[] vals = val.trim().split("[,\\s]+");
+			 if(vals.length >= 2) {
+				 try {
+					 return new Vector2(Float.parseFloat(vals[0]), Float.parseFloat(vals[1]));
+				 } catch(NumberFormatException e) {
+				 }
+			 }
+		 }
+		 
+		 return defaultVal.clone();
+	 }
+	 
 	 private class SplitTagResult {
 		 public DataSection section;
 		 public String tag;
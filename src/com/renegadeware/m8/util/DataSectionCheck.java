@@ -0,0 +1,165 @@
+package com.renegadeware.m8.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+
+import org.xml.sax.InputSource;
+
+import com.renegadeware.m8.math.Vector2;
+
+/**
+ * Offline check that a compiled document reads the same as its xml, run on a desktop JVM with
+ * android.jar on the class path:
+ * <pre>
+ * java com.renegadeware.m8.util.DataSectionCheck [xml files...]
+ * </pre>
+ * Each document (or a built in one covering the number, whitespace and vector cases when no file
+ * is given) is parsed as an XmlSection the way DataSectionCompiler does, compiled and reopened as
+ * a BinarySection, then every section, value and attribute accessor is compared between the two.
+ * Exits with 1 if anything differs.
+ */
+public final class DataSectionCheck {
+	private static final String SAMPLE =
+		"<root version=\"2\" name=\" padded \" ratio=\"0.5\" big=\"4294967296\">" +
+		"<int>42</int><negative>-7</negative><float>1.5</float><plainFloat>1.50</plainFloat>" +
+		"<exponent>1e3</exponent><negativeZero>-0</negativeZero><double>0.1</double>" +
+		"<long>9876543210</long><bool>true</bool><text>hello world</text><vector>3, -4.25</vector>" +
+		"<empty/><nested a=\"1\" b=\"x\" c=\"2.0,3\"><child>1</child><child>2</child><other/></nested>" +
+		"</root>";
+
+	// absent attribute and fallback values, so defaults are compared too
+	private static final String MISSING = "missing";
+	private static final int DEFAULT_INT = -12345;
+	private static final long DEFAULT_LONG = -1234567890123L;
+	private static final float DEFAULT_FLOAT = -1.25f;
+	private static final double DEFAULT_DOUBLE = -2.5;
+
+	private static int failures;
+
+	private DataSectionCheck() {
+	}
+
+	public static void main(String[] args) throws Exception {
+		if(args.length == 0) {
+			check("sample", new InputSource(new StringReader(SAMPLE)));
+		}
+
+		for(int i = 0; i < args.length; i++) {
+			check(args[i], new InputSource(new File(args[i]).toURI().toString()));
+		}
+
+		if(failures > 0) {
+			System.err.println(failures+" differences");
+			System.exit(1);
+		}
+	}
+
+	private static void check(String name, InputSource xml) throws Exception {
+		final XmlSection source = DataSectionCompiler.parse(xml);
+
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		BinarySection.write(source, bytes);
+
+		final BinarySection compiled = BinarySection.create(ByteBuffer.wrap(bytes.toByteArray()));
+		if(compiled == null) {
+			fail(name, "unable to open the compiled document");
+			return;
+		}
+
+		final int before = failures;
+		compare(name + ":" + source.sectionName(), source, compiled);
+
+		System.out.println(name+": "+(failures == before ? "ok" : (failures - before)+" differences")
+				+" ("+bytes.size()+" bytes)");
+	}
+
+	private static void compare(String path, DataSection x, DataSection b) {
+		same(path, "sectionName", x.sectionName(), b.sectionName());
+
+		same(path, "asBool", x.asBool(), b.asBool());
+		same(path, "asInt", x.asInt(DEFAULT_INT), b.asInt(DEFAULT_INT));
+		same(path, "asLong", x.asLong(DEFAULT_LONG), b.asLong(DEFAULT_LONG));
+		same(path, "asFloat", x.asFloat(DEFAULT_FLOAT), b.asFloat(DEFAULT_FLOAT));
+		same(path, "asDouble", x.asDouble(DEFAULT_DOUBLE), b.asDouble(DEFAULT_DOUBLE));
+		same(path, "asString", x.asString(DataSection.FLAG_INCLUDE_WHITESPACE), b.asString(DataSection.FLAG_INCLUDE_WHITESPACE));
+		// XmlSection can't trim a section without a value
+		if(x.asString(DataSection.FLAG_INCLUDE_WHITESPACE) != null) {
+			same(path, "asString trim", x.asString(DataSection.FLAG_INCLUDE_TRIM_WHITESPACE), b.asString(DataSection.FLAG_INCLUDE_TRIM_WHITESPACE));
+		}
+		same(path, "asVector2", x.asVector2(new Vector2(DEFAULT_FLOAT, DEFAULT_FLOAT)), b.asVector2(new Vector2(DEFAULT_FLOAT, DEFAULT_FLOAT)));
+
+		final int attrCount = x.countAttributes();
+		same(path, "countAttributes", attrCount, b.countAttributes());
+		if(attrCount == b.countAttributes()) {
+			for(int i = 0; i < attrCount; i++) {
+				same(path, "attributeName "+i, x.attributeName(i), b.attributeName(i));
+				compareAttribute(path, x.attributeName(i), x, b);
+			}
+		}
+		compareAttribute(path, MISSING, x, b);
+
+		final DataSection xp = x.getParent();
+		final DataSection bp = b.getParent();
+		same(path, "getParent", xp != null ? xp.sectionName() : null, bp != null ? bp.sectionName() : null);
+
+		final int childCount = x.countChildren();
+		same(path, "countChildren", childCount, b.countChildren());
+		if(childCount != b.countChildren()) {
+			return;
+		}
+
+		for(int i = 0; i < childCount; i++) {
+			final String childName = x.childSectionName(i);
+			same(path, "childSectionName "+i, childName, b.childSectionName(i));
+
+			// findChild returns the first of that name, compare the indices rather than the sections
+			same(path, "findChild "+childName, x.getIndex(x.findChild(childName)), b.getIndex(b.findChild(childName)));
+
+			compare(path + "/" + childName + "[" + i + "]", x.openChild(i), b.openChild(i));
+		}
+		same(path, "findChild "+MISSING, x.findChild(MISSING) == null, b.findChild(MISSING) == null);
+	}
+
+	private static void compareAttribute(String path, String attr, DataSection x, DataSection b) {
+		final String p = path + "@" + attr;
+		same(p, "getAttributeAsString", x.getAttributeAsString(attr, DataSection.FLAG_INCLUDE_WHITESPACE), b.getAttributeAsString(attr, DataSection.FLAG_INCLUDE_WHITESPACE));
+		same(p, "getAttributeAsString trim", x.getAttributeAsString(attr, DataSection.FLAG_INCLUDE_TRIM_WHITESPACE), b.getAttributeAsString(attr, DataSection.FLAG_INCLUDE_TRIM_WHITESPACE));
+		same(p, "getAttributeAsInt", x.getAttributeAsInt(attr, DEFAULT_INT), b.getAttributeAsInt(attr, DEFAULT_INT));
+		same(p, "getAttributeAsLong", x.getAttributeAsLong(attr, DEFAULT_LONG), b.getAttributeAsLong(attr, DEFAULT_LONG));
+		same(p, "getAttributeAsFloat", x.getAttributeAsFloat(attr, DEFAULT_FLOAT), b.getAttributeAsFloat(attr, DEFAULT_FLOAT));
+		same(p, "getAttributeAsDouble", x.getAttributeAsDouble(attr, DEFAULT_DOUBLE), b.getAttributeAsDouble(attr, DEFAULT_DOUBLE));
+		same(p, "getAttributeAsVector2", x.getAttributeAsVector2(attr, new Vector2(DEFAULT_FLOAT, DEFAULT_FLOAT)), b.getAttributeAsVector2(attr, new Vector2(DEFAULT_FLOAT, DEFAULT_FLOAT)));
+	}
+
+	private static void same(String path, String accessor, Object x, Object b) {
+		final boolean equal;
+		if(x instanceof Vector2 && b instanceof Vector2) {
+			final Vector2 xv = (Vector2)x;
+			final Vector2 bv = (Vector2)b;
+			equal = Float.compare(xv.x, bv.x) == 0 && Float.compare(xv.y, bv.y) == 0;
+		}
+		else {
+			// boxed floats and doubles compare NaN and -0 by their bits, which is what we want
+			equal = x == null ? b == null : x.equals(b);
+		}
+
+		if(!equal) {
+			fail(path, accessor+": xml "+describe(x)+" binary "+describe(b));
+		}
+	}
+
+	private static String describe(Object o) {
+		if(o instanceof Vector2) {
+			final Vector2 v = (Vector2)o;
+			return "("+v.x+", "+v.y+")";
+		}
+		return o instanceof String ? "\""+o+"\"" : String.valueOf(o);
+	}
+
+	private static void fail(String path, String message) {
+		failures++;
+		System.err.println(path+": "+message);
+	}
+}
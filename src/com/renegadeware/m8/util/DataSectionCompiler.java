@@ -0,0 +1,126 @@
+package com.renegadeware.m8.util;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+
+/**
+ * Offline tool that compiles xml documents to BinarySection, run as part of the build:
+ * <pre>
+ * java com.renegadeware.m8.util.DataSectionCompiler &lt;output dir&gt; &lt;xml files...&gt;
+ * </pre>
+ * Each file is written to the output dir with the same name plus BinarySection.RESOURCE_SUFFIX and
+ * BinarySection.EXTENSION, the output dir is usually res/raw.  The document is read the way XmlSection reads it.  Resource
+ * references (e.g. @drawable/name) are kept as written, since aapt only resolves them in
+ * compiled xml resources.
+ */
+public final class DataSectionCompiler {
+
+	private DataSectionCompiler() {
+	}
+
+	public static void main(String[] args) throws Exception {
+		if(args.length < 2) {
+			System.err.println("usage: DataSectionCompiler <output dir> <xml files...>");
+			System.exit(1);
+		}
+
+		final File outDir = new File(args[0]);
+		if(!outDir.isDirectory() && !outDir.mkdirs()) {
+			System.err.println("Unable to create "+outDir);
+			System.exit(1);
+		}
+
+		for(int i = 1; i < args.length; i++) {
+			final File in = new File(args[i]);
+
+			String name = in.getName();
+			final int ext = name.lastIndexOf('.');
+			if(ext > 0) {
+				name = name.substring(0, ext);
+			}
+
+			final File out = new File(outDir, name + BinarySection.RESOURCE_SUFFIX + BinarySection.EXTENSION);
+
+			compile(in, out);
+
+			System.out.println(in+" -> "+out);
+		}
+	}
+
+	/** Compiles an xml document to the output file. */
+	public static void compile(File xml, File out) throws Exception {
+		final XmlSection section = parse(new InputSource(xml.toURI().toString()));
+
+		final OutputStream os = new BufferedOutputStream(new FileOutputStream(out));
+		try {
+			BinarySection.write(section, os);
+		} finally {
+			os.close();
+		}
+	}
+
+	/** Reads an xml document the way XmlSection.createFromResourceId does. */
+	public static XmlSection parse(InputSource xml) throws Exception {
+		final DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+		factory.setNamespaceAware(true);
+		factory.setCoalescing(true);
+
+		return toSection(factory.newDocumentBuilder().parse(xml).getDocumentElement());
+	}
+
+	/** Builds the XmlSection that XmlSection.createFromResourceId makes for the element. */
+	public static XmlSection toSection(Element element) {
+		final XmlSection section = new XmlSection(localName(element));
+		fill(section, element);
+		return section;
+	}
+
+	private static void fill(XmlSection section, Element element) {
+		final NamedNodeMap attrs = element.getAttributes();
+		for(int i = 0; i < attrs.getLength(); i++) {
+			final Attr attr = (Attr)attrs.item(i);
+
+			// namespace declarations aren't attributes to the pull parser
+			if("http://www.w3.org/2000/xmlns/".equals(attr.getNamespaceURI())) {
+				continue;
+			}
+
+			section.setAttributeString(localName(attr), attr.getValue());
+		}
+
+		final NodeList children = element.getChildNodes();
+		for(int i = 0; i < children.getLength(); i++) {
+			final Node child = children.item(i);
+
+			switch(child.getNodeType()) {
+			case Node.ELEMENT_NODE:
+				fill((XmlSection)section.newSection(localName(child)), (Element)child);
+				break;
+
+			case Node.TEXT_NODE:
+			case Node.CDATA_SECTION_NODE:
+				final String text = child.getNodeValue().trim();
+				if(text.length() > 0) {
+					section.setString(text);
+				}
+				break;
+			}
+		}
+	}
+
+	private static String localName(Node node) {
+		final String name = node.getLocalName();
+		return name != null ? name : node.getNodeName();
+	}
+}
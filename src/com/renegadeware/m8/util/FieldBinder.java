@@ -0,0 +1,34 @@
+package com.renegadeware.m8.util;
+
+import android.content.SharedPreferences;
+
+/**
+ * Typed field access for one class, generated by BinderGenerator so that loading and saving
+ * doesn't need reflection.  Every method returns false when the binder can't handle the request,
+ * in which case the caller uses reflection instead.
+ * 
+ * @see FieldBinders
+ */
+public interface FieldBinder {
+	/**
+	 * Sets the field named by the section, the way DataSection.readObjectFields does.
+	 * 
+	 * @return false if the field is not bound.
+	 */
+	boolean readField(Object obj, DataSection d);
+	
+	/** Loads the fields the way SaveFile does. */
+	boolean load(Object obj, String base, SaveFileLoader loader);
+	
+	/** Saves the fields the way SaveFile does. */
+	boolean save(Object obj, String base, SaveFileWriter save);
+	
+	/** Loads the fields the way Preference does. */
+	boolean loadPreferences(Object obj, String base, SharedPreferences prefs);
+	
+	/** Saves the fields the way Preference does. */
+	boolean savePreferences(Object obj, String base, SharedPreferences.Editor edit);
+	
+	/** Removes the fields the way Preference does. */
+	boolean clearPreferences(Object obj, String base, SharedPreferences.Editor edit);
+}
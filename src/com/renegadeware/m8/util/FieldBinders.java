@@ -0,0 +1,71 @@
+package com.renegadeware.m8.util;
+
+import java.util.HashMap;
+
+import android.content.SharedPreferences;
+
+/**
+ * Finds the generated FieldBinder of a class.  The binder of com.foo.Bar is com.foo.Bar_Binder
+ * (com.foo.Outer_Inner_Binder for nested classes), looked up once per class.
+ */
+public final class FieldBinders {
+	public static final String SUFFIX = "_Binder";
+	
+	// classes without a binder map to this
+	private static final FieldBinder NONE = new FieldBinder() {
+		public boolean readField(Object obj, DataSection d) { return false; }
+		public boolean load(Object obj, String base, SaveFileLoader loader) { return false; }
+		public boolean save(Object obj, String base, SaveFileWriter save) { return false; }
+		public boolean loadPreferences(Object obj, String base, SharedPreferences prefs) { return false; }
+		public boolean savePreferences(Object obj, String base, SharedPreferences.Editor edit) { return false; }
+		public boolean clearPreferences(Object obj, String base, SharedPreferences.Editor edit) { return false; }
+	};
+	
+	private static final HashMap<Class<?>, FieldBinder> binders = new HashMap<Class<?>, FieldBinder>();
+	
+	private FieldBinders() {
+	}
+	
+	/** Returns the binder for exactly this class, null if there is none. */
+	public static FieldBinder get(Class<?> c) {
+		FieldBinder binder;
+		
+		synchronized (binders) {
+			binder = binders.get(c);
+		}
+		
+		if(binder == null) {
+			try {
+				binder = (FieldBinder)Class.forName(getBinderName(c), true, c.getClassLoader()).newInstance();
+			} catch(Exception e) {
+				binder = NONE;
+			}
+			
+			synchronized (binders) {
+				binders.put(c, binder);
+			}
+		}
+		
+		return binder != NONE ? binder : null;
+	}
+	
+	/**
+	 * Sets the binder of a class, e.g. a hand written one.  null forgets it, the generated binder
+	 * is looked up again, falling back to reflection if there is none.
+	 */
+	public static void register(Class<?> c, FieldBinder binder) {
+		synchronized (binders) {
+			if(binder != null) {
+				binders.put(c, binder);
+			}
+			else {
+				binders.remove(c);
+			}
+		}
+	}
+	
+	/** The name of the generated binder class. */
+	public static String getBinderName(Class<?> c) {
+		return c.getName().replace('$', '_') + SUFFIX;
+	}
+}
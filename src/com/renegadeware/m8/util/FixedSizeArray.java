@@ -34,7 +34,7 @@ import com.renegadeware.m8.DebugLog;
  */
 public class FixedSizeArray<T> extends AllocationGuard {
     private final static int LINEAR_SEARCH_CUTOFF = 16;
-    private final T[] mContents;
+    private T[] mContents;
     private int mCount;
     private Comparator<T> mComparator;
     private boolean mSorted;
@@ -293,6 +293,20 @@ public class FixedSizeArray<T> extends AllocationGuard {
         return mContents.length;
     }
     
+    /**
+     * Changes the capacity of the array, keeping its contents.  The capacity can't go below the
+     * current count.  Note that this allocates a new internal array, so avoid calling it in the
+     * middle of a frame, and any array previously returned by getArray() is no longer valid.
+     */
+    public void setCapacity(int capacity) {
+        assert capacity >= mCount;
+        if (capacity != mContents.length && capacity >= mCount && capacity > 0) {
+            T[] contents = (T[])new Object[capacity];
+            System.arraycopy(mContents, 0, contents, 0, mCount);
+            mContents = contents;
+        }
+    }
+    
     /** Sets a comparator to use for sorting and searching. */
     public void setComparator(Comparator<T> comparator) {
         mComparator = comparator;
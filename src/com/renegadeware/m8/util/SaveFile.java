@@ -1,6 +1,7 @@
 package com.renegadeware.m8.util;
 
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.lang.reflect.Array;
@@ -14,6 +15,10 @@ import android.util.SparseBooleanArray;
 
 /**
  * Convenient static data serialization.
+ * <p>
+ * The stream methods read and write the original format.  The file methods use the indexed format
+ * of SaveFileLoader, which is mapped and decoded on demand, and saveIncremental only appends the
+ * entries that changed.  Files of either format are loaded.
  * 
  * @author ddionisio
  *
@@ -22,6 +27,12 @@ public abstract class SaveFile {
 	
 	private final byte[] fourBytes = new byte[4];
 	
+	// the file last loaded or saved, and what's in it
+	private final Object fileLock = new Object();
+	private File currentFile;
+	private SaveFileLoader current;
+	private boolean compacting;
+	
 	public abstract int getVersion();
 	
 	private SparseBooleanArray _loadSparseBooleanArray(SparseBooleanArray sa, String name, SaveFileLoader loader) {
@@ -285,6 +296,11 @@ public abstract class SaveFile {
 	}
 	
 	private void _loadClass(String base, Object obj, Class<?> c, SaveFileLoader loader) throws Exception {
+		FieldBinder binder = FieldBinders.get(c);
+		if(binder != null && binder.load(obj, base, loader)) {
+			return;
+		}
+		
 		Field[] fields = c.getDeclaredFields();
 
 		for(int i = 0; i < fields.length; i++) {
@@ -305,11 +321,105 @@ public abstract class SaveFile {
 		
 		//TODO: backwards compatibility
 		
-		SaveFileLoader loader = new SaveFileLoader(is);
+		SaveFileLoader loader;
+		if(version == SaveFileLoader.MAGIC) {
+			loader = SaveFileLoader.readIndexed(is);
+		}
+		else {
+			loader = new SaveFileLoader(is);
+		}
 		
 		_loadClass("", this, getClass(), loader);
 	}
 	
+	/**
+	 * Loads from a file of either format.  An indexed file is mapped, and only the entries
+	 * asked for are decoded.
+	 */
+	public void load(File file) throws Exception {
+		synchronized(fileLock) {
+			SaveFileLoader loader = SaveFileLoader.open(file);
+			
+			_loadClass("", this, getClass(), loader);
+			
+			currentFile = file;
+			current = loader;
+		}
+	}
+	
+	/**
+	 * Writes the whole file in the indexed format.
+	 */
+	public void save(File file) throws Exception {
+		SaveFileWriter save = new SaveFileWriter();
+		
+		_saveClass("", this, getClass(), save);
+		
+		synchronized(fileLock) {
+			save.write(file, getVersion());
+			
+			currentFile = file;
+			current = SaveFileLoader.open(file);
+		}
+	}
+	
+	/**
+	 * Appends only the entries that changed since the file was last loaded or saved.  The whole
+	 * file is written instead if it isn't the indexed format of the current version.  Once the
+	 * journal outgrows the rest of the file, it is compacted in the background.
+	 */
+	public void saveIncremental(File file) throws Exception {
+		SaveFileWriter save = new SaveFileWriter();
+		
+		_saveClass("", this, getClass(), save);
+		
+		synchronized(fileLock) {
+			if(current == null || !current.isIndexed() || current.getVersion() != getVersion()
+					|| !file.equals(currentFile)) {
+				save.write(file, getVersion());
+			}
+			else if(save.append(file, current) == 0) {
+				return;
+			}
+			
+			currentFile = file;
+			current = SaveFileLoader.open(file);
+			
+			if(!compacting && current.getJournalSize() > current.getJournalStart()) {
+				compacting = true;
+				
+				final Thread t = new Thread(new Runnable() {
+					public void run() {
+						compact();
+					}
+				}, "Mate SaveFile Compact");
+				t.setDaemon(true);
+				t.start();
+			}
+		}
+	}
+	
+	/** Rewrites the current file without its journal. */
+	private void compact() {
+		synchronized(fileLock) {
+			try {
+				SaveFileWriter save = new SaveFileWriter();
+				
+				for(String key : current.getKeys()) {
+					save.putBytes(key, current.getBytes(key));
+				}
+				
+				save.write(currentFile, current.getVersion());
+				
+				current = SaveFileLoader.open(currentFile);
+			} catch(Exception e) {
+				DebugLog.e("SaveFile", "Unable to compact "+currentFile, e);
+			} finally {
+				compacting = false;
+			}
+		}
+	}
+	
 	
 	private void _saveSparseBooleanArray(SparseBooleanArray sa, String name, SaveFileWriter save) {
 		byte[] bytes = null;
@@ -505,6 +615,11 @@ public abstract class SaveFile {
 	}
 	
 	private void _saveClass(String base, Object obj, Class<?> c, SaveFileWriter save) throws Exception {
+		FieldBinder binder = FieldBinders.get(c);
+		if(binder != null && binder.save(obj, base, save)) {
+			return;
+		}
+		
 		Field[] fields = c.getDeclaredFields();
 
 		for(int i = 0; i < fields.length; i++) {
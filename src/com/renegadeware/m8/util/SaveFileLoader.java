@@ -1,19 +1,65 @@
 package com.renegadeware.m8.util;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
 
+/**
+ * Reads the entries of a save file.  Two formats are read:
+ * <p>
+ * The original stream format, read from an InputStream after the version, which loads every
+ * entry into dataMap.
+ * <p>
+ * The indexed format written by SaveFileWriter.write, usually memory mapped by open.  Entries are
+ * decoded on demand: a sorted key index at the head is binary searched, and values are read in
+ * place.  Entries appended by SaveFileWriter.append form a journal at the end of the file, which
+ * overrides the index.
+ * <pre>
+ * int magic, int version, int entry count, int journal start
+ * entry count * (int key offset, int value offset), sorted by key
+ * keys: int length, chars
+ * values: int length, bytes
+ * journal: (int key length, chars, int value length or -1 if removed, bytes)...
+ * </pre>
+ * Everything is little endian, like Util's conversions.
+ */
 public class SaveFileLoader {
+	static final int MAGIC = 0x3256534d; // MSV2
+	static final int HEADER_SIZE = 16;
+	static final int INDEX_ENTRY_SIZE = 8;
+	static final int REMOVED = -1;
+
+	/** The entries of the stream format, null for the indexed format. */
 	public FixedSizeMap<String, byte[]> dataMap;
-	
+
+	// indexed format
+	private ByteBuffer buffer;
+	private int version;
+	private int entryCount;
+	private int journalStart;
+	// end of the last whole journal record
+	private int journalEnd;
+	// key -> offset of the value's length in the journal
+	private HashMap<String, Integer> journal;
+
+	/** Reads the stream format, positioned after the version. */
 	public SaveFileLoader(InputStream is) throws Exception {
 		byte[] fourBytes = new byte[4];
-		
+
 		//read the headers
 		is.read(fourBytes, 0, 4);
 		int numHeaders = Util.byteArrayToInt(fourBytes, 0);
-		
+
 		dataMap = new FixedSizeMap<String, byte[]>(numHeaders);
-		
+
 		for(int i = 0; i < numHeaders; i++) {
 			//read the string
 			StringBuffer str = new StringBuffer();
@@ -22,13 +68,13 @@ public class SaveFileLoader {
 				str.append((char)c);
 				c = is.read();
 			}
-			
+
 			if(str.length() > 0) {
 				//read number of bytes
 				is.read(fourBytes, 0, 4);
 				int numBytes = Util.byteArrayToInt(fourBytes, 0);
 				byte[] bytes = null;
-				
+
 				if(numBytes > 0) {
 					bytes = new byte[numBytes];
 					is.read(bytes, 0, numBytes);
@@ -36,49 +82,235 @@ public class SaveFileLoader {
 				else {
 					bytes = null;
 				}
-				
+
 				dataMap.put(str.toString(), bytes);
 			}
 		}
 	}
-	
+
+	/**
+	 * Reads the indexed format from a buffer starting with the magic.
+	 *
+	 * @throws IOException If the buffer is not in the indexed format.
+	 */
+	public SaveFileLoader(ByteBuffer buffer) throws IOException {
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+		final int limit = buffer.limit();
+
+		if(limit < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+			throw new IOException("Not an indexed save file.");
+		}
+
+		this.buffer = buffer;
+		version = buffer.getInt(4);
+		entryCount = buffer.getInt(8);
+		journalStart = buffer.getInt(12);
+
+		if(journalStart > limit || HEADER_SIZE + entryCount*INDEX_ENTRY_SIZE > journalStart) {
+			throw new IOException("Corrupt save file index.");
+		}
+
+		journal = new HashMap<String, Integer>();
+
+		// a record cut short by a crash during append is ignored, along with anything after it
+		int pos = journalStart;
+		while(pos + 8 <= limit) {
+			// lengths are checked against what's left before adding, so garbage can't overflow
+			final int keyLen = buffer.getInt(pos);
+			if(keyLen < 0 || keyLen > (limit - pos - 8)/2) {
+				break;
+			}
+
+			final int valuePos = pos + 4 + keyLen*2;
+			final int valueLen = buffer.getInt(valuePos);
+			if(valueLen < REMOVED || valueLen > limit - valuePos - 4) {
+				break;
+			}
+
+			journal.put(readKey(pos), valuePos);
+
+			pos = valuePos + 4 + (valueLen > 0 ? valueLen : 0);
+		}
+
+		journalEnd = pos;
+	}
+
+	/**
+	 * Opens a save file of either format: the indexed format is mapped, the stream format is
+	 * read after its version.
+	 */
+	public static SaveFileLoader open(File file) throws Exception {
+		final FileInputStream fis = new FileInputStream(file);
+		try {
+			final FileChannel channel = fis.getChannel();
+			final long size = channel.size();
+
+			final ByteBuffer head = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+			while(head.hasRemaining() && channel.read(head) > 0);
+
+			if(head.position() == 4 && head.getInt(0) == MAGIC) {
+				return new SaveFileLoader(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+			}
+
+			// stream format, the version comes first
+			channel.position(0);
+
+			final byte[] fourBytes = new byte[4];
+			fis.read(fourBytes, 0, 4);
+
+			final SaveFileLoader loader = new SaveFileLoader(fis);
+			loader.version = Util.byteArrayToInt(fourBytes, 0);
+			return loader;
+		} finally {
+			fis.close();
+		}
+	}
+
+	/**
+	 * Reads the rest of a stream in the indexed format, after its magic has been read.
+	 */
+	static SaveFileLoader readIndexed(InputStream is) throws IOException {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+		final byte[] magic = new byte[4];
+		Util.intToByteArray(MAGIC, magic, 0);
+		bytes.write(magic);
+
+		final byte[] buf = new byte[4096];
+		int len;
+		while((len = is.read(buf)) > 0) {
+			bytes.write(buf, 0, len);
+		}
+
+		return new SaveFileLoader(ByteBuffer.wrap(bytes.toByteArray()));
+	}
+
+	/** Whether this is the indexed format. */
+	public boolean isIndexed() {
+		return buffer != null;
+	}
+
+	/** The version the file was saved with. */
+	public int getVersion() {
+		return version;
+	}
+
+	/** Bytes of the indexed format before the journal. */
+	public int getJournalStart() {
+		return isIndexed() ? journalStart : 0;
+	}
+
+	/**
+	 * End of the last whole record of the indexed format's journal, anything after it was cut
+	 * short and is ignored.
+	 */
+	public int getJournalEnd() {
+		return isIndexed() ? journalEnd : 0;
+	}
+
+	/** Bytes appended to the indexed format since it was last written whole. */
+	public int getJournalSize() {
+		return isIndexed() ? journalEnd - journalStart : 0;
+	}
+
+	/** All the keys, for writing the entries elsewhere. */
+	public ArrayList<String> getKeys() {
+		final ArrayList<String> keys = new ArrayList<String>();
+
+		if(!isIndexed()) {
+			keys.addAll(dataMap.keySet());
+			return keys;
+		}
+
+		for(int i = 0; i < entryCount; i++) {
+			final String key = readKey(buffer.getInt(HEADER_SIZE + i*INDEX_ENTRY_SIZE));
+			if(!journal.containsKey(key)) {
+				keys.add(key);
+			}
+		}
+
+		for(Map.Entry<String, Integer> e : journal.entrySet()) {
+			if(buffer.getInt(e.getValue()) != REMOVED) {
+				keys.add(e.getKey());
+			}
+		}
+
+		return keys;
+	}
+
 	public boolean getBoolean(String key, boolean defVal) {
+		if(isIndexed()) {
+			final int pos = find(key);
+			return pos >= 0 && buffer.getInt(pos) > 0 ? buffer.get(pos+4) == 1 : defVal;
+		}
+
 		byte[] b = dataMap.get(key);
 		if(b != null && b.length > 0) {
 			return b[0] == 1;
 		}
-		
+
 		return defVal;
 	}
-	
+
 	public float getFloat(String key, float defVal) {
+		if(isIndexed()) {
+			final int pos = find(key);
+			return pos >= 0 && buffer.getInt(pos) == 4 ? buffer.getFloat(pos+4) : defVal;
+		}
+
 		byte[] b = dataMap.get(key);
 		if(b != null && b.length == 4) {
 			return Util.byteArrayToFloat(b, 0);
 		}
-		
+
 		return defVal;
 	}
-	
+
 	public int getInt(String key, int defVal) {
+		if(isIndexed()) {
+			final int pos = find(key);
+			return pos >= 0 && buffer.getInt(pos) == 4 ? buffer.getInt(pos+4) : defVal;
+		}
+
 		byte[] b = dataMap.get(key);
 		if(b != null && b.length == 4) {
 			return Util.byteArrayToInt(b, 0);
 		}
-		
+
 		return defVal;
 	}
-	
+
 	public long getLong(String key, long defVal) {
+		if(isIndexed()) {
+			final int pos = find(key);
+			return pos >= 0 && buffer.getInt(pos) == 8 ? buffer.getLong(pos+4) : defVal;
+		}
+
 		byte[] b = dataMap.get(key);
 		if(b != null && b.length == 8) {
 			return Util.byteArrayToLong(b, 0);
 		}
-		
+
 		return defVal;
 	}
-	
+
 	public String getString(String key, String defVal) {
+		if(isIndexed()) {
+			final int pos = find(key);
+			final int num = pos >= 0 ? buffer.getInt(pos) : 0;
+			if(num > 0) {
+				// same decoding as the stream format
+				StringBuffer str = new StringBuffer(num);
+				for(int i = 0; i < num; i++) {
+					str.append((char)buffer.get(pos+4+i));
+				}
+				return str.toString();
+			}
+
+			return defVal;
+		}
+
 		byte[] b = dataMap.get(key);
 		if(b != null) {
 			int num = b.length;
@@ -90,15 +322,123 @@ public class SaveFileLoader {
 				return str.toString();
 			}
 		}
-		
+
 		return defVal;
 	}
-	
+
+	/** The entry's bytes, a copy for the indexed format. */
 	public byte[] getBytes(String key) {
+		if(isIndexed()) {
+			final int pos = find(key);
+			final int num = pos >= 0 ? buffer.getInt(pos) : 0;
+			if(num <= 0) {
+				// empty entries read as null, like the stream format
+				return null;
+			}
+
+			// a duplicate keeps the shared buffer's position untouched
+			final ByteBuffer data = buffer.duplicate();
+			data.position(pos+4);
+
+			final byte[] b = new byte[num];
+			data.get(b, 0, num);
+			return b;
+		}
+
 		return dataMap.get(key);
 	}
-	
+
 	public boolean hasItem(String key) {
+		if(isIndexed()) {
+			return find(key) >= 0;
+		}
+
 		return dataMap.containsKey(key);
 	}
+
+	/** Whether the entry exists with exactly these bytes, without copying it. */
+	public boolean valueEquals(String key, byte[] b) {
+		if(!isIndexed()) {
+			final byte[] cur = dataMap.get(key);
+			return dataMap.containsKey(key) && java.util.Arrays.equals(cur, b);
+		}
+
+		final int pos = find(key);
+		if(pos < 0) {
+			return false;
+		}
+
+		final int num = buffer.getInt(pos);
+		if(b == null) {
+			return num == 0;
+		}
+
+		if(num != b.length) {
+			return false;
+		}
+
+		for(int i = 0; i < num; i++) {
+			if(buffer.get(pos+4+i) != b[i]) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/** Offset of the value's length, -1 if there is no entry. */
+	private int find(String key) {
+		if(!journal.isEmpty()) {
+			final Integer pos = journal.get(key);
+			if(pos != null) {
+				return buffer.getInt(pos) != REMOVED ? pos : -1;
+			}
+		}
+
+		int lo = 0;
+		int hi = entryCount - 1;
+		while(lo <= hi) {
+			final int mid = (lo + hi) >>> 1;
+			final int entry = HEADER_SIZE + mid*INDEX_ENTRY_SIZE;
+
+			final int cmp = compareKey(buffer.getInt(entry), key);
+			if(cmp < 0) {
+				lo = mid + 1;
+			}
+			else if(cmp > 0) {
+				hi = mid - 1;
+			}
+			else {
+				return buffer.getInt(entry + 4);
+			}
+		}
+
+		return -1;
+	}
+
+	/** Compares the stored key with key, like String.compareTo. */
+	private int compareKey(int keyPos, String key) {
+		final int len = buffer.getInt(keyPos);
+		final int keyLen = key.length();
+		final int n = len < keyLen ? len : keyLen;
+
+		for(int i = 0; i < n; i++) {
+			final char c = buffer.getChar(keyPos + 4 + i*2);
+			final char k = key.charAt(i);
+			if(c != k) {
+				return c - k;
+			}
+		}
+
+		return len - keyLen;
+	}
+
+	private String readKey(int keyPos) {
+		final int len = buffer.getInt(keyPos);
+		final char[] chars = new char[len];
+		for(int i = 0; i < len; i++) {
+			chars[i] = buffer.getChar(keyPos + 4 + i*2);
+		}
+		return new String(chars);
+	}
 }
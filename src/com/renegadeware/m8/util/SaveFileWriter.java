@@ -1,6 +1,15 @@
 package com.renegadeware.m8.util;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Set;
 
@@ -52,6 +61,161 @@ public class SaveFileWriter {
 		}
 	}
 	
+	/**
+	 * Writes the whole file in the indexed format of SaveFileLoader, to a temporary file first so
+	 * a crash never leaves a partial save behind.
+	 */
+	public void write(File file, int version) throws IOException {
+		final ArrayList<String> keys = new ArrayList<String>(dataMap.keySet());
+		Collections.sort(keys);
+
+		final int num = keys.size();
+
+		int keySize = 0;
+		int valueSize = 0;
+		for(int i = 0; i < num; i++) {
+			final String key = keys.get(i);
+			final byte[] d = dataMap.get(key);
+			keySize += 4 + key.length()*2;
+			valueSize += 4 + (d != null ? d.length : 0);
+		}
+
+		final int indexSize = num*SaveFileLoader.INDEX_ENTRY_SIZE;
+		final int size = SaveFileLoader.HEADER_SIZE + indexSize + keySize + valueSize;
+
+		final ByteBuffer buf = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+		buf.putInt(SaveFileLoader.MAGIC);
+		buf.putInt(version);
+		buf.putInt(num);
+		buf.putInt(size);
+
+		int keyPos = SaveFileLoader.HEADER_SIZE + indexSize;
+		int valuePos = keyPos + keySize;
+
+		for(int i = 0; i < num; i++) {
+			final String key = keys.get(i);
+			final byte[] d = dataMap.get(key);
+
+			buf.putInt(SaveFileLoader.HEADER_SIZE + i*SaveFileLoader.INDEX_ENTRY_SIZE, keyPos);
+			buf.putInt(SaveFileLoader.HEADER_SIZE + i*SaveFileLoader.INDEX_ENTRY_SIZE + 4, valuePos);
+
+			buf.position(keyPos);
+			putKey(buf, key);
+			keyPos = buf.position();
+
+			buf.position(valuePos);
+			putValue(buf, d);
+			valuePos = buf.position();
+		}
+
+		buf.rewind();
+
+		final File tmp = new File(file.getPath() + ".tmp");
+		final FileOutputStream fos = new FileOutputStream(tmp);
+		try {
+			final FileChannel channel = fos.getChannel();
+			while(buf.hasRemaining()) {
+				channel.write(buf);
+			}
+			fos.getFD().sync();
+		} finally {
+			fos.close();
+		}
+
+		if(!tmp.renameTo(file)) {
+			tmp.delete();
+			throw new IOException("Unable to replace "+file);
+		}
+	}
+
+	/**
+	 * Appends the entries that differ from previous to the journal of the indexed file it was
+	 * opened from, along with the removal of the entries no longer here.  Nothing already in the
+	 * file is rewritten, previous is stale afterwards.  A record left cut short by a crash is
+	 * written over, otherwise the loader would stop at it and never see the new ones.
+	 *
+	 * @return The number of bytes appended.
+	 */
+	public int append(File file, SaveFileLoader previous) throws IOException {
+		final ArrayList<String> changed = new ArrayList<String>();
+		int size = 0;
+
+		for(java.util.Map.Entry<String, byte[]> e : dataMap.entrySet()) {
+			final String key = e.getKey();
+			final byte[] d = e.getValue();
+			if(!previous.valueEquals(key, d)) {
+				changed.add(key);
+				size += 8 + key.length()*2 + (d != null ? d.length : 0);
+			}
+		}
+
+		final ArrayList<String> removed = new ArrayList<String>();
+		for(String key : previous.getKeys()) {
+			if(!dataMap.containsKey(key)) {
+				removed.add(key);
+				size += 8 + key.length()*2;
+			}
+		}
+
+		if(size == 0) {
+			return 0;
+		}
+
+		final ByteBuffer buf = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+
+		for(int i = 0; i < changed.size(); i++) {
+			final String key = changed.get(i);
+			putKey(buf, key);
+			putValue(buf, dataMap.get(key));
+		}
+
+		for(int i = 0; i < removed.size(); i++) {
+			putKey(buf, removed.get(i));
+			buf.putInt(SaveFileLoader.REMOVED);
+		}
+
+		buf.rewind();
+
+		final int journalEnd = previous.getJournalEnd();
+
+		final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			final FileChannel channel = raf.getChannel();
+			if(channel.size() < journalEnd) {
+				throw new IOException("Save file changed since it was opened: "+file);
+			}
+
+			channel.truncate(journalEnd);
+			channel.position(journalEnd);
+			while(buf.hasRemaining()) {
+				channel.write(buf);
+			}
+			raf.getFD().sync();
+		} finally {
+			raf.close();
+		}
+
+		return size;
+	}
+
+	private static void putKey(ByteBuffer buf, String key) {
+		final int len = key.length();
+		buf.putInt(len);
+		for(int i = 0; i < len; i++) {
+			buf.putChar(key.charAt(i));
+		}
+	}
+
+	private static void putValue(ByteBuffer buf, byte[] d) {
+		if(d != null) {
+			buf.putInt(d.length);
+			buf.put(d);
+		}
+		else {
+			buf.putInt(0);
+		}
+	}
+	
 	public SaveFileWriter putBoolean(String key, boolean val) {
 		byte[] b = new byte[1];
 		b[0] = (byte)(val ? 1 : 0);
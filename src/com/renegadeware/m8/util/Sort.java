@@ -78,6 +78,75 @@ public final class Sort {
 	    }
 	}
 	
+	//////////////////////////////////////
+	// radix
+	
+	public static final int RADIX_COUNTS_SIZE = 8*256;
+	
+	/**
+	 * Stable LSD radix sort of 64-bit keys compared as unsigned, values are moved along with their
+	 * keys.  This does no allocation, the scratch arrays need to hold at least size elements and
+	 * counts at least RADIX_COUNTS_SIZE.  Byte passes where all keys are equal are skipped.
+	 */
+	public static final void radix(long[] keys, int[] values, int size, 
+			long[] keysScratch, int[] valuesScratch, int[] counts) {
+		if(size < 2) {
+			return;
+		}
+		
+		for(int i = 0; i < RADIX_COUNTS_SIZE; ++i) {
+			counts[i] = 0;
+		}
+		
+		//histogram of every byte in one go
+		for(int i = 0; i < size; ++i) {
+			final long k = keys[i];
+			counts[         (int)k         & 0xff]++;
+			counts[0x100 | ((int)(k >>> 8)  & 0xff)]++;
+			counts[0x200 | ((int)(k >>> 16) & 0xff)]++;
+			counts[0x300 | ((int)(k >>> 24) & 0xff)]++;
+			counts[0x400 | ((int)(k >>> 32) & 0xff)]++;
+			counts[0x500 | ((int)(k >>> 40) & 0xff)]++;
+			counts[0x600 | ((int)(k >>> 48) & 0xff)]++;
+			counts[0x700 | ((int)(k >>> 56) & 0xff)]++;
+		}
+		
+		long[] src = keys, dst = keysScratch;
+		int[] vsrc = values, vdst = valuesScratch;
+		
+		for(int b = 0; b < 8; ++b) {
+			final int base = b << 8;
+			final int shift = b << 3;
+			
+			//every key has the same byte, nothing to do
+			if(counts[base + ((int)(src[0] >>> shift) & 0xff)] == size) {
+				continue;
+			}
+			
+			int sum = 0;
+			for(int j = base; j < base + 256; ++j) {
+				final int c = counts[j];
+				counts[j] = sum;
+				sum += c;
+			}
+			
+			for(int i = 0; i < size; ++i) {
+				final long k = src[i];
+				final int pos = counts[base + ((int)(k >>> shift) & 0xff)]++;
+				dst[pos] = k;
+				vdst[pos] = vsrc[i];
+			}
+			
+			long[] tk = src; src = dst; dst = tk;
+			int[] tv = vsrc; vsrc = vdst; vdst = tv;
+		}
+		
+		if(src != keys) {
+			System.arraycopy(src, 0, keys, 0, size);
+			System.arraycopy(vsrc, 0, values, 0, size);
+		}
+	}
+	
 	//////////////////////////////////////
 	// for no comparator
 	static final ObjectComparator defaultComparator = new ObjectComparator();
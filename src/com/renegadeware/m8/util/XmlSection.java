@@ -42,7 +42,7 @@ public class XmlSection extends DataSection {
 					
 					// read attributes
 					for(int i = 0; i < attrCount; ++i) {						
-						cur.attrs.put(xml.getAttributeName(i), xml.getAttributeValue(i));
+						cur.setAttributeString(xml.getAttributeName(i), xml.getAttributeValue(i));
 					}
 					
 					//if there is a last one, append current to last's children
@@ -74,16 +74,37 @@ public class XmlSection extends DataSection {
 		return last;
 	}
 
+	/** Makes a modifiable copy of a section and everything under it, including attributes. */
+	public static XmlSection createCopy(DataSection section) {
+		XmlSection ret = new XmlSection(section.sectionName());
+		ret.value = section.asString(0);
+		
+		int attrCount = section.countAttributes();
+		for(int i = 0; i < attrCount; ++i) {
+			String name = section.attributeName(i);
+			ret.setAttributeString(name, section.getAttributeAsString(name, 0));
+		}
+		
+		for(DataSection d : section) {
+			XmlSection child = createCopy(d);
+			child.parent = new WeakReference<DataSection>(ret);
+			ret.children.add(child);
+		}
+		
+		return ret;
+	}
+
 	public XmlSection(String tag) {
 		this.tag = tag;
 		
 		attrs = new HashMap<String, String>();
+		attrNames = new ArrayList<String>();
 		children = new ArrayList<XmlSection>();
 	}
 	
 	public int sizeInBytes() {
 		int sz = 0;
-		sz += tag.length() + value.length();
+		sz += tag.length() + (value != null ? value.length() : 0);
 		for(XmlSection d : children) {
 			sz += d.sizeInBytes();
 		}
@@ -189,6 +210,16 @@ public class XmlSection extends DataSection {
 		//TODO: implement me
 		return false;
 	}
+	
+	@Override
+	public int countAttributes() {
+		return attrNames.size();
+	}
+	
+	@Override
+	public String attributeName(int index) {
+		return attrNames.get(index);
+	}
 
 	/////////////////////////////////////////////////////
 	// Methods for reading the value of the DataSection
@@ -200,48 +231,22 @@ public class XmlSection extends DataSection {
 
 	@Override
 	public int asInt(int defaultVal) {
-		try {
-			return Integer.parseInt(value);
-		} catch(NumberFormatException e) {
-			try {
-				return Integer.parseInt(value, 16);
-			}
-			catch(NumberFormatException e2) {
-				return defaultVal;
-			}
-		}
+		return parseInt(value, defaultVal);
 	}
 
 	@Override
 	public long asLong(long defaultVal ) { 
-		try {
-			return Long.parseLong(value);
-		} catch(NumberFormatException e) {
-			try {
-				return Long.parseLong(value, 16);
-			}
-			catch(NumberFormatException e2) {
-				return defaultVal;
-			}
-		}
+		return parseLong(value, defaultVal);
 	}
 
 	@Override
 	public float asFloat(float defaultVal) { 
-		try {
-			return Float.parseFloat(value);
-		} catch(NumberFormatException e) {
-			return defaultVal; 
-		}
+		return parseFloat(value, defaultVal);
 	}
 
 	@Override
 	public double asDouble(double defaultVal) { 
-		try {
-			return Double.parseDouble(value);
-		} catch(NumberFormatException e) {
-			return defaultVal; 
-		}
+		return parseDouble(value, defaultVal);
 	}
 
 	@Override
@@ -251,17 +256,7 @@ public class XmlSection extends DataSection {
 
 	@Override
 	public Vector2 asVector2(Vector2 defaultVal) {
-		String[] vals = value.split("[, \\t\\n\\x0B\\f\\r]");
-		if(vals.length >= 2) {
-			Vector2 vec = new Vector2();
-			try {
-				vec.x = Float.parseFloat(vals[0]);
-				vec.y = Float.parseFloat(vals[1]);
-			} catch(NumberFormatException e) {
-				return defaultVal; 
-			}
-		}
-		return defaultVal;
+		return parseVector2(value, defaultVal);
 	}
 
 	/////////////////////////////////////////////////////
@@ -324,126 +319,72 @@ public class XmlSection extends DataSection {
 	
 	@Override
 	public int getAttributeAsInt(String attr, int defaultVal) {
-		String val = attrs.get(attr);
-		if(val != null) {
-			try {
-				return Integer.parseInt(val);
-			} catch(NumberFormatException e) {
-				try {
-					return Integer.parseInt(val, 16);
-				}
-				catch(NumberFormatException e2) {
-					return defaultVal;
-				}
-			}
-		}
-		
-		return defaultVal; 
+		return parseInt(attrs.get(attr), defaultVal);
 	}
 	
 	@Override
 	public long getAttributeAsLong(String attr, long defaultVal) {
-		String val = attrs.get(attr);
-		if(val != null) {
-			try {
-				return Long.parseLong(val);
-			} catch(NumberFormatException e) {
-				try {
-					return Long.parseLong(val, 16);
-				}
-				catch(NumberFormatException e2) {
-					return defaultVal;
-				}
-			}
-		}
-		
-		return defaultVal; 
+		return parseLong(attrs.get(attr), defaultVal);
 	}
 	
 	@Override
 	public float getAttributeAsFloat(String attr, float defaultVal) {
-		String val = attrs.get(attr);
-		if(val != null) {
-			try {
-				return Float.parseFloat(val);
-			} catch(NumberFormatException e) {
-				return defaultVal;
-			}
-		}
-		
-		return defaultVal; 
+		return parseFloat(attrs.get(attr), defaultVal);
 	}
 	
 	@Override
 	public double getAttributeAsDouble(String attr, double defaultVal) {
-		String val = attrs.get(attr);
-		if(val != null) {
-			try {
-				return Double.parseDouble(val);
-			} catch(NumberFormatException e) {
-				return defaultVal;
-			}
-		}
-		
-		return defaultVal; 
+		return parseDouble(attrs.get(attr), defaultVal);
 	}
 	
 	@Override
 	public Vector2 getAttributeAsVector2(String attr, Vector2 defaultVal) {
-		String val = attrs.get(attr);
-		if(val != null) {
-			String[] vals = val.split("[, \\t\\n\\x0B\\f\\r]");
-			if(vals.length >= 2) {
-				Vector2 vec = new Vector2();
-				try {
-					vec.x = Float.parseFloat(vals[0]);
-					vec.y = Float.parseFloat(vals[1]);
-				} catch(NumberFormatException e) {
-					return defaultVal.clone();
-				}
-			}
-		}
-		
-		return defaultVal.clone();
+		return parseVector2(attrs.get(attr), defaultVal);
 	}
 	
 	@Override
 	public boolean setAttributeString(String attr, String val) {
-		attrs.put(attr, val);
+		putAttribute(attr, val);
 		return true; 
 	}
 
 	@Override
 	public boolean setAttributeInt(String attr, int val) {
-		attrs.put(attr, String.valueOf(val));
+		putAttribute(attr, String.valueOf(val));
 		return true; 
 	}
 
 	@Override
 	public boolean setAttributeLong(String attr, long val) {
-		attrs.put(attr, String.valueOf(val));
+		putAttribute(attr, String.valueOf(val));
 		return true; 
 	}
 
 	@Override
 	public boolean setAttributeFloat(String attr, float val) {
-		attrs.put(attr, String.valueOf(val));
+		putAttribute(attr, String.valueOf(val));
 		return true;
 	}
 
 	@Override
 	public boolean setAttributeDouble(String attr, double val) {
-		attrs.put(attr, String.valueOf(val));
+		putAttribute(attr, String.valueOf(val));
 		return true;
 	}
 
 	@Override
 	public boolean setAttributeVector2(String attr, Vector2 val) {
-		attrs.put(attr, String.valueOf(val));
+		putAttribute(attr, String.valueOf(val));
 		return false;
 	}
 	
 
+	private void putAttribute(String attr, String val) {
+		if(attrs.put(attr, val) == null) {
+			attrNames.add(attr);
+		}
+	}
+
 	protected boolean writeToXmlStream(OutputStream stream) {
 		//TODO: implement me
 		return false;
@@ -453,5 +394,6 @@ public class XmlSection extends DataSection {
 	private String value;
 	private WeakReference<DataSection> parent;
 	private final HashMap<String, String> attrs;
+	private final ArrayList<String> attrNames;
 	private final ArrayList<XmlSection> children;
 }